@@ -0,0 +1,60 @@
+package com.retarus.fax;
+
+import com.retarus.fax.exception.ApiException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author thiagon
+ * <p>
+ * Enum for the threads the RetarusFax executor service runs the asynchronous operations on.
+ * <p>
+ * Possible values are:<p>
+ * PLATFORM_THREADS: a cached thread pool, creating a platform thread for every task running concurrently, available on Java 8 or later<p>
+ * VIRTUAL_THREADS: a new virtual thread for every task, so large batches of blocking requests do not pile up platform threads, available on Java 21 or later
+ */
+public enum ExecutionMode {
+    PLATFORM_THREADS,
+    VIRTUAL_THREADS;
+
+    //Virtual threads are part of Java 21, the SDK is compiled for Java 8, so the factory method is looked up by name
+    private static final String VIRTUAL_THREAD_EXECUTOR_METHOD = "newVirtualThreadPerTaskExecutor";
+
+    /**
+     * @return true if this mode is supported by the running Java version
+     */
+    public boolean isAvailable() {
+        if (this == PLATFORM_THREADS) {
+            return true;
+        }
+
+        try {
+            Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_METHOD);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates a new executor service running its tasks on the threads of this mode.
+     *
+     * @return the executor service
+     * @throws ApiException if the mode is not available on the running Java version
+     */
+    public ExecutorService createExecutorService() {
+        if (this == PLATFORM_THREADS) {
+            return Executors.newCachedThreadPool();
+        }
+
+        try {
+            return (ExecutorService) Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_METHOD).invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new ApiException("Virtual threads require Java 21 or later.", e);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new ApiException("Cannot create the virtual thread executor.", e);
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.retarus.fax;
 
-import java.util.concurrent.ExecutorService;
+import com.retarus.fax.exception.ApiException;
 
-import static java.util.concurrent.Executors.newCachedThreadPool;
+import java.util.concurrent.ExecutorService;
 
 public class RetarusFax {
     /**
@@ -13,18 +13,68 @@ public class RetarusFax {
 
     private static ExecutorService executorService;
 
+    //True if the executor service was created here, not set by the application, so it is shut down when it is replaced
+    private static boolean ownExecutorService;
+
+    private static ExecutionMode executionMode = ExecutionMode.PLATFORM_THREADS;
+
+    /**
+     * The executor service the asynchronous operations run on, when the transport cannot send the request without blocking.
+     * <br>If no executor service was set, one is created for the current execution mode.
+     *
+     * @return the executor service
+     */
     public static synchronized ExecutorService getExecutorService() {
         synchronized (RetarusFax.class) {
             if (executorService == null) {
-                executorService = newCachedThreadPool();
+                executorService = executionMode.createExecutorService();
+                ownExecutorService = true;
             }
         }
         return executorService;
     }
 
+    /**
+     * Set the executor service the asynchronous operations run on. It is never shut down by RetarusFax.
+     *
+     * @param executorService the executor service, or null to create one for the current execution mode when it is needed
+     */
     public static synchronized void setExecutorService(ExecutorService executorService) {
         synchronized (RetarusFax.class) {
             RetarusFax.executorService = executorService;
+            ownExecutorService = false;
+        }
+    }
+
+    /**
+     * @return the execution mode used to create the default executor service
+     */
+    public static synchronized ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Select the threads the asynchronous operations run on, replacing the current executor service.
+     * <br>The tasks already submitted to the previous executor service are completed on it. If it was created by RetarusFax,
+     * it is shut down then, so its threads end; an executor service set with {@link #setExecutorService(ExecutorService)} is left running.
+     * <br>For example, use {@link ExecutionMode#VIRTUAL_THREADS} on Java 21 or later to send large batches of requests
+     * asynchronously without creating a platform thread per request.
+     *
+     * @param executionMode the execution mode
+     * @throws ApiException if the mode is null or not available on the running Java version
+     */
+    public static synchronized void setExecutionMode(ExecutionMode executionMode) {
+        if (executionMode == null) {
+            throw new ApiException("The execution mode cannot be null.");
+        }
+        synchronized (RetarusFax.class) {
+            ExecutorService newExecutorService = executionMode.createExecutorService();
+            if (ownExecutorService && executorService != null) {
+                executorService.shutdown();
+            }
+            RetarusFax.executionMode = executionMode;
+            RetarusFax.executorService = newExecutorService;
+            ownExecutorService = true;
         }
     }
 }
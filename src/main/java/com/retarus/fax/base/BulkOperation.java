@@ -1,14 +1,15 @@
 package com.retarus.fax.base;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.retarus.fax.base.rest.RequestURL;
+import com.retarus.fax.base.rest.URLProvider;
 import com.retarus.fax.exception.ApiException;
 import com.retarus.fax.exception.AuthException;
-import com.retarus.fax.RetarusFax;
 import com.retarus.fax.base.bulkoperation.FaxBulkOperation;
 import com.retarus.fax.base.common.HttpMethod;
 import com.retarus.fax.http.Fax4ApplApiClient;
+import com.retarus.fax.utils.FutureUtils;
+import com.retarus.fax.utils.JsonCodec;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 
@@ -27,19 +28,60 @@ import static org.apache.http.HttpStatus.SC_OK;
 public abstract class BulkOperation<V, T> {
 
     protected Fax4ApplApiClient apiClient;
+    protected final URLProvider urlProvider;
 
     protected BulkOperation(Fax4ApplApiClient apiClient) {
+        this(apiClient, null);
+    }
+
+    /**
+     * @param apiClient   the client used to send the request
+     * @param urlProvider the location the request is sent to, null to let the location selector of the client choose one
+     */
+    protected BulkOperation(Fax4ApplApiClient apiClient, URLProvider urlProvider) {
         this.apiClient = apiClient;
+        this.urlProvider = urlProvider;
     }
 
     /**
-     * Base method for the bulk operations to be performed asynchronously.
+     * Base method for the bulk operations to be performed asynchronously, without blocking a thread while the request is in flight.
      *
      * @param data the data to be sent to the server
-     * @return a CompletableFuture object
+     * @return a CompletableFuture object, completed exceptionally with an ApiException or AuthException if the bulk operation fails
      */
     public CompletableFuture<T> performAsync(V data) {
-        return CompletableFuture.supplyAsync(() -> perform(data), RetarusFax.getExecutorService());
+        return performAsync(data, urlProvider);
+    }
+
+    /**
+     * Performs the bulk operation asynchronously on the given location.
+     *
+     * @param data        the data to be sent to the server
+     * @param urlProvider the location the request is sent to, null to let the location selector of the client choose one
+     * @return a CompletableFuture object, completed exceptionally with an ApiException or AuthException if the bulk operation fails
+     */
+    protected CompletableFuture<T> performAsync(V data, URLProvider urlProvider) {
+        String baseUrl = generateUrl(urlProvider);
+        String jsonPayload;
+        try {
+            jsonPayload = generateJsonPayload(data);
+        } catch (ApiException e) {
+            CompletableFuture<T> failedFuture = new CompletableFuture<>();
+            failedFuture.completeExceptionally(e);
+            return failedFuture;
+        }
+
+        return FutureUtils.handleResponse(apiClient.sendRequestAsync(HttpMethod.POST, baseUrl, jsonPayload),
+                response -> {
+                    try {
+                        return convertResponse(response, baseUrl, jsonPayload);
+                    } catch (IOException e) {
+                        throw new ApiException(e.getMessage(), e, baseUrl, jsonPayload, null);
+                    }
+                },
+                e -> {
+                    throw new ApiException(e.getMessage(), e, baseUrl, jsonPayload, null);
+                });
     }
 
     /**
@@ -70,42 +112,48 @@ public abstract class BulkOperation<V, T> {
      * @throws AuthException if the authentication fails
      */
     public T perform(V data) {
+        String baseUrl = generateUrl(urlProvider);
+        String jsonPayload = generateJsonPayload(data);
 
-        ObjectMapper objectMapper = new ObjectMapper();
+        HttpResponse response;
+        try {
+            response = apiClient.sendRequest(HttpMethod.POST, baseUrl, jsonPayload);
+            return convertResponse(response, baseUrl, jsonPayload);
+        } catch (IOException e) {
+            throw new ApiException(e.getMessage(), e, baseUrl, jsonPayload, null);
+        }
+    }
 
-        String baseUrl = apiClient.getLocale()
-                .getFetchUrl() + RequestURL.PERFORM_BULK_OPERATION_ON_STATUS_REPORT.toString()
+    private String generateUrl(URLProvider urlProvider) {
+        String fetchUrl = urlProvider == null ? apiClient.getLocale().getFetchUrl(apiClient.getLocationSelector()) : urlProvider.getFetchUrl();
+        return fetchUrl + RequestURL.PERFORM_BULK_OPERATION_ON_STATUS_REPORT.toString()
                 .replace(RequestURL.Constants.CUSTOMER_NUMBER_TAG, apiClient.getCustomerNumber());
+    }
+
+    private String generateJsonPayload(V data) {
         FaxBulkOperation faxBulkOperation = generateRequest(data);
 
-        String jsonPayload;
         try {
-            jsonPayload = objectMapper.writeValueAsString(faxBulkOperation);
+            return JsonCodec.FAX_BULK_OPERATION_WRITER.writeValueAsString(faxBulkOperation);
         } catch (JsonProcessingException e) {
             throw new ApiException(e.getMessage(), e);
         }
+    }
 
-        HttpResponse response;
-        try {
-            response = apiClient.sendRequest(HttpMethod.POST, baseUrl, jsonPayload);
-            int statusCode = response.getStatusLine().getStatusCode();
-            if (statusCode == SC_OK) {
-                return convertResponseToList(response);
-            } else if (statusCode == SC_NOT_FOUND) {
-                return returnEmptyList();
-            } else if (statusCode == HttpStatus.SC_UNAUTHORIZED || statusCode == HttpStatus.SC_BAD_REQUEST) {
-                throw new AuthException("Authentication failed.", new Throwable());
-            } else if (statusCode == HttpStatus.SC_INTERNAL_SERVER_ERROR) {
-                throw new ApiException("Internal Server Error.", new Throwable(), baseUrl, jsonPayload, response);
-            } else if (statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE) {
-                throw new ApiException("Service Unavailable.", new Throwable(), baseUrl, jsonPayload, response);
-            } else {
-                throw new ApiException("Cannot perform the desired bulk operation", new Throwable(), baseUrl, jsonPayload, response);
-            }
-        } catch (IOException e) {
-            throw new ApiException(e.getMessage(), e, baseUrl, jsonPayload, null);
+    private T convertResponse(HttpResponse response, String baseUrl, String jsonPayload) throws IOException {
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode == SC_OK) {
+            return convertResponseToList(response);
+        } else if (statusCode == SC_NOT_FOUND) {
+            return returnEmptyList();
+        } else if (statusCode == HttpStatus.SC_UNAUTHORIZED || statusCode == HttpStatus.SC_BAD_REQUEST) {
+            throw new AuthException("Authentication failed.", new Throwable());
+        } else if (statusCode == HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+            throw new ApiException("Internal Server Error.", new Throwable(), baseUrl, jsonPayload, response);
+        } else if (statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+            throw new ApiException("Service Unavailable.", new Throwable(), baseUrl, jsonPayload, response);
+        } else {
+            throw new ApiException("Cannot perform the desired bulk operation", new Throwable(), baseUrl, jsonPayload, response);
         }
-
-
     }
 }
@@ -0,0 +1,309 @@
+package com.retarus.fax.base;
+
+import com.retarus.fax.RetarusFax;
+import com.retarus.fax.base.bulkoperation.BulkChunkFailure;
+import com.retarus.fax.base.bulkoperation.BulkOperationResult;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.URLProvider;
+import com.retarus.fax.exception.ApiException;
+import com.retarus.fax.exception.AuthException;
+import com.retarus.fax.http.Fax4ApplApiClient;
+import com.retarus.fax.utils.FutureUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * @param <R> The type of the reports returned by the server for each job id.
+ * @author thiagon
+ * <p>
+ * Abstract class for the bulk operations on a list of job ids, which can split any number of job ids into requests of at most 1000 of them.
+ * <br>The chunks are sent asynchronously to every location at the same time, at most parallelism of them in flight per location,
+ * so the rate limit and the retries of the client apply to each of them.
+ * A chunk that fails does not stop the others: it is reported with its job ids and location, so only these need to be processed again.
+ */
+public abstract class ChunkedBulkOperation<R> extends BulkOperation<List<String>, List<R>> {
+
+    /**
+     * The maximum number of job ids the server accepts in a bulk operation.
+     */
+    public static final int MAX_CHUNK_SIZE = 1000;
+
+    /**
+     * The number of chunks in flight per location for {@link #perform(List)} and {@link #performAsync(List)}.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    protected ChunkedBulkOperation(Fax4ApplApiClient apiClient) {
+        super(apiClient);
+    }
+
+    /**
+     * @param apiClient   the client used to send the requests
+     * @param urlProvider the location the requests are sent to, null to send them to every location of the client
+     */
+    protected ChunkedBulkOperation(Fax4ApplApiClient apiClient, URLProvider urlProvider) {
+        super(apiClient, urlProvider);
+    }
+
+    /**
+     * Performs the bulk operation on any number of job ids, in chunks of at most 1000 of them, on every location, and merges the reports by job id.
+     * <br>A job id no location knows is returned with the report of a missing job id, if the operation has one.
+     * <br>A chunk that fails on one location does not fail the operation if the other locations found all its job ids.
+     *
+     * @param jobIds the job ids
+     * @return the reports of the job ids
+     * @throws ApiException  if a chunk fails and a job id of it was found by no location, use performAll to keep the reports of the other chunks
+     * @throws AuthException if the authentication fails
+     */
+    @Override
+    public List<R> perform(List<String> jobIds) {
+        try {
+            return performAsync(jobIds).join();
+        } catch (CompletionException e) {
+            throw toRuntimeException(FutureUtils.unwrap(e));
+        }
+    }
+
+    /**
+     * Performs the bulk operation asynchronously on any number of job ids, in chunks of at most 1000 of them, on every location, see {@link #perform(List)}.
+     *
+     * @param jobIds the job ids
+     * @return the reports of the job ids, completed exceptionally with an ApiException or AuthException
+     * if a chunk fails and a job id of it was found by no location
+     */
+    @Override
+    public CompletableFuture<List<R>> performAsync(List<String> jobIds) {
+        List<R> reports = new ArrayList<>();
+        return performAllAsync(jobIds, DEFAULT_PARALLELISM, reports::addAll).thenApply(result -> {
+            if (!result.getFailures().isEmpty()) {
+                // The job ids of a failed chunk are only unanswered if no other location found them
+                Set<String> found = new HashSet<>();
+                for (R report : reports) {
+                    found.add(getJobId(report));
+                }
+                for (BulkChunkFailure failure : result.getFailures()) {
+                    if (!found.containsAll(failure.getJobIds())) {
+                        throw toRuntimeException(failure.getException());
+                    }
+                }
+            }
+            for (String jobId : result.getNotFound()) {
+                R report = notFoundReport(jobId);
+                if (report != null) {
+                    reports.add(report);
+                }
+            }
+            return reports;
+        });
+    }
+
+    /**
+     * Performs the bulk operation on any number of job ids, in chunks of at most 1000 of them, on every location, and merges the reports by job id.
+     *
+     * @param jobIds      the job ids
+     * @param parallelism the maximum number of chunks in flight per location
+     * @return the reports found, the job ids found nowhere, and the chunks that failed
+     * @throws ApiException if the parallelism is not positive
+     */
+    public BulkOperationResult<R> performAll(List<String> jobIds, int parallelism) {
+        List<R> reports = new ArrayList<>();
+        try {
+            return performAllAsync(jobIds, parallelism, reports::addAll)
+                    .thenApply(result -> new BulkOperationResult<>(reports, result.getNotFound(), result.getFailures(), result.getChunks()))
+                    .join();
+        } catch (CompletionException e) {
+            throw toRuntimeException(FutureUtils.unwrap(e));
+        }
+    }
+
+    /**
+     * Performs the bulk operation on any number of job ids, in chunks of at most 1000 of them, on every location, and hands the reports back chunk by chunk.
+     * <br>The operation is sent to every location of the region of the client, or to the location it was created for, at the same time,
+     * since a job id is only known to the location that processed the fax. A job id found by more than one location is handed back once.
+     *
+     * @param jobIds      the job ids, not changed while the operation runs
+     * @param parallelism the maximum number of chunks in flight per location
+     * @param onChunk     receives the reports each chunk found, one chunk at a time, on the thread that completes it
+     * @return once every chunk completed, the job ids found nowhere and the chunks that failed, without the reports handed to onChunk;
+     * a chunk whose reports cannot be read or the consumer throws on is one of the failed chunks
+     * @throws ApiException if the parallelism is not positive
+     */
+    public CompletableFuture<BulkOperationResult<R>> performAllAsync(List<String> jobIds, int parallelism, Consumer<List<R>> onChunk) {
+        if (parallelism <= 0) {
+            throw new ApiException("The parallelism must be greater than 0.");
+        }
+        Run run = new Run(jobIds, onChunk, (urlProvider == null ? apiClient.getLocale() : urlProvider).getLocations());
+        if (run.remaining.get() == 0) {
+            run.finish();
+            return run.result;
+        }
+        for (int location = 0; location < run.locations.length; location++) {
+            for (int i = 0; i < Math.min(parallelism, run.chunks); i++) {
+                run.next(location);
+            }
+        }
+        return run.result;
+    }
+
+    /**
+     * @param report a report returned by the server
+     * @return the job id of the report
+     */
+    protected abstract String getJobId(R report);
+
+    /**
+     * @param report a report returned by the server
+     * @return true if the location knows the job id of the report, false if the report only tells that it is not found
+     */
+    protected boolean isFound(R report) {
+        return true;
+    }
+
+    /**
+     * @param jobId a job id no location knows
+     * @return the report the server gives for a job id it does not know, null to leave the job id out of the reports of perform
+     */
+    protected R notFoundReport(String jobId) {
+        return null;
+    }
+
+    /**
+     * Called for each report found, before it is handed back.
+     *
+     * @param report   a report found by the location
+     * @param location the location that found it
+     */
+    protected void setLocation(R report, Location location) {
+    }
+
+    /**
+     * @param cause the failure of the operation
+     * @return the failure to throw: a runtime exception as is, any other exception wrapped in an ApiException
+     * @throws Error if the failure is an error, which is rethrown as is
+     */
+    private static RuntimeException toRuntimeException(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new ApiException(cause.getMessage(), cause);
+    }
+
+    /**
+     * A single pass over the job ids: on each location, each chunk that completes starts the next one, which keeps parallelism chunks in flight.
+     */
+    private class Run {
+        private final List<String> jobIds;
+        private final Consumer<List<R>> onChunk;
+        private final Location[] locations;
+        private final int chunks;
+        private final AtomicInteger[] nextChunk;
+        private final AtomicInteger remaining;
+        private final Set<String> found = new HashSet<>();
+        private final Set<String> failed = new HashSet<>();
+        private final List<BulkChunkFailure> failures = new ArrayList<>();
+        private final CompletableFuture<BulkOperationResult<R>> result = new CompletableFuture<>();
+
+        private Run(List<String> jobIds, Consumer<List<R>> onChunk, Location[] locations) {
+            this.jobIds = jobIds;
+            this.onChunk = onChunk;
+            this.locations = locations;
+            this.chunks = (jobIds.size() + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE;
+            this.nextChunk = new AtomicInteger[locations.length];
+            for (int i = 0; i < locations.length; i++) {
+                nextChunk[i] = new AtomicInteger();
+            }
+            this.remaining = new AtomicInteger(chunks * locations.length);
+        }
+
+        private void next(int location) {
+            int index = nextChunk[location].getAndIncrement();
+            if (index >= chunks) {
+                return;
+            }
+            List<String> chunk = new ArrayList<>(jobIds.subList(index * MAX_CHUNK_SIZE, Math.min((index + 1) * MAX_CHUNK_SIZE, jobIds.size())));
+            CompletableFuture<List<R>> reports;
+            try {
+                reports = performAsync(chunk, locations[location]);
+            } catch (RuntimeException e) {
+                reports = new CompletableFuture<>();
+                reports.completeExceptionally(e);
+            }
+            reports.whenComplete((value, throwable) -> {
+                complete(locations[location], index, chunk, value, throwable);
+                startNext(location);
+            });
+        }
+
+        /**
+         * Starts the next chunk on the executor, so chunks that complete at once do not start each other on an ever deeper stack.
+         */
+        private void startNext(int location) {
+            if (nextChunk[location].get() >= chunks) {
+                return;
+            }
+            try {
+                RetarusFax.getExecutorService().execute(() -> next(location));
+            } catch (RejectedExecutionException e) {
+                next(location);
+            }
+        }
+
+        private void complete(Location location, int index, List<String> chunk, List<R> reports, Throwable throwable) {
+            // One chunk at a time, so the consumer and the merged job ids never need to be thread-safe
+            synchronized (this) {
+                if (throwable != null) {
+                    fail(location, index, chunk, FutureUtils.unwrap(throwable));
+                } else {
+                    List<String> added = new ArrayList<>();
+                    try {
+                        List<R> merged = new ArrayList<>();
+                        // A response without reports is an empty chunk
+                        for (R report : reports == null ? Collections.<R>emptyList() : reports) {
+                            if (isFound(report) && found.add(getJobId(report))) {
+                                added.add(getJobId(report));
+                                setLocation(report, location);
+                                merged.add(report);
+                            }
+                        }
+                        if (!merged.isEmpty()) {
+                            onChunk.accept(merged);
+                        }
+                    } catch (RuntimeException e) {
+                        // Only this chunk failed, its job ids may still be handed back by another location
+                        found.removeAll(added);
+                        fail(location, index, chunk, e);
+                    }
+                }
+            }
+            if (remaining.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+
+        private void fail(Location location, int index, List<String> chunk, Throwable throwable) {
+            failures.add(new BulkChunkFailure(index, chunk, location, throwable));
+            failed.addAll(chunk);
+        }
+
+        private synchronized void finish() {
+            // A job id is only missing if no location found it and every location answered for it
+            Set<String> notFound = new LinkedHashSet<>();
+            for (String jobId : jobIds) {
+                if (!found.contains(jobId) && !failed.contains(jobId)) {
+                    notFound.add(jobId);
+                }
+            }
+            result.complete(new BulkOperationResult<>(Collections.emptyList(), new ArrayList<>(notFound), failures, chunks * locations.length));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.retarus.fax.base;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @param <T> The type of the elements.
+ * @author thiagon<p>
+ * Iterator over elements read incrementally from an open resource, like the body of an HTTP response.
+ * <br>The iterator must be closed once it is no longer needed, best with a try-with-resources statement,
+ * closing it before the last element releases the resource without reading the remaining elements.
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+
+    /**
+     * Releases the resource the elements are read from. Calling this method more than once has no effect.
+     */
+    @Override
+    void close();
+
+    /**
+     * @return a sequential stream of the remaining elements, closing the stream closes this iterator
+     */
+    default Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * @param mapper the function applied to each element when it is read
+     * @param <R>    The type of the mapped elements.
+     * @return an iterator over the mapped elements, closing it closes this iterator
+     */
+    default <R> CloseableIterator<R> map(Function<? super T, ? extends R> mapper) {
+        CloseableIterator<T> source = this;
+        return new CloseableIterator<R>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public R next() {
+                return mapper.apply(source.next());
+            }
+
+            @Override
+            public void close() {
+                source.close();
+            }
+        };
+    }
+
+    /**
+     * @param <T> The type of the elements.
+     * @return an iterator without elements
+     */
+    static <T> CloseableIterator<T> empty() {
+        return concat(Collections.emptyList());
+    }
+
+    /**
+     * Chains iterators that are opened lazily, one after the other, when the previous one is exhausted.
+     * <br>At most one of the iterators is open at a time, it is closed when it is exhausted or when the chain is closed.
+     *
+     * @param iterators the suppliers opening the iterators, in order
+     * @param <T>       The type of the elements.
+     * @return the chained iterator
+     */
+    static <T> CloseableIterator<T> concat(List<Supplier<CloseableIterator<T>>> iterators) {
+        Iterator<Supplier<CloseableIterator<T>>> suppliers = iterators.iterator();
+        return new CloseableIterator<T>() {
+            private CloseableIterator<T> current;
+            private boolean closed;
+
+            @Override
+            public boolean hasNext() {
+                while (!closed && (current == null || !current.hasNext())) {
+                    if (current != null) {
+                        current.close();
+                        current = null;
+                    }
+                    if (!suppliers.hasNext()) {
+                        closed = true;
+                    } else {
+                        current = suppliers.next().get();
+                    }
+                }
+                return !closed;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+
+            @Override
+            public void close() {
+                closed = true;
+                if (current != null) {
+                    current.close();
+                    current = null;
+                }
+            }
+        };
+    }
+}
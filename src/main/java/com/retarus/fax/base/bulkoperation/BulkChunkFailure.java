@@ -0,0 +1,53 @@
+package com.retarus.fax.base.bulkoperation;
+
+import com.retarus.fax.base.rest.Location;
+
+import java.util.List;
+
+/**
+ * @author thiagon
+ * <p>
+ * Class for a chunk of a bulk operation that failed, with the job ids it held, the location it was sent to and the exception it failed with.
+ * <br>The other chunks of the bulk operation are not affected, so only these job ids need to be processed again.
+ */
+public class BulkChunkFailure {
+
+    private final int index;
+    private final List<String> jobIds;
+    private final Location location;
+    private final Throwable exception;
+
+    public BulkChunkFailure(int index, List<String> jobIds, Location location, Throwable exception) {
+        this.index = index;
+        this.jobIds = jobIds;
+        this.location = location;
+        this.exception = exception;
+    }
+
+    /**
+     * @return the position of the chunk in the input, starting at 0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public List<String> getJobIds() {
+        return jobIds;
+    }
+
+    public Location getLocation() {
+        return location;
+    }
+
+    /**
+     * @return the exception the chunk failed with, an ApiException or an AuthException
+     */
+    public Throwable getException() {
+        return exception;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkChunkFailure(index=" + index + ", jobIds=" + jobIds.size() + ", location=" + location + ", exception=" + exception + ")";
+    }
+}
@@ -0,0 +1,63 @@
+package com.retarus.fax.base.bulkoperation;
+
+import java.util.List;
+
+/**
+ * @param <R> The type of the reports returned by the server.
+ * @author thiagon
+ * <p>
+ * Class for the merged outcome of a bulk operation split into chunks and sent to every location.
+ * <br>The reports found, one per job id, in the order the chunks completed, the job ids no location found, and the chunks that failed.
+ * <br>A job id in a failed chunk is in neither of the lists unless another location found it.
+ */
+public class BulkOperationResult<R> {
+
+    private final List<R> reports;
+    private final List<String> notFound;
+    private final List<BulkChunkFailure> failures;
+    private final int chunks;
+
+    public BulkOperationResult(List<R> reports, List<String> notFound, List<BulkChunkFailure> failures, int chunks) {
+        this.reports = reports;
+        this.notFound = notFound;
+        this.failures = failures;
+        this.chunks = chunks;
+    }
+
+    public List<R> getReports() {
+        return reports;
+    }
+
+    /**
+     * @return the job ids every location answered for without finding them, in the order of the input
+     */
+    public List<String> getNotFound() {
+        return notFound;
+    }
+
+    /**
+     * @return the chunks that failed, in the order they completed
+     */
+    public List<BulkChunkFailure> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return the number of requests sent, the chunks of the job ids times the locations
+     */
+    public int getChunks() {
+        return chunks;
+    }
+
+    /**
+     * @return true if every chunk succeeded
+     */
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BulkOperationResult(reports=" + reports.size() + ", notFound=" + notFound.size() + ", chunks=" + chunks + ", failures=" + failures + ")";
+    }
+}
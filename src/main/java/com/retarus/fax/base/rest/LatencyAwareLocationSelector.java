@@ -0,0 +1,104 @@
+package com.retarus.fax.base.rest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author thiagon
+ * <p>
+ * Base class for the selectors that rank the locations by an exponentially weighted moving average (EWMA) of their response times,
+ * multiplied by the number of requests in flight to the location plus one, so a location that is already busy is avoided before its responses slow down.
+ * <br>A location that was never measured has almost no cost, so it is tried first. A failure counts as a very slow response.
+ * <br>The average of a location that is not used anymore decays toward zero over time, so a location that was slow or failing is tried again later.
+ */
+abstract class LatencyAwareLocationSelector implements LocationSelector {
+
+    /**
+     * Weight of a new response time in the moving average.
+     */
+    static final double ALPHA = 0.3;
+
+    /**
+     * Response time counted for a failed request.
+     */
+    static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Time constant of the decay of an average that is not updated anymore.
+     */
+    static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Ewma[] averages;
+
+    LatencyAwareLocationSelector() {
+        averages = new Ewma[Location.values().length];
+        for (int i = 0; i < averages.length; i++) {
+            averages[i] = new Ewma();
+        }
+    }
+
+    @Override
+    public void recordRequest(Location location) {
+        averages[location.ordinal()].start();
+    }
+
+    @Override
+    public void recordLatency(Location location, long latencyNanos) {
+        averages[location.ordinal()].observe(latencyNanos, System.nanoTime());
+    }
+
+    @Override
+    public void recordFailure(Location location) {
+        averages[location.ordinal()].observe(FAILURE_PENALTY_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void recordCancelled(Location location) {
+        averages[location.ordinal()].cancel();
+    }
+
+    /**
+     * @param location the location to get the cost for
+     * @param now      the current time, from System.nanoTime
+     * @return the decayed moving average of the response times of the location in nanoseconds, times the requests in flight plus one
+     */
+    double cost(Location location, long now) {
+        return averages[location.ordinal()].cost(now);
+    }
+
+    private static final class Ewma {
+        private double average;
+        private long lastUpdate;
+        private int pending;
+
+        synchronized void start() {
+            pending++;
+        }
+
+        synchronized void observe(long latencyNanos, long now) {
+            double current = average(now);
+            average = current == 0 ? latencyNanos : ALPHA * latencyNanos + (1 - ALPHA) * current;
+            lastUpdate = now;
+            if (pending > 0) {
+                pending--;
+            }
+        }
+
+        synchronized void cancel() {
+            if (pending > 0) {
+                pending--;
+            }
+        }
+
+        synchronized double cost(long now) {
+            // An unmeasured location costs 1 ns per request in flight, below any measured one
+            return Math.max(1, average(now)) * (pending + 1);
+        }
+
+        private double average(long now) {
+            if (average == 0) {
+                return 0;
+            }
+            return average * Math.exp(-(double) Math.max(0, now - lastUpdate) / DECAY_NANOS);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.retarus.fax.base.rest;
+
+/**
+ * @author thiagon
+ * <p>
+ * Picks the location with the lowest moving average of the response times.
+ */
+final class LeastLatencyLocationSelector extends LatencyAwareLocationSelector {
+
+    @Override
+    public Location select(Location[] locations) {
+        long now = System.nanoTime();
+        Location best = locations[0];
+        double bestCost = cost(best, now);
+        for (int i = 1; i < locations.length; i++) {
+            double cost = cost(locations[i], now);
+            if (cost < bestCost) {
+                best = locations[i];
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+}
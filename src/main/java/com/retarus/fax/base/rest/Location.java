@@ -21,6 +21,7 @@ public enum Location implements URLProvider {
     ZURICH("https://faxws.ch1.retarus.com/rest/v1"),
     SINGAPORE("https://faxws.sg1.retarus.com/rest/v1");
 
+    private static final Location[] VALUES = values();
     private final String locationUrl;
 
     Location(String locationUrl) {
@@ -41,4 +42,19 @@ public enum Location implements URLProvider {
     public Location[] getLocations() {
         return new Location[]{this};
     }
+
+    /**
+     * @param url a request url
+     * @return the location whose host the url points to, or null if the url does not point to a single location
+     */
+    public static Location fromUrl(String url) {
+        if (url != null) {
+            for (Location location : VALUES) {
+                if (url.startsWith(location.locationUrl)) {
+                    return location;
+                }
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,83 @@
+package com.retarus.fax.base.rest;
+
+/**
+ * @author thiagon
+ * <p>
+ * Strategy that chooses the location of a region a request is sent to, when the request can be served by any of them.
+ * <br>The client reports the response time of every request sent to a location, so a selector can prefer the faster data center.
+ * <br>Implementations must be thread safe, a selector is shared by all the requests of a client.
+ */
+public interface LocationSelector {
+
+    /**
+     * Chooses the location for the next request.
+     *
+     * @param locations the locations of the region, never empty
+     * @return one of the given locations
+     */
+    Location select(Location[] locations);
+
+    /**
+     * Reports a request sent to a location, before its response is received.
+     * <br>Each call is followed by a call to {@link #recordLatency(Location, long)}, {@link #recordFailure(Location)} or {@link #recordCancelled(Location)}
+     * for the same location.
+     *
+     * @param location the location the request is sent to
+     */
+    default void recordRequest(Location location) {
+    }
+
+    /**
+     * Reports the response time of a request sent to a location.
+     *
+     * @param location     the location the request was sent to
+     * @param latencyNanos the time until the response was received, in nanoseconds
+     */
+    default void recordLatency(Location location, long latencyNanos) {
+    }
+
+    /**
+     * Reports a request to a location that failed, either without a response or with a server error.
+     *
+     * @param location the location the request was sent to
+     */
+    default void recordFailure(Location location) {
+    }
+
+    /**
+     * Reports a request to a location that failed because of the client, like a body that cannot be serialized, which tells nothing about the location.
+     *
+     * @param location the location the request was sent to
+     */
+    default void recordCancelled(Location location) {
+    }
+
+    /**
+     * @return a selector that picks a location at random, ignoring the response times
+     */
+    static LocationSelector random() {
+        return RandomLocationSelector.INSTANCE;
+    }
+
+    /**
+     * @return a selector that picks the locations in turn, ignoring the response times
+     */
+    static LocationSelector roundRobin() {
+        return new RoundRobinLocationSelector();
+    }
+
+    /**
+     * @return a selector that picks the location with the lowest moving average of the response times, weighted by the requests in flight
+     */
+    static LocationSelector leastLatency() {
+        return new LeastLatencyLocationSelector();
+    }
+
+    /**
+     * @return a selector that picks two locations at random and takes the one with the lower moving average of the response times,
+     * weighted by the requests in flight, which avoids sending all the traffic to the single fastest location
+     */
+    static LocationSelector powerOfTwoChoices() {
+        return new PowerOfTwoChoicesLocationSelector();
+    }
+}
@@ -0,0 +1,26 @@
+package com.retarus.fax.base.rest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author thiagon
+ * <p>
+ * Picks two distinct locations at random and takes the one with the lower moving average of the response times.
+ * <br>Unlike always taking the fastest location, the slower ones keep getting a share of the requests, so their averages stay current.
+ * With only two locations, as in the current regions, it takes the faster one like the least latency selector.
+ */
+final class PowerOfTwoChoicesLocationSelector extends LatencyAwareLocationSelector {
+
+    @Override
+    public Location select(Location[] locations) {
+        if (locations.length == 1) {
+            return locations[0];
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(locations.length);
+        // Pick the second among the other locations, so both choices are distinct
+        int second = (first + 1 + random.nextInt(locations.length - 1)) % locations.length;
+        long now = System.nanoTime();
+        return cost(locations[first], now) <= cost(locations[second], now) ? locations[first] : locations[second];
+    }
+}
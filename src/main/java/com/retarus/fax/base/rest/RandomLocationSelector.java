@@ -0,0 +1,21 @@
+package com.retarus.fax.base.rest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author thiagon
+ * <p>
+ * Picks a location at random, with a per-thread random generator, so the threads do not contend on a shared seed.
+ */
+final class RandomLocationSelector implements LocationSelector {
+
+    static final RandomLocationSelector INSTANCE = new RandomLocationSelector();
+
+    private RandomLocationSelector() {
+    }
+
+    @Override
+    public Location select(Location[] locations) {
+        return locations[ThreadLocalRandom.current().nextInt(locations.length)];
+    }
+}
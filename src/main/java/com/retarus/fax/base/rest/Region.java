@@ -1,7 +1,5 @@
 package com.retarus.fax.base.rest;
 
-import java.util.Random;
-
 import static com.retarus.fax.base.rest.Location.*;
 
 public enum Region implements URLProvider {
@@ -9,7 +7,6 @@ public enum Region implements URLProvider {
     USA("https://faxws-ha.us.retarus.com/rest/v1", SECAUCUS, ASHBURN),
     ASIA("https://faxws-ha.sg.retarus.com/rest/v1", SINGAPORE),
     SWITZERLAND("https://faxws-ha.ch.retarus.com/rest/v1", ZURICH);
-    private static final Random RANDOM = new Random();
     private final String sendURL;
     private final Location[] locations;
 
@@ -27,9 +24,20 @@ public enum Region implements URLProvider {
         return sendURL;
     }
 
+    /**
+     * @return the url of a location of the region, picked at random
+     */
     @Override
     public String getFetchUrl() {
-        Location location = locations[RANDOM.nextInt(locations.length)];
-        return location.getFetchUrl();
+        return getFetchUrl(LocationSelector.random());
+    }
+
+    /**
+     * @param locationSelector chooses the location of the region
+     * @return the url of the chosen location
+     */
+    @Override
+    public String getFetchUrl(LocationSelector locationSelector) {
+        return locationSelector.select(locations).getFetchUrl();
     }
 }
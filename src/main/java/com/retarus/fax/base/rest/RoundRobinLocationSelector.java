@@ -0,0 +1,18 @@
+package com.retarus.fax.base.rest;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author thiagon
+ * <p>
+ * Picks the locations in turn.
+ */
+final class RoundRobinLocationSelector implements LocationSelector {
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Location select(Location[] locations) {
+        return locations[Math.floorMod(counter.getAndIncrement(), locations.length)];
+    }
+}
@@ -6,6 +6,15 @@ public interface URLProvider {
     String getSendUrl();
 
     String getFetchUrl();
+
+    /**
+     * @param locationSelector chooses the location, if there is more than one
+     * @return the url to fetch from, by default the same as {@link #getFetchUrl()}
+     */
+    default String getFetchUrl(LocationSelector locationSelector) {
+        return getFetchUrl();
+    }
+
     Location[] getLocations();
 
     default URLProvider getLocale() {
@@ -1,14 +1,18 @@
 package com.retarus.fax.base.sendfax;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.retarus.fax.exception.ApiException;
 import com.retarus.fax.utils.FileUtils;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Objects;
 
-import static com.retarus.fax.utils.FileUtils.readFileAndConvertToBase64;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
 /**
@@ -18,6 +22,7 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
  * <br>Data and additional information on sent documents; if there is no document data and no cover page, the service will not accept the job.
  * <br>The data (document data) must be encoded in Base64, if no reference URL is provided, the data is used.
  * <br>You can read a file path using the filePath method, and it is automatically converted to Base64 and set as data.
+ * <br>The file, or any other DocumentSource, is read and encoded lazily while the fax request is sent, so the document is not kept in memory as Base64.
  * <p>
  * <br>Please note: either reference or data can be used in a single document, but not both at the same time, if both are provided, the reference is used, please use only one at the time.
  * <br>Please note: The maximum possible length of a file name is 32 characters. Allowed characters are: a-zA-Z0-9-_. , and no whitespaces, slashes, or other special characters are permitted.
@@ -50,9 +55,15 @@ public class Document {
      * The document data.
      * The data (document data) must be encoded in Base64, if no reference URL is provided, the data is used.
      */
-    @JsonProperty("data")
+    @JsonIgnore
     private final String data;
 
+    /**
+     * The lazy source of the document data, read and encoded in Base64 when the document is serialized, used if no data is provided.
+     */
+    @JsonIgnore
+    private final DocumentSource source;
+
     /**
      * Constructor for the document.
      *
@@ -62,13 +73,15 @@ public class Document {
      * @param referenceUrl A URL pointing to the document to be transmitted, the URL must be accessible from the RetarusFax infrastructure.
      * @param data         The document data.
      *                     The data (document data) must be encoded in Base64, if no reference URL is provided, the data is used.
+     * @param source       The lazy source of the document data, used if no data is provided.
      * @throws ApiException if the filename is longer than 32 characters or contains invalid characters.
      */
-    private Document(String filename, Charset charset, String referenceUrl, String data) {
+    private Document(String filename, Charset charset, String referenceUrl, String data, DocumentSource source) {
         this.filename = filename;
         this.charset = charset;
         this.referenceUrl = referenceUrl;
         this.data = data;
+        this.source = source;
     }
 
     public static DocumentBuilder builder() {
@@ -80,12 +93,12 @@ public class Document {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Document document = (Document) o;
-        return filename.equals(document.filename) && charset == document.charset && Objects.equals(referenceUrl, document.referenceUrl) && Objects.equals(data, document.data);
+        return filename.equals(document.filename) && charset == document.charset && Objects.equals(referenceUrl, document.referenceUrl) && Objects.equals(data, document.data) && Objects.equals(source, document.source);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(filename, charset, referenceUrl, data);
+        return Objects.hash(filename, charset, referenceUrl, data, source);
     }
 
     public String getFilename() {
@@ -100,8 +113,34 @@ public class Document {
         return this.referenceUrl;
     }
 
+    /**
+     * Returns the Base64 document data. If the document has a lazy source, the source is read and encoded on every call,
+     * prefer {@link #getSource()} to avoid holding the encoded document in memory.
+     *
+     * @return the Base64 document data, or null if the document only has a reference URL
+     * @throws ApiException if the source cannot be read
+     */
     public String getData() {
-        return this.data;
+        if (this.source == null || !isBlank(this.data)) {
+            return this.data;
+        }
+        try (InputStream inputStream = this.source.openStream()) {
+            return FileUtils.convertToBase64(inputStream);
+        } catch (IOException e) {
+            throw new ApiException("Error reading the document source", e);
+        }
+    }
+
+    public DocumentSource getSource() {
+        return this.source;
+    }
+
+    /**
+     * @return the value of the data property of the JSON request, the data if it was provided, otherwise the lazy source
+     */
+    @JsonProperty("data")
+    private Object getJsonData() {
+        return this.source == null || !isBlank(this.data) ? this.data : this.source;
     }
 
     public static class DocumentBuilder {
@@ -109,6 +148,7 @@ public class Document {
         private Charset charset;
         private String referenceUrl;
         private String data;
+        private DocumentSource source;
 
         private DocumentBuilder() {
         }
@@ -157,7 +197,18 @@ public class Document {
         }
 
         /**
-         * Reads the file from the given path and sets the data of the document, as well as the filename.
+         * @param source The lazy source of the document data, read and encoded in Base64 while the fax request is sent.
+         *               The source is used if no data is provided.
+         * @return The document builder.
+         */
+        public DocumentBuilder source(DocumentSource source) {
+            this.source = source;
+            return this;
+        }
+
+        /**
+         * Sets the file from the given path as the lazy source of the document, as well as the filename.
+         * <br>The file is read when the fax request is sent, it must not be deleted or changed before.
          *
          * @param filePath The path to the file to be sent.
          * @throws ApiException if the file cannot be read or the filename is not valid
@@ -167,9 +218,23 @@ public class Document {
             if (isBlank(filePath)) {
                 throw new ApiException("The file path must not be null or empty.");
             }
-            File file = new File(filePath);
-            filename(file.getName());
-            data(readFileAndConvertToBase64(file));
+            return file(Paths.get(filePath));
+        }
+
+        /**
+         * Sets the file from the given path as the lazy source of the document, as well as the filename.
+         * <br>The file is read when the fax request is sent, it must not be deleted or changed before.
+         *
+         * @param filePath The path to the file to be sent.
+         * @throws ApiException if the file cannot be read or the filename is not valid
+         * @return The document builder.
+         */
+        public DocumentBuilder file(Path filePath) {
+            if (filePath == null || !Files.isRegularFile(filePath) || !Files.isReadable(filePath)) {
+                throw new ApiException("Error reading file");
+            }
+            filename(filePath.getFileName().toString());
+            source(DocumentSource.of(filePath));
             return this;
         }
 
@@ -179,17 +244,17 @@ public class Document {
         public Document build() {
             if (isBlank(this.filename)) {
                 throw new ApiException("The filename must not be null or empty.");
-            } else if (isBlank(this.data) && isBlank(this.referenceUrl)) {
-                throw new ApiException("Either the data or the reference URL must not be null or empty.");
+            } else if (isBlank(this.data) && this.source == null && isBlank(this.referenceUrl)) {
+                throw new ApiException("Either the data, the source or the reference URL must not be null or empty.");
             } else if (this.charset == null && this.filename.endsWith(".txt")) {
                 this.charset = Charset.defaultCharset();
             }
 
-            return new Document(filename, charset, referenceUrl, data);
+            return new Document(filename, charset, referenceUrl, data, source);
         }
 
         public String toString() {
-            return "Document.DocumentBuilder(filename=" + this.filename + ", charset=" + this.charset + ", referenceUrl=" + this.referenceUrl + ", data=" + this.data + ")";
+            return "Document.DocumentBuilder(filename=" + this.filename + ", charset=" + this.charset + ", referenceUrl=" + this.referenceUrl + ", data=" + this.data + ", source=" + this.source + ")";
         }
     }
 }
@@ -0,0 +1,60 @@
+package com.retarus.fax.base.sendfax;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.retarus.fax.utils.ByteBufferInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * @author thiagon
+ * <p>
+ * Lazy source of the content of a document.
+ * <br>The content is read and encoded in Base64 while the fax request is written to the connection,
+ * so a queued request only holds the source, not the encoded document.
+ * <br>The source can be opened more than once, for example when the request is sent again.
+ * <p>
+ * A source can be created from a file path, a ByteBuffer (including a memory-mapped region of a file),
+ * or any supplier of an InputStream, for example: {@code DocumentSource source = () -> new FileInputStream(file);}
+ */
+@FunctionalInterface
+@JsonSerialize(using = DocumentSourceSerializer.class)
+public interface DocumentSource {
+
+    /**
+     * Opens a new stream of the raw (not encoded) content of the document, closed by the caller.
+     *
+     * @return the stream of the content
+     * @throws IOException if the content cannot be read
+     */
+    InputStream openStream() throws IOException;
+
+    /**
+     * @param path the path of the file
+     * @return a source reading the file every time it is opened, equal to the other sources of the same path
+     */
+    static DocumentSource of(Path path) {
+        return new FileDocumentSource(path, false);
+    }
+
+    /**
+     * Large files, like multi-page TIFF or PDF documents, are read from the page cache without copying them to the heap.
+     *
+     * @param path the path of the file
+     * @return a source memory-mapping the file every time it is opened, equal to the other sources of the same path
+     */
+    static DocumentSource ofMapped(Path path) {
+        return new FileDocumentSource(path, true);
+    }
+
+    /**
+     * @param buffer the content, from its position to its limit, for example a MappedByteBuffer of a file
+     * @return a source reading the buffer, without changing its position
+     */
+    static DocumentSource of(ByteBuffer buffer) {
+        ByteBuffer content = buffer.asReadOnlyBuffer();
+        return () -> new ByteBufferInputStream(content.duplicate());
+    }
+}
@@ -0,0 +1,46 @@
+package com.retarus.fax.base.sendfax;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.retarus.fax.exception.RequestSerializationException;
+import com.retarus.fax.utils.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @author thiagon
+ * <p>
+ * Serializer writing the content of a DocumentSource as a Base64 JSON string.
+ * <br>The content is encoded through the buffer of the JSON generator, so it is never held in memory as a whole.
+ */
+public class DocumentSourceSerializer extends StdSerializer<DocumentSource> {
+
+    public DocumentSourceSerializer() {
+        super(DocumentSource.class);
+    }
+
+    /**
+     * @throws RequestSerializationException if the source cannot be opened, like a file that was deleted
+     */
+    @Override
+    public void serialize(DocumentSource source, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        try (InputStream inputStream = open(source)) {
+            generator.writeBinary(provider.getConfig().getBase64Variant(), inputStream, -1);
+        } catch (UnsupportedOperationException e) {
+            // Buffering generators, like the one used to convert to a JsonNode, cannot stream binary content
+            try (InputStream inputStream = open(source)) {
+                generator.writeString(FileUtils.convertToBase64(inputStream));
+            }
+        }
+    }
+
+    private static InputStream open(DocumentSource source) throws RequestSerializationException {
+        try {
+            return source.openStream();
+        } catch (IOException | RuntimeException e) {
+            throw new RequestSerializationException("The document cannot be read.", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.retarus.fax.base.sendfax;
+
+import com.retarus.fax.utils.ByteBufferInputStream;
+import com.retarus.fax.utils.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * @author thiagon
+ * <p>
+ * Source of a document read from a file, every time it is opened.
+ * <br>Two sources of the same path are equal, whether the file is read or memory-mapped, so documents built from the same file are equal.
+ */
+final class FileDocumentSource implements DocumentSource {
+
+    private final Path path;
+    private final boolean mapped;
+
+    FileDocumentSource(Path path, boolean mapped) {
+        this.path = path;
+        this.mapped = mapped;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return mapped ? new ByteBufferInputStream(FileUtils.mapFile(path)) : Files.newInputStream(path);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return path.equals(((FileDocumentSource) o).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "FileDocumentSource{path=" + path + ", mapped=" + mapped + "}";
+    }
+}
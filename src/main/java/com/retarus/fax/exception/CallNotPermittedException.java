@@ -0,0 +1,25 @@
+package com.retarus.fax.exception;
+
+import com.retarus.fax.base.rest.Location;
+
+import java.io.IOException;
+
+/**
+ * @author thiagon
+ * <p>
+ * Exception class for the requests rejected by the open circuit breaker of a location, without being sent.
+ * <br>It is an IOException, so the operations handle it like a location that cannot be reached, usually with the status 503 (Service Unavailable).
+ */
+public class CallNotPermittedException extends IOException {
+
+    private final Location location;
+
+    public CallNotPermittedException(final Location location) {
+        super("The circuit breaker of the location " + location + " is open.");
+        this.location = location;
+    }
+
+    public Location getLocation() {
+        return location;
+    }
+}
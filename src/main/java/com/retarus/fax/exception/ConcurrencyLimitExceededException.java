@@ -0,0 +1,16 @@
+package com.retarus.fax.exception;
+
+import java.io.IOException;
+
+/**
+ * @author thiagon
+ * <p>
+ * Exception class for the fax requests rejected by the adaptive concurrency limit, because the queue is full or no slot became free in time.
+ * <br>It is an IOException, so the operations handle it like a request that cannot be sent, usually with the status 503 (Service Unavailable).
+ */
+public class ConcurrencyLimitExceededException extends IOException {
+
+    public ConcurrencyLimitExceededException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package com.retarus.fax.exception;
+
+import com.retarus.fax.http.EndpointType;
+
+import java.io.IOException;
+
+/**
+ * @author thiagon
+ * <p>
+ * Exception class for the requests rejected by the client-side rate limit, because no permit is available within the maximum wait.
+ * <br>It is an IOException, so the operations handle it like a request that cannot be sent, usually with the status 503 (Service Unavailable).
+ */
+public class RateLimitExceededException extends IOException {
+
+    private final EndpointType endpointType;
+
+    public RateLimitExceededException(final EndpointType endpointType) {
+        super("The rate limit of the " + endpointType + " requests is exceeded.");
+        this.endpointType = endpointType;
+    }
+
+    /**
+     * @return the kind of the rejected request
+     */
+    public EndpointType getEndpointType() {
+        return endpointType;
+    }
+}
@@ -0,0 +1,17 @@
+package com.retarus.fax.exception;
+
+import java.io.IOException;
+
+/**
+ * @author thiagon
+ * <p>
+ * Exception class for the requests whose body cannot be serialized while it is written, like a fax request with a document that cannot be read.
+ * <br>It is an IOException, so it can be thrown while the body is written to the connection, but it is an error of the client:
+ * it is never retried, does not count against the location, and the operations handle it with the status 400 (Bad Request).
+ */
+public class RequestSerializationException extends IOException {
+
+    public RequestSerializationException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,9 +1,14 @@
 package com.retarus.fax.http;
 
+import com.retarus.fax.RetarusFax;
 import com.retarus.fax.base.common.HttpMethod;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public interface ApiClient {
 
@@ -11,6 +16,80 @@ public interface ApiClient {
 
     HttpResponse sendRequest(HttpMethod httpMethod, String url) throws IOException;
 
+    /**
+     * Sends a request with the given entity as body, by default reading the entity into a json payload.
+     *
+     * @param httpMethod The http method to use.
+     * @param url        The url to send the request to.
+     * @param entity     The body to send with the request.
+     * @return The response.
+     * @throws IOException If an error occurs while sending the request.
+     */
+    default HttpResponse sendRequest(HttpMethod httpMethod, String url, HttpEntity entity) throws IOException {
+        return sendRequest(httpMethod, url, EntityUtils.toString(entity));
+    }
+
+    /**
+     * Sends a request asynchronously, by default running the blocking request on the RetarusFax executor service.
+     *
+     * @param httpMethod  The http method to use.
+     * @param url         The url to send the request to.
+     * @param jsonPayload The json payload to send with the request.
+     * @return The response, completed exceptionally if an error occurs while sending the request.
+     */
+    default CompletableFuture<HttpResponse> sendRequestAsync(HttpMethod httpMethod, String url, String jsonPayload) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return sendRequest(httpMethod, url, jsonPayload);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, RetarusFax.getExecutorService());
+    }
+
+    /**
+     * Sends a request without a body, returning the response before its body is read.
+     * <br>The caller must close the content stream of the entity, or the response if it is Closeable, to release the connection.
+     * <br>By default, the response is buffered as with {@link #sendRequest(HttpMethod, String)}.
+     *
+     * @param httpMethod The http method to use.
+     * @param url        The url to send the request to.
+     * @return The response, with a streamed body.
+     * @throws IOException If an error occurs while sending the request.
+     */
+    default HttpResponse sendStreamingRequest(HttpMethod httpMethod, String url) throws IOException {
+        return sendRequest(httpMethod, url);
+    }
+
+    /**
+     * Sends a request with the given entity as body asynchronously, by default running the blocking request on the RetarusFax executor service.
+     *
+     * @param httpMethod The http method to use.
+     * @param url        The url to send the request to.
+     * @param entity     The body to send with the request.
+     * @return The response, completed exceptionally if an error occurs while sending the request.
+     */
+    default CompletableFuture<HttpResponse> sendRequestAsync(HttpMethod httpMethod, String url, HttpEntity entity) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return sendRequest(httpMethod, url, entity);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, RetarusFax.getExecutorService());
+    }
+
+    /**
+     * Sends a request without a json payload asynchronously.
+     *
+     * @param httpMethod The http method to use.
+     * @param url        The url to send the request to.
+     * @return The response, completed exceptionally if an error occurs while sending the request.
+     */
+    default CompletableFuture<HttpResponse> sendRequestAsync(HttpMethod httpMethod, String url) {
+        return sendRequestAsync(httpMethod, url, (String) null);
+    }
+
     String getUsername();
 
     String getPassword();
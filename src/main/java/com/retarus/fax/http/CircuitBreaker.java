@@ -0,0 +1,224 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.rest.Location;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * @author thiagon
+ * <p>
+ * Circuit breaker that guards the requests sent to a single location.
+ * <br>CLOSED: the requests are sent, and the outcome of the last ones is recorded in a sliding window.
+ * Once the failure rate or the slow call rate of the window reaches its threshold, the circuit breaker opens.
+ * <br>OPEN: the requests fail at once, without being sent. After the wait duration, the circuit breaker becomes half-open.
+ * <br>HALF_OPEN: a few probe requests are sent. If they all succeed, the circuit breaker closes, if one fails or is slow, it opens again.
+ * <br>A request fails if it cannot be sent or if the server answers with an error (5xx).
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final Location location;
+    private final CircuitBreakerConfig config;
+    private final LongSupplier clock;
+    private final long slowCallNanos;
+    private final long waitNanos;
+
+    /**
+     * The outcome of the last requests, as flags, used as a ring buffer.
+     */
+    private final byte[] window;
+    private int windowIndex;
+    private int bufferedCalls;
+    private int failedCalls;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+    private final AtomicLong notPermittedCalls = new AtomicLong();
+
+    CircuitBreaker(Location location, CircuitBreakerConfig config) {
+        this(location, config, System::nanoTime);
+    }
+
+    CircuitBreaker(Location location, CircuitBreakerConfig config, LongSupplier clock) {
+        this.location = location;
+        this.config = config;
+        this.clock = clock;
+        this.slowCallNanos = config.getSlowCallDuration().toNanos();
+        this.waitNanos = config.getWaitDurationInOpenState().toNanos();
+        this.window = new byte[config.getSlidingWindowSize()];
+    }
+
+    public Location getLocation() {
+        return location;
+    }
+
+    /**
+     * @return the current state, an open circuit breaker whose wait duration is over is reported as half-open
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= waitNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return a snapshot of the metrics of the circuit breaker
+     */
+    public synchronized CircuitBreakerMetrics getMetrics() {
+        boolean evaluated = bufferedCalls >= config.getMinimumNumberOfCalls();
+        return new CircuitBreakerMetrics(getState(),
+                evaluated ? rate(failedCalls) : -1,
+                evaluated ? rate(slowCalls) : -1,
+                bufferedCalls, failedCalls, slowCalls, notPermittedCalls.get());
+    }
+
+    /**
+     * @return whether a request to the location would be sent, without taking a permission
+     */
+    synchronized boolean isAvailable() {
+        State current = getState();
+        return current == State.CLOSED || (current == State.HALF_OPEN && (state == State.OPEN || halfOpenPermits > 0));
+    }
+
+    /**
+     * Takes the permission to send a request to the location.
+     * <br>Each permitted request must be followed by a call to {@link #onResult(long, boolean)} or {@link #releasePermission()}.
+     *
+     * @return whether the request can be sent
+     */
+    boolean tryAcquirePermission() {
+        State transition = null;
+        boolean permitted;
+        synchronized (this) {
+            if (state == State.OPEN && clock.getAsLong() - openedAt >= waitNanos) {
+                transition = transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                permitted = halfOpenPermits > 0;
+                if (permitted) {
+                    halfOpenPermits--;
+                }
+            } else {
+                permitted = state == State.CLOSED;
+            }
+        }
+        if (!permitted) {
+            notPermittedCalls.incrementAndGet();
+        }
+        notify(State.OPEN, transition);
+        return permitted;
+    }
+
+    /**
+     * Gives back the permission of a request that failed because of the client, without recording an outcome.
+     */
+    void releasePermission() {
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                halfOpenPermits = Math.min(halfOpenPermits + 1, config.getPermittedCallsInHalfOpenState());
+            }
+        }
+    }
+
+    /**
+     * Records the outcome of a permitted request.
+     *
+     * @param durationNanos the time until the response was received, or until the request failed
+     * @param failed        whether the request could not be sent or the server answered with an error
+     */
+    void onResult(long durationNanos, boolean failed) {
+        boolean slow = durationNanos >= slowCallNanos;
+        State from;
+        State transition = null;
+        synchronized (this) {
+            from = state;
+            if (state == State.HALF_OPEN) {
+                if (failed || slow) {
+                    transition = transitionTo(State.OPEN);
+                } else if (++halfOpenSuccesses >= config.getPermittedCallsInHalfOpenState()) {
+                    transition = transitionTo(State.CLOSED);
+                }
+            } else if (state == State.CLOSED) {
+                record((byte) ((failed ? FAILURE : SUCCESS) | (slow ? SLOW : SUCCESS)));
+                if (bufferedCalls >= config.getMinimumNumberOfCalls()
+                        && (rate(failedCalls) >= config.getFailureRateThreshold() || rate(slowCalls) >= config.getSlowCallRateThreshold())) {
+                    transition = transitionTo(State.OPEN);
+                }
+            }
+            // The outcome of a request sent before the circuit breaker opened is ignored
+        }
+        notify(from, transition);
+    }
+
+    private void record(byte outcome) {
+        if (bufferedCalls == window.length) {
+            byte evicted = window[windowIndex];
+            failedCalls -= evicted & FAILURE;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            bufferedCalls++;
+        }
+        window[windowIndex] = outcome;
+        windowIndex = (windowIndex + 1) % window.length;
+        failedCalls += outcome & FAILURE;
+        slowCalls += (outcome & SLOW) >> 1;
+    }
+
+    private float rate(int calls) {
+        return calls * 100f / bufferedCalls;
+    }
+
+    /**
+     * Must be called while holding the lock.
+     *
+     * @return the new state
+     */
+    private State transitionTo(State newState) {
+        state = newState;
+        if (newState == State.OPEN) {
+            openedAt = clock.getAsLong();
+        } else if (newState == State.HALF_OPEN) {
+            halfOpenPermits = config.getPermittedCallsInHalfOpenState();
+            halfOpenSuccesses = 0;
+        } else {
+            bufferedCalls = 0;
+            failedCalls = 0;
+            slowCalls = 0;
+            windowIndex = 0;
+        }
+        return newState;
+    }
+
+    /**
+     * Notifies the listeners outside the lock, so a listener can read the state and the metrics.
+     */
+    private void notify(State from, State to) {
+        if (to == null) {
+            return;
+        }
+        List<CircuitBreakerListener> listeners = config.getListeners();
+        for (CircuitBreakerListener listener : listeners) {
+            listener.onStateTransition(this, from, to);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker(location=" + location + ", state=" + getState() + ")";
+    }
+}
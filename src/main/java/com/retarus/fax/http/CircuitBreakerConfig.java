@@ -0,0 +1,277 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.exception.ApiException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author thiagon
+ * <p>
+ * Class for the configuration of the circuit breakers of a FaxServiceClient, one per location.
+ * <br>A circuit breaker records the outcome of the last requests sent to its location. When too many of them fail or are too slow,
+ * it opens and the requests to the location fail at once, instead of waiting for the network, until a few probe requests succeed again.
+ */
+public class CircuitBreakerConfig {
+
+    /**
+     * Whether the requests are guarded by the circuit breakers.
+     */
+    private final boolean enabled;
+
+    /**
+     * Percentage of failed requests in the sliding window from which the circuit breaker opens.
+     */
+    private final int failureRateThreshold;
+
+    /**
+     * Percentage of slow requests in the sliding window from which the circuit breaker opens.
+     */
+    private final int slowCallRateThreshold;
+
+    /**
+     * Response time from which a request counts as slow.
+     */
+    private final Duration slowCallDuration;
+
+    /**
+     * Number of the last requests whose outcome is recorded.
+     */
+    private final int slidingWindowSize;
+
+    /**
+     * Number of requests to record before the rates are evaluated.
+     */
+    private final int minimumNumberOfCalls;
+
+    /**
+     * How long the circuit breaker stays open before it lets probe requests through.
+     */
+    private final Duration waitDurationInOpenState;
+
+    /**
+     * Number of probe requests that must succeed in the half-open state to close the circuit breaker.
+     */
+    private final int permittedCallsInHalfOpenState;
+
+    /**
+     * Listeners notified of the state transitions of every circuit breaker.
+     */
+    private final List<CircuitBreakerListener> listeners;
+
+    private CircuitBreakerConfig(boolean enabled, int failureRateThreshold, int slowCallRateThreshold, Duration slowCallDuration, int slidingWindowSize,
+                                 int minimumNumberOfCalls, Duration waitDurationInOpenState, int permittedCallsInHalfOpenState, List<CircuitBreakerListener> listeners) {
+        this.enabled = enabled;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDuration = slowCallDuration;
+        this.slidingWindowSize = slidingWindowSize;
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+        this.waitDurationInOpenState = waitDurationInOpenState;
+        this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+        this.listeners = listeners;
+    }
+
+    public static CircuitBreakerConfigBuilder builder() {
+        return new CircuitBreakerConfigBuilder();
+    }
+
+    /**
+     * @return the default settings of an enabled circuit breaker, the client has no circuit breaker unless one is configured
+     */
+    public static CircuitBreakerConfig defaults() {
+        return builder().build();
+    }
+
+    /**
+     * @return a configuration that never rejects a request
+     */
+    public static CircuitBreakerConfig disabled() {
+        return builder().enabled(false).build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public int getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public Duration getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    public int getMinimumNumberOfCalls() {
+        return minimumNumberOfCalls;
+    }
+
+    public Duration getWaitDurationInOpenState() {
+        return waitDurationInOpenState;
+    }
+
+    public int getPermittedCallsInHalfOpenState() {
+        return permittedCallsInHalfOpenState;
+    }
+
+    public List<CircuitBreakerListener> getListeners() {
+        return listeners;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerConfig(enabled=" + enabled + ", failureRateThreshold=" + failureRateThreshold + ", slowCallRateThreshold=" + slowCallRateThreshold
+                + ", slowCallDuration=" + slowCallDuration + ", slidingWindowSize=" + slidingWindowSize + ", minimumNumberOfCalls=" + minimumNumberOfCalls
+                + ", waitDurationInOpenState=" + waitDurationInOpenState + ", permittedCallsInHalfOpenState=" + permittedCallsInHalfOpenState + ")";
+    }
+
+    public static class CircuitBreakerConfigBuilder {
+        private boolean enabled = true;
+        private int failureRateThreshold = 50;
+        private int slowCallRateThreshold = 80;
+        private Duration slowCallDuration = Duration.ofSeconds(10);
+        private int slidingWindowSize = 20;
+        private int minimumNumberOfCalls = 10;
+        private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+        private int permittedCallsInHalfOpenState = 3;
+        private final List<CircuitBreakerListener> listeners = new ArrayList<>();
+
+        private CircuitBreakerConfigBuilder() {
+        }
+
+        /**
+         * @param enabled Whether the requests are guarded by the circuit breakers, true by default.
+         * @return the builder
+         */
+        public CircuitBreakerConfigBuilder enabled(boolean enabled) {
+            this.enabled = enabled;
+            return this;
+        }
+
+        /**
+         * @param failureRateThreshold Percentage of failed requests in the sliding window from which the circuit breaker opens.
+         * @return the builder
+         * @throws ApiException if the value is not between 1 and 100
+         */
+        public CircuitBreakerConfigBuilder failureRateThreshold(int failureRateThreshold) {
+            this.failureRateThreshold = requirePercentage(failureRateThreshold, "failure rate threshold");
+            return this;
+        }
+
+        /**
+         * @param slowCallRateThreshold Percentage of slow requests in the sliding window from which the circuit breaker opens.
+         * @return the builder
+         * @throws ApiException if the value is not between 1 and 100
+         */
+        public CircuitBreakerConfigBuilder slowCallRateThreshold(int slowCallRateThreshold) {
+            this.slowCallRateThreshold = requirePercentage(slowCallRateThreshold, "slow call rate threshold");
+            return this;
+        }
+
+        /**
+         * @param slowCallDuration Response time from which a request counts as slow.
+         * @return the builder
+         * @throws ApiException if the duration is null or not positive
+         */
+        public CircuitBreakerConfigBuilder slowCallDuration(Duration slowCallDuration) {
+            this.slowCallDuration = requirePositive(slowCallDuration, "slow call");
+            return this;
+        }
+
+        /**
+         * @param slidingWindowSize Number of the last requests whose outcome is recorded.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public CircuitBreakerConfigBuilder slidingWindowSize(int slidingWindowSize) {
+            this.slidingWindowSize = requirePositive(slidingWindowSize, "sliding window size");
+            return this;
+        }
+
+        /**
+         * @param minimumNumberOfCalls Number of requests to record before the rates are evaluated, at most the sliding window size.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public CircuitBreakerConfigBuilder minimumNumberOfCalls(int minimumNumberOfCalls) {
+            this.minimumNumberOfCalls = requirePositive(minimumNumberOfCalls, "minimum number of calls");
+            return this;
+        }
+
+        /**
+         * @param waitDurationInOpenState How long the circuit breaker stays open before it lets probe requests through.
+         * @return the builder
+         * @throws ApiException if the duration is null or not positive
+         */
+        public CircuitBreakerConfigBuilder waitDurationInOpenState(Duration waitDurationInOpenState) {
+            this.waitDurationInOpenState = requirePositive(waitDurationInOpenState, "wait");
+            return this;
+        }
+
+        /**
+         * @param permittedCallsInHalfOpenState Number of probe requests that must succeed in the half-open state to close the circuit breaker.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public CircuitBreakerConfigBuilder permittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+            this.permittedCallsInHalfOpenState = requirePositive(permittedCallsInHalfOpenState, "permitted calls in half-open state");
+            return this;
+        }
+
+        /**
+         * @param listener Notified of the state transitions of every circuit breaker.
+         * @return the builder
+         * @throws ApiException if the listener is null
+         */
+        public CircuitBreakerConfigBuilder listener(CircuitBreakerListener listener) {
+            if (listener == null) {
+                throw new ApiException("The listener cannot be null.");
+            }
+            this.listeners.add(listener);
+            return this;
+        }
+
+        private static int requirePercentage(int value, String name) {
+            if (value <= 0 || value > 100) {
+                throw new ApiException("The " + name + " must be between 1 and 100.");
+            }
+            return value;
+        }
+
+        private static int requirePositive(int value, String name) {
+            if (value <= 0) {
+                throw new ApiException("The " + name + " must be greater than 0.");
+            }
+            return value;
+        }
+
+        private static Duration requirePositive(Duration duration, String name) {
+            if (duration == null || duration.isNegative() || duration.isZero()) {
+                throw new ApiException("The " + name + " duration must be greater than 0.");
+            }
+            return duration;
+        }
+
+        /**
+         * @return the circuit breaker configuration
+         * @throws ApiException if the minimum number of calls is greater than the sliding window size
+         */
+        public CircuitBreakerConfig build() {
+            if (minimumNumberOfCalls > slidingWindowSize) {
+                throw new ApiException("The minimum number of calls cannot be greater than the sliding window size.");
+            }
+            return new CircuitBreakerConfig(enabled, failureRateThreshold, slowCallRateThreshold, slowCallDuration, slidingWindowSize,
+                    minimumNumberOfCalls, waitDurationInOpenState, permittedCallsInHalfOpenState, Collections.unmodifiableList(new ArrayList<>(listeners)));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.retarus.fax.http;
+
+/**
+ * @author thiagon
+ * <p>
+ * Listener notified when the circuit breaker of a location changes its state, for example to log or alert when a location is cut off.
+ * <br>It is called on the thread that triggered the transition, so it must return quickly.
+ */
+@FunctionalInterface
+public interface CircuitBreakerListener {
+
+    /**
+     * @param circuitBreaker the circuit breaker, with the location it guards
+     * @param from           the previous state
+     * @param to             the new state
+     */
+    void onStateTransition(CircuitBreaker circuitBreaker, CircuitBreaker.State from, CircuitBreaker.State to);
+}
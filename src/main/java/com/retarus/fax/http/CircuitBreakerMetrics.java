@@ -0,0 +1,68 @@
+package com.retarus.fax.http;
+
+/**
+ * @author thiagon
+ * <p>
+ * Snapshot of the metrics of the circuit breaker of a location.
+ * <br>state: the current state of the circuit breaker.
+ * <br>failureRate: percentage of failed requests in the sliding window, -1 until the minimum number of requests is recorded.
+ * <br>slowCallRate: percentage of slow requests in the sliding window, -1 until the minimum number of requests is recorded.
+ * <br>bufferedCalls: requests recorded in the sliding window.
+ * <br>failedCalls: failed requests in the sliding window.
+ * <br>slowCalls: slow requests in the sliding window.
+ * <br>notPermittedCalls: requests rejected since the client was created, because the circuit breaker was open.
+ */
+public class CircuitBreakerMetrics {
+
+    private final CircuitBreaker.State state;
+    private final float failureRate;
+    private final float slowCallRate;
+    private final int bufferedCalls;
+    private final int failedCalls;
+    private final int slowCalls;
+    private final long notPermittedCalls;
+
+    public CircuitBreakerMetrics(CircuitBreaker.State state, float failureRate, float slowCallRate, int bufferedCalls, int failedCalls, int slowCalls, long notPermittedCalls) {
+        this.state = state;
+        this.failureRate = failureRate;
+        this.slowCallRate = slowCallRate;
+        this.bufferedCalls = bufferedCalls;
+        this.failedCalls = failedCalls;
+        this.slowCalls = slowCalls;
+        this.notPermittedCalls = notPermittedCalls;
+    }
+
+    public CircuitBreaker.State getState() {
+        return state;
+    }
+
+    public float getFailureRate() {
+        return failureRate;
+    }
+
+    public float getSlowCallRate() {
+        return slowCallRate;
+    }
+
+    public int getBufferedCalls() {
+        return bufferedCalls;
+    }
+
+    public int getFailedCalls() {
+        return failedCalls;
+    }
+
+    public int getSlowCalls() {
+        return slowCalls;
+    }
+
+    public long getNotPermittedCalls() {
+        return notPermittedCalls;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerMetrics(state=" + state + ", failureRate=" + failureRate + ", slowCallRate=" + slowCallRate + ", bufferedCalls=" + bufferedCalls
+                + ", failedCalls=" + failedCalls + ", slowCalls=" + slowCalls + ", notPermittedCalls=" + notPermittedCalls + ")";
+    }
+}
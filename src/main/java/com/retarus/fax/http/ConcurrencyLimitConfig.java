@@ -0,0 +1,215 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.exception.ApiException;
+
+import java.time.Duration;
+
+/**
+ * @author thiagon
+ * <p>
+ * Class for the configuration of the adaptive limit on the fax requests a FaxServiceClient sends at the same time.
+ * <br>The limit grows while the response times stay close to the fastest observed one, and shrinks when they grow,
+ * which means the requests queue up on the server, or when the server answers with 429 or a 5xx error.
+ * <br>The fax requests over the limit wait in a queue for a free slot, and are rejected with the status 503 when the queue is full
+ * or when they waited longer than the maximum wait.
+ */
+public class ConcurrencyLimitConfig {
+
+    /**
+     * Whether the fax requests are limited.
+     */
+    private final boolean enabled;
+
+    /**
+     * The limit before any response is observed.
+     */
+    private final int initialLimit;
+
+    /**
+     * The lowest the limit can shrink to.
+     */
+    private final int minLimit;
+
+    /**
+     * The highest the limit can grow to.
+     */
+    private final int maxLimit;
+
+    /**
+     * The factor the limit is multiplied with when the server answers with 429 or a 5xx error.
+     */
+    private final double backoffRatio;
+
+    /**
+     * The maximum number of fax requests waiting for a free slot.
+     */
+    private final int maxQueueSize;
+
+    /**
+     * The longest a fax request waits for a free slot.
+     */
+    private final Duration maxWait;
+
+    private ConcurrencyLimitConfig(boolean enabled, int initialLimit, int minLimit, int maxLimit, double backoffRatio, int maxQueueSize, Duration maxWait) {
+        this.enabled = enabled;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.maxQueueSize = maxQueueSize;
+        this.maxWait = maxWait;
+    }
+
+    public static ConcurrencyLimitConfigBuilder builder() {
+        return new ConcurrencyLimitConfigBuilder();
+    }
+
+    /**
+     * @return the default settings of an enabled limit, the client does not limit the fax requests unless a limit is configured
+     */
+    public static ConcurrencyLimitConfig defaults() {
+        return builder().build();
+    }
+
+    /**
+     * @return a configuration that sends every fax request at once, without limit
+     */
+    public static ConcurrencyLimitConfig disabled() {
+        ConcurrencyLimitConfigBuilder builder = builder();
+        return new ConcurrencyLimitConfig(false, builder.initialLimit, builder.minLimit, builder.maxLimit, builder.backoffRatio, builder.maxQueueSize, builder.maxWait);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimitConfig(enabled=" + enabled + ", initialLimit=" + initialLimit + ", minLimit=" + minLimit + ", maxLimit=" + maxLimit
+                + ", backoffRatio=" + backoffRatio + ", maxQueueSize=" + maxQueueSize + ", maxWait=" + maxWait + ")";
+    }
+
+    public static class ConcurrencyLimitConfigBuilder {
+        private int initialLimit = 20;
+        private int minLimit = 2;
+        private int maxLimit = 500;
+        private double backoffRatio = 0.9;
+        private int maxQueueSize = Integer.MAX_VALUE;
+        private Duration maxWait = Duration.ofSeconds(60);
+
+        private ConcurrencyLimitConfigBuilder() {
+        }
+
+        /**
+         * @param initialLimit The limit before any response is observed.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public ConcurrencyLimitConfigBuilder initialLimit(int initialLimit) {
+            this.initialLimit = requirePositive(initialLimit, "initial limit");
+            return this;
+        }
+
+        /**
+         * @param minLimit The lowest the limit can shrink to.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public ConcurrencyLimitConfigBuilder minLimit(int minLimit) {
+            this.minLimit = requirePositive(minLimit, "minimum limit");
+            return this;
+        }
+
+        /**
+         * @param maxLimit The highest the limit can grow to.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public ConcurrencyLimitConfigBuilder maxLimit(int maxLimit) {
+            this.maxLimit = requirePositive(maxLimit, "maximum limit");
+            return this;
+        }
+
+        /**
+         * @param backoffRatio The factor the limit is multiplied with when the server answers with 429 or a 5xx error, between 0 and 1.
+         * @return the builder
+         * @throws ApiException if the value is not between 0 and 1
+         */
+        public ConcurrencyLimitConfigBuilder backoffRatio(double backoffRatio) {
+            if (!(backoffRatio > 0 && backoffRatio < 1)) {
+                throw new ApiException("The backoff ratio must be between 0 and 1.");
+            }
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * @param maxQueueSize The maximum number of fax requests waiting for a free slot, 0 to reject the fax requests over the limit at once.
+         *                     Not limited by default.
+         * @return the builder
+         * @throws ApiException if the value is negative
+         */
+        public ConcurrencyLimitConfigBuilder maxQueueSize(int maxQueueSize) {
+            if (maxQueueSize < 0) {
+                throw new ApiException("The maximum queue size cannot be negative.");
+            }
+            this.maxQueueSize = maxQueueSize;
+            return this;
+        }
+
+        /**
+         * @param maxWait The longest a fax request waits for a free slot. Defaults to 60 seconds.
+         * @return the builder
+         * @throws ApiException if the duration is null or negative
+         */
+        public ConcurrencyLimitConfigBuilder maxWait(Duration maxWait) {
+            if (maxWait == null || maxWait.isNegative()) {
+                throw new ApiException("The maximum wait cannot be negative.");
+            }
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        private static int requirePositive(int value, String name) {
+            if (value <= 0) {
+                throw new ApiException("The " + name + " must be greater than 0.");
+            }
+            return value;
+        }
+
+        /**
+         * @return the configuration
+         * @throws ApiException if the initial limit is not between the minimum and the maximum limit
+         */
+        public ConcurrencyLimitConfig build() {
+            if (minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new ApiException("The initial limit must be between the minimum and the maximum limit.");
+            }
+            return new ConcurrencyLimitConfig(true, initialLimit, minLimit, maxLimit, backoffRatio, maxQueueSize, maxWait);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.exception.ConcurrencyLimitExceededException;
+import com.retarus.fax.utils.FutureUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.apache.http.HttpStatus.SC_INTERNAL_SERVER_ERROR;
+import static org.apache.http.HttpStatus.SC_TOO_MANY_REQUESTS;
+
+/**
+ * @author thiagon
+ * <p>
+ * Adaptive limit on the fax requests sent at the same time, in the manner of TCP Vegas.
+ * <br>The fastest response time observed is taken as the response time of an idle server. From the response time of each request,
+ * the limiter estimates how many requests queue up on the server: while the queue is short the limit grows, when it gets long the limit shrinks.
+ * A response with the status 429 or 5xx shrinks the limit by the backoff ratio at once.
+ * <br>The requests over the limit wait in a queue, in arrival order, for a free slot, without holding a thread.
+ */
+public class ConcurrencyLimiter {
+
+    /**
+     * The number of responses after which the response time of an idle server is measured again, in case the server became slower for good.
+     */
+    private static final int PROBE_INTERVAL = 1000;
+
+    private final ConcurrencyLimitConfig config;
+    private final LongSupplier clock;
+    private final long maxWaitNanos;
+    private final Deque<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private double limit;
+    private int inFlight;
+    private long noLoadRttNanos;
+    private int samples;
+
+    ConcurrencyLimiter(ConcurrencyLimitConfig config) {
+        this(config, System::nanoTime);
+    }
+
+    ConcurrencyLimiter(ConcurrencyLimitConfig config, LongSupplier clock) {
+        this.config = config;
+        this.clock = clock;
+        this.maxWaitNanos = config.getMaxWait().toNanos();
+        this.limit = config.getInitialLimit();
+    }
+
+    /**
+     * @return the current limit of fax requests sent at the same time, Integer.MAX_VALUE if the limit is disabled
+     */
+    public synchronized int getLimit() {
+        return config.isEnabled() ? (int) limit : Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return the number of fax requests sent and not answered yet
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the number of fax requests waiting for a free slot
+     */
+    public synchronized int getQueueSize() {
+        return waiters.size();
+    }
+
+    /**
+     * @return the number of fax requests rejected because the queue was full or no slot became free in time
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Waits for a free slot on the calling thread.
+     *
+     * @return the permit to send the request, which must be released once the response is received
+     * @throws ConcurrencyLimitExceededException if the queue is full or no slot becomes free within the maximum wait
+     * @throws InterruptedIOException            if the thread is interrupted while waiting
+     */
+    Permit acquire() throws IOException {
+        CompletableFuture<Permit> permit = acquireAsync();
+        try {
+            return permit.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(permit, new ConcurrencyLimitExceededException("Interrupted while waiting for a free slot."));
+            InterruptedIOException interruptedIOException = new InterruptedIOException("Interrupted while waiting for a free slot.");
+            interruptedIOException.initCause(e);
+            throw interruptedIOException;
+        } catch (ExecutionException e) {
+            throw (ConcurrencyLimitExceededException) e.getCause();
+        }
+    }
+
+    /**
+     * Waits for a free slot without blocking a thread.
+     *
+     * @return the permit to send the request, completed by the request that frees the slot,
+     * or completed exceptionally with a ConcurrencyLimitExceededException if the queue is full or no slot becomes free within the maximum wait
+     */
+    CompletableFuture<Permit> acquireAsync() {
+        if (!config.isEnabled()) {
+            return CompletableFuture.completedFuture(new Permit(0, 0, false));
+        }
+
+        CompletableFuture<Permit> permit = new CompletableFuture<>();
+        synchronized (this) {
+            if (inFlight < (int) limit && waiters.isEmpty()) {
+                inFlight++;
+                permit.complete(new Permit(clock.getAsLong(), inFlight, true));
+                return permit;
+            }
+            if (waiters.size() >= config.getMaxQueueSize() || maxWaitNanos == 0) {
+                rejected.incrementAndGet();
+                permit.completeExceptionally(new ConcurrencyLimitExceededException("The concurrency limit of " + (int) limit + " fax requests is reached."));
+                return permit;
+            }
+            waiters.add(permit);
+        }
+
+        ScheduledFuture<?> timer = FutureUtils.schedule(() -> abandon(permit,
+                new ConcurrencyLimitExceededException("No slot became free within " + config.getMaxWait() + ".")), maxWaitNanos);
+        permit.whenComplete((granted, throwable) -> timer.cancel(false));
+        return permit;
+    }
+
+    /**
+     * Removes a request from the queue, or gives its slot back if it was granted in the meantime.
+     */
+    private void abandon(CompletableFuture<Permit> permit, ConcurrencyLimitExceededException exception) {
+        boolean queued;
+        synchronized (this) {
+            queued = waiters.remove(permit);
+        }
+        if (queued) {
+            rejected.incrementAndGet();
+            permit.completeExceptionally(exception);
+        } else if (permit.completeExceptionally(exception)) {
+            // Granted by a release that has not completed it yet, which gives the slot back
+            rejected.incrementAndGet();
+        } else if (!permit.isCompletedExceptionally()) {
+            permit.join().ignore();
+        }
+    }
+
+    private void onRelease(Permit permit, boolean sample, boolean dropped) {
+        List<Map.Entry<CompletableFuture<Permit>, Permit>> granted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            if (sample) {
+                update(clock.getAsLong() - permit.startNanos, dropped, permit.inFlightAtStart);
+            }
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                CompletableFuture<Permit> waiter = waiters.poll();
+                if (!waiter.isDone()) {
+                    inFlight++;
+                    granted.add(new AbstractMap.SimpleImmutableEntry<>(waiter, new Permit(clock.getAsLong(), inFlight, true)));
+                }
+            }
+        }
+        // The waiting requests are sent by the thread that completes them, which must not hold the lock
+        for (Map.Entry<CompletableFuture<Permit>, Permit> waiter : granted) {
+            if (!waiter.getKey().complete(waiter.getValue())) {
+                waiter.getValue().ignore();
+            }
+        }
+    }
+
+    private void update(long rttNanos, boolean dropped, int inFlightAtStart) {
+        if (dropped) {
+            limit = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+            return;
+        }
+
+        long rtt = Math.max(1, rttNanos);
+        if (noLoadRttNanos == 0 || rtt < noLoadRttNanos || ++samples % PROBE_INTERVAL == 0) {
+            noLoadRttNanos = rtt;
+        }
+        // A limit that is not used says nothing about the load it puts on the server
+        if (inFlightAtStart * 2 < limit) {
+            return;
+        }
+
+        double step = Math.max(1, Math.log10(limit));
+        double queueSize = limit * (1 - (double) noLoadRttNanos / rtt);
+        if (queueSize < 3 * step) {
+            limit = Math.min(config.getMaxLimit(), limit + step);
+        } else if (queueSize > 6 * step) {
+            limit = Math.max(config.getMinLimit(), limit - step);
+        }
+    }
+
+    /**
+     * The permit to send a fax request, holding a slot of the limit until it is released.
+     */
+    class Permit {
+        private final long startNanos;
+        private final int inFlightAtStart;
+        private final AtomicBoolean held;
+
+        private Permit(long startNanos, int inFlightAtStart, boolean held) {
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlightAtStart;
+            this.held = new AtomicBoolean(held);
+        }
+
+        /**
+         * Gives the slot back, and adapts the limit to the response time and to the status of the response.
+         *
+         * @param statusCode the status of the response, 429 and 5xx shrink the limit
+         */
+        void release(int statusCode) {
+            if (held.compareAndSet(true, false)) {
+                onRelease(this, true, statusCode == SC_TOO_MANY_REQUESTS || statusCode >= SC_INTERNAL_SERVER_ERROR);
+            }
+        }
+
+        /**
+         * Gives the slot back without adapting the limit, when the request failed before it reached the server. Does nothing once released.
+         */
+        void ignore() {
+            if (held.compareAndSet(true, false)) {
+                onRelease(this, false, false);
+            }
+        }
+    }
+}
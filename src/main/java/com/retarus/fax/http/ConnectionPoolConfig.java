@@ -0,0 +1,209 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.exception.ApiException;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * @author thiagon
+ * <p>
+ * Class for the configuration of the HTTP connection pool used by the FaxServiceClient.
+ * <br>The pool is shared by every request of a client, so connections (and their TLS sessions) are reused instead of being opened for each call.
+ * <br>Each Retarus host gets its own per-route limit, which can be overridden for a single location.
+ */
+public class ConnectionPoolConfig {
+
+    /**
+     * The maximum number of connections kept open over all the hosts.
+     */
+    private final int maxTotal;
+
+    /**
+     * The maximum number of connections kept open for a single host.
+     */
+    private final int maxPerRoute;
+
+    /**
+     * The per-host limits that differ from the default maximum per route.
+     */
+    private final Map<Location, Integer> maxPerLocation;
+
+    /**
+     * How long an idle connection is kept alive, if the server does not send a Keep-Alive header.
+     */
+    private final Duration keepAlive;
+
+    /**
+     * How long a connection can stay idle in the pool before it is evicted.
+     */
+    private final Duration idleTimeout;
+
+    /**
+     * Time of inactivity after which a pooled connection is checked before it is leased again.
+     */
+    private final Duration validateAfterInactivity;
+
+    private ConnectionPoolConfig(int maxTotal, int maxPerRoute, Map<Location, Integer> maxPerLocation, Duration keepAlive, Duration idleTimeout, Duration validateAfterInactivity) {
+        this.maxTotal = maxTotal;
+        this.maxPerRoute = maxPerRoute;
+        this.maxPerLocation = maxPerLocation;
+        this.keepAlive = keepAlive;
+        this.idleTimeout = idleTimeout;
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    public static ConnectionPoolConfigBuilder builder() {
+        return new ConnectionPoolConfigBuilder();
+    }
+
+    /**
+     * @return the default pool configuration
+     */
+    public static ConnectionPoolConfig defaults() {
+        return builder().build();
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    /**
+     * @param location the location to get the limit for
+     * @return the maximum number of connections for the host of the given location
+     */
+    public int getMaxPerRoute(Location location) {
+        return maxPerLocation.getOrDefault(location, maxPerRoute);
+    }
+
+    public Map<Location, Integer> getMaxPerLocation() {
+        return maxPerLocation;
+    }
+
+    public Duration getKeepAlive() {
+        return keepAlive;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public Duration getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolConfig(maxTotal=" + maxTotal + ", maxPerRoute=" + maxPerRoute + ", maxPerLocation=" + maxPerLocation + ", keepAlive=" + keepAlive + ", idleTimeout=" + idleTimeout + ", validateAfterInactivity=" + validateAfterInactivity + ")";
+    }
+
+    public static class ConnectionPoolConfigBuilder {
+        private int maxTotal = 200;
+        private int maxPerRoute = 50;
+        private final Map<Location, Integer> maxPerLocation = new EnumMap<>(Location.class);
+        private Duration keepAlive = Duration.ofSeconds(30);
+        private Duration idleTimeout = Duration.ofSeconds(30);
+        private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+        private ConnectionPoolConfigBuilder() {
+        }
+
+        /**
+         * @param maxTotal The maximum number of connections kept open over all the hosts.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public ConnectionPoolConfigBuilder maxTotal(int maxTotal) {
+            if (maxTotal <= 0) {
+                throw new ApiException("The maximum number of connections must be greater than 0.");
+            }
+            this.maxTotal = maxTotal;
+            return this;
+        }
+
+        /**
+         * @param maxPerRoute The maximum number of connections kept open for a single host.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public ConnectionPoolConfigBuilder maxPerRoute(int maxPerRoute) {
+            if (maxPerRoute <= 0) {
+                throw new ApiException("The maximum number of connections per route must be greater than 0.");
+            }
+            this.maxPerRoute = maxPerRoute;
+            return this;
+        }
+
+        /**
+         * @param location    The location whose host gets a dedicated limit.
+         * @param maxPerRoute The maximum number of connections kept open for the host of the location.
+         * @return the builder
+         * @throws ApiException if the location is null or the value is not positive
+         */
+        public ConnectionPoolConfigBuilder maxPerRoute(Location location, int maxPerRoute) {
+            if (location == null) {
+                throw new ApiException("The location cannot be null.");
+            }
+            if (maxPerRoute <= 0) {
+                throw new ApiException("The maximum number of connections per route must be greater than 0.");
+            }
+            this.maxPerLocation.put(location, maxPerRoute);
+            return this;
+        }
+
+        /**
+         * @param keepAlive How long an idle connection is kept alive, if the server does not send a Keep-Alive header.
+         * @return the builder
+         * @throws ApiException if the duration is null or negative
+         */
+        public ConnectionPoolConfigBuilder keepAlive(Duration keepAlive) {
+            this.keepAlive = requirePositive(keepAlive, "keep alive");
+            return this;
+        }
+
+        /**
+         * @param idleTimeout How long a connection can stay idle in the pool before it is evicted.
+         * @return the builder
+         * @throws ApiException if the duration is null or negative
+         */
+        public ConnectionPoolConfigBuilder idleTimeout(Duration idleTimeout) {
+            this.idleTimeout = requirePositive(idleTimeout, "idle timeout");
+            return this;
+        }
+
+        /**
+         * @param validateAfterInactivity Time of inactivity after which a pooled connection is checked before it is leased again.
+         * @return the builder
+         * @throws ApiException if the duration is null or negative
+         */
+        public ConnectionPoolConfigBuilder validateAfterInactivity(Duration validateAfterInactivity) {
+            this.validateAfterInactivity = requirePositive(validateAfterInactivity, "validate after inactivity");
+            return this;
+        }
+
+        private static Duration requirePositive(Duration duration, String name) {
+            if (duration == null || duration.isNegative() || duration.isZero()) {
+                throw new ApiException("The " + name + " duration must be greater than 0.");
+            }
+            return duration;
+        }
+
+        /**
+         * @return the connection pool configuration
+         */
+        public ConnectionPoolConfig build() {
+            return new ConnectionPoolConfig(maxTotal, maxPerRoute, Collections.unmodifiableMap(new EnumMap<>(maxPerLocation)), keepAlive, idleTimeout, validateAfterInactivity);
+        }
+
+        public String toString() {
+            return "ConnectionPoolConfig.ConnectionPoolConfigBuilder(maxTotal=" + this.maxTotal + ", maxPerRoute=" + this.maxPerRoute + ", maxPerLocation=" + this.maxPerLocation + ", keepAlive=" + this.keepAlive + ", idleTimeout=" + this.idleTimeout + ", validateAfterInactivity=" + this.validateAfterInactivity + ")";
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.retarus.fax.http;
+
+/**
+ * @author thiagon
+ * <p>
+ * Snapshot of the HTTP connection pool gauges, used to size the pool of a FaxServiceClient.
+ * <br>leased: connections currently executing a request.
+ * <br>pending: requests waiting for a connection to become available.
+ * <br>available: idle connections that can be reused.
+ * <br>max: the maximum number of connections allowed.
+ */
+public class ConnectionPoolStats {
+
+    private final int leased;
+    private final int pending;
+    private final int available;
+    private final int max;
+
+    public ConnectionPoolStats(int leased, int pending, int available, int max) {
+        this.leased = leased;
+        this.pending = pending;
+        this.available = available;
+        this.max = max;
+    }
+
+    public int getLeased() {
+        return leased;
+    }
+
+    public int getPending() {
+        return pending;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolStats(leased=" + leased + ", pending=" + pending + ", available=" + available + ", max=" + max + ")";
+    }
+}
@@ -0,0 +1,46 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.common.HttpMethod;
+import com.retarus.fax.base.rest.RequestURL;
+
+/**
+ * @author thiagon
+ * <p>
+ * Enum class for the kinds of requests of the Retarus Fax API, each kind has its own rate limit.
+ */
+public enum EndpointType {
+    /**
+     * {@link RequestURL#SEND_FAX_REQUEST}
+     */
+    SEND,
+    /**
+     * {@link RequestURL#FETCH_STATUS_REPORT_FOR_SINGLE_JOB} and {@link RequestURL#FETCH_REPORTS_FOR_ACCOUNT}
+     */
+    FETCH,
+    /**
+     * {@link RequestURL#DELETE_STATUS_REPORT_FOR_SINGLE_JOB} and {@link RequestURL#DELETE_REPORTS_FOR_ACCOUNT}
+     */
+    DELETE,
+    /**
+     * {@link RequestURL#PERFORM_BULK_OPERATION_ON_STATUS_REPORT}
+     */
+    BULK;
+
+    private static final String SEND_PATH = RequestURL.SEND_FAX_REQUEST.toString().substring(RequestURL.SEND_FAX_REQUEST.toString().lastIndexOf('/'));
+
+    /**
+     * @param httpMethod the method of the request
+     * @param url        the url of the request
+     * @return the kind of the request: the POST requests are either a fax or a bulk operation, the others depend on their method
+     */
+    public static EndpointType of(HttpMethod httpMethod, String url) {
+        switch (httpMethod) {
+            case POST:
+                return url.endsWith(SEND_PATH) ? SEND : BULK;
+            case DELETE:
+                return DELETE;
+            default:
+                return FETCH;
+        }
+    }
+}
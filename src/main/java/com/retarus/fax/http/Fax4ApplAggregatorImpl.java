@@ -1,20 +1,37 @@
 package com.retarus.fax.http;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.retarus.fax.RetarusFax;
 import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.CloseableIterator;
 import com.retarus.fax.base.responses.FaxDeletionReport;
 import com.retarus.fax.base.responses.FaxStatusReport;
 import com.retarus.fax.base.rest.Location;
 import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.base.sendfax.Reference;
 import com.retarus.fax.v1.rest.fetcher.AvailableFaxReportsRetriever;
 import com.retarus.fax.v1.rest.generator.FaxComposer;
-import com.retarus.fax.RetarusFax;
 import com.retarus.fax.v1.rest.deleter.OldestFaxReportsDeleter;
 import com.retarus.fax.v1.rest.deleter.SingleFaxReportDeleter;
+import com.retarus.fax.utils.FutureUtils;
+import com.retarus.fax.utils.JsonCodec;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.http.HttpStatus.SC_GATEWAY_TIMEOUT;
+import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
 
 public class Fax4ApplAggregatorImpl implements Fax4ApplClient {
     private final FaxServiceClient client;
@@ -26,33 +43,109 @@ public class Fax4ApplAggregatorImpl implements Fax4ApplClient {
 
 
     /**
-     * Sends a fax request to the fax service.
+     * Sends a fax request to the fax service, once the concurrency limit of the client has a free slot.
+     * <br>A fax request that gets no slot gets an empty response with the status 503.
+     * <br>If the sends of the client are idempotent, a fax request with a customer defined id that is in flight or got a job id is not sent again.
      *
      * @param faxRequest the fax request to send
      * @return the result of the fax request
      */
     @Override
     public ApiResponse<String> sendFaxRequest(FaxRequest faxRequest) {
+        IdempotencyCache idempotencyCache = client.getIdempotencyCache();
+        String customerDefinedId = customerDefinedId(faxRequest);
+        if (idempotencyCache == null || customerDefinedId == null) {
+            return send(faxRequest);
+        }
+        // The fax request and the lookup of the fax reports run on the calling thread, like without the cache
+        try {
+            return idempotencyCache.send(customerDefinedId, () -> CompletableFuture.completedFuture(send(faxRequest)), Runnable::run).join();
+        } catch (CompletionException e) {
+            Throwable cause = FutureUtils.unwrap(e);
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+        }
+    }
+
+    private ApiResponse<String> send(FaxRequest faxRequest) {
         if (faxComposer == null) {
             faxComposer = new FaxComposer(client);
         }
 
-        return faxComposer.compose(faxRequest);
+        ConcurrencyLimiter.Permit permit;
+        try {
+            permit = client.getSendLimiter().acquire();
+        } catch (IOException e) {
+            return new ApiResponse<>("", SC_SERVICE_UNAVAILABLE, client.getLocale());
+        }
+        try {
+            ApiResponse<String> response = faxComposer.compose(faxRequest);
+            permit.release(response.getStatusCode());
+            return response;
+        } finally {
+            // Only frees the slot if the fax request failed before a response
+            permit.ignore();
+        }
     }
 
     /**
-     * Sends a fax request to the fax service asynchronously.
+     * Sends a fax request to the fax service asynchronously, once the concurrency limit of the client has a free slot.
+     * <br>The fax request waits for the slot without holding a thread, and gets an empty response with the status 503 if it gets no slot.
+     * <br>If the sends of the client are idempotent, a fax request with a customer defined id that is in flight or got a job id is not sent again.
      *
      * @param faxRequest the fax request to send
      * @return the result of the fax request
      */
     @Override
     public CompletableFuture<ApiResponse<String>> sendFaxRequestAsync(FaxRequest faxRequest) {
+        return sendFaxRequestAsync(customerDefinedId(faxRequest), new JsonEntity(faxRequest, JsonCodec.FAX_REQUEST_WRITER));
+    }
+
+    /**
+     * Sends a fax request that is already serialized to JSON asynchronously, once the concurrency limit of the client has a free slot.
+     *
+     * @param faxRequestJson the JSON of the fax request
+     * @return the result of the fax request
+     */
+    CompletableFuture<ApiResponse<String>> sendFaxRequestAsync(byte[] faxRequestJson) {
+        String customerDefinedId = client.getIdempotencyCache() == null ? null : customerDefinedId(faxRequestJson);
+        return sendFaxRequestAsync(customerDefinedId, new ByteArrayEntity(faxRequestJson, ContentType.APPLICATION_JSON));
+    }
+
+    private CompletableFuture<ApiResponse<String>> sendFaxRequestAsync(String customerDefinedId, HttpEntity faxRequestEntity) {
+        IdempotencyCache idempotencyCache = client.getIdempotencyCache();
+        if (idempotencyCache == null || customerDefinedId == null) {
+            return send(faxRequestEntity);
+        }
+        return idempotencyCache.send(customerDefinedId, () -> send(faxRequestEntity), RetarusFax.getExecutorService());
+    }
+
+    private CompletableFuture<ApiResponse<String>> send(HttpEntity faxRequestEntity) {
         if (faxComposer == null) {
             faxComposer = new FaxComposer(client);
         }
 
-        return faxComposer.composeAsync(faxRequest);
+        CompletableFuture<ApiResponse<String>> result = new CompletableFuture<>();
+        client.getSendLimiter().acquireAsync().whenComplete((permit, rejection) -> {
+            if (rejection != null) {
+                result.complete(new ApiResponse<>("", SC_SERVICE_UNAVAILABLE, client.getLocale()));
+                return;
+            }
+            try {
+                faxComposer.composeAsync(faxRequestEntity).whenComplete((response, throwable) -> {
+                    if (throwable == null) {
+                        permit.release(response.getStatusCode());
+                        result.complete(response);
+                    } else {
+                        permit.ignore();
+                        result.completeExceptionally(FutureUtils.unwrap(throwable));
+                    }
+                });
+            } catch (RuntimeException e) {
+                permit.ignore();
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
     }
 
     /**
@@ -78,56 +171,172 @@ public class Fax4ApplAggregatorImpl implements Fax4ApplClient {
     }
 
     /**
-     * Gets all the aggregated fax reports for a given region, fetching from each location and aggregating the results.
-     * <br>The job location map is updated with the location for each job ID into the job location map, as well.
+     * Gets all the aggregated fax reports for a given region, fetching from all locations at the same time and aggregating the results.
+     * <br>A location that does not answer within the location timeout of the client gets an empty response with the status 504.
      *
-     * @return all the aggregated fax reports, for all locations within a region
+     * @return all the aggregated fax reports, for all locations within a region, in the order of the locations
      */
     @Override
     public List<ApiResponse<List<FaxStatusReport>>> getReports() {
-        List<ApiResponse<List<FaxStatusReport>>> apiResponses = new ArrayList<>();
-        for (Location location : client.getLocale().getLocations()) {
-            AvailableFaxReportsRetriever faxReportsRetriever = new AvailableFaxReportsRetriever(client, location);
-            apiResponses.add(faxReportsRetriever.get(null));
-        }
-        return apiResponses;
+        return dispatchGetReports().awaitAll();
+    }
+
+    /**
+     * Gets the fax reports of each location of the region, fetching from all locations at the same time.
+     * <br>The response of each location is passed to the consumer on the calling thread as soon as the location completes.
+     *
+     * @param onLocationCompleted the consumer of the response of each location
+     */
+    @Override
+    public void getReports(Consumer<ApiResponse<List<FaxStatusReport>>> onLocationCompleted) {
+        dispatchGetReports().forEachCompleted(onLocationCompleted);
     }
 
     /**
-     * Gets all the aggregated fax reports for a given region, fetching from each location and aggregating the results asynchronously.
-     * <br>The job location map is updated with the location for each job ID into the job location map, as well.
+     * Gets all the aggregated fax reports for a given region, fetching from all locations at the same time and aggregating the results asynchronously.
+     * <br>A location that does not answer within the location timeout of the client gets an empty response with the status 504.
      *
-     * @return all the aggregated fax reports, for all locations within a region
+     * @return all the aggregated fax reports, for all locations within a region, in the order of the locations
      */
     @Override
     public CompletableFuture<List<ApiResponse<List<FaxStatusReport>>>> getReportsAsync() {
-        return CompletableFuture.supplyAsync(this::getReports, RetarusFax.getExecutorService());
+        return dispatchGetReports().allOf();
     }
 
     /**
-     * Gets all the aggregated fax reports for a given region, fetching from each location and aggregating the results.
-     * <br>The job location map is updated with the location for each job ID into the job location map, as well.
+     * Iterates over the fax reports of each location of the region, one location after the other.
+     * <br>The reports of a location are only requested once the reports of the previous location are read,
+     * so at most one response is open at a time.
      *
-     * @return all the aggregated fax reports, for all locations within a region
+     * @return an iterator over the fax reports of all locations within a region
      */
     @Override
-    public List<ApiResponse<List<FaxDeletionReport>>> deleteReports() {
-        List<ApiResponse<List<FaxDeletionReport>>> responses = new ArrayList<>();
+    public CloseableIterator<FaxStatusReport> iterateReports() {
+        List<Supplier<CloseableIterator<FaxStatusReport>>> iterators = new ArrayList<>();
         for (Location location : client.getLocale().getLocations()) {
-            OldestFaxReportsDeleter oldestFaxReportsDeleter = new OldestFaxReportsDeleter(client, location);
-            responses.add(oldestFaxReportsDeleter.delete(null));
+            iterators.add(() -> new AvailableFaxReportsRetriever(client, location).iterate());
         }
-        return responses;
+        return CloseableIterator.concat(iterators);
+    }
+
+    /**
+     * Deletes the oldest fax reports of each location of the region, deleting from all locations at the same time and aggregating the results.
+     * <br>A location that does not answer within the location timeout of the client gets an empty response with the status 504.
+     *
+     * @return the deletion reports of all locations within a region, in the order of the locations
+     */
+    @Override
+    public List<ApiResponse<List<FaxDeletionReport>>> deleteReports() {
+        return dispatchDeleteReports().awaitAll();
     }
 
     /**
-     * Gets all the aggregated fax reports for a given region, fetching from each location and aggregating the results asynchronously.
-     * <br>The job location map is updated with the location for each job ID into the job location map, as well.
+     * Deletes the oldest fax reports of each location of the region, deleting from all locations at the same time.
+     * <br>The response of each location is passed to the consumer on the calling thread as soon as the location completes.
      *
-     * @return all the aggregated fax reports, for all locations within a region
+     * @param onLocationCompleted the consumer of the response of each location
+     */
+    @Override
+    public void deleteReports(Consumer<ApiResponse<List<FaxDeletionReport>>> onLocationCompleted) {
+        dispatchDeleteReports().forEachCompleted(onLocationCompleted);
+    }
+
+    /**
+     * Deletes the oldest fax reports of each location of the region, deleting from all locations at the same time and aggregating the results asynchronously.
+     * <br>A location that does not answer within the location timeout of the client gets an empty response with the status 504.
+     *
+     * @return the deletion reports of all locations within a region, in the order of the locations
      */
     @Override
     public CompletableFuture<List<ApiResponse<List<FaxDeletionReport>>>> deleteReportsAsync() {
-        return CompletableFuture.supplyAsync(this::deleteReports, RetarusFax.getExecutorService());
+        return dispatchDeleteReports().allOf();
+    }
+
+    /**
+     * Deletes the oldest fax reports of each location of the region, one location after the other, and iterates over the deletion reports.
+     * <br>The reports of a location are only deleted once the deletion reports of the previous location are read,
+     * so at most one response is open at a time.
+     *
+     * @return an iterator over the deletion reports of all locations within a region
+     */
+    @Override
+    public CloseableIterator<FaxDeletionReport> iterateDeletedReports() {
+        List<Supplier<CloseableIterator<FaxDeletionReport>>> iterators = new ArrayList<>();
+        for (Location location : client.getLocale().getLocations()) {
+            iterators.add(() -> new OldestFaxReportsDeleter(client, location).iterate());
+        }
+        return CloseableIterator.concat(iterators);
+    }
+
+    /**
+     * Sends the request for the available reports to every location of the region, without waiting for the responses.
+     */
+    private LocationCompletionService<ApiResponse<List<FaxStatusReport>>> dispatchGetReports() {
+        LocationCompletionService<ApiResponse<List<FaxStatusReport>>> completionService = new LocationCompletionService<>(client.getLocationTimeout(), Fax4ApplAggregatorImpl::timedOut);
+        for (Location location : client.getLocale().getLocations()) {
+            completionService.submit(location, new AvailableFaxReportsRetriever(client, location).getAsync(null));
+        }
+        return completionService;
+    }
+
+    /**
+     * Sends the deletion of the oldest reports to every location of the region, without waiting for the responses.
+     */
+    private LocationCompletionService<ApiResponse<List<FaxDeletionReport>>> dispatchDeleteReports() {
+        LocationCompletionService<ApiResponse<List<FaxDeletionReport>>> completionService = new LocationCompletionService<>(client.getLocationTimeout(), Fax4ApplAggregatorImpl::timedOut);
+        for (Location location : client.getLocale().getLocations()) {
+            completionService.submit(location, new OldestFaxReportsDeleter(client, location).deleteAsync(null));
+        }
+        return completionService;
+    }
+
+    private static String customerDefinedId(FaxRequest faxRequest) {
+        Reference reference = faxRequest.getReference();
+        return reference == null || isBlank(reference.getCustomerDefinedId()) ? null : reference.getCustomerDefinedId();
+    }
+
+    /**
+     * Reads the customer defined id of a serialized fax request, streaming to it and skipping every other value instead of reading the whole tree,
+     * which holds the Base64 documents.
+     *
+     * @param faxRequestJson the JSON of the fax request
+     * @return the customer defined id, null if the fax request has none or cannot be parsed
+     */
+    static String customerDefinedId(byte[] faxRequestJson) {
+        try (JsonParser parser = JsonCodec.JSON_TREE_READER.createParser(faxRequestJson)) {
+            if (!seekField(parser, "reference") || parser.currentToken() != JsonToken.START_OBJECT
+                    || !seekField(parser, "customerDefinedId") || !parser.currentToken().isScalarValue()) {
+                return null;
+            }
+            String customerDefinedId = parser.getValueAsString();
+            return isBlank(customerDefinedId) ? null : customerDefinedId;
+        } catch (IOException e) {
+            // Sent as it is, the fax service rejects it
+            return null;
+        }
+    }
+
+    /**
+     * Positions the parser on the value of a field of the next object, or of the current one, skipping the other fields and their children.
+     *
+     * @return true if the parser is on the value of the field, false if the object has no such field
+     */
+    private static boolean seekField(JsonParser parser, String name) throws IOException {
+        if (!parser.hasToken(JsonToken.START_OBJECT) && parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if (name.equals(fieldName)) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static <T> ApiResponse<List<T>> timedOut(Location location) {
+        return new ApiResponse<>(new ArrayList<>(), SC_GATEWAY_TIMEOUT, location);
     }
 }
@@ -1,8 +1,16 @@
 package com.retarus.fax.http;
 
+import com.retarus.fax.base.rest.LocationSelector;
 import com.retarus.fax.base.rest.URLProvider;
 
 public interface Fax4ApplApiClient extends ApiClient, Fax4ApplClient {
 
     URLProvider getLocale();
+
+    /**
+     * @return the selector that chooses the location of the region for the requests any location can serve, by default at random
+     */
+    default LocationSelector getLocationSelector() {
+        return LocationSelector.random();
+    }
 }
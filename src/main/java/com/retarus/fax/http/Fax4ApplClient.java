@@ -1,6 +1,7 @@
 package com.retarus.fax.http;
 
 import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.CloseableIterator;
 import com.retarus.fax.base.responses.FaxDeletionReport;
 import com.retarus.fax.base.responses.FaxStatusReport;
 import com.retarus.fax.base.sendfax.FaxRequest;
@@ -8,6 +9,7 @@ import com.retarus.fax.base.sendfax.FaxRequest;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 interface Fax4ApplClient {
 
@@ -21,11 +23,19 @@ interface Fax4ApplClient {
 
     List<ApiResponse<List<FaxStatusReport>>> getReports();
 
+    void getReports(Consumer<ApiResponse<List<FaxStatusReport>>> onLocationCompleted);
+
     CompletableFuture<List<ApiResponse<List<FaxStatusReport>>>> getReportsAsync();
 
+    CloseableIterator<FaxStatusReport> iterateReports();
+
     List<ApiResponse<List<FaxDeletionReport>>> deleteReports();
 
+    void deleteReports(Consumer<ApiResponse<List<FaxDeletionReport>>> onLocationCompleted);
+
     CompletableFuture<List<ApiResponse<List<FaxDeletionReport>>>> deleteReportsAsync();
 
+    CloseableIterator<FaxDeletionReport> iterateDeletedReports();
+
 
 }
@@ -0,0 +1,424 @@
+package com.retarus.fax.http;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.retarus.fax.RetarusFax;
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.exception.ApiException;
+import com.retarus.fax.utils.FutureUtils;
+import com.retarus.fax.utils.JsonCodec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.http.HttpStatus.*;
+
+/**
+ * @author thiagon
+ * <p>
+ * Durable outbox for the fax requests: a fax request is written to a log on disk before it is sent, and the entry is acknowledged
+ * once the fax service answers with a job id, so the fax requests that were waiting or in flight when the JVM stopped are sent again
+ * when the outbox is opened the next time.
+ * <br>The log is made of memory-mapped segment files in its directory. The entries appended by concurrent threads are made durable
+ * together by a single sync of the segments (group commit), so each fax request waits for one sync, which is shared by all the fax requests
+ * written in the meantime.
+ * <br>A fax request is also acknowledged when the fax service rejects it for good, with a 4xx status other than 401, 403, 408 and 429,
+ * because sending it again cannot succeed. After the other failures, the fax request is sent again with an exponential backoff, up to
+ * the maximum number of attempts; then it is given up and acknowledged, so it does not keep its segment on disk, and its response is the last failure.
+ * The fax requests still waiting for their next attempt when the outbox is closed are sent again when it is opened.
+ * <br>The fax requests are sent at least once: a fax request that was accepted by the fax service right before the JVM stopped,
+ * before its acknowledgement was made durable, is sent again.
+ * <br>Only one outbox can use a directory at a time, the directory is locked while the outbox is open.
+ */
+public class FaxOutbox implements Closeable {
+
+    private final FaxServiceClient client;
+    private final OutboxLog log;
+    private final int maxAttempts;
+    private final long retryDelayNanos;
+    private final long maxRetryDelayNanos;
+    private final Map<Long, Retry> retries = new ConcurrentHashMap<>();
+    private final AtomicLong abandoned = new AtomicLong();
+    private final CompletableFuture<Long> replay;
+    private volatile boolean closed;
+
+    private FaxOutbox(FaxServiceClient client, OutboxLog log, FaxOutboxBuilder builder) {
+        this.client = client;
+        this.log = log;
+        this.maxAttempts = builder.maxAttempts;
+        this.retryDelayNanos = builder.retryDelay.toNanos();
+        this.maxRetryDelayNanos = builder.maxRetryDelay.toNanos();
+        int maxReplayInFlight = builder.maxReplayInFlight;
+        List<Long> recovered = log.getRecovered();
+        this.replay = recovered.isEmpty()
+                ? CompletableFuture.completedFuture(0L)
+                : new Replay(recovered).start(maxReplayInFlight);
+    }
+
+    public static FaxOutboxBuilder builder(FaxServiceClient client) {
+        return new FaxOutboxBuilder(client);
+    }
+
+    /**
+     * Writes the fax request to the outbox, and sends it once it is durable on disk, again after a failure worth a retry.
+     *
+     * @param faxRequest the fax request to send
+     * @return the response of the last attempt of the fax request, completed exceptionally with an ApiException if the fax request cannot be
+     * written to the outbox, or with the failure of the last attempt
+     */
+    public CompletableFuture<ApiResponse<String>> submit(FaxRequest faxRequest) {
+        CompletableFuture<Long> durable;
+        byte[] payload;
+        try {
+            payload = JsonCodec.FAX_REQUEST_WRITER.writeValueAsBytes(faxRequest);
+            durable = log.append(payload);
+        } catch (JsonProcessingException e) {
+            return failed(new ApiException("Cannot serialize the fax request.", e));
+        } catch (IOException | RuntimeException e) {
+            return failed(new ApiException("Cannot write the fax request to the outbox.", e));
+        }
+        // Sent on the executor, so the sync thread is free to sync the next entries
+        return durable.thenComposeAsync(id -> send(id, payload), RetarusFax.getExecutorService());
+    }
+
+    /**
+     * @return the number of fax requests sent again when the outbox was opened, completed once all of them are answered
+     */
+    public CompletableFuture<Long> getReplay() {
+        return replay;
+    }
+
+    /**
+     * @return the number of fax requests in the outbox that are not acknowledged yet
+     */
+    public int getPendingCount() {
+        return log.getPendingCount();
+    }
+
+    /**
+     * @return the number of fax requests given up after the maximum number of attempts since the outbox was opened
+     */
+    public long getAbandonedCount() {
+        return abandoned.get();
+    }
+
+    /**
+     * Closes the outbox, once the fax requests written so far are durable. The fax requests still in flight or waiting for their next attempt
+     * are sent again when the outbox is opened; the ones waiting complete with the response of their last attempt.
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (Long id : retries.keySet()) {
+            Retry retry = retries.remove(id);
+            if (retry != null) {
+                // Not scheduled yet if the retry is registered right now, its task then finds it removed
+                if (retry.scheduled != null) {
+                    retry.scheduled.cancel(false);
+                }
+                retry.complete();
+            }
+        }
+        log.close();
+    }
+
+    private CompletableFuture<ApiResponse<String>> send(long id, byte[] payload) {
+        CompletableFuture<ApiResponse<String>> result = new CompletableFuture<>();
+        attempt(id, payload, 1, result);
+        return result;
+    }
+
+    private void attempt(long id, byte[] payload, int attempt, CompletableFuture<ApiResponse<String>> result) {
+        CompletableFuture<ApiResponse<String>> sent;
+        try {
+            sent = client.sendFaxRequestAsync(payload);
+        } catch (RuntimeException e) {
+            sent = new CompletableFuture<>();
+            sent.completeExceptionally(e);
+        }
+        sent.whenComplete((response, throwable) -> {
+            Retry retry = new Retry(response, throwable, result);
+            if (throwable == null && isFinal(response)) {
+                ack(id);
+            } else if (closed) {
+                // Left in the log, the fax request is sent again when the outbox is opened
+            } else if (attempt >= maxAttempts) {
+                abandoned.incrementAndGet();
+                ack(id);
+            } else {
+                retries.put(id, retry);
+                retry.scheduled = FutureUtils.schedule(() -> {
+                    if (retries.remove(id, retry)) {
+                        execute(() -> {
+                            if (closed) {
+                                retry.complete();
+                            } else {
+                                attempt(id, payload, attempt + 1, result);
+                            }
+                        });
+                    }
+                }, backoff(attempt));
+                // The outbox may have been closed before the retry was registered
+                if (closed && retries.remove(id, retry)) {
+                    retry.scheduled.cancel(false);
+                    retry.complete();
+                }
+                return;
+            }
+            retry.complete();
+        });
+    }
+
+    private void ack(long id) {
+        try {
+            log.ack(id);
+        } catch (IOException e) {
+            // Left in the log, the fax request is sent again when the outbox is opened
+        }
+    }
+
+    /**
+     * @return the delay before the next attempt: the retry delay doubled with each attempt up to the maximum, half of it random
+     */
+    private long backoff(int attempt) {
+        long delay = retryDelayNanos << Math.min(attempt - 1, 30);
+        delay = delay <= 0 || delay > maxRetryDelayNanos ? maxRetryDelayNanos : delay;
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private static void execute(Runnable task) {
+        try {
+            RetarusFax.getExecutorService().execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private static CompletableFuture<ApiResponse<String>> failed(ApiException exception) {
+        CompletableFuture<ApiResponse<String>> failed = new CompletableFuture<>();
+        failed.completeExceptionally(exception);
+        return failed;
+    }
+
+    /**
+     * @return true if the fax request got a job id, or was rejected for a reason sending it again does not fix
+     */
+    private static boolean isFinal(ApiResponse<String> response) {
+        int statusCode = response.getStatusCode();
+        if (statusCode == SC_OK || statusCode == SC_CREATED) {
+            return !isBlank(response.getValue());
+        }
+        return statusCode >= SC_BAD_REQUEST && statusCode < SC_INTERNAL_SERVER_ERROR
+                && statusCode != SC_UNAUTHORIZED && statusCode != SC_FORBIDDEN
+                && statusCode != SC_REQUEST_TIMEOUT && statusCode != SC_TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * Sends the fax requests found in the log, at most maxInFlight at a time: each fax request that is answered starts the next one,
+     * so no thread waits for a free slot, and the replay cannot hold the threads of a bounded executor.
+     */
+    private final class Replay {
+        private final List<Long> recovered;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger activeLanes = new AtomicInteger();
+        private final AtomicLong replayed = new AtomicLong();
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        private Replay(List<Long> recovered) {
+            this.recovered = recovered;
+        }
+
+        private CompletableFuture<Long> start(int maxInFlight) {
+            int lanes = Math.min(maxInFlight, recovered.size());
+            activeLanes.set(lanes);
+            for (int i = 0; i < lanes; i++) {
+                execute(this::sendNext);
+            }
+            return result;
+        }
+
+        /**
+         * Sends the next fax request still in the log, and once it is answered, the one after it on the executor.
+         */
+        private void sendNext() {
+            for (int index = next.getAndIncrement(); index < recovered.size(); index = next.getAndIncrement()) {
+                long id = recovered.get(index);
+                byte[] payload = log.read(id);
+                if (payload == null) {
+                    continue;
+                }
+                replayed.incrementAndGet();
+                send(id, payload).whenComplete((response, throwable) -> execute(this::sendNext));
+                return;
+            }
+            if (activeLanes.decrementAndGet() == 0) {
+                result.complete(replayed.get());
+            }
+        }
+    }
+
+    /**
+     * The outcome of the last attempt of a fax request, and its next attempt once it is scheduled.
+     */
+    private static final class Retry {
+        private final ApiResponse<String> response;
+        private final Throwable throwable;
+        private final CompletableFuture<ApiResponse<String>> result;
+        private volatile ScheduledFuture<?> scheduled;
+
+        private Retry(ApiResponse<String> response, Throwable throwable, CompletableFuture<ApiResponse<String>> result) {
+            this.response = response;
+            this.throwable = throwable;
+            this.result = result;
+        }
+
+        private void complete() {
+            if (throwable == null) {
+                result.complete(response);
+            } else {
+                result.completeExceptionally(FutureUtils.unwrap(throwable));
+            }
+        }
+    }
+
+    public static class FaxOutboxBuilder {
+        private final FaxServiceClient client;
+        private Path directory;
+        private int segmentSize = 64 * 1024 * 1024;
+        private Duration syncDelay = Duration.ZERO;
+        private int maxReplayInFlight = 64;
+        private int maxAttempts = 10;
+        private Duration retryDelay = Duration.ofSeconds(1);
+        private Duration maxRetryDelay = Duration.ofMinutes(1);
+
+        private FaxOutboxBuilder(FaxServiceClient client) {
+            this.client = client;
+        }
+
+        /**
+         * @param directory The directory of the segment files of the outbox, created if it does not exist.
+         * @return the builder
+         */
+        public FaxOutboxBuilder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * @param segmentSize The size of a segment file in bytes, which is also the maximum size of a serialized fax request. Defaults to 64 MB.
+         * @return the builder
+         * @throws ApiException if the size is less than 64 KB
+         */
+        public FaxOutboxBuilder segmentSize(int segmentSize) {
+            if (segmentSize < 64 * 1024) {
+                throw new ApiException("The segment size must be at least 64 KB.");
+            }
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * @param syncDelay The time the outbox waits for more fax requests before it syncs the segments, which trades latency for fewer syncs.
+         *                  Defaults to 0, the segments are synced as soon as the previous sync is done.
+         * @return the builder
+         * @throws ApiException if the delay is null or negative
+         */
+        public FaxOutboxBuilder syncDelay(Duration syncDelay) {
+            if (syncDelay == null || syncDelay.isNegative()) {
+                throw new ApiException("The sync delay cannot be negative.");
+            }
+            this.syncDelay = syncDelay;
+            return this;
+        }
+
+        /**
+         * @param maxReplayInFlight The maximum number of fax requests sent at a time when the outbox is opened. Defaults to 64.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public FaxOutboxBuilder maxReplayInFlight(int maxReplayInFlight) {
+            if (maxReplayInFlight <= 0) {
+                throw new ApiException("The maximum number of fax requests in flight must be greater than 0.");
+            }
+            this.maxReplayInFlight = maxReplayInFlight;
+            return this;
+        }
+
+        /**
+         * @param maxAttempts The maximum number of attempts of a fax request in the outbox, before it is given up. Defaults to 10.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public FaxOutboxBuilder maxAttempts(int maxAttempts) {
+            if (maxAttempts <= 0) {
+                throw new ApiException("The maximum number of attempts must be greater than 0.");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param retryDelay The delay before the second attempt of a fax request, doubled with each attempt. Defaults to 1 second.
+         * @return the builder
+         * @throws ApiException if the delay is null, zero or negative
+         */
+        public FaxOutboxBuilder retryDelay(Duration retryDelay) {
+            if (retryDelay == null || retryDelay.isNegative() || retryDelay.isZero()) {
+                throw new ApiException("The retry delay must be positive.");
+            }
+            this.retryDelay = retryDelay;
+            return this;
+        }
+
+        /**
+         * @param maxRetryDelay The maximum delay between two attempts of a fax request. Defaults to 1 minute.
+         * @return the builder
+         * @throws ApiException if the delay is null, zero or negative
+         */
+        public FaxOutboxBuilder maxRetryDelay(Duration maxRetryDelay) {
+            if (maxRetryDelay == null || maxRetryDelay.isNegative() || maxRetryDelay.isZero()) {
+                throw new ApiException("The maximum retry delay must be positive.");
+            }
+            this.maxRetryDelay = maxRetryDelay;
+            return this;
+        }
+
+        /**
+         * Opens the outbox, and starts to send again the fax requests that were not acknowledged.
+         *
+         * @return the outbox
+         * @throws ApiException if the client or the directory is missing, the retry delay is greater than its maximum,
+         *                      or if the log cannot be opened, like when another outbox uses the directory
+         */
+        public FaxOutbox build() {
+            if (client == null) {
+                throw new ApiException("The client cannot be null.");
+            }
+            if (directory == null) {
+                throw new ApiException("The directory of the outbox cannot be null.");
+            }
+            if (retryDelay.compareTo(maxRetryDelay) > 0) {
+                throw new ApiException("The retry delay cannot be greater than the maximum retry delay.");
+            }
+            try {
+                return new FaxOutbox(client, new OutboxLog(directory, segmentSize, syncDelay.toNanos()), this);
+            } catch (IOException e) {
+                throw new ApiException("Cannot open the outbox in " + directory + ".", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.exception.ApiException;
+import com.retarus.fax.utils.FutureUtils;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * @author thiagon
+ * <p>
+ * Sends a large number of fax requests, keeping a bounded number of them in flight.
+ * <br>The fax requests are taken from the input only when a slot is free, so the input can be larger than the memory,
+ * like a Stream read from a file or a database. At most maxInFlight fax requests and results are held at a time.
+ * <br>The results are handed back one at a time, either in the order of the input or in the order the fax requests complete.
+ * In the order of the input, a slow fax request holds back the results after it, and the fax requests more than maxInFlight
+ * positions after it are not sent until it completes.
+ * <br>The fax requests are sent with {@link FaxServiceClient#sendFaxRequestAsync(FaxRequest)}, so the concurrency limit,
+ * the rate limits and the retries of the client apply to each of them.
+ */
+public class FaxSendPipeline {
+
+    public enum ResultOrder {
+        /**
+         * The results are handed back in the order of the input.
+         */
+        SUBMISSION,
+        /**
+         * The results are handed back as soon as the fax requests complete.
+         */
+        COMPLETION
+    }
+
+    private final FaxServiceClient client;
+    private final int maxInFlight;
+    private final ResultOrder resultOrder;
+    private final Consumer<FaxSendProgress> progressListener;
+    private final long progressIntervalNanos;
+
+    private FaxSendPipeline(FaxServiceClient client, int maxInFlight, ResultOrder resultOrder, Consumer<FaxSendProgress> progressListener, Duration progressInterval) {
+        this.client = client;
+        this.maxInFlight = maxInFlight;
+        this.resultOrder = resultOrder;
+        this.progressListener = progressListener;
+        this.progressIntervalNanos = progressInterval.toNanos();
+    }
+
+    public static FaxSendPipelineBuilder builder(FaxServiceClient client) {
+        return new FaxSendPipelineBuilder(client);
+    }
+
+    /**
+     * Sends all fax requests of the input.
+     *
+     * @param faxRequests the fax requests to send
+     * @param onResult    receives the result of each fax request, one at a time, on the thread that completes it
+     * @return the final progress once every result is handed back, completed exceptionally if the input or the consumer throws,
+     * cancel it to stop sending
+     */
+    public CompletableFuture<FaxSendProgress> send(Iterable<FaxRequest> faxRequests, Consumer<FaxSendResult> onResult) {
+        return send(faxRequests.iterator(), onResult);
+    }
+
+    /**
+     * Sends all fax requests of the stream, and closes the stream once they are all sent.
+     *
+     * @param faxRequests the fax requests to send, read lazily
+     * @param onResult    receives the result of each fax request, one at a time, on the thread that completes it
+     * @return the final progress once every result is handed back, completed exceptionally if the input or the consumer throws,
+     * cancel it to stop sending
+     */
+    public CompletableFuture<FaxSendProgress> send(Stream<FaxRequest> faxRequests, Consumer<FaxSendResult> onResult) {
+        CompletableFuture<FaxSendProgress> progress = send(faxRequests.iterator(), onResult);
+        progress.whenComplete((result, throwable) -> faxRequests.close());
+        return progress;
+    }
+
+    /**
+     * Sends all fax requests of the iterator.
+     *
+     * @param faxRequests the fax requests to send, read lazily
+     * @param onResult    receives the result of each fax request, one at a time, on the thread that completes it
+     * @return the final progress once every result is handed back, completed exceptionally if the input or the consumer throws,
+     * cancel it to stop sending
+     */
+    public CompletableFuture<FaxSendProgress> send(Iterator<FaxRequest> faxRequests, Consumer<FaxSendResult> onResult) {
+        Run run = new Run(faxRequests, onResult);
+        run.drain();
+        return run.progress;
+    }
+
+    /**
+     * A single pass over an input.
+     * <br>Taking the fax requests from the input and handing back the results is done by one thread at a time, the one that enters drain first,
+     * while the other threads only record their result and leave, so the input and the consumer never need to be thread-safe.
+     */
+    private class Run {
+        private final Iterator<FaxRequest> faxRequests;
+        private final Consumer<FaxSendResult> onResult;
+        private final CompletableFuture<FaxSendProgress> progress = new CompletableFuture<>();
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        /**
+         * The completed results by position of the input modulo maxInFlight, used in the order of the input.
+         */
+        private final AtomicReferenceArray<FaxSendResult> window;
+
+        /**
+         * The completed results in the order they complete, used in the order of completion.
+         */
+        private final Queue<FaxSendResult> completedResults;
+
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong succeeded = new AtomicLong();
+
+        // Only accessed by the thread in drain
+        private long submitted;
+        private long delivered;
+        private boolean exhausted;
+        private long lastProgressNanos;
+
+        private Run(Iterator<FaxRequest> faxRequests, Consumer<FaxSendResult> onResult) {
+            this.faxRequests = faxRequests;
+            this.onResult = onResult;
+            this.window = resultOrder == ResultOrder.SUBMISSION ? new AtomicReferenceArray<>(maxInFlight) : null;
+            this.completedResults = resultOrder == ResultOrder.COMPLETION ? new ConcurrentLinkedQueue<>() : null;
+            this.lastProgressNanos = startNanos;
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (!progress.isDone()) {
+                    try {
+                        deliver();
+                        submit();
+                        if (exhausted && delivered == submitted) {
+                            FaxSendProgress last = snapshot(true);
+                            notifyProgress(last);
+                            progress.complete(last);
+                        } else if (progressListener != null && System.nanoTime() - lastProgressNanos >= progressIntervalNanos) {
+                            lastProgressNanos = System.nanoTime();
+                            notifyProgress(snapshot(false));
+                        }
+                    } catch (Throwable e) {
+                        progress.completeExceptionally(e);
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliver() {
+            FaxSendResult result;
+            if (window != null) {
+                int slot;
+                while ((result = window.get(slot = (int) (delivered % maxInFlight))) != null) {
+                    window.set(slot, null);
+                    delivered++;
+                    onResult.accept(result);
+                }
+            } else {
+                while ((result = completedResults.poll()) != null) {
+                    delivered++;
+                    onResult.accept(result);
+                }
+            }
+        }
+
+        private void submit() {
+            // A slot is held until the result is handed back, which bounds the results waiting for an earlier one
+            while (!exhausted && submitted - delivered < maxInFlight && !progress.isDone()) {
+                if (!faxRequests.hasNext()) {
+                    exhausted = true;
+                    return;
+                }
+                FaxRequest faxRequest = faxRequests.next();
+                long index = submitted++;
+                CompletableFuture<ApiResponse<String>> response;
+                try {
+                    response = client.sendFaxRequestAsync(faxRequest);
+                } catch (RuntimeException e) {
+                    response = new CompletableFuture<>();
+                    response.completeExceptionally(e);
+                }
+                // Runs at once if the response is already there, drain then only records that it has more work
+                response.whenComplete((value, throwable) -> complete(new FaxSendResult(index, faxRequest, value,
+                        throwable == null ? null : FutureUtils.unwrap(throwable))));
+            }
+        }
+
+        private void complete(FaxSendResult result) {
+            if (result.isSuccess()) {
+                succeeded.incrementAndGet();
+            }
+            completed.incrementAndGet();
+            if (window != null) {
+                window.set((int) (result.getIndex() % maxInFlight), result);
+            } else {
+                completedResults.add(result);
+            }
+            drain();
+        }
+
+        private FaxSendProgress snapshot(boolean done) {
+            return new FaxSendProgress(submitted, completed.get(), succeeded.get(), Duration.ofNanos(System.nanoTime() - startNanos), done);
+        }
+
+        private void notifyProgress(FaxSendProgress snapshot) {
+            if (progressListener != null) {
+                progressListener.accept(snapshot);
+            }
+        }
+    }
+
+    public static class FaxSendPipelineBuilder {
+        private final FaxServiceClient client;
+        private int maxInFlight = 64;
+        private ResultOrder resultOrder = ResultOrder.SUBMISSION;
+        private Consumer<FaxSendProgress> progressListener;
+        private Duration progressInterval = Duration.ofSeconds(10);
+
+        private FaxSendPipelineBuilder(FaxServiceClient client) {
+            this.client = client;
+        }
+
+        /**
+         * @param maxInFlight The maximum number of fax requests sent and not handed back yet. Defaults to 64.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public FaxSendPipelineBuilder maxInFlight(int maxInFlight) {
+            if (maxInFlight <= 0) {
+                throw new ApiException("The maximum number of fax requests in flight must be greater than 0.");
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * @param resultOrder The order the results are handed back in. Defaults to the order of the input.
+         * @return the builder
+         */
+        public FaxSendPipelineBuilder resultOrder(ResultOrder resultOrder) {
+            this.resultOrder = resultOrder;
+            return this;
+        }
+
+        /**
+         * @param progressListener Receives the progress while the fax requests complete, at most once per interval, and once at the end.
+         * @param progressInterval The minimum time between two progress reports.
+         * @return the builder
+         * @throws ApiException if the interval is null or negative
+         */
+        public FaxSendPipelineBuilder progressListener(Consumer<FaxSendProgress> progressListener, Duration progressInterval) {
+            if (progressInterval == null || progressInterval.isNegative()) {
+                throw new ApiException("The progress interval cannot be negative.");
+            }
+            this.progressListener = progressListener;
+            this.progressInterval = progressInterval;
+            return this;
+        }
+
+        public FaxSendPipeline build() {
+            if (client == null) {
+                throw new ApiException("The client cannot be null.");
+            }
+            return new FaxSendPipeline(client, maxInFlight, resultOrder == null ? ResultOrder.SUBMISSION : resultOrder, progressListener, progressInterval);
+        }
+    }
+}
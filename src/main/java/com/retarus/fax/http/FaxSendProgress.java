@@ -0,0 +1,88 @@
+package com.retarus.fax.http;
+
+import java.time.Duration;
+
+/**
+ * @author thiagon
+ * <p>
+ * Class for a snapshot of the progress of a FaxSendPipeline.
+ */
+public class FaxSendProgress {
+
+    private final long submitted;
+    private final long completed;
+    private final long succeeded;
+    private final Duration elapsed;
+    private final boolean done;
+
+    FaxSendProgress(long submitted, long completed, long succeeded, Duration elapsed, boolean done) {
+        this.submitted = submitted;
+        this.completed = completed;
+        this.succeeded = succeeded;
+        this.elapsed = elapsed;
+        this.done = done;
+    }
+
+    /**
+     * @return the number of fax requests taken from the input and sent
+     */
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    /**
+     * @return the number of fax requests that got a response or failed
+     */
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return the number of fax requests accepted by the server
+     */
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return the number of fax requests rejected by the server or failed with an exception
+     */
+    public long getFailed() {
+        return completed - succeeded;
+    }
+
+    /**
+     * @return the number of fax requests sent and not completed yet
+     */
+    public long getInFlight() {
+        return submitted - completed;
+    }
+
+    /**
+     * @return the time since the pipeline started
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return the number of completed fax requests per second, since the pipeline started
+     */
+    public double getThroughput() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : completed * 1e9 / nanos;
+    }
+
+    /**
+     * @return true once every fax request of the input is completed and its result handed back
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FaxSendProgress(submitted=%d, completed=%d, succeeded=%d, failed=%d, inFlight=%d, elapsed=%s, throughput=%.1f/s, done=%s)",
+                submitted, completed, succeeded, getFailed(), getInFlight(), elapsed, getThroughput(), done);
+    }
+}
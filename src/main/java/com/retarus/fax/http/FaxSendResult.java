@@ -0,0 +1,66 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.sendfax.FaxRequest;
+
+import static org.apache.http.HttpStatus.SC_CREATED;
+import static org.apache.http.HttpStatus.SC_OK;
+
+/**
+ * @author thiagon
+ * <p>
+ * Class for the outcome of a fax request sent by a FaxSendPipeline.
+ * <br>Either the response of the server is set, or the exception the fax request failed with before it got a response.
+ */
+public class FaxSendResult {
+
+    private final long index;
+    private final FaxRequest faxRequest;
+    private final ApiResponse<String> response;
+    private final Throwable exception;
+
+    FaxSendResult(long index, FaxRequest faxRequest, ApiResponse<String> response, Throwable exception) {
+        this.index = index;
+        this.faxRequest = faxRequest;
+        this.response = response;
+        this.exception = exception;
+    }
+
+    /**
+     * @return the position of the fax request in the input, starting at 0
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    public FaxRequest getFaxRequest() {
+        return faxRequest;
+    }
+
+    /**
+     * @return the response with the job id of the fax, null if the fax request failed with an exception
+     */
+    public ApiResponse<String> getResponse() {
+        return response;
+    }
+
+    /**
+     * @return the exception the fax request failed with, null if it got a response
+     */
+    public Throwable getException() {
+        return exception;
+    }
+
+    /**
+     * @return true if the fax was accepted by the server, with the status 200 or 201
+     */
+    public boolean isSuccess() {
+        return response != null && (response.getStatusCode() == SC_OK || response.getStatusCode() == SC_CREATED);
+    }
+
+    @Override
+    public String toString() {
+        return "FaxSendResult(index=" + index + ", statusCode=" + (response == null ? null : response.getStatusCode())
+                + ", jobId=" + (response == null ? null : response.getValue()) + ", exception=" + exception + ")";
+    }
+}
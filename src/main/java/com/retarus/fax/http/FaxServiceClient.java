@@ -1,21 +1,32 @@
 package com.retarus.fax.http;
 
 import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.CloseableIterator;
 import com.retarus.fax.base.common.HttpMethod;
 import com.retarus.fax.base.responses.FaxDeletionReport;
 import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.LocationSelector;
 import com.retarus.fax.base.rest.Region;
 import com.retarus.fax.base.rest.URLProvider;
 import com.retarus.fax.base.sendfax.FaxRequest;
 import com.retarus.fax.exception.ApiException;
 import com.retarus.fax.exception.AuthException;
+import com.retarus.fax.exception.CallNotPermittedException;
+import com.retarus.fax.exception.RequestSerializationException;
 import io.github.cdimascio.dotenv.Dotenv;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
@@ -24,11 +35,21 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
  * <p>
  * Class used to connect the RetarusFax class to their specific request classes.
  * Also contains the connection to the HttpClient class.
+ * <br>The client owns a pool of HTTP connections, so it should be reused for all requests and closed when it is no longer needed.
  */
-public class FaxServiceClient implements Fax4ApplApiClient {
+public class FaxServiceClient implements Fax4ApplApiClient, Closeable {
+    private static final Duration DEFAULT_LOCATION_TIMEOUT = Duration.ofSeconds(60);
+
     private final Credentials credentials;
-    private final Fax4ApplClient aggregatorClient;
+    private final Fax4ApplAggregatorImpl aggregatorClient;
     private final URLProvider urlProvider;
+    private final FaxTransport transport;
+    private final Duration locationTimeout;
+    private final LocationTracker locationTracker;
+    private final Retrier retrier;
+    private final RateLimiter rateLimiter;
+    private final ConcurrencyLimiter sendLimiter;
+    private final IdempotencyCache idempotencyCache;
 
 
     /**
@@ -36,11 +57,26 @@ public class FaxServiceClient implements Fax4ApplApiClient {
      *
      * @param credentials The credentials to use for the Retarus Fax account.
      * @param urlProvider The location/region of the RetarusFax account.
+     * @param transport   The HTTP transport used to send the requests.
+     * @param locationTimeout The maximum time to wait for each location when a request is sent to all locations of a region.
+     * @param locationTracker The selector that chooses the location of the region for the requests any location can serve, and the circuit breakers of the locations.
+     * @param retryPolicy     The policy used to send the failed requests again.
+     * @param rateLimiter     The rate limiter of the customer number.
+     * @param sendLimiter     The adaptive limit on the fax requests sent at the same time.
+     * @param idempotencyConfig The configuration of the idempotent sends, null to send every fax request.
      */
-    private FaxServiceClient(Credentials credentials, URLProvider urlProvider) {
+    private FaxServiceClient(Credentials credentials, URLProvider urlProvider, FaxTransport transport, Duration locationTimeout, LocationTracker locationTracker, RetryPolicy retryPolicy, RateLimiter rateLimiter,
+                             ConcurrencyLimiter sendLimiter, IdempotencyConfig idempotencyConfig) {
         this.credentials = credentials;
         this.urlProvider = urlProvider;
+        this.transport = transport;
+        this.locationTimeout = locationTimeout;
+        this.locationTracker = locationTracker;
+        this.retrier = new Retrier(retryPolicy);
+        this.rateLimiter = rateLimiter;
+        this.sendLimiter = sendLimiter;
         this.aggregatorClient = new Fax4ApplAggregatorImpl(this);
+        this.idempotencyCache = idempotencyConfig == null ? null : new IdempotencyCache(idempotencyConfig, this::iterateReports, urlProvider);
     }
 
     public static FaxApiClientBuilder builder() {
@@ -57,7 +93,22 @@ public class FaxServiceClient implements Fax4ApplApiClient {
      * @throws IOException If an error occurs while sending the request.
      */
     public HttpResponse sendRequest(HttpMethod httpMethod, String url, String jsonPayload) throws IOException {
-        return HttpClient.sendRequest(credentials.getUsername(), credentials.getPassword(), httpMethod, url, jsonPayload);
+        return retrier.execute(httpMethod, null, () -> track(httpMethod, url, () -> transport.sendRequest(credentials.getUsername(), credentials.getPassword(), httpMethod, url, jsonPayload)));
+    }
+
+    /**
+     * Method used to send a request to the Retarus Fax API, streaming the given entity as body.
+     * <br>The request is only retried if the entity is repeatable.
+     *
+     * @param httpMethod The http method to use.
+     * @param url        The url to send the request to.
+     * @param entity     The body to send with the request.
+     * @return The response from the RetarusFax API.
+     * @throws IOException If an error occurs while sending the request.
+     */
+    @Override
+    public HttpResponse sendRequest(HttpMethod httpMethod, String url, HttpEntity entity) throws IOException {
+        return retrier.execute(httpMethod, entity, () -> track(httpMethod, url, () -> transport.sendRequest(credentials.getUsername(), credentials.getPassword(), httpMethod, url, entity)));
     }
 
     /**
@@ -69,7 +120,92 @@ public class FaxServiceClient implements Fax4ApplApiClient {
      * @throws IOException If an error occurs while sending the request.
      */
     public HttpResponse sendRequest(HttpMethod httpMethod, String url) throws IOException {
-        return HttpClient.sendRequest(credentials.getUsername(), credentials.getPassword(), httpMethod, url);
+        return sendRequest(httpMethod, url, (String) null);
+    }
+
+    /**
+     * Method used to send a request to the Retarus Fax API without a body, returning the response before its body is read.
+     *
+     * @param httpMethod The http method to use.
+     * @param url        The url to send the request to.
+     * @return The response from the RetarusFax API, with a streamed body that must be closed to release the connection.
+     * @throws IOException If an error occurs while sending the request.
+     */
+    @Override
+    public HttpResponse sendStreamingRequest(HttpMethod httpMethod, String url) throws IOException {
+        return retrier.execute(httpMethod, null, () -> track(httpMethod, url, () -> transport.sendStreamingRequest(credentials.getUsername(), credentials.getPassword(), httpMethod, url)));
+    }
+
+    /**
+     * Method used to send a request to the Retarus Fax API asynchronously, on the non-blocking I/O of the transport if it has one.
+     *
+     * @param httpMethod  The http method to use.
+     * @param url         The url to send the request to.
+     * @param jsonPayload The json payload to send with the request.
+     * @return The response from the RetarusFax API, completed exceptionally if an error occurs while sending the request.
+     */
+    @Override
+    public CompletableFuture<HttpResponse> sendRequestAsync(HttpMethod httpMethod, String url, String jsonPayload) {
+        return retrier.executeAsync(httpMethod, null, () -> trackAsync(httpMethod, url, () -> transport.sendRequestAsync(credentials.getUsername(), credentials.getPassword(), httpMethod, url, jsonPayload)));
+    }
+
+    /**
+     * Method used to send a request to the Retarus Fax API asynchronously, streaming the given entity as body.
+     * <br>The request is only retried if the entity is repeatable.
+     *
+     * @param httpMethod The http method to use.
+     * @param url        The url to send the request to.
+     * @param entity     The body to send with the request.
+     * @return The response from the RetarusFax API, completed exceptionally if an error occurs while sending the request.
+     */
+    @Override
+    public CompletableFuture<HttpResponse> sendRequestAsync(HttpMethod httpMethod, String url, HttpEntity entity) {
+        return retrier.executeAsync(httpMethod, entity, () -> trackAsync(httpMethod, url, () -> transport.sendRequestAsync(credentials.getUsername(), credentials.getPassword(), httpMethod, url, entity)));
+    }
+
+    /**
+     * Sends a single attempt of a request once the rate limit permits it, through the circuit breaker of its location.
+     */
+    private HttpResponse track(HttpMethod httpMethod, String url, Retrier.Attempt attempt) throws IOException {
+        rateLimiter.acquire(EndpointType.of(httpMethod, url));
+        long start = locationTracker.start(url);
+        try {
+            return locationTracker.onResponse(url, start, attempt.send());
+        } catch (RequestSerializationException e) {
+            // An error of the client, the location is not to blame
+            locationTracker.onClientError(url);
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            locationTracker.onFailure(url, start);
+            throw e;
+        }
+    }
+
+    /**
+     * Sends a single attempt of an asynchronous request once the rate limit permits it, through the circuit breaker of its location.
+     */
+    private CompletableFuture<HttpResponse> trackAsync(HttpMethod httpMethod, String url, Supplier<CompletableFuture<HttpResponse>> attempt) {
+        return rateLimiter.acquireAsync(EndpointType.of(httpMethod, url)).thenCompose(permitted -> {
+            long start;
+            try {
+                start = locationTracker.start(url);
+            } catch (CallNotPermittedException e) {
+                CompletableFuture<HttpResponse> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(e);
+                return rejected;
+            }
+            CompletableFuture<HttpResponse> response;
+            try {
+                response = attempt.get();
+            } catch (RuntimeException e) {
+                // The permit of the circuit breaker is returned like for a failure of the request, as in track
+                locationTracker.onFailure(url, start);
+                CompletableFuture<HttpResponse> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+            return locationTracker.track(url, start, response);
+        });
     }
 
     @Override
@@ -127,6 +263,16 @@ public class FaxServiceClient implements Fax4ApplApiClient {
         return aggregatorClient.sendFaxRequestAsync(faxRequest);
     }
 
+    /**
+     * Sends a fax request that is already serialized to JSON asynchronously, used to send the fax requests read back from an outbox.
+     *
+     * @param faxRequestJson the JSON of the fax request
+     * @return the response of the fax request
+     */
+    CompletableFuture<ApiResponse<String>> sendFaxRequestAsync(byte[] faxRequestJson) {
+        return aggregatorClient.sendFaxRequestAsync(faxRequestJson);
+    }
+
     /**
      * Deletes the selected fax report.
      * @param faxStatusReport the fax status report to delete
@@ -171,10 +317,59 @@ public class FaxServiceClient implements Fax4ApplApiClient {
         return aggregatorClient.getReportsAsync();
     }
 
+    /**
+     * Method that returns the fax status reports for all available jobs based on the customer number.
+     * <br>All locations are requested at the same time, and the response of each location is passed to the consumer as soon as it arrives.
+     *
+     * @param onLocationCompleted the consumer of the response of each location, called on the calling thread
+     * @throws ApiException  if errors occur while generating the request
+     * @throws AuthException if the authentication fails
+     */
+    @Override
+    public void getReports(Consumer<ApiResponse<List<FaxStatusReport>>> onLocationCompleted) {
+        aggregatorClient.getReports(onLocationCompleted);
+    }
+
+    /**
+     * Method that iterates over the fax status reports for all available jobs based on the customer number.
+     * <br>The reports are read from the connection while iterating, one location after the other, so they are never held in memory all at once.
+     * <br>The iterator must be closed, best with a try-with-resources statement, closing it early aborts the open response.
+     *
+     * @return an iterator over the fax status reports of all locations
+     * @throws ApiException  if errors occur while fetching or reading the reports
+     * @throws AuthException if the authentication fails
+     */
+    @Override
+    public CloseableIterator<FaxStatusReport> iterateReports() {
+        return aggregatorClient.iterateReports();
+    }
+
+    /**
+     * Method that streams the fax status reports for all available jobs based on the customer number.
+     * <br>The reports are read from the connection while the stream is consumed, the stream must be closed,
+     * best with a try-with-resources statement.
+     *
+     * @return a sequential stream of the fax status reports of all locations
+     * @throws ApiException  if errors occur while fetching or reading the reports
+     * @throws AuthException if the authentication fails
+     */
+    public Stream<FaxStatusReport> streamReports() {
+        return iterateReports().stream();
+    }
+
+    /**
+     * Method that creates a pipeline to send a large number of fax requests with this client, keeping a bounded number of them in flight.
+     *
+     * @return the builder of the pipeline
+     */
+    public FaxSendPipeline.FaxSendPipelineBuilder sendPipeline() {
+        return FaxSendPipeline.builder(this);
+    }
+
     /**
      * Method that deletes the fax status reports for all available completed job reports based on the customer number (max 1000 reports per request).
      * In case of more than 1000 reports, the oldest reports will be deleted first.
-     * If you want to delete more than 1000 reports, you have to call this method multiple times.
+     * If you want to delete more than 1000 reports, you have to call this method multiple times, or use {@link #drainReports()}.
      *
      * @return the list of job delete reports as a list of FaxDeletionReport objects
      * @throws ApiException  if errors occur while generating the request
@@ -185,6 +380,29 @@ public class FaxServiceClient implements Fax4ApplApiClient {
         return aggregatorClient.deleteReports();
     }
 
+    /**
+     * Method that deletes all fax status reports of every location, however many there are, 1000 reports per request.
+     * <br>The locations are drained at the same time, each location until the server has no more reports for it.
+     *
+     * @return the number of reports deleted, and of the reports not deleted by reason, once every location is drained or failed
+     */
+    public CompletableFuture<ReportDrainProgress> drainReports() {
+        return ReportDrainer.builder(this).build().drain();
+    }
+
+    /**
+     * Method that deletes all fax status reports of every location, however many there are, 1000 reports per request.
+     * <br>The locations are drained at the same time, each location until the server has no more reports for it.
+     *
+     * @param requestInterval  the minimum time between the starts of two deletion requests of a location
+     * @param progressListener receives the progress after each deletion request, one at a time
+     * @return the number of reports deleted, and of the reports not deleted by reason, once every location is drained or failed
+     * @throws ApiException if the interval is null or negative
+     */
+    public CompletableFuture<ReportDrainProgress> drainReports(Duration requestInterval, Consumer<ReportDrainProgress> progressListener) {
+        return ReportDrainer.builder(this).requestInterval(requestInterval).progressListener(progressListener).build().drain();
+    }
+
     /**
      * Method that deletes the fax status reports for all available completed job reports based on the customer number (max 1000 reports per request) asynchronously.
      * In case of more than 1000 reports, the oldest reports will be deleted first.
@@ -199,16 +417,123 @@ public class FaxServiceClient implements Fax4ApplApiClient {
         return aggregatorClient.deleteReportsAsync();
     }
 
+    /**
+     * Method that deletes the fax status reports for all available completed job reports based on the customer number (max 1000 reports per location).
+     * <br>All locations are requested at the same time, and the response of each location is passed to the consumer as soon as it arrives.
+     *
+     * @param onLocationCompleted the consumer of the response of each location, called on the calling thread
+     * @throws ApiException  if errors occur while generating the request
+     * @throws AuthException if the authentication fails
+     */
+    @Override
+    public void deleteReports(Consumer<ApiResponse<List<FaxDeletionReport>>> onLocationCompleted) {
+        aggregatorClient.deleteReports(onLocationCompleted);
+    }
+
+    /**
+     * Method that deletes the oldest fax status reports of each location, one location after the other, and iterates over the deletion reports.
+     * <br>The reports of a location are deleted when the iterator reaches it, and the deletion reports are read from the connection while iterating.
+     * <br>The iterator must be closed, best with a try-with-resources statement. Closing it early does not undo the deletions already made.
+     *
+     * @return an iterator over the deletion reports of all locations
+     * @throws ApiException  if errors occur while deleting the reports or reading the deletion reports
+     * @throws AuthException if the authentication fails
+     */
+    @Override
+    public CloseableIterator<FaxDeletionReport> iterateDeletedReports() {
+        return aggregatorClient.iterateDeletedReports();
+    }
+
     @Override
     public URLProvider getLocale() {
         return urlProvider;
     }
 
+    /**
+     * @return the selector that chooses the location of the region for the requests any location can serve
+     */
+    @Override
+    public LocationSelector getLocationSelector() {
+        return locationTracker;
+    }
+
+    /**
+     * @param location the location
+     * @return the circuit breaker that guards the requests to the location, with its state and metrics, null if the circuit breakers are disabled
+     */
+    public CircuitBreaker getCircuitBreaker(Location location) {
+        return locationTracker.getCircuitBreaker(location);
+    }
+
+    /**
+     * @param endpointType the kind of request
+     * @return the number of requests of the given kind that can be sent at once under the rate limit, Integer.MAX_VALUE if the kind is not limited
+     */
+    public int getAvailablePermits(EndpointType endpointType) {
+        return rateLimiter.getAvailablePermits(endpointType);
+    }
+
+    /**
+     * @return the adaptive limit on the fax requests sent at the same time, with its current limit, in-flight and queued requests
+     */
+    public ConcurrencyLimiter getSendLimiter() {
+        return sendLimiter;
+    }
+
+    /**
+     * @return the cache of the fax requests sent with a customer defined id, null if the sends are not idempotent
+     */
+    IdempotencyCache getIdempotencyCache() {
+        return idempotencyCache;
+    }
+
+    /**
+     * @return the maximum time to wait for each location when a request is sent to all locations of a region, null if there is no limit
+     */
+    public Duration getLocationTimeout() {
+        return locationTimeout;
+    }
+
+    /**
+     * @return the gauges (leased, pending, available) of the whole HTTP connection pool
+     */
+    public ConnectionPoolStats getPoolStats() {
+        return transport.getPoolStats();
+    }
+
+    /**
+     * @param location the location to get the gauges for
+     * @return the gauges (leased, pending, available) of the HTTP connections to the given location
+     */
+    public ConnectionPoolStats getPoolStats(Location location) {
+        return transport.getPoolStats(location);
+    }
+
+    /**
+     * Closes the HTTP connection pool of this client. The client cannot be used after it has been closed.
+     *
+     * @throws IOException if the connections cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        transport.close();
+    }
+
     public static class FaxApiClientBuilder {
         private String username;
         private String password;
         private String customerNumber;
         private URLProvider locale;
+        private ConnectionPoolConfig connectionPoolConfig;
+        private TransportType transportType;
+        private FaxTransport transport;
+        private Duration locationTimeout = DEFAULT_LOCATION_TIMEOUT;
+        private LocationSelector locationSelector;
+        private CircuitBreakerConfig circuitBreakerConfig;
+        private RetryPolicy retryPolicy;
+        private RateLimitConfig rateLimitConfig;
+        private ConcurrencyLimitConfig concurrencyLimitConfig;
+        private IdempotencyConfig idempotencyConfig;
 
         FaxApiClientBuilder() {
         }
@@ -239,11 +564,114 @@ public class FaxServiceClient implements Fax4ApplApiClient {
             return this;
         }
 
+        /**
+         * @param connectionPoolConfig The configuration of the HTTP connection pool, the defaults are used if not provided.
+         * @return the builder
+         */
+        public FaxApiClientBuilder connectionPool(ConnectionPoolConfig connectionPoolConfig) {
+            this.connectionPoolConfig = connectionPoolConfig;
+            return this;
+        }
+
+        /**
+         * @param transportType The HTTP transport used to send the requests, APACHE_HTTP_CLIENT is used if not provided.
+         * @return the builder
+         */
+        public FaxApiClientBuilder transport(TransportType transportType) {
+            this.transportType = transportType;
+            return this;
+        }
+
+        /**
+         * @param transport A custom HTTP transport used to send the requests, it takes precedence over the transport type.
+         *                  The transport is closed together with the client.
+         * @return the builder
+         */
+        public FaxApiClientBuilder transport(FaxTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * @param locationTimeout The maximum time to wait for each location when a request is sent to all locations of a region,
+         *                        a location that does not answer in time gets an empty response with the status 504 (Gateway Timeout).
+         *                        Defaults to 60 seconds, null to wait without limit.
+         * @return the builder
+         * @throws ApiException if the timeout is not positive
+         */
+        public FaxApiClientBuilder locationTimeout(Duration locationTimeout) {
+            if (locationTimeout != null && (locationTimeout.isZero() || locationTimeout.isNegative())) {
+                throw new ApiException("The location timeout must be greater than 0.");
+            }
+            this.locationTimeout = locationTimeout;
+            return this;
+        }
+
+        /**
+         * @param locationSelector Chooses the location of the region for the requests any location can serve, like fetching a single report
+         *                         or a bulk operation. Defaults to {@link LocationSelector#powerOfTwoChoices()}, fed with the measured response times.
+         * @return the builder
+         */
+        public FaxApiClientBuilder locationSelector(LocationSelector locationSelector) {
+            this.locationSelector = locationSelector;
+            return this;
+        }
+
+        /**
+         * @param circuitBreakerConfig The configuration of the circuit breakers that cut off a failing location, disabled if not provided.
+         * @return the builder
+         */
+        public FaxApiClientBuilder circuitBreaker(CircuitBreakerConfig circuitBreakerConfig) {
+            this.circuitBreakerConfig = circuitBreakerConfig;
+            return this;
+        }
+
+        /**
+         * @param retryPolicy The policy used to send the failed requests again, the requests are sent only once if not provided.
+         *                    Use {@link RetryPolicy#disabled()} to send every request only once.
+         * @return the builder
+         */
+        public FaxApiClientBuilder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * @param rateLimitConfig The client-side rate limits of each kind of request, shared by all clients of the customer number with the same limits.
+         *                        The requests are not limited if not provided.
+         * @return the builder
+         */
+        public FaxApiClientBuilder rateLimit(RateLimitConfig rateLimitConfig) {
+            this.rateLimitConfig = rateLimitConfig;
+            return this;
+        }
+
+        /**
+         * @param concurrencyLimitConfig The configuration of the adaptive limit on the fax requests sent at the same time, disabled if not provided.
+         *                               Use {@link ConcurrencyLimitConfig#disabled()} to send every fax request at once.
+         * @return the builder
+         */
+        public FaxApiClientBuilder concurrencyLimit(ConcurrencyLimitConfig concurrencyLimitConfig) {
+            this.concurrencyLimitConfig = concurrencyLimitConfig;
+            return this;
+        }
+
+        /**
+         * @param idempotencyConfig The configuration of the idempotent sends, keyed on the customer defined id of the reference of a fax request.
+         *                          The fax requests are always sent if not provided.
+         * @return the builder
+         */
+        public FaxApiClientBuilder idempotency(IdempotencyConfig idempotencyConfig) {
+            this.idempotencyConfig = idempotencyConfig;
+            return this;
+        }
+
         /**
          * Method that builds the FaxServiceClient object.
          *
          * @return the FaxServiceClient object
          * @throws AuthException if the username or password is not provided
+         * @throws ApiException  if the selected transport is not available on the running Java version
          */
         public FaxServiceClient build() {
             // If the customer number is not provided, use the default one.
@@ -259,13 +687,37 @@ public class FaxServiceClient implements Fax4ApplApiClient {
                 throw new AuthException("Username and password cannot be empty.");
             }
 
+            // If a connection pool configuration is not provided, use the default one.
+            if (connectionPoolConfig == null) {
+                this.connectionPoolConfig = ConnectionPoolConfig.defaults();
+            }
+
+            // If a transport is not provided, create a new one of the selected type.
+            FaxTransport faxTransport = this.transport;
+            if (faxTransport == null) {
+                faxTransport = (transportType == null ? TransportType.APACHE_HTTP_CLIENT : transportType).create(connectionPoolConfig, locale);
+            }
+
             Credentials credentials = new Credentials(username, password, customerNumber);
 
-            return new FaxServiceClient(credentials, this.locale);
+            // If a location selector is not provided, prefer the faster locations.
+            LocationSelector selector = locationSelector == null ? LocationSelector.powerOfTwoChoices() : locationSelector;
+
+            // If a circuit breaker configuration is not provided, send every request regardless of the health of its location.
+            LocationTracker locationTracker = new LocationTracker(selector, circuitBreakerConfig == null ? CircuitBreakerConfig.disabled() : circuitBreakerConfig);
+
+            // If a retry policy is not provided, send every request only once.
+            RetryPolicy policy = retryPolicy == null ? RetryPolicy.disabled() : retryPolicy;
+
+            // If a concurrency limit configuration is not provided, send every fax request at once.
+            ConcurrencyLimiter sendLimiter = new ConcurrencyLimiter(concurrencyLimitConfig == null ? ConcurrencyLimitConfig.disabled() : concurrencyLimitConfig);
+
+            return new FaxServiceClient(credentials, this.locale, faxTransport, locationTimeout, locationTracker, policy, RateLimiter.forCustomer(customerNumber, rateLimitConfig), sendLimiter,
+                    idempotencyConfig);
         }
 
         public String toString() {
-            return "FaxServiceClient.FaxApiClientBuilder(username=" + this.username + ", password=" + this.password + ", region=" + this.locale + ", customerNumber=" + this.customerNumber + ")";
+            return "FaxServiceClient.FaxApiClientBuilder(username=" + this.username + ", password=" + this.password + ", region=" + this.locale + ", customerNumber=" + this.customerNumber + ", connectionPool=" + this.connectionPoolConfig + ", transportType=" + this.transportType + ", transport=" + this.transport + ", locationTimeout=" + this.locationTimeout + ", locationSelector=" + this.locationSelector + ", circuitBreaker=" + this.circuitBreakerConfig + ", retryPolicy=" + this.retryPolicy + ", rateLimit=" + this.rateLimitConfig + ", concurrencyLimit=" + this.concurrencyLimitConfig + ", idempotency=" + this.idempotencyConfig + ")";
         }
     }
 }
@@ -0,0 +1,125 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.RetarusFax;
+import com.retarus.fax.base.common.HttpMethod;
+import com.retarus.fax.base.rest.Location;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * @author thiagon
+ * <p>
+ * Interface for the HTTP transport used by the FaxServiceClient to reach the Retarus Fax API.
+ * <br>The transport is selected when the client is built, see {@link TransportType}, and it is closed together with the client.
+ * <br>Responses are returned as fully buffered HttpResponse objects, independently of the HTTP library used underneath.
+ */
+public interface FaxTransport extends Closeable {
+
+    /**
+     * Send a request to the Retarus Fax API, using the given username and password for authentication.
+     *
+     * @param username    The username used for authentication.
+     * @param password    The password used for authentication.
+     * @param httpMethod  The http method to use.
+     * @param requestUrl  The url to send the request to.
+     * @param jsonPayload The json payload to send with the request, or null if the request has no body.
+     * @return The response from the Retarus Fax API.
+     * @throws IOException If an error occurs while sending the request.
+     */
+    HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, String jsonPayload) throws IOException;
+
+    /**
+     * Send a request to the Retarus Fax API with the given entity as body, using the given username and password for authentication.
+     * <br>Transports able to stream the body write the entity straight to the connection.
+     * <br>By default, the entity is read into a json payload and sent with {@link #sendRequest(String, String, HttpMethod, String, String)}.
+     *
+     * @param username   The username used for authentication.
+     * @param password   The password used for authentication.
+     * @param httpMethod The http method to use.
+     * @param requestUrl The url to send the request to.
+     * @param entity     The body to send with the request.
+     * @return The response from the Retarus Fax API.
+     * @throws IOException If an error occurs while sending the request.
+     */
+    default HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, HttpEntity entity) throws IOException {
+        return sendRequest(username, password, httpMethod, requestUrl, EntityUtils.toString(entity));
+    }
+
+    /**
+     * Send a request to the Retarus Fax API without a body, returning the response before its body is read.
+     * <br>The body of the response is read from the connection while it is consumed, the caller must close the content stream
+     * of the entity, or the response if it is Closeable, to release the connection.
+     * <br>By default, the response is buffered as with {@link #sendRequest(String, String, HttpMethod, String, String)}.
+     *
+     * @param username   The username used for authentication.
+     * @param password   The password used for authentication.
+     * @param httpMethod The http method to use.
+     * @param requestUrl The url to send the request to.
+     * @return The response from the Retarus Fax API, with a streamed body.
+     * @throws IOException If an error occurs while sending the request.
+     */
+    default HttpResponse sendStreamingRequest(String username, String password, HttpMethod httpMethod, String requestUrl) throws IOException {
+        return sendRequest(username, password, httpMethod, requestUrl, (String) null);
+    }
+
+    /**
+     * Send a request to the Retarus Fax API asynchronously, using the given username and password for authentication.
+     * <br>Transports backed by a non-blocking client complete the future from their I/O threads, without holding a thread per request.
+     * <br>By default, the blocking request is run on the RetarusFax executor service, which holds one of its threads until the response arrives;
+     * the Apache HttpClient transport uses this default.
+     *
+     * @param username    The username used for authentication.
+     * @param password    The password used for authentication.
+     * @param httpMethod  The http method to use.
+     * @param requestUrl  The url to send the request to.
+     * @param jsonPayload The json payload to send with the request, or null if the request has no body.
+     * @return The response from the Retarus Fax API, completed exceptionally if an error occurs while sending the request.
+     */
+    default CompletableFuture<HttpResponse> sendRequestAsync(String username, String password, HttpMethod httpMethod, String requestUrl, String jsonPayload) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return sendRequest(username, password, httpMethod, requestUrl, jsonPayload);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, RetarusFax.getExecutorService());
+    }
+
+    /**
+     * Send a request to the Retarus Fax API with the given entity as body asynchronously.
+     * <br>By default, the blocking request is run on the RetarusFax executor service.
+     *
+     * @param username   The username used for authentication.
+     * @param password   The password used for authentication.
+     * @param httpMethod The http method to use.
+     * @param requestUrl The url to send the request to.
+     * @param entity     The body to send with the request.
+     * @return The response from the Retarus Fax API, completed exceptionally if an error occurs while sending the request.
+     */
+    default CompletableFuture<HttpResponse> sendRequestAsync(String username, String password, HttpMethod httpMethod, String requestUrl, HttpEntity entity) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return sendRequest(username, password, httpMethod, requestUrl, entity);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, RetarusFax.getExecutorService());
+    }
+
+    /**
+     * @return the gauges of the connections held by this transport
+     */
+    ConnectionPoolStats getPoolStats();
+
+    /**
+     * @param location the location to get the gauges for
+     * @return the gauges of the connections to the host of the given location
+     */
+    ConnectionPoolStats getPoolStats(Location location);
+}
@@ -1,40 +1,93 @@
 package com.retarus.fax.http;
 
 import com.retarus.fax.base.common.HttpMethod;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.URLProvider;
+import com.retarus.fax.exception.RequestSerializationException;
 import com.retarus.fax.utils.EncodingUtils;
 import org.apache.http.*;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.pool.PoolStats;
 
 import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author thiagon
  * <p>
- * Class used to send http requests to the Retarus Fax API.
+ * Class used to send http requests to the Retarus Fax API, the Apache HttpClient implementation of the FaxTransport.
+ * <br>Each instance owns a pooled, long-lived connection manager, so connections to the Retarus hosts are kept alive and reused between requests.
+ * <br>Idle and expired connections are evicted in the background, and the pool is released when the client is closed.
  */
-public class HttpClient {
+public class HttpClient implements FaxTransport {
     private static CloseableHttpClient httpClient;
 
-    private HttpClient() {
-    }
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient pooledHttpClient;
 
+    /**
+     * Creates the pooled client, sizing a route for every host the given locale can send requests to.
+     *
+     * @param config      The connection pool configuration.
+     * @param urlProvider The location/region the requests are sent to.
+     */
+    protected HttpClient(ConnectionPoolConfig config, URLProvider urlProvider) {
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager.setMaxTotal(config.getMaxTotal());
+        this.connectionManager.setDefaultMaxPerRoute(config.getMaxPerRoute());
+        this.connectionManager.setValidateAfterInactivity((int) config.getValidateAfterInactivity().toMillis());
+        if (urlProvider != null && urlProvider.getSendUrl() != null) {
+            connectionManager.setMaxPerRoute(toRoute(urlProvider.getSendUrl()), config.getMaxPerRoute());
+        }
+        for (Location location : Location.values()) {
+            connectionManager.setMaxPerRoute(toRoute(location.getFetchUrl()), config.getMaxPerRoute(location));
+        }
+
+        long keepAlive = config.getKeepAlive().toMillis();
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? serverKeepAlive : keepAlive;
+        };
+
+        this.pooledHttpClient = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(config.getIdleTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                // A body that cannot be serialized fails again on every attempt
+                .setRetryHandler((exception, executionCount, context) -> !(exception instanceof RequestSerializationException)
+                        && DefaultHttpRequestRetryHandler.INSTANCE.retryRequest(exception, executionCount, context))
+                .build();
+    }
 
-    // Inject the CloseableHttpClient using a setter method
+    /**
+     * Inject a CloseableHttpClient that is used instead of the pooled one.
+     * <br>The injected client is owned by the caller, it is never closed by the SDK.
+     *
+     * @param customHttpClient The client to use, or null to go back to the pooled client.
+     */
     public static void setHttpClient(CloseableHttpClient customHttpClient) {
         httpClient = customHttpClient;
     }
 
-
     /**
-     * Private constructor to prevent instantiation.
+     * Send a request to the Retarus Fax API, without a json payload.
      *
      * @param username   The username used for authentication.
      * @param password   The password used for authentication.
@@ -43,12 +96,13 @@ public class HttpClient {
      * @return The response from the Retarus Fax API.
      * @throws IOException If an error occurs while sending the request.
      */
-    protected static HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl) throws IOException {
-        return sendRequest(username, password, httpMethod, requestUrl, null);
+    protected HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl) throws IOException {
+        return sendRequest(username, password, httpMethod, requestUrl, (HttpEntity) null);
     }
 
     /**
      * Send a request to the Retarus Fax API, using the given username and password for authentication.
+     * <br>The response entity is buffered, so the connection goes back to the pool as soon as this method returns.
      *
      * @param username    The username used for authentication.
      * @param password    The password used for authentication.
@@ -58,11 +112,27 @@ public class HttpClient {
      * @return The response from the Retarus Fax API.
      * @throws IOException If an error occurs while sending the request.
      */
-    protected static HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, String jsonPayload) throws IOException {
-        // Use the injected httpClient if available, otherwise create a new one
-        if (httpClient == null) {
-            httpClient = HttpClientBuilder.create().build();
-        }
+    @Override
+    public HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, String jsonPayload) throws IOException {
+        return sendRequest(username, password, httpMethod, requestUrl, jsonPayload == null ? null : new StringEntity(jsonPayload, ContentType.APPLICATION_JSON));
+    }
+
+    /**
+     * Send a request to the Retarus Fax API with the given entity as body, written straight to the connection.
+     * <br>The response entity is buffered, so the connection goes back to the pool as soon as this method returns.
+     *
+     * @param username   The username used for authentication.
+     * @param password   The password used for authentication.
+     * @param httpMethod The http method to use.
+     * @param requestUrl The url to send the request to.
+     * @param entity     The body to send with the request.
+     * @return The response from the Retarus Fax API.
+     * @throws IOException If an error occurs while sending the request.
+     */
+    @Override
+    public HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, HttpEntity entity) throws IOException {
+        // Use the injected httpClient if available, otherwise the pooled one
+        CloseableHttpClient client = httpClient != null ? httpClient : pooledHttpClient;
 
         try {
             // Create the http request and set authorization header to base64 encoded authentication information
@@ -70,28 +140,84 @@ public class HttpClient {
             addCredentialsToRequestHeader(username, password, httpRequest);
 
             if (httpMethod == HttpMethod.POST) {
-                ((HttpPost) httpRequest).setEntity(new StringEntity(jsonPayload, ContentType.APPLICATION_JSON));
+                ((HttpPost) httpRequest).setEntity(entity);
             }
 
-            // Execute the HttpGet request and extract the response body
-            return httpClient.execute(httpRequest);
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            if (httpClient != null) {
-                try {
-                    httpClient.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
+            // Execute the request and buffer the response body, releasing the connection back to the pool
+            try (CloseableHttpResponse response = client.execute(httpRequest)) {
+                HttpEntity responseEntity = response.getEntity();
+                if (responseEntity != null) {
+                    response.setEntity(new BufferedHttpEntity(responseEntity));
                 }
+                return response;
             }
+        } catch (IOException e) {
+            // Let the caller see that the location could not be reached, instead of a response the server never sent
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
         }
 
-        //Return a default response if an error occurred with the internal server error status code
+        //Return a default response if the request could not be built, with the internal server error status code
         StatusLine statusLine = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_INTERNAL_SERVER_ERROR, "Internal Server Error").getStatusLine();
         return new BasicHttpResponse(statusLine);
     }
 
+    /**
+     * Send a request to the Retarus Fax API without a body, returning the response before its body is read.
+     * <br>The connection is leased until the content stream of the entity is closed, which reads the rest of the body
+     * so the connection can be reused, or until the response is closed, which closes the connection.
+     *
+     * @param username   The username used for authentication.
+     * @param password   The password used for authentication.
+     * @param httpMethod The http method to use.
+     * @param requestUrl The url to send the request to.
+     * @return The response from the Retarus Fax API, a CloseableHttpResponse with a streamed body.
+     * @throws IOException If an error occurs while sending the request.
+     */
+    @Override
+    public HttpResponse sendStreamingRequest(String username, String password, HttpMethod httpMethod, String requestUrl) throws IOException {
+        // Use the injected httpClient if available, otherwise the pooled one
+        CloseableHttpClient client = httpClient != null ? httpClient : pooledHttpClient;
+
+        try {
+            HttpUriRequest httpRequest = generateHttpRequest(httpMethod, requestUrl);
+            addCredentialsToRequestHeader(username, password, httpRequest);
+            return client.execute(httpRequest);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        //Return a default response if an error occurred with the internal server error status code
+        return new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_INTERNAL_SERVER_ERROR, "Internal Server Error");
+    }
+
+    /**
+     * @return the gauges of the whole connection pool
+     */
+    @Override
+    public ConnectionPoolStats getPoolStats() {
+        return toConnectionPoolStats(connectionManager.getTotalStats());
+    }
+
+    /**
+     * @param location the location to get the gauges for
+     * @return the gauges of the connections to the host of the given location
+     */
+    @Override
+    public ConnectionPoolStats getPoolStats(Location location) {
+        return toConnectionPoolStats(connectionManager.getStats(toRoute(location.getFetchUrl())));
+    }
+
+    /**
+     * Closes the pooled client and every connection it holds. An injected client is left untouched.
+     */
+    @Override
+    public void close() throws IOException {
+        pooledHttpClient.close();
+    }
 
     /**
      * Add the authorization header to the request, containing the base64 encoded username and password.
@@ -123,4 +249,21 @@ public class HttpClient {
                 throw new IllegalArgumentException("Http method not supported.");
         }
     }
+
+    /**
+     * Builds the pool route for the host of the given url, matching the route planned by the client for that url.
+     *
+     * @param url The url of the host.
+     * @return The route to the host.
+     */
+    private static HttpRoute toRoute(String url) {
+        URI uri = URI.create(url);
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+        return new HttpRoute(new HttpHost(uri.getHost(), port, uri.getScheme()), null, secure);
+    }
+
+    private static ConnectionPoolStats toConnectionPoolStats(PoolStats poolStats) {
+        return new ConnectionPoolStats(poolStats.getLeased(), poolStats.getPending(), poolStats.getAvailable(), poolStats.getMax());
+    }
 }
@@ -0,0 +1,188 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.CloseableIterator;
+import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.rest.URLProvider;
+import com.retarus.fax.utils.FutureUtils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.http.HttpStatus.*;
+
+/**
+ * @author thiagon
+ * <p>
+ * Bounded cache of the fax requests sent with a customer defined id, see {@link IdempotencyConfig}.
+ * <br>Each customer defined id maps to the response of its fax request, in flight or completed. The fax requests sent while another one with
+ * the same customer defined id is in flight get its response, and the ones sent after it got a job id get that job id, without a request.
+ * <br>A fax request that failed with an ambiguous error is remembered as such, and the next fax request with the same customer defined id
+ * is only sent if no fax report has that customer defined id. A fax request that was rejected for good is forgotten, so it can be sent again.
+ * <br>The oldest customer defined ids are forgotten once there are more than the maximum, as long as their fax requests are completed.
+ */
+class IdempotencyCache {
+
+    private final int maxEntries;
+    private final long expireAfterNanos;
+    private final Supplier<CloseableIterator<FaxStatusReport>> reports;
+    private final URLProvider urlProvider;
+
+    // In the order the entries were added, to forget the oldest ones first, guarded by itself
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * @param config      the configuration of the cache
+     * @param reports     supplies an iterator over the fax reports of all the locations, to look for a fax job after an ambiguous error
+     * @param urlProvider the location/region of the client, for the responses of the failed lookups
+     */
+    IdempotencyCache(IdempotencyConfig config, Supplier<CloseableIterator<FaxStatusReport>> reports, URLProvider urlProvider) {
+        this.maxEntries = config.getMaxEntries();
+        this.expireAfterNanos = config.getExpireAfter().toNanos();
+        this.reports = reports;
+        this.urlProvider = urlProvider;
+    }
+
+    /**
+     * Sends a fax request, unless a fax request with the same customer defined id is in flight or got a job id.
+     *
+     * @param customerDefinedId the customer defined id of the fax request
+     * @param send              sends the fax request
+     * @param executor          runs the lookup of the fax reports after an ambiguous error, a direct executor runs it on the calling thread
+     * @return the response of the fax request, or of the fax request with the same customer defined id
+     */
+    CompletableFuture<ApiResponse<String>> send(String customerDefinedId, Supplier<CompletableFuture<ApiResponse<String>>> send, Executor executor) {
+        Entry entry;
+        boolean reconcile;
+        synchronized (entries) {
+            Entry existing = entries.get(customerDefinedId);
+            if (existing != null && existing.isExpired(System.nanoTime())) {
+                entries.remove(customerDefinedId);
+                existing = null;
+            }
+            if (existing != null && !existing.ambiguous) {
+                // A copy, so the caller cannot complete or cancel the response shared with the other callers
+                return existing.response.thenApply(response -> response);
+            }
+            entry = new Entry(customerDefinedId);
+            reconcile = existing != null;
+            // Removed first, so the entry moves to the end of the order
+            entries.remove(customerDefinedId);
+            entries.put(customerDefinedId, entry);
+            evict();
+        }
+
+        CompletableFuture<ApiResponse<String>> response;
+        try {
+            response = reconcile ? reconcile(customerDefinedId, send, executor) : send.get();
+        } catch (RuntimeException e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+        response.whenComplete((value, throwable) -> complete(entry, value, throwable));
+        return entry.response.thenApply(value -> value);
+    }
+
+    /**
+     * @return the number of customer defined ids remembered
+     */
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Looks for the fax report of a fax request that failed with an ambiguous error, and sends it again if there is none.
+     * <br>If the fax reports cannot be read, the fax request is not sent, so a fax job is never created twice.
+     */
+    private CompletableFuture<ApiResponse<String>> reconcile(String customerDefinedId, Supplier<CompletableFuture<ApiResponse<String>>> send, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> findReport(customerDefinedId), executor)
+                .handle((report, throwable) -> {
+                    if (throwable != null) {
+                        return CompletableFuture.completedFuture(new ApiResponse<>("", SC_SERVICE_UNAVAILABLE, urlProvider));
+                    }
+                    if (report != null) {
+                        return CompletableFuture.completedFuture(new ApiResponse<>(report.getJobId(), SC_OK, report.getLocale() == null ? urlProvider : report.getLocale()));
+                    }
+                    return send.get();
+                })
+                .thenCompose(response -> response);
+    }
+
+    private FaxStatusReport findReport(String customerDefinedId) {
+        try (CloseableIterator<FaxStatusReport> iterator = reports.get()) {
+            while (iterator.hasNext()) {
+                FaxStatusReport report = iterator.next();
+                if (report.getReference() != null && customerDefinedId.equals(report.getReference().getCustomerDefinedId())) {
+                    return report;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void complete(Entry entry, ApiResponse<String> response, Throwable throwable) {
+        // An exception comes from the client, like a fax request that cannot be serialized, the transport errors are 503 responses
+        if (throwable == null && isSuccess(response)) {
+            entry.expiresAt = System.nanoTime() + expireAfterNanos;
+        } else if (throwable == null && isAmbiguous(response.getStatusCode())) {
+            entry.ambiguous = true;
+            entry.expiresAt = System.nanoTime() + expireAfterNanos;
+        } else {
+            synchronized (entries) {
+                entries.remove(entry.customerDefinedId, entry);
+            }
+        }
+        if (throwable == null) {
+            entry.response.complete(response);
+        } else {
+            entry.response.completeExceptionally(FutureUtils.unwrap(throwable));
+        }
+    }
+
+    /**
+     * Forgets the oldest completed entries while there are more than the maximum, the entries in flight are kept.
+     */
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            if (iterator.next().response.isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static boolean isSuccess(ApiResponse<String> response) {
+        return (response.getStatusCode() == SC_OK || response.getStatusCode() == SC_CREATED) && !isBlank(response.getValue());
+    }
+
+    /**
+     * @return true if the fax job may have been created although the fax request failed, which includes a success without a job id
+     */
+    private static boolean isAmbiguous(int statusCode) {
+        return statusCode >= SC_INTERNAL_SERVER_ERROR || statusCode == SC_REQUEST_TIMEOUT
+                || statusCode == SC_OK || statusCode == SC_CREATED;
+    }
+
+    private static final class Entry {
+        private final String customerDefinedId;
+        private final CompletableFuture<ApiResponse<String>> response = new CompletableFuture<>();
+        private volatile boolean ambiguous;
+        // Set before the response is completed, and only read once it is
+        private volatile long expiresAt;
+
+        private Entry(String customerDefinedId) {
+            this.customerDefinedId = customerDefinedId;
+        }
+
+        private boolean isExpired(long now) {
+            return response.isDone() && expiresAt - now < 0;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.exception.ApiException;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * @author thiagon
+ * <p>
+ * Class for the configuration of the idempotent sends of a FaxServiceClient, keyed on the customer defined id of the reference of a fax request.
+ * <br>The client remembers the job id of each fax request sent with a customer defined id, so sending it again returns the same job id
+ * without a new fax job, and the fax requests sent again while the first one is in flight wait for its response.
+ * <br>When the fax request failed in a way that does not tell whether the fax job was created, like a timeout or a 5xx status,
+ * sending it again first looks for a fax report with the same customer defined id, and only sends it if there is none.
+ * <br>The fax requests without a customer defined id are always sent.
+ */
+public class IdempotencyConfig {
+
+    /**
+     * The maximum number of customer defined ids remembered, the oldest ones are forgotten first.
+     */
+    private final int maxEntries;
+
+    /**
+     * How long a customer defined id is remembered after its fax request completed.
+     */
+    private final Duration expireAfter;
+
+    private IdempotencyConfig(int maxEntries, Duration expireAfter) {
+        this.maxEntries = maxEntries;
+        this.expireAfter = expireAfter;
+    }
+
+    public static IdempotencyConfigBuilder builder() {
+        return new IdempotencyConfigBuilder();
+    }
+
+    /**
+     * @return the default configuration: 10000 customer defined ids, remembered for 24 hours
+     */
+    public static IdempotencyConfig defaults() {
+        return builder().build();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public Duration getExpireAfter() {
+        return expireAfter;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IdempotencyConfig that = (IdempotencyConfig) o;
+        return maxEntries == that.maxEntries && Objects.equals(expireAfter, that.expireAfter);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxEntries, expireAfter);
+    }
+
+    @Override
+    public String toString() {
+        return "IdempotencyConfig(maxEntries=" + maxEntries + ", expireAfter=" + expireAfter + ")";
+    }
+
+    public static class IdempotencyConfigBuilder {
+        private int maxEntries = 10_000;
+        private Duration expireAfter = Duration.ofHours(24);
+
+        private IdempotencyConfigBuilder() {
+        }
+
+        /**
+         * @param maxEntries The maximum number of customer defined ids remembered, the oldest ones are forgotten first. Defaults to 10000.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public IdempotencyConfigBuilder maxEntries(int maxEntries) {
+            if (maxEntries <= 0) {
+                throw new ApiException("The maximum number of entries must be greater than 0.");
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * @param expireAfter How long a customer defined id is remembered after its fax request completed. Defaults to 24 hours.
+         * @return the builder
+         * @throws ApiException if the duration is not positive
+         */
+        public IdempotencyConfigBuilder expireAfter(Duration expireAfter) {
+            if (expireAfter == null || expireAfter.isZero() || expireAfter.isNegative()) {
+                throw new ApiException("The expiry must be greater than 0.");
+            }
+            this.expireAfter = expireAfter;
+            return this;
+        }
+
+        public IdempotencyConfig build() {
+            return new IdempotencyConfig(maxEntries, expireAfter);
+        }
+    }
+}
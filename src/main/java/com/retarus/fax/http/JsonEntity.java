@@ -0,0 +1,147 @@
+package com.retarus.fax.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.retarus.fax.exception.RequestSerializationException;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * @author thiagon
+ * <p>
+ * HttpEntity that serializes an object to JSON while the request is written, straight to the output stream of the connection.
+ * <br>The length of the content is unknown, so the request is sent with chunked transfer encoding, and no copy of the JSON is kept on the heap.
+ * <br>The entity is repeatable, the object is serialized again every time the entity is written.
+ * <br>A failure of the serialization, unlike a failure of the connection, is thrown as a RequestSerializationException.
+ */
+public class JsonEntity extends AbstractHttpEntity {
+
+    private final Object value;
+    private final ObjectWriter objectWriter;
+
+    /**
+     * Creates the entity.
+     *
+     * @param value        The object to serialize.
+     * @param objectWriter The writer used to serialize the object.
+     */
+    public JsonEntity(Object value, ObjectWriter objectWriter) {
+        this.value = value;
+        this.objectWriter = objectWriter.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        setContentType(ContentType.APPLICATION_JSON.toString());
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * Serializes the object to memory, only used by callers reading the entity instead of writing it to a connection.
+     *
+     * @return the JSON of the object
+     * @throws IOException if the object cannot be serialized
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeTo(outputStream);
+        return new ByteArrayInputStream(outputStream.toByteArray());
+    }
+
+    /**
+     * Serializes the object to the given stream, through the buffer of the JSON generator.
+     *
+     * @param outputStream the stream to write the JSON to, left open
+     * @throws RequestSerializationException if the object cannot be serialized
+     * @throws IOException                   if the stream cannot be written
+     */
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        TargetStream target = new TargetStream(outputStream);
+        try {
+            objectWriter.writeValue(target, value);
+        } catch (IOException | RuntimeException e) {
+            if (target.failure != null && isCausedBy(e, target.failure)) {
+                throw target.failure;
+            }
+            if (e instanceof RequestSerializationException) {
+                throw e;
+            }
+            throw new RequestSerializationException("The request cannot be serialized.", e);
+        }
+    }
+
+    private static boolean isCausedBy(Throwable throwable, Throwable cause) {
+        for (Throwable current = throwable; current != null; current = current.getCause()) {
+            if (current == cause) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * Remembers the failure of the stream the JSON is written to, so it is told apart from the failures of the serialization.
+     */
+    private static final class TargetStream extends FilterOutputStream {
+        private IOException failure;
+
+        private TargetStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            try {
+                out.write(bytes, offset, length);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() {
+            // The target is left open
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.exception.ApiException;
+import com.retarus.fax.utils.FutureUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * @author thiagon
+ * <p>
+ * Collects the results of the requests sent to the locations of a region, which are all in flight at the same time.
+ * <br>Like a CompletionService, the results can be taken in the order the locations complete, or all together in the order of the locations.
+ * <br>A location that does not answer within the timeout gets the fallback result, so a slow data center cannot stall the other ones.
+ *
+ * @param <T> the type of the result of each location
+ */
+class LocationCompletionService<T> {
+
+    private final List<CompletableFuture<T>> futures = new ArrayList<>();
+    private final BlockingQueue<CompletableFuture<T>> completed = new LinkedBlockingQueue<>();
+    private final Duration timeout;
+    private final Function<Location, T> onTimeout;
+
+    /**
+     * @param timeout   the maximum time to wait for each location, null to wait without limit
+     * @param onTimeout creates the result of a location that did not complete in time
+     */
+    LocationCompletionService(Duration timeout, Function<Location, T> onTimeout) {
+        this.timeout = timeout;
+        this.onTimeout = onTimeout;
+    }
+
+    /**
+     * Registers the request of a location, which must already be in flight.
+     *
+     * @param location the location the request was sent to
+     * @param future   the result of the request
+     */
+    void submit(Location location, CompletableFuture<T> future) {
+        CompletableFuture<T> timedFuture = FutureUtils.withTimeout(future, timeout, () -> onTimeout.apply(location));
+        futures.add(timedFuture);
+        timedFuture.whenComplete((value, throwable) -> completed.add(timedFuture));
+    }
+
+    /**
+     * Passes the result of each location to the consumer as soon as the location completes, on the calling thread.
+     *
+     * @param consumer the consumer of the results
+     * @throws ApiException if the thread is interrupted while waiting
+     */
+    void forEachCompleted(Consumer<T> consumer) {
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                consumer.accept(join(completed.take()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiException("Interrupted while waiting for the locations.", e);
+            }
+        }
+    }
+
+    /**
+     * @return the results of all locations, completed once every location completed, in the order the locations were submitted
+     */
+    CompletableFuture<List<T>> allOf() {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    List<T> results = new ArrayList<>();
+                    futures.forEach(future -> results.add(future.join()));
+                    return results;
+                });
+    }
+
+    /**
+     * Waits for all locations.
+     *
+     * @return the results of all locations, in the order the locations were submitted
+     */
+    List<T> awaitAll() {
+        List<T> results = new ArrayList<>();
+        futures.forEach(future -> results.add(join(future)));
+        return results;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (RuntimeException e) {
+            Throwable cause = FutureUtils.unwrap(e);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ApiException(cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.LocationSelector;
+import com.retarus.fax.exception.CallNotPermittedException;
+import com.retarus.fax.exception.RequestSerializationException;
+import com.retarus.fax.utils.FutureUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author thiagon
+ * <p>
+ * Keeps track of the health of the locations for a FaxServiceClient: the outcome of every request sent to a single location
+ * is reported to the location selector and to the circuit breaker of the location.
+ * <br>It is also the location selector of the client, so the requests any location can serve skip the locations whose circuit breaker is open,
+ * unless all of them are.
+ */
+class LocationTracker implements LocationSelector {
+
+    private final LocationSelector locationSelector;
+    private final Map<Location, CircuitBreaker> circuitBreakers = new EnumMap<>(Location.class);
+
+    LocationTracker(LocationSelector locationSelector, CircuitBreakerConfig circuitBreakerConfig) {
+        this.locationSelector = locationSelector;
+        if (circuitBreakerConfig.isEnabled()) {
+            for (Location location : Location.values()) {
+                circuitBreakers.put(location, new CircuitBreaker(location, circuitBreakerConfig));
+            }
+        }
+    }
+
+    /**
+     * @param location the location
+     * @return the circuit breaker of the location, null if the circuit breakers are disabled
+     */
+    CircuitBreaker getCircuitBreaker(Location location) {
+        return circuitBreakers.get(location);
+    }
+
+    @Override
+    public Location select(Location[] locations) {
+        if (circuitBreakers.isEmpty()) {
+            return locationSelector.select(locations);
+        }
+        int available = 0;
+        for (Location location : locations) {
+            if (circuitBreakers.get(location).isAvailable()) {
+                available++;
+            }
+        }
+        if (available == 0 || available == locations.length) {
+            return locationSelector.select(locations);
+        }
+        Location[] availableLocations = new Location[available];
+        int index = 0;
+        for (Location location : locations) {
+            if (circuitBreakers.get(location).isAvailable()) {
+                availableLocations[index++] = location;
+            }
+        }
+        return locationSelector.select(availableLocations);
+    }
+
+    @Override
+    public void recordRequest(Location location) {
+        locationSelector.recordRequest(location);
+    }
+
+    @Override
+    public void recordLatency(Location location, long latencyNanos) {
+        locationSelector.recordLatency(location, latencyNanos);
+    }
+
+    @Override
+    public void recordFailure(Location location) {
+        locationSelector.recordFailure(location);
+    }
+
+    @Override
+    public void recordCancelled(Location location) {
+        locationSelector.recordCancelled(location);
+    }
+
+    /**
+     * Called before a request is sent.
+     *
+     * @param url the url of the request, only the requests to a single location are tracked
+     * @return the time the request is sent, from System.nanoTime
+     * @throws CallNotPermittedException if the circuit breaker of the location is open
+     */
+    long start(String url) throws CallNotPermittedException {
+        Location location = Location.fromUrl(url);
+        if (location != null) {
+            CircuitBreaker circuitBreaker = circuitBreakers.get(location);
+            if (circuitBreaker != null && !circuitBreaker.tryAcquirePermission()) {
+                throw new CallNotPermittedException(location);
+            }
+            locationSelector.recordRequest(location);
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Called when the response of a request is received, a server error counts as a failure.
+     *
+     * @param url      the url of the request
+     * @param start    the time returned by {@link #start(String)}
+     * @param response the response of the request
+     * @return the response
+     */
+    HttpResponse onResponse(String url, long start, HttpResponse response) {
+        onResult(url, start, response.getStatusLine().getStatusCode() >= HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        return response;
+    }
+
+    /**
+     * Called when a request fails without a response.
+     *
+     * @param url   the url of the request
+     * @param start the time returned by {@link #start(String)}
+     */
+    void onFailure(String url, long start) {
+        onResult(url, start, true);
+    }
+
+    /**
+     * Called when a request fails because of the client, like a body that cannot be serialized: it does not count against the location.
+     *
+     * @param url the url of the request
+     */
+    void onClientError(String url) {
+        Location location = Location.fromUrl(url);
+        if (location == null) {
+            return;
+        }
+        locationSelector.recordCancelled(location);
+        CircuitBreaker circuitBreaker = circuitBreakers.get(location);
+        if (circuitBreaker != null) {
+            circuitBreaker.releasePermission();
+        }
+    }
+
+    /**
+     * Tracks the outcome of an asynchronous request.
+     *
+     * @param url            the url of the request
+     * @param start          the time returned by {@link #start(String)}
+     * @param responseFuture the response of the request
+     * @return the response, completed once the outcome is tracked
+     */
+    CompletableFuture<HttpResponse> track(String url, long start, CompletableFuture<HttpResponse> responseFuture) {
+        return responseFuture.whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                onResponse(url, start, response);
+            } else if (FutureUtils.unwrap(throwable) instanceof RequestSerializationException) {
+                onClientError(url);
+            } else {
+                onFailure(url, start);
+            }
+        });
+    }
+
+    private void onResult(String url, long start, boolean failed) {
+        Location location = Location.fromUrl(url);
+        if (location == null) {
+            return;
+        }
+        long duration = System.nanoTime() - start;
+        if (failed) {
+            locationSelector.recordFailure(location);
+        } else {
+            locationSelector.recordLatency(location, duration);
+        }
+        CircuitBreaker circuitBreaker = circuitBreakers.get(location);
+        if (circuitBreaker != null) {
+            circuitBreaker.onResult(duration, failed);
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package com.retarus.fax.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * @author thiagon
+ * <p>
+ * Append-only log of the outbox, stored in memory-mapped segment files of a fixed size.
+ * <br>A record is made of its type (1 byte), the length of its payload (4 bytes), the id of its entry (8 bytes), a CRC32 of these fields
+ * and of the payload (4 bytes), and the payload. An entry record holds a fax request, an acknowledgement record marks an entry as sent.
+ * A type of 0 marks the end of the records of a segment, the rest of a segment file is zeros.
+ * <br>The records are written to the mapped segments under a lock, and made durable by a single sync thread, which forces the segments
+ * written since its last pass for all the entries appended in the meantime at once (group commit).
+ * <br>A segment is deleted once it is full and its entries and the entries of all the older segments are acknowledged.
+ * The acknowledgement of an entry is always in the same segment as the entry or in a newer one, so deleting the oldest segments first
+ * never loses the acknowledgement of an entry that is still on disk.
+ * <br>The directory is locked with a lock file while the log is open, so two logs, in the same JVM or not, never write the same segments.
+ */
+class OutboxLog implements Closeable {
+
+    static final byte END = 0;
+    static final byte ENTRY = 1;
+    static final byte ACK = 2;
+    static final int HEADER_SIZE = 17;
+
+    private static final String FILE_PREFIX = "outbox-";
+    private static final String FILE_SUFFIX = ".log";
+    private static final String LOCK_FILE = "outbox.lock";
+    private static final byte[] NO_PAYLOAD = new byte[0];
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long lingerNanos;
+    private final FileChannel lockChannel;
+
+    // Guarded by this
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<Long, EntryLocation> pending = new TreeMap<>();
+    private final Set<Segment> unsynced = new LinkedHashSet<>();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+    private final List<Long> recovered;
+    private Segment active;
+    private long nextId;
+    private boolean closed;
+
+    private final Thread syncThread;
+
+    /**
+     * Opens the log in the given directory, reading the entries that are not acknowledged from the existing segments.
+     *
+     * @param directory   the directory of the segment files, created if it does not exist
+     * @param segmentSize the size of a segment file, and the maximum size of a record
+     * @param lingerNanos the time the sync thread waits for more entries before it forces the segments, 0 to force them at once
+     * @throws IOException if the directory is used by another log, or if the segments cannot be read or created
+     */
+    OutboxLog(Path directory, int segmentSize, long lingerNanos) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.lingerNanos = lingerNanos;
+
+        Files.createDirectories(directory);
+        this.lockChannel = lock(directory);
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+            lockChannel.close();
+            throw e;
+        }
+        this.recovered = new ArrayList<>(pending.keySet());
+
+        syncThread = new Thread(this::syncLoop, "retarus-fax-outbox-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    /**
+     * @return the ids of the entries that were not acknowledged when the log was opened, in the order they were appended
+     */
+    List<Long> getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * @return the number of entries that are not acknowledged
+     */
+    synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return the number of segment files
+     */
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Appends an entry.
+     *
+     * @param payload the payload of the entry
+     * @return the id of the entry, completed once the entry is durable on disk
+     * @throws IllegalArgumentException if the entry does not fit in a segment
+     * @throws IllegalStateException    if the log is closed
+     * @throws IOException              if a new segment cannot be created
+     */
+    CompletableFuture<Long> append(byte[] payload) throws IOException {
+        if (HEADER_SIZE + payload.length > segmentSize) {
+            throw new IllegalArgumentException("The entry of " + payload.length + " bytes does not fit in a segment of " + segmentSize + " bytes.");
+        }
+        CompletableFuture<Long> durable = new CompletableFuture<>();
+        synchronized (this) {
+            long id = nextId++;
+            EntryLocation location = write(ENTRY, id, payload);
+            pending.put(id, location);
+            location.segment.pending++;
+            waiters.add(new Waiter(id, durable));
+            if (waiters.size() == 1) {
+                notifyAll();
+            }
+        }
+        return durable;
+    }
+
+    /**
+     * Acknowledges an entry, which is then no longer recovered. The acknowledgement is made durable with the next entries,
+     * or when the log is closed. Does nothing if the entry is already acknowledged.
+     *
+     * @param id the id of the entry
+     * @throws IOException if a new segment cannot be created
+     */
+    synchronized void ack(long id) throws IOException {
+        if (closed) {
+            return;
+        }
+        EntryLocation location = pending.remove(id);
+        if (location == null) {
+            return;
+        }
+        write(ACK, id, NO_PAYLOAD);
+        location.segment.pending--;
+        deleteAcknowledgedSegments();
+    }
+
+    /**
+     * Reads the payload of an entry that is not acknowledged.
+     *
+     * @param id the id of the entry
+     * @return the payload, or null if the entry is acknowledged
+     */
+    byte[] read(long id) {
+        EntryLocation location;
+        synchronized (this) {
+            location = pending.get(id);
+        }
+        if (location == null) {
+            return null;
+        }
+        byte[] payload = new byte[location.length];
+        ByteBuffer buffer = location.segment.buffer.duplicate();
+        buffer.position(location.position + HEADER_SIZE);
+        buffer.get(payload);
+        return payload;
+    }
+
+    /**
+     * Forces the segments written since the last sync, completes the entries waiting for it, and closes the segment files.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            syncThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            for (Segment segment : unsynced) {
+                segment.buffer.force();
+            }
+            unsynced.clear();
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+            // Closing the channel releases the lock of the directory
+            lockChannel.close();
+        }
+    }
+
+    /**
+     * Locks the directory for this log.
+     *
+     * @return the channel of the lock file, which holds the lock until it is closed
+     * @throws IOException if the directory is already locked, by this JVM or another process
+     */
+    private static FileChannel lock(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("The directory " + directory + " is already used by another outbox.");
+        }
+        return channel;
+    }
+
+    /**
+     * Writes a record to the active segment, moving to a new segment if it does not fit.
+     */
+    private EntryLocation write(byte type, long id, byte[] payload) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("The outbox is closed.");
+        }
+        if (active.position + HEADER_SIZE + payload.length > segmentSize) {
+            // The zeros after the last record mark the end of the full segment
+            active.sealed = true;
+            active = createSegment(active.sequence + 1);
+        }
+
+        crc.reset();
+        crc.update(type);
+        crc.update(payload.length >>> 24);
+        crc.update(payload.length >>> 16);
+        crc.update(payload.length >>> 8);
+        crc.update(payload.length);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (id >>> shift));
+        }
+        crc.update(payload, 0, payload.length);
+
+        int position = active.position;
+        MappedByteBuffer buffer = active.buffer;
+        buffer.putInt(position + 1, payload.length);
+        buffer.putLong(position + 5, id);
+        buffer.putInt(position + 13, (int) crc.getValue());
+        ByteBuffer body = buffer.duplicate();
+        body.position(position + HEADER_SIZE);
+        body.put(payload);
+        buffer.put(position, type);
+
+        active.position = position + HEADER_SIZE + payload.length;
+        unsynced.add(active);
+        return new EntryLocation(active, position, payload.length);
+    }
+
+    /**
+     * Forces the segments for the waiting entries, in batches: the entries appended while the segments are forced wait for the next pass.
+     */
+    private void syncLoop() {
+        while (true) {
+            synchronized (this) {
+                while (waiters.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // The loop only ends once the log is closed and no entry waits
+                    }
+                }
+                if (waiters.isEmpty()) {
+                    return;
+                }
+            }
+            if (lingerNanos > 0) {
+                LockSupport.parkNanos(lingerNanos);
+            }
+
+            List<Waiter> batch;
+            List<Segment> segmentsToForce;
+            synchronized (this) {
+                batch = new ArrayList<>(waiters);
+                waiters.clear();
+                segmentsToForce = new ArrayList<>(unsynced);
+                unsynced.clear();
+            }
+            RuntimeException failure = null;
+            for (Segment segment : segmentsToForce) {
+                try {
+                    segment.buffer.force();
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            for (Waiter waiter : batch) {
+                if (failure == null) {
+                    waiter.durable.complete(waiter.id);
+                } else {
+                    waiter.durable.completeExceptionally(failure);
+                }
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long sequence = Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+            Segment segment = openSegment(sequence, file, (int) Math.max(Files.size(file), segmentSize));
+            segments.put(sequence, segment);
+            scan(segment);
+            segment.sealed = true;
+        }
+
+        if (segments.isEmpty()) {
+            active = createSegment(0);
+        } else {
+            active = segments.lastEntry().getValue();
+            active.sealed = false;
+            // Clears what a crash left after the last valid record, so it is not read as a record once it is overwritten in part
+            // Only the bytes that are not zero are written, so the pages that were never written stay unallocated
+            MappedByteBuffer buffer = active.buffer;
+            boolean cleared = false;
+            for (int position = active.position; position < buffer.capacity(); position++) {
+                if (buffer.get(position) != 0) {
+                    buffer.put(position, (byte) 0);
+                    cleared = true;
+                }
+            }
+            if (cleared) {
+                buffer.force();
+            }
+        }
+        deleteAcknowledgedSegments();
+    }
+
+    /**
+     * Reads the records of a segment up to its end, or up to the first record that is torn or damaged.
+     */
+    private void scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int limit = buffer.capacity();
+        int position = 0;
+        while (position + HEADER_SIZE <= limit) {
+            byte type = buffer.get(position);
+            int length = buffer.getInt(position + 1);
+            long id = buffer.getLong(position + 5);
+            if ((type != ENTRY && type != ACK) || length < 0 || length > limit - position - HEADER_SIZE) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            ByteBuffer body = buffer.duplicate();
+            body.position(position + HEADER_SIZE);
+            body.get(payload);
+            crc.reset();
+            byte[] header = new byte[13];
+            ByteBuffer headerBuffer = buffer.duplicate();
+            headerBuffer.position(position);
+            headerBuffer.get(header);
+            crc.update(header, 0, header.length);
+            crc.update(payload, 0, payload.length);
+            if ((int) crc.getValue() != buffer.getInt(position + 13)) {
+                break;
+            }
+
+            if (type == ENTRY) {
+                pending.put(id, new EntryLocation(segment, position, length));
+                segment.pending++;
+            } else {
+                EntryLocation location = pending.remove(id);
+                if (location != null) {
+                    location.segment.pending--;
+                }
+            }
+            nextId = Math.max(nextId, id + 1);
+            position += HEADER_SIZE + length;
+        }
+        segment.position = position;
+    }
+
+    /**
+     * Deletes the oldest segments, as long as they are full and all their entries are acknowledged.
+     */
+    private void deleteAcknowledgedSegments() throws IOException {
+        Iterator<Segment> iterator = segments.values().iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            if (!segment.sealed || segment.pending > 0) {
+                return;
+            }
+            iterator.remove();
+            unsynced.remove(segment);
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        }
+    }
+
+    private Segment createSegment(long sequence) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", FILE_PREFIX, sequence, FILE_SUFFIX));
+        Segment segment = openSegment(sequence, file, segmentSize);
+        segments.put(sequence, segment);
+        syncDirectory();
+        return segment;
+    }
+
+    private static Segment openSegment(long sequence, Path file, int size) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new Segment(sequence, file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Makes the creation of a segment file durable, on the file systems that allow a directory to be forced.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform, the segment is still created
+        }
+    }
+
+    private static final class Segment {
+        private final long sequence;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+        private int pending;
+        private boolean sealed;
+
+        private Segment(long sequence, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    private static final class EntryLocation {
+        private final Segment segment;
+        private final int position;
+        private final int length;
+
+        private EntryLocation(Segment segment, int position, int length) {
+            this.segment = segment;
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    private static final class Waiter {
+        private final long id;
+        private final CompletableFuture<Long> durable;
+
+        private Waiter(long id, CompletableFuture<Long> durable) {
+            this.id = id;
+            this.durable = durable;
+        }
+    }
+}
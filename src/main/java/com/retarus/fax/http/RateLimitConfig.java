@@ -0,0 +1,155 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.exception.ApiException;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * @author thiagon
+ * <p>
+ * Class for the configuration of the client-side rate limits of a FaxServiceClient, one token bucket per kind of request.
+ * <br>The limits are shared by all clients of the same customer number with the same configuration in the JVM,
+ * so the services of an application cannot exceed the limits together. The kinds of requests without a limit are not limited.
+ */
+public class RateLimitConfig {
+
+    /**
+     * The token bucket of each limited kind of request.
+     */
+    private final Map<EndpointType, Limit> limits;
+
+    /**
+     * The longest a request waits for a permit, a request that would wait longer fails at once.
+     */
+    private final Duration maxWait;
+
+    private RateLimitConfig(Map<EndpointType, Limit> limits, Duration maxWait) {
+        this.limits = limits;
+        this.maxWait = maxWait;
+    }
+
+    public static RateLimitConfigBuilder builder() {
+        return new RateLimitConfigBuilder();
+    }
+
+    /**
+     * @param endpointType the kind of request
+     * @return the limit of the kind of request, null if it is not limited
+     */
+    public Limit getLimit(EndpointType endpointType) {
+        return limits.get(endpointType);
+    }
+
+    public Map<EndpointType, Limit> getLimits() {
+        return limits;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RateLimitConfig that = (RateLimitConfig) o;
+        return Objects.equals(limits, that.limits) && Objects.equals(maxWait, that.maxWait);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(limits, maxWait);
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitConfig(limits=" + limits + ", maxWait=" + maxWait + ")";
+    }
+
+    /**
+     * The rate and the burst size of a token bucket.
+     */
+    public static class Limit {
+        private final double permitsPerSecond;
+        private final int burst;
+
+        private Limit(double permitsPerSecond, int burst) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+        }
+
+        public double getPermitsPerSecond() {
+            return permitsPerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Limit limit = (Limit) o;
+            return Double.compare(limit.permitsPerSecond, permitsPerSecond) == 0 && burst == limit.burst;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(permitsPerSecond, burst);
+        }
+
+        @Override
+        public String toString() {
+            return permitsPerSecond + "/s (burst " + burst + ")";
+        }
+    }
+
+    public static class RateLimitConfigBuilder {
+        private final Map<EndpointType, Limit> limits = new EnumMap<>(EndpointType.class);
+        private Duration maxWait = Duration.ofSeconds(10);
+
+        private RateLimitConfigBuilder() {
+        }
+
+        /**
+         * @param endpointType     The kind of request to limit.
+         * @param permitsPerSecond The number of requests per second, on average.
+         * @param burst            The number of requests that can be sent at once after an idle period.
+         * @return the builder
+         * @throws ApiException if the rate or the burst size is not positive
+         */
+        public RateLimitConfigBuilder limit(EndpointType endpointType, double permitsPerSecond, int burst) {
+            if (!(permitsPerSecond > 0)) {
+                throw new ApiException("The number of permits per second must be greater than 0.");
+            }
+            if (burst <= 0) {
+                throw new ApiException("The burst size must be greater than 0.");
+            }
+            limits.put(endpointType, new Limit(permitsPerSecond, burst));
+            return this;
+        }
+
+        /**
+         * @param maxWait The longest a request waits for a permit, a request that would wait longer fails at once.
+         *                Defaults to 10 seconds, zero to never wait.
+         * @return the builder
+         * @throws ApiException if the duration is null or negative
+         */
+        public RateLimitConfigBuilder maxWait(Duration maxWait) {
+            if (maxWait == null || maxWait.isNegative()) {
+                throw new ApiException("The maximum wait cannot be negative.");
+            }
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        public RateLimitConfig build() {
+            return new RateLimitConfig(Collections.unmodifiableMap(new EnumMap<>(limits)), maxWait);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.RetarusFax;
+import com.retarus.fax.exception.RateLimitExceededException;
+import com.retarus.fax.utils.FutureUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.AbstractMap;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author thiagon
+ * <p>
+ * Client-side rate limiter of a customer number, with a token bucket for each limited kind of request.
+ * <br>The rate limiters are shared by all clients of the same customer number with the same configuration.
+ * The blocking requests wait for their permit on the calling thread, the asynchronous requests on the timer of FutureUtils.
+ */
+class RateLimiter {
+
+    private static final RateLimiter UNLIMITED = new RateLimiter(new EnumMap<>(EndpointType.class), 0);
+
+    private static final ConcurrentMap<Map.Entry<String, RateLimitConfig>, RateLimiter> SHARED = new ConcurrentHashMap<>();
+
+    private static final CompletableFuture<Void> PERMITTED = CompletableFuture.completedFuture(null);
+
+    private final Map<EndpointType, TokenBucket> buckets;
+    private final long maxWaitNanos;
+
+    RateLimiter(Map<EndpointType, TokenBucket> buckets, long maxWaitNanos) {
+        this.buckets = buckets;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    /**
+     * @param customerNumber the customer number the limits apply to
+     * @param config         the configuration of the limits, null for no limit
+     * @return the rate limiter shared by the clients of the customer number with the same configuration
+     */
+    static RateLimiter forCustomer(String customerNumber, RateLimitConfig config) {
+        if (config == null || config.getLimits().isEmpty()) {
+            return UNLIMITED;
+        }
+        return SHARED.computeIfAbsent(new AbstractMap.SimpleImmutableEntry<>(customerNumber, config), key -> {
+            Map<EndpointType, TokenBucket> buckets = new EnumMap<>(EndpointType.class);
+            config.getLimits().forEach((endpointType, limit) -> buckets.put(endpointType, new TokenBucket(limit.getPermitsPerSecond(), limit.getBurst())));
+            return new RateLimiter(buckets, config.getMaxWait().toNanos());
+        });
+    }
+
+    /**
+     * Waits for a permit for a request of the given kind.
+     *
+     * @param endpointType the kind of the request
+     * @throws RateLimitExceededException if no permit is available within the maximum wait
+     * @throws InterruptedIOException     if the thread is interrupted while waiting
+     */
+    void acquire(EndpointType endpointType) throws IOException {
+        long wait = reserve(endpointType);
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException interruptedIOException = new InterruptedIOException("Interrupted while waiting for the rate limit.");
+                interruptedIOException.initCause(e);
+                throw interruptedIOException;
+            }
+        }
+    }
+
+    /**
+     * Waits for a permit for a request of the given kind, without blocking a thread.
+     *
+     * @param endpointType the kind of the request
+     * @return completed once the permit can be used, on the RetarusFax executor service if it had to wait,
+     * completed exceptionally with a RateLimitExceededException if no permit is available within the maximum wait
+     */
+    CompletableFuture<Void> acquireAsync(EndpointType endpointType) {
+        long wait;
+        try {
+            wait = reserve(endpointType);
+        } catch (RateLimitExceededException e) {
+            CompletableFuture<Void> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+        if (wait == 0) {
+            return PERMITTED;
+        }
+
+        CompletableFuture<Void> permitted = new CompletableFuture<>();
+        FutureUtils.schedule(() -> {
+            // The request is sent by the thread that completes the future, which must not be the timer
+            try {
+                RetarusFax.getExecutorService().execute(() -> permitted.complete(null));
+            } catch (RuntimeException e) {
+                permitted.completeExceptionally(e);
+            }
+        }, wait);
+        return permitted;
+    }
+
+    /**
+     * @param endpointType the kind of request
+     * @return the number of requests of the given kind that can be sent at once, Integer.MAX_VALUE if the kind is not limited
+     */
+    int getAvailablePermits(EndpointType endpointType) {
+        TokenBucket bucket = buckets.get(endpointType);
+        return bucket == null ? Integer.MAX_VALUE : bucket.getAvailablePermits();
+    }
+
+    private long reserve(EndpointType endpointType) throws RateLimitExceededException {
+        TokenBucket bucket = buckets.get(endpointType);
+        if (bucket == null) {
+            return 0;
+        }
+        long wait = bucket.reserve(maxWaitNanos);
+        if (wait < 0) {
+            throw new RateLimitExceededException(endpointType);
+        }
+        return wait;
+    }
+}
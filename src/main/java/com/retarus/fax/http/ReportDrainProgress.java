@@ -0,0 +1,96 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.responses.Reason;
+import com.retarus.fax.base.rest.Location;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * @author thiagon
+ * <p>
+ * Class for a snapshot of the progress of a ReportDrainer, summed over all locations.
+ * <br>The reports the server did not delete are counted by the reason it gave.
+ */
+public class ReportDrainProgress {
+
+    private final long requests;
+    private final long deleted;
+    private final Map<Reason, Long> notDeleted;
+    private final Map<Location, Integer> failedLocations;
+    private final Duration elapsed;
+    private final boolean done;
+
+    ReportDrainProgress(long requests, long deleted, Map<Reason, Long> notDeleted, Map<Location, Integer> failedLocations, Duration elapsed, boolean done) {
+        this.requests = requests;
+        this.deleted = deleted;
+        this.notDeleted = notDeleted;
+        this.failedLocations = failedLocations;
+        this.elapsed = elapsed;
+        this.done = done;
+    }
+
+    /**
+     * @return the number of deletion requests sent, each deleting up to 1000 reports of a location
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return the number of reports deleted
+     */
+    public long getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return the number of reports still not deleted, each counted once by the last reason given by the server, UNKNOWN if it gave none
+     */
+    public Map<Reason, Long> getNotDeleted() {
+        return notDeleted;
+    }
+
+    /**
+     * @param reason the reason given by the server
+     * @return the number of reports not deleted for the reason
+     */
+    public long getNotDeleted(Reason reason) {
+        return notDeleted.getOrDefault(reason, 0L);
+    }
+
+    /**
+     * @return the locations that answered a deletion request with an error and were not drained, with the status code of the error
+     */
+    public Map<Location, Integer> getFailedLocations() {
+        return failedLocations;
+    }
+
+    /**
+     * @return the time since the drain started
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return the number of reports deleted per second, since the drain started
+     */
+    public double getDeletedPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : deleted * 1e9 / nanos;
+    }
+
+    /**
+     * @return true once every location is drained or failed
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReportDrainProgress(requests=%d, deleted=%d, notDeleted=%s, failedLocations=%s, elapsed=%s, deletedPerSecond=%.1f, done=%s)",
+                requests, deleted, notDeleted, failedLocations, elapsed, getDeletedPerSecond(), done);
+    }
+}
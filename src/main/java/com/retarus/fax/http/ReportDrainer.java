@@ -0,0 +1,202 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.RetarusFax;
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.responses.FaxDeletionReport;
+import com.retarus.fax.base.responses.Reason;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.exception.ApiException;
+import com.retarus.fax.utils.FutureUtils;
+import com.retarus.fax.v1.rest.deleter.OldestFaxReportsDeleter;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.apache.http.HttpStatus.SC_NOT_FOUND;
+import static org.apache.http.HttpStatus.SC_OK;
+
+/**
+ * @author thiagon
+ * <p>
+ * Deletes all fax status reports of the client, however many there are, by deleting the oldest 1000 reports of each location again and again.
+ * <br>The locations are drained at the same time, each with one deletion request in flight. A location is drained once the server
+ * has no more reports for it, or once a request deleted none of the reports it returned, which would only return the same reports again.
+ * A location that answers with an error is not requested again, the retries of the client apply to each request before that.
+ * <br>The request interval paces each location, to leave some of the rate limit of the customer number to the other services.
+ */
+public class ReportDrainer {
+
+    private final FaxServiceClient client;
+    private final long requestIntervalNanos;
+    private final Consumer<ReportDrainProgress> progressListener;
+
+    private ReportDrainer(FaxServiceClient client, Duration requestInterval, Consumer<ReportDrainProgress> progressListener) {
+        this.client = client;
+        this.requestIntervalNanos = requestInterval.toNanos();
+        this.progressListener = progressListener;
+    }
+
+    public static ReportDrainerBuilder builder(FaxServiceClient client) {
+        return new ReportDrainerBuilder(client);
+    }
+
+    /**
+     * Deletes all fax status reports of every location.
+     *
+     * @return the final progress once every location is drained or failed, completed exceptionally if a request or the progress listener throws,
+     * cancel it to stop after the requests in flight
+     */
+    public CompletableFuture<ReportDrainProgress> drain() {
+        Run run = new Run(client.getLocale().getLocations());
+        for (Location location : run.locations) {
+            run.delete(location);
+        }
+        return run.progress;
+    }
+
+    /**
+     * A single drain of all locations, which sums the deletion reports of every request.
+     */
+    private class Run {
+        private final Location[] locations;
+        private final CompletableFuture<ReportDrainProgress> progress = new CompletableFuture<>();
+        private final long startNanos = System.nanoTime();
+
+        // Guarded by this
+        private final Map<String, Reason> notDeleted = new HashMap<>();
+        private final Map<Location, Integer> failedLocations = new LinkedHashMap<>();
+        private long requests;
+        private long deleted;
+        private int remaining;
+
+        private Run(Location[] locations) {
+            this.locations = locations;
+            this.remaining = locations.length;
+        }
+
+        private void delete(Location location) {
+            if (progress.isDone()) {
+                return;
+            }
+            long requestNanos = System.nanoTime();
+            CompletableFuture<ApiResponse<List<FaxDeletionReport>>> response;
+            try {
+                response = new OldestFaxReportsDeleter(client, location).deleteAsync(null);
+            } catch (RuntimeException e) {
+                progress.completeExceptionally(e);
+                return;
+            }
+            response.whenComplete((value, throwable) -> {
+                if (throwable != null) {
+                    progress.completeExceptionally(FutureUtils.unwrap(throwable));
+                    return;
+                }
+                boolean more;
+                try {
+                    more = complete(location, value);
+                } catch (RuntimeException e) {
+                    progress.completeExceptionally(e);
+                    return;
+                }
+                if (more) {
+                    long delayNanos = requestIntervalNanos - (System.nanoTime() - requestNanos);
+                    if (delayNanos > 0) {
+                        FutureUtils.schedule(() -> RetarusFax.getExecutorService().execute(() -> delete(location)), delayNanos);
+                    } else {
+                        RetarusFax.getExecutorService().execute(() -> delete(location));
+                    }
+                }
+            });
+        }
+
+        /**
+         * Counts the deletion reports of a location, one response at a time, so the progress listener never needs to be thread-safe.
+         *
+         * @return true if the location may have more reports
+         */
+        private synchronized boolean complete(Location location, ApiResponse<List<FaxDeletionReport>> response) {
+            requests++;
+            boolean more = false;
+            if (response.getStatusCode() == SC_OK) {
+                long deletedNow = 0;
+                for (FaxDeletionReport deletionReport : response.getValue()) {
+                    // A report not deleted is returned again with the next request, so the reports are counted once, with their last reason
+                    if (Boolean.TRUE.equals(deletionReport.isDeleted())) {
+                        deletedNow++;
+                        notDeleted.remove(deletionReport.getJobId());
+                    } else {
+                        notDeleted.put(deletionReport.getJobId(), deletionReport.getReason() == null ? Reason.UNKNOWN : deletionReport.getReason());
+                    }
+                }
+                deleted += deletedNow;
+                more = deletedNow > 0;
+            } else if (response.getStatusCode() != SC_NOT_FOUND) {
+                failedLocations.put(location, response.getStatusCode());
+            }
+            if (!more) {
+                remaining--;
+            }
+
+            Map<Reason, Long> notDeletedByReason = new EnumMap<>(Reason.class);
+            for (Reason reason : notDeleted.values()) {
+                notDeletedByReason.merge(reason, 1L, Long::sum);
+            }
+            ReportDrainProgress snapshot = new ReportDrainProgress(requests, deleted, Collections.unmodifiableMap(notDeletedByReason),
+                    Collections.unmodifiableMap(new LinkedHashMap<>(failedLocations)), Duration.ofNanos(System.nanoTime() - startNanos), remaining == 0);
+            if (progressListener != null && !progress.isDone()) {
+                progressListener.accept(snapshot);
+            }
+            if (remaining == 0) {
+                progress.complete(snapshot);
+            }
+            return more;
+        }
+    }
+
+    public static class ReportDrainerBuilder {
+        private final FaxServiceClient client;
+        private Duration requestInterval = Duration.ZERO;
+        private Consumer<ReportDrainProgress> progressListener;
+
+        private ReportDrainerBuilder(FaxServiceClient client) {
+            this.client = client;
+        }
+
+        /**
+         * @param requestInterval The minimum time between the starts of two deletion requests of a location. Defaults to 0,
+         *                        the next request is sent as soon as the previous one is answered.
+         * @return the builder
+         * @throws ApiException if the interval is null or negative
+         */
+        public ReportDrainerBuilder requestInterval(Duration requestInterval) {
+            if (requestInterval == null || requestInterval.isNegative()) {
+                throw new ApiException("The request interval cannot be negative.");
+            }
+            this.requestInterval = requestInterval;
+            return this;
+        }
+
+        /**
+         * @param progressListener Receives the progress after each deletion request, one at a time, on the thread that completes it.
+         * @return the builder
+         */
+        public ReportDrainerBuilder progressListener(Consumer<ReportDrainProgress> progressListener) {
+            this.progressListener = progressListener;
+            return this;
+        }
+
+        public ReportDrainer build() {
+            if (client == null) {
+                throw new ApiException("The client cannot be null.");
+            }
+            return new ReportDrainer(client, requestInterval, progressListener);
+        }
+    }
+}
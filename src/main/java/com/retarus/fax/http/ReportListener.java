@@ -0,0 +1,20 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.responses.FaxStatusReport;
+
+/**
+ * @author thiagon
+ * <p>
+ * Listener of the fax status reports fetched by a ReportPoller.
+ * <br>A report is acknowledged when every listener returns normally, and only acknowledged reports are deleted from the server.
+ * A listener that throws leaves the report on the server, so it is handed to the listeners again with the next poll.
+ */
+@FunctionalInterface
+public interface ReportListener {
+
+    /**
+     * @param report the fax status report, with the location it was fetched from
+     * @throws Exception if the report cannot be processed, to get it again with the next poll
+     */
+    void onReport(FaxStatusReport report) throws Exception;
+}
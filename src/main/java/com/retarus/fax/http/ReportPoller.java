@@ -0,0 +1,344 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.RetarusFax;
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.responses.FaxDeletionReport;
+import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.exception.ApiException;
+import com.retarus.fax.utils.FutureUtils;
+import com.retarus.fax.v1.rest.bulkoperation.DeleteFaxReportsInBulkOperation;
+import com.retarus.fax.v1.rest.fetcher.AvailableFaxReportsRetriever;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.apache.http.HttpStatus.SC_NOT_FOUND;
+import static org.apache.http.HttpStatus.SC_OK;
+
+/**
+ * @author thiagon
+ * <p>
+ * Polls the available fax status reports of every location of the client, hands them to the listeners, and deletes the acknowledged ones.
+ * <br>Each location is polled on its own: its reports are fetched, handed to the listeners, and the reports every listener processed
+ * are deleted in bulk operations of at most 1000 job ids, from the location that holds them. A location is polled again at once
+ * while all its fetched reports were deleted, because more reports may be waiting, and after the poll interval otherwise.
+ * <br>The reports are handed to the listeners at least once: a report is handed again if a listener failed on it, if its deletion
+ * failed, or if the poller stopped before it was deleted, so the listeners must tolerate duplicates.
+ * <br>Up to the given parallelism, the reports of a location are handed to the listeners at the same time; with a parallelism of 1,
+ * they are handed one after the other, in the order of the server.
+ */
+public class ReportPoller implements Closeable {
+
+    private final FaxServiceClient client;
+    private final List<ReportListener> listeners;
+    private final long pollIntervalNanos;
+    private final int parallelism;
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder fetched = new LongAdder();
+    private final LongAdder acknowledged = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder listenerFailures = new LongAdder();
+    private final LongAdder fetchFailures = new LongAdder();
+    private final LongAdder deleteFailures = new LongAdder();
+
+    private final Map<Location, ScheduledFuture<?>> scheduled = new ConcurrentHashMap<>();
+    private final Set<CompletableFuture<Void>> running = ConcurrentHashMap.newKeySet();
+    private boolean started;
+    private volatile boolean closed;
+
+    private ReportPoller(FaxServiceClient client, List<ReportListener> listeners, Duration pollInterval, int parallelism) {
+        this.client = client;
+        this.listeners = listeners;
+        this.pollIntervalNanos = pollInterval.toNanos();
+        this.parallelism = parallelism;
+    }
+
+    public static ReportPollerBuilder builder(FaxServiceClient client) {
+        return new ReportPollerBuilder(client);
+    }
+
+    /**
+     * Starts to poll every location of the client, until the poller is closed.
+     *
+     * @throws IllegalStateException if the poller is already started or closed
+     */
+    public synchronized void start() {
+        if (started || closed) {
+            throw new IllegalStateException("The report poller can only be started once.");
+        }
+        started = true;
+        for (Location location : client.getLocale().getLocations()) {
+            schedule(location, 0);
+        }
+    }
+
+    /**
+     * Polls every location of the client once, at the same time.
+     *
+     * @return the metrics of the poller, completed once every location was polled
+     */
+    public CompletableFuture<ReportPollerMetrics> pollOnce() {
+        List<CompletableFuture<Boolean>> locations = new ArrayList<>();
+        for (Location location : client.getLocale().getLocations()) {
+            locations.add(poll(location));
+        }
+        return CompletableFuture.allOf(locations.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> getMetrics());
+    }
+
+    /**
+     * @return a snapshot of the metrics of the poller
+     */
+    public ReportPollerMetrics getMetrics() {
+        return new ReportPollerMetrics(polls.sum(), fetched.sum(), acknowledged.sum(), deleted.sum(), listenerFailures.sum(), fetchFailures.sum(),
+                deleteFailures.sum(), Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Stops polling, once the polls in progress are done, so the reports they fetched are handed to the listeners and deleted.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        scheduled.values().forEach(future -> future.cancel(false));
+        CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private void schedule(Location location, long delayNanos) {
+        if (closed) {
+            return;
+        }
+        if (delayNanos == 0) {
+            RetarusFax.getExecutorService().execute(() -> run(location));
+            return;
+        }
+        scheduled.put(location, FutureUtils.schedule(() -> RetarusFax.getExecutorService().execute(() -> run(location)), delayNanos));
+        if (closed) {
+            // Closed while it was scheduled, close() may have missed it
+            scheduled.get(location).cancel(false);
+        }
+    }
+
+    private void run(Location location) {
+        if (closed) {
+            return;
+        }
+        CompletableFuture<Void> cycle = new CompletableFuture<>();
+        running.add(cycle);
+        CompletableFuture<Boolean> poll;
+        try {
+            poll = poll(location);
+        } catch (RuntimeException e) {
+            // Counted in poll, the location is polled again after the interval
+            poll = CompletableFuture.completedFuture(false);
+        }
+        poll.whenComplete((more, throwable) -> {
+            running.remove(cycle);
+            cycle.complete(null);
+            schedule(location, throwable == null && more && !closed ? 0 : pollIntervalNanos);
+        });
+    }
+
+    /**
+     * Fetches the reports of a location, hands them to the listeners and deletes the acknowledged ones.
+     * <br>No thread waits for the fetch, its retries or the deletion; the reports are handed to the listeners on the RetarusFax executor.
+     *
+     * @return completed with true if reports were fetched and all of them are deleted, so more reports may be waiting
+     */
+    private CompletableFuture<Boolean> poll(Location location) {
+        polls.increment();
+        CompletableFuture<ApiResponse<List<FaxStatusReport>>> response;
+        try {
+            response = new AvailableFaxReportsRetriever(client, location).getAsync(null);
+        } catch (RuntimeException e) {
+            fetchFailures.increment();
+            return CompletableFuture.completedFuture(false);
+        }
+        return response.handle((fetchedReports, throwable) -> {
+            if (throwable != null) {
+                fetchFailures.increment();
+                return null;
+            }
+            return fetchedReports;
+        }).thenComposeAsync(fetchedReports -> fetchedReports == null ? CompletableFuture.completedFuture(false) : handOut(location, fetchedReports),
+                RetarusFax.getExecutorService());
+    }
+
+    /**
+     * Hands the fetched reports of a location to the listeners and deletes the acknowledged ones.
+     *
+     * @return completed with true if reports were fetched and all of them are deleted, so more reports may be waiting
+     */
+    private CompletableFuture<Boolean> handOut(Location location, ApiResponse<List<FaxStatusReport>> response) {
+        if (response.getStatusCode() != SC_OK) {
+            if (response.getStatusCode() != SC_NOT_FOUND) {
+                fetchFailures.increment();
+            }
+            return CompletableFuture.completedFuture(false);
+        }
+
+        // A response without reports has nothing to hand to the listeners
+        List<FaxStatusReport> reports = response.getValue();
+        if (reports == null || reports.isEmpty()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        fetched.add(reports.size());
+        return dispatch(reports)
+                .thenCompose(jobIds -> delete(location, jobIds))
+                .thenApply(gone -> gone == reports.size());
+    }
+
+    /**
+     * Hands the reports to the listeners, at most parallelism of them at a time.
+     * <br>The calling thread is one of the workers, the others run on the RetarusFax executor; no thread waits for another,
+     * so the poller cannot run out of threads on a bounded executor.
+     *
+     * @return completed with the job ids of the acknowledged reports, once every report is handed to the listeners
+     */
+    private CompletableFuture<List<String>> dispatch(List<FaxStatusReport> reports) {
+        Queue<String> jobIds = new ConcurrentLinkedQueue<>();
+        CompletableFuture<List<String>> dispatched = new CompletableFuture<>();
+        AtomicInteger nextReport = new AtomicInteger();
+        int workers = Math.min(parallelism, reports.size());
+        AtomicInteger activeWorkers = new AtomicInteger(workers);
+        Runnable worker = () -> {
+            try {
+                for (int i = nextReport.getAndIncrement(); i < reports.size(); i = nextReport.getAndIncrement()) {
+                    FaxStatusReport report = reports.get(i);
+                    if (deliver(report)) {
+                        jobIds.add(report.getJobId());
+                    }
+                }
+            } finally {
+                if (activeWorkers.decrementAndGet() == 0) {
+                    dispatched.complete(new ArrayList<>(jobIds));
+                }
+            }
+        };
+        for (int i = 1; i < workers; i++) {
+            try {
+                RetarusFax.getExecutorService().execute(worker);
+            } catch (RejectedExecutionException e) {
+                // The calling thread hands out the reports of this worker too
+                activeWorkers.decrementAndGet();
+            }
+        }
+        worker.run();
+        return dispatched;
+    }
+
+    /**
+     * @return true if every listener processed the report
+     */
+    private boolean deliver(FaxStatusReport report) {
+        for (ReportListener listener : listeners) {
+            try {
+                listener.onReport(report);
+            } catch (Exception e) {
+                listenerFailures.increment();
+                return false;
+            }
+        }
+        acknowledged.increment();
+        return true;
+    }
+
+    /**
+     * Deletes the reports from the location that holds them, in bulk operations of at most 1000 job ids.
+     *
+     * @return completed with the number of reports that are gone from the server, deleted now or not found anymore
+     */
+    private CompletableFuture<Long> delete(Location location, List<String> jobIds) {
+        LongAdder gone = new LongAdder();
+        return new DeleteFaxReportsInBulkOperation(client, location).performAllAsync(jobIds, 1, deletionReports -> {
+            for (FaxDeletionReport deletionReport : deletionReports) {
+                if (Boolean.TRUE.equals(deletionReport.isDeleted())) {
+                    deleted.increment();
+                    gone.increment();
+                }
+            }
+        }).thenApply(result -> {
+            deleteFailures.add(result.getFailures().size());
+            return gone.sum() + result.getNotFound().size();
+        });
+    }
+
+    public static class ReportPollerBuilder {
+        private final FaxServiceClient client;
+        private final List<ReportListener> listeners = new ArrayList<>();
+        private Duration pollInterval = Duration.ofSeconds(30);
+        private int parallelism = 1;
+
+        private ReportPollerBuilder(FaxServiceClient client) {
+            this.client = client;
+        }
+
+        /**
+         * @param listener A listener of the reports, called for each report after the listeners added before it.
+         * @return the builder
+         * @throws ApiException if the listener is null
+         */
+        public ReportPollerBuilder listener(ReportListener listener) {
+            if (listener == null) {
+                throw new ApiException("The listener cannot be null.");
+            }
+            listeners.add(listener);
+            return this;
+        }
+
+        /**
+         * @param pollInterval The time between two polls of a location that had no more reports. Defaults to 30 seconds.
+         * @return the builder
+         * @throws ApiException if the interval is not positive
+         */
+        public ReportPollerBuilder pollInterval(Duration pollInterval) {
+            if (pollInterval == null || pollInterval.isZero() || pollInterval.isNegative()) {
+                throw new ApiException("The poll interval must be greater than 0.");
+            }
+            this.pollInterval = pollInterval;
+            return this;
+        }
+
+        /**
+         * @param parallelism The maximum number of reports of a location handed to the listeners at the same time. Defaults to 1,
+         *                    the reports are handed one after the other.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public ReportPollerBuilder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new ApiException("The parallelism must be greater than 0.");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @return the poller, not started yet
+         * @throws ApiException if the client or the listeners are missing
+         */
+        public ReportPoller build() {
+            if (client == null) {
+                throw new ApiException("The client cannot be null.");
+            }
+            if (listeners.isEmpty()) {
+                throw new ApiException("The report poller needs at least one listener.");
+            }
+            return new ReportPoller(client, new ArrayList<>(listeners), pollInterval, parallelism);
+        }
+    }
+}
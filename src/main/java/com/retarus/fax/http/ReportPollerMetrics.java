@@ -0,0 +1,88 @@
+package com.retarus.fax.http;
+
+import java.time.Duration;
+
+/**
+ * @author thiagon
+ * <p>
+ * Snapshot of the metrics of a ReportPoller, counted since it was built.
+ * <br>polls: requests for the available reports, one per location and cycle.
+ * <br>fetched: reports fetched, a report that is not acknowledged is fetched again with the next poll.
+ * <br>acknowledged: reports every listener processed.
+ * <br>deleted: acknowledged reports deleted from the server.
+ * <br>listenerFailures: reports a listener threw on.
+ * <br>fetchFailures: polls that did not get the reports of the location.
+ * <br>deleteFailures: bulk deletions that failed, their reports are fetched again with the next poll.
+ */
+public class ReportPollerMetrics {
+
+    private final long polls;
+    private final long fetched;
+    private final long acknowledged;
+    private final long deleted;
+    private final long listenerFailures;
+    private final long fetchFailures;
+    private final long deleteFailures;
+    private final Duration elapsed;
+
+    ReportPollerMetrics(long polls, long fetched, long acknowledged, long deleted, long listenerFailures, long fetchFailures, long deleteFailures, Duration elapsed) {
+        this.polls = polls;
+        this.fetched = fetched;
+        this.acknowledged = acknowledged;
+        this.deleted = deleted;
+        this.listenerFailures = listenerFailures;
+        this.fetchFailures = fetchFailures;
+        this.deleteFailures = deleteFailures;
+        this.elapsed = elapsed;
+    }
+
+    public long getPolls() {
+        return polls;
+    }
+
+    public long getFetched() {
+        return fetched;
+    }
+
+    public long getAcknowledged() {
+        return acknowledged;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public long getListenerFailures() {
+        return listenerFailures;
+    }
+
+    public long getFetchFailures() {
+        return fetchFailures;
+    }
+
+    public long getDeleteFailures() {
+        return deleteFailures;
+    }
+
+    /**
+     * @return the time since the poller was built
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return the number of reports deleted per second since the poller was built
+     */
+    public double getDeletedPerSecond() {
+        long millis = elapsed.toMillis();
+        return millis == 0 ? 0 : deleted * 1000.0 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return "ReportPollerMetrics(polls=" + polls + ", fetched=" + fetched + ", acknowledged=" + acknowledged + ", deleted=" + deleted
+                + ", listenerFailures=" + listenerFailures + ", fetchFailures=" + fetchFailures + ", deleteFailures=" + deleteFailures
+                + ", elapsed=" + elapsed + ", deletedPerSecond=" + String.format("%.1f", getDeletedPerSecond()) + ")";
+    }
+}
@@ -0,0 +1,236 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.RetarusFax;
+import com.retarus.fax.base.common.HttpMethod;
+import com.retarus.fax.exception.CallNotPermittedException;
+import com.retarus.fax.exception.RateLimitExceededException;
+import com.retarus.fax.exception.RequestSerializationException;
+import com.retarus.fax.utils.FutureUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @author thiagon
+ * <p>
+ * Sends the requests of a FaxServiceClient again when they fail, following its retry policy.
+ * <br>The blocking requests wait for the next attempt on the calling thread. The asynchronous requests are scheduled on the timer
+ * of FutureUtils, so no thread is held while waiting, and the next attempt is handed to the RetarusFax executor service.
+ */
+class Retrier {
+
+    /**
+     * A single attempt of a blocking request.
+     */
+    @FunctionalInterface
+    interface Attempt {
+        HttpResponse send() throws IOException;
+    }
+
+    private final RetryPolicy retryPolicy;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+    private final long maxRetryAfterNanos;
+    private final double budgetCapacity;
+    private double budgetBalance;
+
+    Retrier(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        this.baseDelayNanos = retryPolicy.getBaseDelay().toNanos();
+        this.maxDelayNanos = retryPolicy.getMaxDelay().toNanos();
+        this.maxRetryAfterNanos = retryPolicy.getMaxRetryAfter().toNanos();
+        this.budgetCapacity = Math.max(1, retryPolicy.getBudgetReserve());
+        this.budgetBalance = retryPolicy.getBudgetReserve();
+    }
+
+    /**
+     * Sends a blocking request, and sends it again while it fails and the policy allows another attempt.
+     *
+     * @param httpMethod the method of the request
+     * @param entity     the body of the request, a body that cannot be sent twice is never retried
+     * @param attempt    sends the request once
+     * @return the response of the last attempt
+     * @throws IOException the failure of the last attempt, or if the thread is interrupted while waiting
+     */
+    HttpResponse execute(HttpMethod httpMethod, HttpEntity entity, Attempt attempt) throws IOException {
+        depositBudget();
+        long previousDelay = baseDelayNanos;
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            HttpResponse response = null;
+            IOException failure = null;
+            try {
+                response = attempt.send();
+            } catch (IOException e) {
+                failure = e;
+            }
+
+            long backoff = nextBackoff(previousDelay);
+            long delay = retryDelay(httpMethod, entity, attemptNumber, response, failure, backoff);
+            if (delay < 0) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return response;
+            }
+            release(response);
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException interruptedIOException = new InterruptedIOException("Interrupted while waiting to retry the request.");
+                interruptedIOException.initCause(e);
+                throw interruptedIOException;
+            }
+            previousDelay = backoff;
+        }
+    }
+
+    /**
+     * Sends an asynchronous request, and sends it again while it fails and the policy allows another attempt.
+     *
+     * @param httpMethod the method of the request
+     * @param entity     the body of the request, a body that cannot be sent twice is never retried
+     * @param attempt    sends the request once
+     * @return the response of the last attempt, completed exceptionally with the failure of the last attempt
+     */
+    CompletableFuture<HttpResponse> executeAsync(HttpMethod httpMethod, HttpEntity entity, Supplier<CompletableFuture<HttpResponse>> attempt) {
+        depositBudget();
+        CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+        attemptAsync(httpMethod, entity, attempt, 1, baseDelayNanos, result);
+        return result;
+    }
+
+    private void attemptAsync(HttpMethod httpMethod, HttpEntity entity, Supplier<CompletableFuture<HttpResponse>> attempt,
+                              int attemptNumber, long previousDelay, CompletableFuture<HttpResponse> result) {
+        CompletableFuture<HttpResponse> responseFuture;
+        try {
+            responseFuture = attempt.get();
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        responseFuture.whenComplete((response, throwable) -> {
+            Throwable cause = throwable == null ? null : FutureUtils.unwrap(throwable);
+            if (cause != null && !(cause instanceof IOException)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            long backoff = nextBackoff(previousDelay);
+            long delay = retryDelay(httpMethod, entity, attemptNumber, response, (IOException) cause, backoff);
+            if (delay < 0) {
+                if (cause != null) {
+                    result.completeExceptionally(cause);
+                } else {
+                    result.complete(response);
+                }
+                return;
+            }
+            release(response);
+            FutureUtils.schedule(() -> {
+                try {
+                    RetarusFax.getExecutorService().execute(() -> attemptAsync(httpMethod, entity, attempt, attemptNumber + 1, backoff, result));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }, delay);
+        });
+    }
+
+    /**
+     * @return the delay before the next attempt in nanoseconds, or -1 if the request must not be retried
+     */
+    private long retryDelay(HttpMethod httpMethod, HttpEntity entity, int attemptNumber, HttpResponse response, IOException failure, long backoff) {
+        if (attemptNumber >= retryPolicy.getMaxAttempts() || (entity != null && !entity.isRepeatable())) {
+            return -1;
+        }
+        boolean idempotent = httpMethod == HttpMethod.GET || httpMethod == HttpMethod.DELETE;
+
+        long delay = backoff;
+        if (failure != null) {
+            // The circuit breaker or the rate limit rejected the request on purpose, a request that cannot be serialized never succeeds,
+            // and a request that may have been processed is not sent twice
+            if (failure instanceof CallNotPermittedException || failure instanceof RateLimitExceededException || failure instanceof RequestSerializationException
+                    || (!idempotent && !(failure instanceof ConnectException))) {
+                return -1;
+            }
+        } else {
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (!retryPolicy.getRetryableStatusCodes().contains(statusCode) || (!idempotent && statusCode != HttpStatus.SC_TOO_MANY_REQUESTS)) {
+                return -1;
+            }
+            long retryAfter = retryAfterNanos(response);
+            if (retryAfter > maxRetryAfterNanos) {
+                return -1;
+            }
+            delay = Math.max(delay, retryAfter);
+        }
+        return withdrawBudget() ? delay : -1;
+    }
+
+    /**
+     * Decorrelated jitter: a random delay between the base delay and three times the previous one, capped by the maximum delay.
+     *
+     * @param previousDelay the previous backoff, the base delay before the first retry
+     * @return the next backoff, in nanoseconds
+     */
+    long nextBackoff(long previousDelay) {
+        long upperBound = Math.min(maxDelayNanos, Math.max(baseDelayNanos, previousDelay) * 3);
+        if (upperBound <= baseDelayNanos) {
+            return baseDelayNanos;
+        }
+        return ThreadLocalRandom.current().nextLong(baseDelayNanos, upperBound + 1);
+    }
+
+    /**
+     * @return the delay the server asks for with the Retry-After header, as seconds or as a date, 0 without the header
+     */
+    static long retryAfterNanos(HttpResponse response) {
+        Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (header == null || header.getValue() == null) {
+            return 0;
+        }
+        String value = header.getValue().trim();
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parseDate(value);
+            return date == null ? 0 : TimeUnit.MILLISECONDS.toNanos(Math.max(0, date.getTime() - System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Releases the connection of a response that is discarded for a retry.
+     */
+    private static void release(HttpResponse response) {
+        if (response != null) {
+            EntityUtils.consumeQuietly(response.getEntity());
+        }
+    }
+
+    private synchronized void depositBudget() {
+        budgetBalance = Math.min(budgetCapacity, budgetBalance + retryPolicy.getBudgetRatio());
+    }
+
+    private synchronized boolean withdrawBudget() {
+        if (budgetBalance >= 1) {
+            budgetBalance -= 1;
+            return true;
+        }
+        return false;
+    }
+}
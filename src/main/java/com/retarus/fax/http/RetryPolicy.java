@@ -0,0 +1,220 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.exception.ApiException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * @author thiagon
+ * <p>
+ * Class for the configuration of the retries of a FaxServiceClient.
+ * <br>A request is retried when it cannot be sent or when the server answers with a retryable status code (by default 429, 502, 503 and 504),
+ * waiting between the attempts with an exponential backoff with decorrelated jitter, or as long as the Retry-After header of the response asks.
+ * <br>GET and DELETE requests are idempotent and retried on any of these errors. POST requests, like sending a fax, are only retried
+ * when the request was certainly not processed: the connection was refused or the server answered 429 (Too Many Requests).
+ * <br>A retry budget limits the retries to a share of the requests, so the retries cannot multiply the load on a location that is already down.
+ */
+public class RetryPolicy {
+
+    /**
+     * The maximum number of attempts of a request, including the first one.
+     */
+    private final int maxAttempts;
+
+    /**
+     * The minimum delay before a retry, and the base of the backoff.
+     */
+    private final Duration baseDelay;
+
+    /**
+     * The maximum delay before a retry computed by the backoff.
+     */
+    private final Duration maxDelay;
+
+    /**
+     * The longest Retry-After the client waits for, a response asking for more is not retried.
+     */
+    private final Duration maxRetryAfter;
+
+    /**
+     * The status codes of the responses that are retried.
+     */
+    private final Set<Integer> retryableStatusCodes;
+
+    /**
+     * The share of the requests that can be retried, over time.
+     */
+    private final double budgetRatio;
+
+    /**
+     * The number of retries that can always be made, before the ratio applies.
+     */
+    private final int budgetReserve;
+
+    private RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay, Duration maxRetryAfter, Set<Integer> retryableStatusCodes, double budgetRatio, int budgetReserve) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.maxRetryAfter = maxRetryAfter;
+        this.retryableStatusCodes = retryableStatusCodes;
+        this.budgetRatio = budgetRatio;
+        this.budgetReserve = budgetReserve;
+    }
+
+    public static RetryPolicyBuilder builder() {
+        return new RetryPolicyBuilder();
+    }
+
+    /**
+     * @return the default settings of the retries, the client does not retry unless a policy is configured
+     */
+    public static RetryPolicy defaults() {
+        return builder().build();
+    }
+
+    /**
+     * @return a policy that never retries a request
+     */
+    public static RetryPolicy disabled() {
+        return builder().maxAttempts(1).build();
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Duration getBaseDelay() {
+        return baseDelay;
+    }
+
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    public Duration getMaxRetryAfter() {
+        return maxRetryAfter;
+    }
+
+    public Set<Integer> getRetryableStatusCodes() {
+        return retryableStatusCodes;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public int getBudgetReserve() {
+        return budgetReserve;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy(maxAttempts=" + maxAttempts + ", baseDelay=" + baseDelay + ", maxDelay=" + maxDelay + ", maxRetryAfter=" + maxRetryAfter
+                + ", retryableStatusCodes=" + retryableStatusCodes + ", budgetRatio=" + budgetRatio + ", budgetReserve=" + budgetReserve + ")";
+    }
+
+    public static class RetryPolicyBuilder {
+        private int maxAttempts = 3;
+        private Duration baseDelay = Duration.ofMillis(200);
+        private Duration maxDelay = Duration.ofSeconds(5);
+        private Duration maxRetryAfter = Duration.ofSeconds(30);
+        private Set<Integer> retryableStatusCodes = new LinkedHashSet<>(Arrays.asList(429, 502, 503, 504));
+        private double budgetRatio = 0.2;
+        private int budgetReserve = 10;
+
+        private RetryPolicyBuilder() {
+        }
+
+        /**
+         * @param maxAttempts The maximum number of attempts of a request, including the first one, 1 disables the retries.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public RetryPolicyBuilder maxAttempts(int maxAttempts) {
+            if (maxAttempts <= 0) {
+                throw new ApiException("The maximum number of attempts must be greater than 0.");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param baseDelay The minimum delay before a retry, and the base of the backoff.
+         * @return the builder
+         * @throws ApiException if the duration is null or not positive
+         */
+        public RetryPolicyBuilder baseDelay(Duration baseDelay) {
+            this.baseDelay = requirePositive(baseDelay, "base delay");
+            return this;
+        }
+
+        /**
+         * @param maxDelay The maximum delay before a retry computed by the backoff.
+         * @return the builder
+         * @throws ApiException if the duration is null or not positive
+         */
+        public RetryPolicyBuilder maxDelay(Duration maxDelay) {
+            this.maxDelay = requirePositive(maxDelay, "maximum delay");
+            return this;
+        }
+
+        /**
+         * @param maxRetryAfter The longest Retry-After the client waits for, a response asking for more is not retried.
+         * @return the builder
+         * @throws ApiException if the duration is null or not positive
+         */
+        public RetryPolicyBuilder maxRetryAfter(Duration maxRetryAfter) {
+            this.maxRetryAfter = requirePositive(maxRetryAfter, "maximum Retry-After");
+            return this;
+        }
+
+        /**
+         * @param retryableStatusCodes The status codes of the responses that are retried.
+         * @return the builder
+         */
+        public RetryPolicyBuilder retryableStatusCodes(Integer... retryableStatusCodes) {
+            this.retryableStatusCodes = new LinkedHashSet<>(Arrays.asList(retryableStatusCodes));
+            return this;
+        }
+
+        /**
+         * @param budgetRatio   The share of the requests that can be retried over time, between 0 and 1.
+         * @param budgetReserve The number of retries that can always be made, before the ratio applies.
+         * @return the builder
+         * @throws ApiException if the ratio is not between 0 and 1, or the reserve is negative
+         */
+        public RetryPolicyBuilder budget(double budgetRatio, int budgetReserve) {
+            if (budgetRatio < 0 || budgetRatio > 1) {
+                throw new ApiException("The retry budget ratio must be between 0 and 1.");
+            }
+            if (budgetReserve < 0) {
+                throw new ApiException("The retry budget reserve cannot be negative.");
+            }
+            this.budgetRatio = budgetRatio;
+            this.budgetReserve = budgetReserve;
+            return this;
+        }
+
+        private static Duration requirePositive(Duration duration, String name) {
+            if (duration == null || duration.isNegative() || duration.isZero()) {
+                throw new ApiException("The " + name + " must be greater than 0.");
+            }
+            return duration;
+        }
+
+        /**
+         * @return the retry policy
+         * @throws ApiException if the maximum delay is shorter than the base delay
+         */
+        public RetryPolicy build() {
+            if (maxDelay.compareTo(baseDelay) < 0) {
+                throw new ApiException("The maximum delay cannot be shorter than the base delay.");
+            }
+            return new RetryPolicy(maxAttempts, baseDelay, maxDelay, maxRetryAfter, Collections.unmodifiableSet(new LinkedHashSet<>(retryableStatusCodes)), budgetRatio, budgetReserve);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.sendfax.status.AuthenticationMethod;
+import com.retarus.fax.utils.EncodingUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author thiagon
+ * <p>
+ * Checks the credentials of the status pushes received by a StatusPushReceiver, with the authentication method configured for them.
+ * <br>HTTP_BASIC compares the Authorization header with the expected credentials in constant time.
+ * <br>HTTP_DIGEST follows RFC 7616 with MD5 and qop "auth". The nonces are not stored: each one carries its creation time,
+ * signed with a key of the receiver, and expires after five minutes. The nonce count is not tracked, so a request captured within
+ * these five minutes can be replayed, which only hands the same status report to the listeners again.
+ */
+class StatusPushAuthenticator {
+
+    static final String REALM = "retarus-fax-status-push";
+
+    private static final long NONCE_LIFETIME_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final Pattern DIGEST_PARAMETER = Pattern.compile("(\\w+)\\s*=\\s*(?:\"([^\"]*)\"|([^\\s,]*))");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final AuthenticationMethod authenticationMethod;
+    private final String username;
+    private final String password;
+    private final byte[] basicAuthorization;
+    private final byte[] nonceKey = new byte[32];
+
+    StatusPushAuthenticator(AuthenticationMethod authenticationMethod, String username, String password) {
+        this.authenticationMethod = authenticationMethod;
+        this.username = username;
+        this.password = password;
+        this.basicAuthorization = authenticationMethod == AuthenticationMethod.HTTP_BASIC
+                ? ("Basic " + EncodingUtils.encodeCredentialsToString(username, password)).getBytes(StandardCharsets.UTF_8)
+                : null;
+        new SecureRandom().nextBytes(nonceKey);
+    }
+
+    /**
+     * @param requestMethod the method of the request
+     * @param requestUri    the uri of the request, as sent in the request line
+     * @param authorization the Authorization header of the request, null if missing
+     * @return true if the request carries the expected credentials
+     */
+    boolean authenticate(String requestMethod, String requestUri, String authorization) {
+        switch (authenticationMethod) {
+            case NONE:
+                return true;
+            case HTTP_BASIC:
+                return authorization != null && MessageDigest.isEqual(basicAuthorization, authorization.trim().getBytes(StandardCharsets.UTF_8));
+            case HTTP_DIGEST:
+                return authorization != null && authorization.regionMatches(true, 0, "Digest ", 0, 7)
+                        && authenticateDigest(requestMethod, requestUri, parameters(authorization.substring(7)));
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return the WWW-Authenticate header of the response to a request without the expected credentials
+     */
+    String challenge() {
+        if (authenticationMethod == AuthenticationMethod.HTTP_BASIC) {
+            return "Basic realm=\"" + REALM + "\", charset=\"UTF-8\"";
+        }
+        return "Digest realm=\"" + REALM + "\", qop=\"auth\", algorithm=MD5, nonce=\"" + nonce(System.currentTimeMillis()) + "\"";
+    }
+
+    private boolean authenticateDigest(String requestMethod, String requestUri, Map<String, String> parameters) {
+        String nonce = parameters.get("nonce");
+        String response = parameters.get("response");
+        if (nonce == null || response == null || !username.equals(parameters.get("username")) || !REALM.equals(parameters.get("realm"))
+                || !requestUri.equals(parameters.get("uri")) || !validNonce(nonce)) {
+            return false;
+        }
+        String ha1 = md5(username + ":" + REALM + ":" + password);
+        String ha2 = md5(requestMethod + ":" + requestUri);
+        String qop = parameters.get("qop");
+        String expected;
+        if (qop == null) {
+            expected = md5(ha1 + ":" + nonce + ":" + ha2);
+        } else if ("auth".equals(qop) && parameters.get("nc") != null && parameters.get("cnonce") != null) {
+            expected = md5(ha1 + ":" + nonce + ":" + parameters.get("nc") + ":" + parameters.get("cnonce") + ":" + qop + ":" + ha2);
+        } else {
+            return false;
+        }
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), response.toLowerCase().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String nonce(long createdMillis) {
+        String created = Long.toHexString(createdMillis);
+        return created + "-" + hmac(created);
+    }
+
+    private boolean validNonce(String nonce) {
+        int separator = nonce.indexOf('-');
+        if (separator <= 0) {
+            return false;
+        }
+        long createdMillis;
+        try {
+            createdMillis = Long.parseLong(nonce.substring(0, separator), 16);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        long age = System.currentTimeMillis() - createdMillis;
+        return age >= 0 && age <= NONCE_LIFETIME_MILLIS
+                && MessageDigest.isEqual(nonce(createdMillis).getBytes(StandardCharsets.UTF_8), nonce.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String hmac(String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(nonceKey, "HmacSHA256"));
+            return hex(mac.doFinal(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available.", e);
+        }
+    }
+
+    private static String md5(String value) {
+        try {
+            return hex(MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("MD5 is not available.", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    private static Map<String, String> parameters(String header) {
+        Map<String, String> parameters = new HashMap<>();
+        Matcher matcher = DIGEST_PARAMETER.matcher(header);
+        while (matcher.find()) {
+            parameters.put(matcher.group(1).toLowerCase(), matcher.group(2) != null ? matcher.group(2) : matcher.group(3));
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,75 @@
+package com.retarus.fax.http;
+
+/**
+ * @author thiagon
+ * <p>
+ * Snapshot of the metrics of a StatusPushReceiver, counted since it was started.
+ * <br>requests: status pushes received on the path of the receiver.
+ * <br>unauthorized: requests rejected with 401, without the expected credentials.
+ * <br>malformed: requests rejected with 400 or 413, whose body is not a status report or an array of them, or is too large.
+ * <br>overloaded: requests rejected with 503, because the queue stayed full, to be pushed again by the server.
+ * <br>received: status reports put in the queue.
+ * <br>dispatched: status reports handed to every listener.
+ * <br>listenerFailures: status reports a listener threw on.
+ * <br>queued: status reports in the queue, not handed to the listeners yet.
+ */
+public class StatusPushMetrics {
+
+    private final long requests;
+    private final long unauthorized;
+    private final long malformed;
+    private final long overloaded;
+    private final long received;
+    private final long dispatched;
+    private final long listenerFailures;
+    private final int queued;
+
+    StatusPushMetrics(long requests, long unauthorized, long malformed, long overloaded, long received, long dispatched, long listenerFailures, int queued) {
+        this.requests = requests;
+        this.unauthorized = unauthorized;
+        this.malformed = malformed;
+        this.overloaded = overloaded;
+        this.received = received;
+        this.dispatched = dispatched;
+        this.listenerFailures = listenerFailures;
+        this.queued = queued;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getUnauthorized() {
+        return unauthorized;
+    }
+
+    public long getMalformed() {
+        return malformed;
+    }
+
+    public long getOverloaded() {
+        return overloaded;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public long getDispatched() {
+        return dispatched;
+    }
+
+    public long getListenerFailures() {
+        return listenerFailures;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    @Override
+    public String toString() {
+        return "StatusPushMetrics(requests=" + requests + ", unauthorized=" + unauthorized + ", malformed=" + malformed + ", overloaded=" + overloaded
+                + ", received=" + received + ", dispatched=" + dispatched + ", listenerFailures=" + listenerFailures + ", queued=" + queued + ")";
+    }
+}
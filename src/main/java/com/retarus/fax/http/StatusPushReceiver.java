@@ -0,0 +1,543 @@
+package com.retarus.fax.http;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.sendfax.status.AuthenticationMethod;
+import com.retarus.fax.base.sendfax.status.StatusPush;
+import com.retarus.fax.base.sendfax.status.StatusReportOptions;
+import com.retarus.fax.exception.ApiException;
+import com.retarus.fax.utils.JsonCodec;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
+import static org.apache.http.HttpStatus.SC_METHOD_NOT_ALLOWED;
+import static org.apache.http.HttpStatus.SC_OK;
+import static org.apache.http.HttpStatus.SC_REQUEST_TOO_LONG;
+import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
+import static org.apache.http.HttpStatus.SC_UNAUTHORIZED;
+
+/**
+ * @author thiagon
+ * <p>
+ * Embedded HTTP server receiving the status reports Retarus pushes when a fax job is done, instead of polling for them.
+ * <br>Each status push is checked against the configured authentication method, its body is bound into FaxStatusReport objects
+ * while it is read, and the reports are put in a bounded queue, answered with 200 once they are queued. Worker threads take the
+ * reports from the queue and hand them to the listeners.
+ * <br>When the queue stays full for the offer timeout, the status push is answered with 503, so the server pushes it again later;
+ * the reports of a request taken before the queue was full are handed to the listeners again with the repeated push.
+ * <br>A report is answered before the listeners run, so a listener that throws does not get it again from the push. The reports stay
+ * available on the server until they are deleted, so a ReportPoller can pick up the ones the listeners failed on.
+ * <br>{@link #statusPush()} generates the StatusPush options that make Retarus push to this receiver with its credentials.
+ * HTTP_BASIC and HTTP_DIGEST are checked by the receiver; OAUTH tokens can only be checked by the authorization server, so it is not supported.
+ */
+public class StatusPushReceiver implements Closeable {
+
+    private static final String THREAD_NAME_PREFIX = "retarus-status-push-";
+
+    private final String host;
+    private final int port;
+    private final String path;
+    private final String publicUrl;
+    private final AuthenticationMethod authenticationMethod;
+    private final String username;
+    private final String password;
+    private final StatusPushAuthenticator authenticator;
+    private final List<ReportListener> listeners;
+    private final BlockingQueue<FaxStatusReport> queue;
+    private final int workers;
+    private final int httpThreads;
+    private final long offerTimeoutNanos;
+    private final long maxBodySize;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder unauthorized = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private final LongAdder overloaded = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder listenerFailures = new LongAdder();
+
+    private HttpServer server;
+    private ExecutorService httpExecutor;
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private volatile boolean closed;
+
+    private StatusPushReceiver(StatusPushReceiverBuilder builder) {
+        this.host = builder.host;
+        this.port = builder.port;
+        this.path = builder.path;
+        this.publicUrl = builder.publicUrl;
+        this.authenticationMethod = builder.authenticationMethod;
+        this.username = builder.username;
+        this.password = builder.password;
+        this.authenticator = new StatusPushAuthenticator(builder.authenticationMethod, builder.username, builder.password);
+        this.listeners = new ArrayList<>(builder.listeners);
+        this.queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+        this.workers = builder.workers;
+        this.httpThreads = builder.httpThreads;
+        this.offerTimeoutNanos = builder.offerTimeout.toNanos();
+        this.maxBodySize = builder.maxBodySize;
+    }
+
+    public static StatusPushReceiverBuilder builder() {
+        return new StatusPushReceiverBuilder();
+    }
+
+    /**
+     * Binds the receiver to its address and starts to receive status pushes.
+     *
+     * @throws IOException           if the address cannot be bound
+     * @throws IllegalStateException if the receiver is already started or closed
+     */
+    public synchronized void start() throws IOException {
+        if (server != null || closed) {
+            throw new IllegalStateException("The status push receiver can only be started once.");
+        }
+        InetSocketAddress address = host == null ? new InetSocketAddress(port) : new InetSocketAddress(host, port);
+        HttpServer httpServer = HttpServer.create(address, 0);
+        AtomicInteger threadCount = new AtomicInteger();
+        httpExecutor = Executors.newFixedThreadPool(httpThreads, runnable -> daemon(runnable, "http-" + threadCount.incrementAndGet()));
+        httpServer.createContext(path, this::handle);
+        httpServer.setExecutor(httpExecutor);
+        for (int i = 1; i <= workers; i++) {
+            Thread worker = daemon(this::dispatch, "worker-" + i);
+            workerThreads.add(worker);
+            worker.start();
+        }
+        httpServer.start();
+        server = httpServer;
+    }
+
+    /**
+     * @return the address the receiver is bound to, with the port chosen by the system if the port was 0
+     * @throws IllegalStateException if the receiver is not started
+     */
+    public InetSocketAddress getAddress() {
+        HttpServer httpServer = server;
+        if (httpServer == null) {
+            throw new IllegalStateException("The status push receiver is not started.");
+        }
+        return httpServer.getAddress();
+    }
+
+    /**
+     * @return the url Retarus pushes the status reports to: the public url if one is set, otherwise the local url of the receiver
+     * @throws IllegalStateException if no public url is set and the receiver is not started
+     */
+    public String getUrl() {
+        if (publicUrl != null) {
+            return publicUrl;
+        }
+        InetSocketAddress address = getAddress();
+        String hostName = host != null ? host : address.getAddress().isAnyLocalAddress() ? "localhost" : address.getHostString();
+        return "http://" + hostName + ":" + address.getPort() + path;
+    }
+
+    /**
+     * @return the StatusPush options that make Retarus push the status reports of a fax job to this receiver, with its credentials
+     * @throws IllegalStateException if no public url is set and the receiver is not started
+     */
+    public StatusPush statusPush() {
+        return StatusPush.builder()
+                .url(getUrl())
+                .authenticationMethod(authenticationMethod)
+                .username(username)
+                .password(password)
+                .build();
+    }
+
+    /**
+     * @return the StatusReportOptions of a fax request, with the StatusPush options of this receiver
+     * @throws IllegalStateException if no public url is set and the receiver is not started
+     */
+    public StatusReportOptions statusReportOptions() {
+        return StatusReportOptions.builder().statusPush(statusPush()).build();
+    }
+
+    /**
+     * @return a snapshot of the metrics of the receiver
+     */
+    public StatusPushMetrics getMetrics() {
+        return new StatusPushMetrics(requests.sum(), unauthorized.sum(), malformed.sum(), overloaded.sum(), received.sum(), dispatched.sum(),
+                listenerFailures.sum(), queue.size());
+    }
+
+    /**
+     * Stops receiving status pushes, waits up to a second for the requests in progress, and hands the queued reports to the listeners.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (server != null) {
+            server.stop(1);
+            httpExecutor.shutdown();
+            try {
+                httpExecutor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Thread worker : workerThreads) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.increment();
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                exchange.sendResponseHeaders(SC_METHOD_NOT_ALLOWED, -1);
+                return;
+            }
+            if (!authenticator.authenticate(exchange.getRequestMethod(), exchange.getRequestURI().toString(),
+                    exchange.getRequestHeaders().getFirst("Authorization"))) {
+                unauthorized.increment();
+                discard(exchange.getRequestBody());
+                exchange.getResponseHeaders().set("WWW-Authenticate", authenticator.challenge());
+                exchange.sendResponseHeaders(SC_UNAUTHORIZED, -1);
+                return;
+            }
+            String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+            if (contentLength != null && parseLength(contentLength) > maxBodySize) {
+                malformed.increment();
+                exchange.sendResponseHeaders(SC_REQUEST_TOO_LONG, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(receive(exchange.getRequestBody()), -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Binds the reports of the body one by one, a single report or an array of them, and queues each of them.
+     *
+     * @return the status code of the response
+     */
+    private int receive(InputStream body) throws IOException {
+        try (JsonParser parser = JsonCodec.FAX_STATUS_REPORT_READER.createParser(new LimitedInputStream(body, maxBodySize))) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                return offer(JsonCodec.FAX_STATUS_REPORT_READER.readValue(parser)) ? SC_OK : SC_SERVICE_UNAVAILABLE;
+            } else if (token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (!offer(JsonCodec.FAX_STATUS_REPORT_READER.readValue(parser))) {
+                        return SC_SERVICE_UNAVAILABLE;
+                    }
+                }
+                return SC_OK;
+            }
+            malformed.increment();
+            return SC_BAD_REQUEST;
+        } catch (BodyTooLargeException e) {
+            malformed.increment();
+            return SC_REQUEST_TOO_LONG;
+        } catch (JsonProcessingException e) {
+            malformed.increment();
+            return SC_BAD_REQUEST;
+        }
+    }
+
+    private boolean offer(FaxStatusReport report) {
+        try {
+            if (!closed && queue.offer(report, offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                received.increment();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        overloaded.increment();
+        return false;
+    }
+
+    private void dispatch() {
+        while (!closed || !queue.isEmpty()) {
+            FaxStatusReport report;
+            try {
+                report = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (report == null) {
+                continue;
+            }
+            boolean delivered = true;
+            for (ReportListener listener : listeners) {
+                try {
+                    listener.onReport(report);
+                } catch (Exception e) {
+                    listenerFailures.increment();
+                    delivered = false;
+                    break;
+                }
+            }
+            if (delivered) {
+                dispatched.increment();
+            }
+        }
+    }
+
+    /**
+     * Reads the body of a rejected request up to the maximum body size, so the connection can be kept for the request repeated with credentials.
+     */
+    private void discard(InputStream body) throws IOException {
+        byte[] buffer = new byte[8192];
+        long remaining = maxBodySize;
+        int read;
+        while (remaining > 0 && (read = body.read(buffer, 0, (int) Math.min(buffer.length, remaining))) >= 0) {
+            remaining -= read;
+        }
+    }
+
+    private static long parseLength(String contentLength) {
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static class BodyTooLargeException extends IOException {
+        private BodyTooLargeException() {
+            super("The body of the status push is too large.");
+        }
+    }
+
+    /**
+     * Fails the read once more than the limit was read, so a large body is not read to the end.
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        private LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0 && --remaining < 0) {
+                throw new BodyTooLargeException();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0 && (remaining -= read) < 0) {
+                throw new BodyTooLargeException();
+            }
+            return read;
+        }
+    }
+
+    public static class StatusPushReceiverBuilder {
+        private String host;
+        private int port;
+        private String path = "/fax/status";
+        private String publicUrl;
+        private AuthenticationMethod authenticationMethod = AuthenticationMethod.NONE;
+        private String username;
+        private String password;
+        private final List<ReportListener> listeners = new ArrayList<>();
+        private int queueCapacity = 1024;
+        private int workers = 1;
+        private int httpThreads = 4;
+        private Duration offerTimeout = Duration.ofSeconds(1);
+        private long maxBodySize = 1024 * 1024;
+
+        private StatusPushReceiverBuilder() {
+        }
+
+        /**
+         * @param host The host name or address to bind to. Defaults to all local addresses.
+         * @return the builder
+         */
+        public StatusPushReceiverBuilder host(String host) {
+            this.host = host;
+            return this;
+        }
+
+        /**
+         * @param port The port to bind to. Defaults to 0, a free port chosen by the system.
+         * @return the builder
+         * @throws ApiException if the port is out of range
+         */
+        public StatusPushReceiverBuilder port(int port) {
+            if (port < 0 || port > 65535) {
+                throw new ApiException("The port must be between 0 and 65535.");
+            }
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param path The path the status pushes are received on. Defaults to /fax/status.
+         * @return the builder
+         * @throws ApiException if the path does not start with a slash
+         */
+        public StatusPushReceiverBuilder path(String path) {
+            if (path == null || !path.startsWith("/")) {
+                throw new ApiException("The path must start with a slash.");
+            }
+            this.path = path;
+            return this;
+        }
+
+        /**
+         * @param publicUrl The url Retarus reaches the receiver on, like the url of a reverse proxy in front of it. Defaults to the local url.
+         * @return the builder
+         */
+        public StatusPushReceiverBuilder publicUrl(String publicUrl) {
+            this.publicUrl = publicUrl;
+            return this;
+        }
+
+        /**
+         * @param authenticationMethod The authentication method of the status pushes, NONE, HTTP_BASIC or HTTP_DIGEST. Defaults to NONE.
+         * @param username             The username of the status pushes, not used with NONE.
+         * @param password             The password of the status pushes, not used with NONE.
+         * @return the builder
+         * @throws ApiException if the method is OAUTH, or if the credentials are missing
+         */
+        public StatusPushReceiverBuilder authentication(AuthenticationMethod authenticationMethod, String username, String password) {
+            if (authenticationMethod == AuthenticationMethod.OAUTH) {
+                throw new ApiException("OAUTH tokens cannot be checked by the status push receiver, use HTTP_BASIC or HTTP_DIGEST.");
+            }
+            if (authenticationMethod != null && authenticationMethod != AuthenticationMethod.NONE && (isBlank(username) || password == null)) {
+                throw new ApiException("The username and password cannot be null or empty.");
+            }
+            this.authenticationMethod = authenticationMethod == null ? AuthenticationMethod.NONE : authenticationMethod;
+            this.username = username;
+            this.password = password;
+            return this;
+        }
+
+        /**
+         * @param listener A listener of the reports, called for each report after the listeners added before it.
+         * @return the builder
+         * @throws ApiException if the listener is null
+         */
+        public StatusPushReceiverBuilder listener(ReportListener listener) {
+            if (listener == null) {
+                throw new ApiException("The listener cannot be null.");
+            }
+            listeners.add(listener);
+            return this;
+        }
+
+        /**
+         * @param queueCapacity The maximum number of reports received and not handed to the listeners yet. Defaults to 1024.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public StatusPushReceiverBuilder queueCapacity(int queueCapacity) {
+            if (queueCapacity <= 0) {
+                throw new ApiException("The queue capacity must be greater than 0.");
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * @param workers The number of threads handing the reports to the listeners. Defaults to 1, the reports are handed in the order they are received.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public StatusPushReceiverBuilder workers(int workers) {
+            if (workers <= 0) {
+                throw new ApiException("The number of workers must be greater than 0.");
+            }
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * @param httpThreads The number of threads reading the status pushes. Defaults to 4.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public StatusPushReceiverBuilder httpThreads(int httpThreads) {
+            if (httpThreads <= 0) {
+                throw new ApiException("The number of http threads must be greater than 0.");
+            }
+            this.httpThreads = httpThreads;
+            return this;
+        }
+
+        /**
+         * @param offerTimeout The maximum time a status push waits for room in the queue before it is answered with 503. Defaults to 1 second.
+         * @return the builder
+         * @throws ApiException if the timeout is null or negative
+         */
+        public StatusPushReceiverBuilder offerTimeout(Duration offerTimeout) {
+            if (offerTimeout == null || offerTimeout.isNegative()) {
+                throw new ApiException("The offer timeout cannot be negative.");
+            }
+            this.offerTimeout = offerTimeout;
+            return this;
+        }
+
+        /**
+         * @param maxBodySize The maximum size of the body of a status push, in bytes, larger ones are answered with 413. Defaults to 1 MB.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public StatusPushReceiverBuilder maxBodySize(long maxBodySize) {
+            if (maxBodySize <= 0) {
+                throw new ApiException("The maximum body size must be greater than 0.");
+            }
+            this.maxBodySize = maxBodySize;
+            return this;
+        }
+
+        /**
+         * @return the receiver, not started yet
+         * @throws ApiException if the listeners are missing
+         */
+        public StatusPushReceiver build() {
+            if (listeners.isEmpty()) {
+                throw new ApiException("The status push receiver needs at least one listener.");
+            }
+            return new StatusPushReceiver(this);
+        }
+    }
+}
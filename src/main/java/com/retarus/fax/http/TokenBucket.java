@@ -0,0 +1,75 @@
+package com.retarus.fax.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * @author thiagon
+ * <p>
+ * Lock-free token bucket, refilled with one permit per interval up to its burst size.
+ * <br>The bucket is kept as the single time at which it is full again (the theoretical arrival time of the generic cell rate algorithm),
+ * so taking a permit is a single compare-and-set, and a bucket with permits left is never contended by a lock.
+ */
+class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final LongSupplier clock;
+
+    /**
+     * The time at which all permits taken so far are paid back, at one permit per interval.
+     */
+    private final AtomicLong fullAt;
+
+    TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    TokenBucket(double permitsPerSecond, int burst, LongSupplier clock) {
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = intervalNanos * burst;
+        this.clock = clock;
+        this.fullAt = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Takes a permit if one is available.
+     *
+     * @return true if the permit is taken, false if the bucket is empty
+     */
+    boolean tryAcquire() {
+        return reserve(0) == 0;
+    }
+
+    /**
+     * Reserves the next permit, if it is available within the given time.
+     *
+     * @param maxWaitNanos the longest wait accepted for the permit
+     * @return the time to wait before the permit can be used, 0 if it can be used at once, -1 if it is not reserved
+     * because it is not available in time
+     */
+    long reserve(long maxWaitNanos) {
+        while (true) {
+            long now = clock.getAsLong();
+            long current = fullAt.get();
+            // An idle bucket is full, it does not save the permits beyond its burst size
+            long next = Math.max(current, now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return Math.max(0, wait);
+            }
+        }
+    }
+
+    /**
+     * @return the number of permits that can be taken at once
+     */
+    int getAvailablePermits() {
+        long now = clock.getAsLong();
+        return (int) Math.max(0, (burstNanos - Math.max(0, fullAt.get() - now)) / intervalNanos);
+    }
+}
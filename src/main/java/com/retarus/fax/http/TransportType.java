@@ -0,0 +1,49 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.rest.URLProvider;
+import com.retarus.fax.exception.ApiException;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * @author thiagon
+ * <p>
+ * Enum for the HTTP transports that can be selected when building a FaxServiceClient.
+ * <p>
+ * Possible values are:<p>
+ * APACHE_HTTP_CLIENT: Apache HttpClient 4.x with a pooled connection manager (HTTP/1.1), available on Java 8 or later.
+ * Its requests are blocking, so each asynchronous request in flight holds a thread of the RetarusFax executor service<p>
+ * JDK_HTTP_CLIENT: java.net.http.HttpClient, negotiating HTTP/2 so concurrent requests share a few multiplexed connections, available on Java 11 or later.
+ * Its asynchronous requests do not hold a thread while in flight and its request bodies are streamed, it is the transport for many requests in flight
+ */
+public enum TransportType {
+    APACHE_HTTP_CLIENT,
+    JDK_HTTP_CLIENT;
+
+    //The JDK transport is shipped in the Java 11 part of the multi-release jar, so it is loaded by name
+    private static final String JDK_HTTP_CLIENT_CLASS = "com.retarus.fax.http.JdkHttpClient";
+
+    /**
+     * Creates a new transport of this type.
+     *
+     * @param connectionPoolConfig The configuration of the HTTP connection pool.
+     * @param urlProvider          The location/region the requests are sent to.
+     * @return the transport
+     * @throws ApiException if the transport is not available on the running Java version
+     */
+    public FaxTransport create(ConnectionPoolConfig connectionPoolConfig, URLProvider urlProvider) {
+        if (this == APACHE_HTTP_CLIENT) {
+            return new HttpClient(connectionPoolConfig, urlProvider);
+        }
+
+        try {
+            return (FaxTransport) Class.forName(JDK_HTTP_CLIENT_CLASS)
+                    .getDeclaredConstructor(ConnectionPoolConfig.class, URLProvider.class)
+                    .newInstance(connectionPoolConfig, urlProvider);
+        } catch (ClassNotFoundException | UnsupportedClassVersionError e) {
+            throw new ApiException("The JDK HTTP client transport requires Java 11 or later.", e);
+        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+            throw new ApiException("Cannot create the JDK HTTP client transport.", e);
+        }
+    }
+}
@@ -2,9 +2,16 @@ package com.retarus.fax.utils;
 
 import com.retarus.fax.exception.ApiException;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Base64;
 
 
@@ -27,4 +34,40 @@ public class FileUtils {
             throw new ApiException("Error reading file", e);
         }
     }
+
+    /**
+     * Memory-map a file, read-only. The mapping stays valid after this method returns, until the buffer is garbage collected.
+     *
+     * @param path the file to map
+     * @return the content of the file
+     * @throws ApiException if the file cannot be read or is larger than 2 GB
+     */
+    public static MappedByteBuffer mapFile(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new ApiException("Error reading file, the file is larger than 2 GB");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new ApiException("Error reading file", e);
+        }
+    }
+
+    /**
+     * Read a stream to its end and convert it to a base64 string.
+     *
+     * @param inputStream the stream to read, left open
+     * @return the base64 string
+     * @throws IOException if the stream cannot be read
+     */
+    public static String convertToBase64(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream base64 = new ByteArrayOutputStream();
+        try (OutputStream encoder = Base64.getEncoder().wrap(base64)) {
+            byte[] buffer = new byte[8192];
+            for (int read = inputStream.read(buffer); read != -1; read = inputStream.read(buffer)) {
+                encoder.write(buffer, 0, read);
+            }
+        }
+        return base64.toString("US-ASCII");
+    }
 }
@@ -0,0 +1,124 @@
+package com.retarus.fax.utils;
+
+import org.apache.http.HttpResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Utility class for the asynchronous requests.
+ * Please note that this class is not part of the public API and may change without notice.
+ *
+ * @author thiagon
+ */
+public class FutureUtils {
+
+    /**
+     * Single daemon thread that completes the futures whose timeout expired, it never runs the requests themselves.
+     */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "retarus-fax-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FutureUtils() {
+    }
+
+    /**
+     * Handle the response of an asynchronous request, the same way the blocking requests handle it.
+     * <br>The handler runs on the thread that completes the request, so no thread is held while the request is in flight.
+     *
+     * @param responseFuture the response of the request
+     * @param onResponse     converts the response to the result
+     * @param onIOException  converts an error while sending the request to the result
+     * @param <T>            the type of the result
+     * @return the result, completed exceptionally if the request fails with an error other than an IOException or if the handlers throw
+     */
+    public static <T> CompletableFuture<T> handleResponse(CompletableFuture<HttpResponse> responseFuture, Function<HttpResponse, T> onResponse, Function<IOException, T> onIOException) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        responseFuture.whenComplete((response, throwable) -> {
+            try {
+                if (throwable == null) {
+                    result.complete(onResponse.apply(response));
+                } else if (unwrap(throwable) instanceof IOException) {
+                    result.complete(onIOException.apply((IOException) unwrap(throwable)));
+                } else {
+                    result.completeExceptionally(unwrap(throwable));
+                }
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Unwrap the cause of the exception a future was completed with.
+     *
+     * @param throwable the exception
+     * @return the cause, or the exception itself if it does not wrap another one
+     */
+    public static Throwable unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Complete a future with a fallback value if it does not complete in time.
+     * <br>The original future is cancelled on timeout, a request that is already in flight is not aborted, but its late result is ignored.
+     *
+     * @param future   the future to wait for
+     * @param timeout  the maximum time to wait, null to wait without limit
+     * @param fallback supplies the result if the timeout expires
+     * @param <T>      the type of the result
+     * @return a future completed with the result of the original future, or with the fallback value on timeout
+     */
+    public static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, Duration timeout, Supplier<T> fallback) {
+        if (timeout == null || future.isDone()) {
+            return future;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ScheduledFuture<?> timer = TIMER.schedule(() -> {
+            try {
+                if (result.complete(fallback.get())) {
+                    future.cancel(false);
+                }
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+        future.whenComplete((value, throwable) -> {
+            timer.cancel(false);
+            if (throwable == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(unwrap(throwable));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Schedule a task on the timer thread, which only waits for the delays, so the task must hand any work off instead of running it.
+     *
+     * @param task       the task to run once the delay is over
+     * @param delayNanos the delay, in nanoseconds
+     * @return the scheduled task, which can be cancelled
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long delayNanos) {
+        return TIMER.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,45 @@
+package com.retarus.fax.utils;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.retarus.fax.base.bulkoperation.FaxBulkOperation;
+import com.retarus.fax.base.responses.FaxDeletionReport;
+import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.sendfax.FaxRequest;
+
+/**
+ * Shared readers and writers for the JSON exchanged with the Retarus Fax API.
+ * <br>The readers and writers are immutable and thread-safe, they are built once so the serializer and deserializer caches
+ * of Jackson are reused by every request instead of being rebuilt by a new ObjectMapper on each call.
+ * Please note that this class is not part of the public API and may change without notice.
+ *
+ * @author thiagon
+ */
+public class JsonCodec {
+
+    //Unknown status values of the reports are read as null
+    private static final ObjectMapper STATUS_REPORT_MAPPER = new ObjectMapper()
+            .enable(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL);
+
+    //Unknown reasons of the deletion reports are read as the default reason
+    private static final ObjectMapper DELETION_REPORT_MAPPER = new ObjectMapper()
+            .enable(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_USING_DEFAULT_VALUE);
+
+    private static final ObjectMapper REQUEST_MAPPER = new ObjectMapper();
+
+    public static final ObjectReader FAX_STATUS_REPORT_READER = STATUS_REPORT_MAPPER.readerFor(FaxStatusReport.class);
+
+    public static final ObjectReader FAX_DELETION_REPORT_READER = DELETION_REPORT_MAPPER.readerFor(FaxDeletionReport.class);
+
+    //Reader for untyped responses, read as a JsonNode tree
+    public static final ObjectReader JSON_TREE_READER = REQUEST_MAPPER.reader();
+
+    public static final ObjectWriter FAX_REQUEST_WRITER = REQUEST_MAPPER.writerFor(FaxRequest.class);
+
+    public static final ObjectWriter FAX_BULK_OPERATION_WRITER = REQUEST_MAPPER.writerFor(FaxBulkOperation.class);
+
+    private JsonCodec() {
+    }
+}
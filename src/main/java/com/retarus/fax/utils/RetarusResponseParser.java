@@ -1,18 +1,24 @@
 package com.retarus.fax.utils;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.retarus.fax.base.CloseableIterator;
 import com.retarus.fax.base.responses.FaxDeletionReport;
 import com.retarus.fax.base.responses.FaxStatusReport;
 import com.retarus.fax.base.responses.Reason;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
-import org.apache.http.util.EntityUtils;
+import org.apache.http.util.Args;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 
 public class RetarusResponseParser {
@@ -32,20 +38,17 @@ public class RetarusResponseParser {
      * @throws IOException if the HTTP response cannot be parsed
      */
     public static Optional<FaxStatusReport> parseHttpResponseToJobGetReport(HttpResponse httpResponse) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.enable(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL);
-        // Read the HTTP response body as a string
-        HttpEntity entity = httpResponse.getEntity();
-        String responseBody = EntityUtils.toString(entity);
-
-        // Parse the JSON string to a RecipientStatus object
-        FaxStatusReport faxStatusReport = objectMapper.readValue(responseBody, FaxStatusReport.class);
+        // Bind the HTTP response body straight to a FaxStatusReport object
+        HttpEntity entity = Args.notNull(httpResponse.getEntity(), "HTTP entity");
+        FaxStatusReport faxStatusReport = JsonCodec.FAX_STATUS_REPORT_READER.readValue(entity.getContent());
 
         return Optional.ofNullable(faxStatusReport);
     }
 
     /**
-     * Parse the HTTP response in String to a list of FaxStatusReport objects.
+     * Parse the HTTP response to a list of FaxStatusReport objects.
+     * <br>The body is streamed, each report is bound as soon as it is read, so the whole body is never held as a String or a JsonNode tree.
+     * The response of sendRequest is already buffered, only a response of sendStreamingRequest is read from the connection while parsing.
      *
      * @param httpResponse the HTTP response
      * @return a list of FaxStatusReport objects
@@ -53,35 +56,19 @@ public class RetarusResponseParser {
      */
     //Parse the HTTP response to a FaxStatusReport list object.
     public static List<FaxStatusReport> parseHttpResponseToJobGetReportsList(HttpResponse httpResponse) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.enable(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL);
-        // Read the HTTP response body as a string
-        HttpEntity entity = httpResponse.getEntity();
-        String responseBody = EntityUtils.toString(entity);
-        JsonNode jsonNode = objectMapper.readTree(responseBody); // parse the JSON string into a Jackson JsonNode
-        JsonNode reportsNode = jsonNode.get(REPORTS_TAG); // get the "reports" array from the JsonNode
-        return objectMapper.convertValue(reportsNode, new TypeReference<List<FaxStatusReport>>() {
-        });
+        return readReports(httpResponse.getEntity(), JsonCodec.FAX_STATUS_REPORT_READER);
     }
 
     /**
-     * Parse the HTTP response in String to a list of FaxDeletionReport objects.
+     * Parse the HTTP response to a list of FaxDeletionReport objects.
+     * <br>The body is streamed, each report is bound as soon as it is read.
      *
      * @param httpResponse the HTTP response
      * @return a list of FaxDeletionReport objects
      * @throws IOException if the HTTP response cannot be parsed
      */
     public static List<FaxDeletionReport> parseHttpResponseToJobDeleteReportsList(HttpResponse httpResponse) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.enable(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_USING_DEFAULT_VALUE);
-        // Read the HTTP response body as a string
-        HttpEntity entity = httpResponse.getEntity();
-        String responseBody = EntityUtils.toString(entity);
-
-        JsonNode jsonNode = objectMapper.readTree(responseBody); // parse the JSON string into a Jackson JsonNode
-        JsonNode reportsNode = jsonNode.get(REPORTS_TAG); // get the "reports" array from the JsonNode
-        return objectMapper.convertValue(reportsNode, new TypeReference<List<FaxDeletionReport>>() {
-        });
+        return readReports(httpResponse.getEntity(), JsonCodec.FAX_DELETION_REPORT_READER);
     }
 
     /**
@@ -92,20 +79,208 @@ public class RetarusResponseParser {
      */
     public static FaxDeletionReport parseHttpResponseToJobDeleteStatus(HttpResponse httpResponse) {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            objectMapper.enable(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_USING_DEFAULT_VALUE);
-            // Read the HTTP response body as a string
-            HttpEntity entity = httpResponse.getEntity();
-            String responseBody = EntityUtils.toString(entity);
-
-            // Parse the JSON string to a FaxDeletionReport object
-            return objectMapper.readValue(responseBody, FaxDeletionReport.class);
+            // Bind the HTTP response body straight to a FaxDeletionReport object
+            HttpEntity entity = Args.notNull(httpResponse.getEntity(), "HTTP entity");
+            return JsonCodec.FAX_DELETION_REPORT_READER.readValue(entity.getContent());
         } catch (IOException e) {
             return FaxDeletionReport.builder().deleted(false).reason(Reason.INTERNAL_ERROR).build();
         }
+    }
+
+    /**
+     * Iterate over the reports of the HTTP response, binding each FaxStatusReport object only when it is requested.
+     * <br>Closing the iterator before the last report aborts the response, without reading the remaining reports.
+     *
+     * @param httpResponse the HTTP response, with a body that is not buffered
+     * @return the iterator over the reports, empty if the response has no reports
+     * @throws IOException if the HTTP response cannot be parsed up to its reports
+     */
+    public static CloseableIterator<FaxStatusReport> iterateHttpResponseToJobGetReports(HttpResponse httpResponse) throws IOException {
+        return iterateReports(httpResponse, JsonCodec.FAX_STATUS_REPORT_READER);
+    }
+
+    /**
+     * Iterate over the deletion reports of the HTTP response, binding each FaxDeletionReport object only when it is requested.
+     * <br>Closing the iterator before the last report aborts the response, the reports are deleted on the server all the same.
+     *
+     * @param httpResponse the HTTP response, with a body that is not buffered
+     * @return the iterator over the deletion reports, empty if the response has no reports
+     * @throws IOException if the HTTP response cannot be parsed up to its reports
+     */
+    public static CloseableIterator<FaxDeletionReport> iterateHttpResponseToJobDeleteReports(HttpResponse httpResponse) throws IOException {
+        return iterateReports(httpResponse, JsonCodec.FAX_DELETION_REPORT_READER);
+    }
+
+    /**
+     * Stream the "reports" array of the response body, binding its elements one by one with the given reader.
+     * <br>The other fields of the body are skipped without being bound.
+     *
+     * @param entity        the response body
+     * @param elementReader the reader of a single report
+     * @param <T>           the type of the reports
+     * @return the list of reports, or null if the response has no reports
+     * @throws IOException if the response body cannot be parsed
+     */
+    private static <T> List<T> readReports(HttpEntity entity, ObjectReader elementReader) throws IOException {
+        Args.notNull(entity, "HTTP entity");
+        try (InputStream inputStream = entity.getContent(); JsonParser parser = elementReader.createParser(inputStream)) {
+            if (!seekReports(parser)) {
+                return null;
+            }
+            List<T> reports = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                reports.add(elementReader.readValue(parser));
+            }
+            return reports;
+        }
+    }
+
+    /**
+     * Open the body of the response and position the parser on the "reports" array, the reports are bound while iterating.
+     *
+     * @param httpResponse  the HTTP response
+     * @param elementReader the reader of a single report
+     * @param <T>           the type of the reports
+     * @return the iterator over the reports
+     * @throws IOException if the response body cannot be parsed up to the reports
+     */
+    private static <T> CloseableIterator<T> iterateReports(HttpResponse httpResponse, ObjectReader elementReader) throws IOException {
+        HttpEntity entity = Args.notNull(httpResponse.getEntity(), "HTTP entity");
+        InputStream inputStream = entity.getContent();
+        JsonParser parser = null;
+        try {
+            parser = elementReader.createParser(inputStream);
+            if (!seekReports(parser)) {
+                closeQuietly(parser);
+                closeQuietly(inputStream);
+                return CloseableIterator.empty();
+            }
+            return new ReportIterator<>(httpResponse, inputStream, parser, elementReader);
+        } catch (IOException | RuntimeException e) {
+            abort(httpResponse, inputStream, parser);
+            throw e;
+        }
+    }
+
+    /**
+     * Position the parser on the start of the "reports" array, skipping the other fields and their children.
+     *
+     * @param parser the parser, before the first token of the body
+     * @return true if the parser is on the start of the array, false if the body has no reports
+     * @throws IOException if the body cannot be parsed
+     */
+    private static boolean seekReports(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
 
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+            if (!REPORTS_TAG.equals(fieldName)) {
+                parser.skipChildren();
+            } else if (valueToken == JsonToken.VALUE_NULL) {
+                return false;
+            } else if (valueToken != JsonToken.START_ARRAY) {
+                throw MismatchedInputException.from(parser, List.class, "The \"" + REPORTS_TAG + "\" field is not an array");
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
 
+    /**
+     * Abort the response, closing the connection if the response can be closed instead of reading the rest of the body.
+     */
+    private static void abort(HttpResponse httpResponse, InputStream inputStream, JsonParser parser) {
+        if (httpResponse instanceof Closeable) {
+            closeQuietly((Closeable) httpResponse);
+        }
+        closeQuietly(parser);
+        closeQuietly(inputStream);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // nothing left to release
+        }
     }
 
+    /**
+     * Iterator binding the elements of the "reports" array of a response body on demand.
+     *
+     * @param <T> the type of the reports
+     */
+    private static class ReportIterator<T> implements CloseableIterator<T> {
+        private final HttpResponse httpResponse;
+        private final InputStream inputStream;
+        private final JsonParser parser;
+        private final ObjectReader elementReader;
+        private JsonToken nextToken;
+        private boolean closed;
+
+        private ReportIterator(HttpResponse httpResponse, InputStream inputStream, JsonParser parser, ObjectReader elementReader) {
+            this.httpResponse = httpResponse;
+            this.inputStream = inputStream;
+            this.parser = parser;
+            this.elementReader = elementReader;
+        }
 
+        /**
+         * @throws UncheckedIOException if the body cannot be parsed, the iterator is closed
+         */
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+            if (nextToken == null) {
+                try {
+                    nextToken = parser.nextToken();
+                } catch (IOException e) {
+                    close();
+                    throw new UncheckedIOException(e);
+                }
+            }
+            if (nextToken == JsonToken.END_ARRAY) {
+                // Every report was read, the rest of the body is released normally so the connection can be reused
+                closed = true;
+                closeQuietly(parser);
+                closeQuietly(inputStream);
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * @throws UncheckedIOException if the report cannot be bound, the iterator is closed
+         */
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            nextToken = null;
+            try {
+                return elementReader.readValue(parser);
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                abort(httpResponse, inputStream, parser);
+            }
+        }
+    }
 }
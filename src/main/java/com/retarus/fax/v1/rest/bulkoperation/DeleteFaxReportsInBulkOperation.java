@@ -1,9 +1,11 @@
 package com.retarus.fax.v1.rest.bulkoperation;
 
-import com.retarus.fax.base.BulkOperation;
+import com.retarus.fax.base.ChunkedBulkOperation;
 import com.retarus.fax.base.bulkoperation.FaxBulkOperation;
 import com.retarus.fax.base.common.HttpMethod;
 import com.retarus.fax.base.responses.FaxDeletionReport;
+import com.retarus.fax.base.responses.Reason;
+import com.retarus.fax.base.rest.URLProvider;
 import com.retarus.fax.exception.ApiException;
 import com.retarus.fax.http.Fax4ApplApiClient;
 import com.retarus.fax.utils.RetarusResponseParser;
@@ -14,15 +16,25 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Class that extends the BulkOperation class and is used to delete reports in bulk.
+ * Class that extends the ChunkedBulkOperation class and is used to delete reports in bulk.
  * The input data is a list of job ids (String) and the output data is a list of FaxDeletionReport objects.
+ * Any number of job ids is split into chunks of at most 1000 and sent to every location of the client, or to the location given to the constructor.
+ * perform returns the merged reports and fails if a chunk fails, performAll and performAllAsync also return the chunks that failed.
  */
-public class DeleteFaxReportsInBulkOperation extends BulkOperation<List<String>, List<FaxDeletionReport>> {
+public class DeleteFaxReportsInBulkOperation extends ChunkedBulkOperation<FaxDeletionReport> {
 
     public DeleteFaxReportsInBulkOperation(Fax4ApplApiClient apiClient) {
         super(apiClient);
     }
 
+    /**
+     * @param apiClient   the client used to send the request
+     * @param urlProvider the location that holds the reports to delete
+     */
+    public DeleteFaxReportsInBulkOperation(Fax4ApplApiClient apiClient, URLProvider urlProvider) {
+        super(apiClient, urlProvider);
+    }
+
     /**
      * Method that converts the HTTP response to a list of FaxDeletionReport objects.
      *
@@ -45,6 +57,29 @@ public class DeleteFaxReportsInBulkOperation extends BulkOperation<List<String>,
         return new ArrayList<>();
     }
 
+    @Override
+    protected String getJobId(FaxDeletionReport report) {
+        return report.getJobId();
+    }
+
+    /**
+     * @param report a deletion report
+     * @return true unless the location does not know the job id
+     */
+    @Override
+    protected boolean isFound(FaxDeletionReport report) {
+        return report.getReason() != Reason.NOT_FOUND;
+    }
+
+    /**
+     * @param jobId a job id no location knows
+     * @return a report telling that the job id was not deleted because it is not found
+     */
+    @Override
+    protected FaxDeletionReport notFoundReport(String jobId) {
+        return FaxDeletionReport.builder().jobId(jobId).deleted(false).reason(Reason.NOT_FOUND).build();
+    }
+
     /**
      * Method that generates the request to be sent to the server.
      *
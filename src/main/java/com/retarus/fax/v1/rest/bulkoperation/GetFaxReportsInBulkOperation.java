@@ -1,9 +1,11 @@
 package com.retarus.fax.v1.rest.bulkoperation;
 
-import com.retarus.fax.base.BulkOperation;
+import com.retarus.fax.base.ChunkedBulkOperation;
 import com.retarus.fax.base.bulkoperation.FaxBulkOperation;
 import com.retarus.fax.base.common.HttpMethod;
 import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.URLProvider;
 import com.retarus.fax.exception.ApiException;
 import com.retarus.fax.http.Fax4ApplApiClient;
 import com.retarus.fax.utils.RetarusResponseParser;
@@ -14,15 +16,25 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Class that extends the BulkOperation class and is used to get reports in bulk.
+ * Class that extends the ChunkedBulkOperation class and is used to get reports in bulk.
  * The input data is a list of job ids (String) and the output data is a list of FaxStatusReport objects.
+ * Any number of job ids is split into chunks of at most 1000 and sent to every location of the client, or to the location given to the constructor.
+ * perform returns the merged reports and fails if a chunk fails, performAll and performAllAsync also return the chunks that failed.
  */
-public class GetFaxReportsInBulkOperation extends BulkOperation<List<String>, List<FaxStatusReport>> {
+public class GetFaxReportsInBulkOperation extends ChunkedBulkOperation<FaxStatusReport> {
 
     public GetFaxReportsInBulkOperation(Fax4ApplApiClient apiClient) {
         super(apiClient);
     }
 
+    /**
+     * @param apiClient   the client used to send the request
+     * @param urlProvider the location that holds the reports to get
+     */
+    public GetFaxReportsInBulkOperation(Fax4ApplApiClient apiClient, URLProvider urlProvider) {
+        super(apiClient, urlProvider);
+    }
+
     /**
      * Method that converts the HTTP response to a list of FaxStatusReport objects.
      *
@@ -46,6 +58,16 @@ public class GetFaxReportsInBulkOperation extends BulkOperation<List<String>, Li
         return new ArrayList<>();
     }
 
+    @Override
+    protected String getJobId(FaxStatusReport report) {
+        return report.getJobId();
+    }
+
+    @Override
+    protected void setLocation(FaxStatusReport report, Location location) {
+        report.setLocale(location);
+    }
+
     /**
      * Method that generates the request to be sent to the server.
      *
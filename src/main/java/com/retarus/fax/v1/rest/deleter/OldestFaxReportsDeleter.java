@@ -1,19 +1,24 @@
 package com.retarus.fax.v1.rest.deleter;
 
 import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.CloseableIterator;
 import com.retarus.fax.base.Deleter;
 import com.retarus.fax.base.common.HttpMethod;
 import com.retarus.fax.base.responses.FaxDeletionReport;
 import com.retarus.fax.base.rest.RequestURL;
 import com.retarus.fax.base.rest.URLProvider;
 import com.retarus.fax.exception.ApiException;
+import com.retarus.fax.exception.AuthException;
 import com.retarus.fax.http.Fax4ApplApiClient;
+import com.retarus.fax.utils.FutureUtils;
 import com.retarus.fax.utils.RetarusResponseParser;
 import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.apache.http.HttpStatus.*;
 
@@ -36,15 +41,71 @@ public class OldestFaxReportsDeleter extends Deleter<Void, ApiResponse<List<FaxD
      */
     @Override
     public ApiResponse<List<FaxDeletionReport>> delete(Void data) {
-        String baseUrl = urlProvider.getFetchUrl() + RequestURL.DELETE_REPORTS_FOR_ACCOUNT.toString().replace(RequestURL.Constants.CUSTOMER_NUMBER_TAG, apiClient.getCustomerNumber());
-
         HttpResponse response;
         try {
-            response = apiClient.sendRequest(HttpMethod.DELETE, baseUrl);
+            response = apiClient.sendRequest(HttpMethod.DELETE, generateUrl());
         } catch (IOException e) {
             return new ApiResponse<>(new ArrayList<>(), SC_SERVICE_UNAVAILABLE, apiClient.getLocale());
         }
+        return convertResponse(response);
+    }
+
+    /**
+     * Method that performs the deletion asynchronously, without blocking a thread while the request is in flight.
+     *
+     * @param data the input data, null
+     * @return a list of FaxDeletionReport objects or an empty list for the deleted reports
+     */
+    @Override
+    public CompletableFuture<ApiResponse<List<FaxDeletionReport>>> deleteAsync(Void data) {
+        return FutureUtils.handleResponse(apiClient.sendRequestAsync(HttpMethod.DELETE, generateUrl()),
+                this::convertResponse,
+                e -> new ApiResponse<>(new ArrayList<>(), SC_SERVICE_UNAVAILABLE, apiClient.getLocale()));
+    }
+
+    /**
+     * Method that performs the deletion and iterates over the deletion reports, binding each report while it is read from the connection.
+     * <br>The reports are deleted on the server when the request is answered, closing the iterator early only skips reading the remaining deletion reports.
+     * <br>The iterator holds the connection until it is exhausted or closed, so it must be closed, best with a try-with-resources statement.
+     *
+     * @return an iterator over the deletion reports, empty if there are no reports
+     * @throws AuthException if the authentication fails while attempting to delete the reports
+     * @throws ApiException  if an error occurs while attempting to delete the reports, or while reading the deletion reports
+     */
+    public CloseableIterator<FaxDeletionReport> iterate() {
+        String url = generateUrl();
+        HttpResponse response;
+        try {
+            response = apiClient.sendStreamingRequest(HttpMethod.DELETE, url);
+        } catch (IOException e) {
+            throw new ApiException("Service Unavailable.", e, url, null, null);
+        }
+
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode == SC_OK) {
+            try {
+                return RetarusResponseParser.iterateHttpResponseToJobDeleteReports(response);
+            } catch (IOException e) {
+                throw new ApiException("Cannot read the deletion reports.", e, url, null, response);
+            }
+        }
+
+        // Release the connection, the body of an error response is not needed
+        EntityUtils.consumeQuietly(response.getEntity());
+        if (statusCode == SC_NOT_FOUND) {
+            return CloseableIterator.empty();
+        } else if (statusCode == SC_UNAUTHORIZED || statusCode == SC_BAD_REQUEST) {
+            throw new AuthException("Authentication failed.", new Throwable());
+        } else {
+            throw new ApiException("Cannot delete the reports.", new Throwable(), url, null, response);
+        }
+    }
+
+    private String generateUrl() {
+        return urlProvider.getFetchUrl() + RequestURL.DELETE_REPORTS_FOR_ACCOUNT.toString().replace(RequestURL.Constants.CUSTOMER_NUMBER_TAG, apiClient.getCustomerNumber());
+    }
 
+    private ApiResponse<List<FaxDeletionReport>> convertResponse(HttpResponse response) {
         int statusCode = response.getStatusLine().getStatusCode();
         if (statusCode == SC_OK) {
             try {
@@ -10,12 +10,14 @@ import com.retarus.fax.base.rest.URLProvider;
 import com.retarus.fax.exception.ApiException;
 import com.retarus.fax.exception.AuthException;
 import com.retarus.fax.http.Fax4ApplApiClient;
+import com.retarus.fax.utils.FutureUtils;
 import com.retarus.fax.utils.RetarusResponseParser;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.apache.http.HttpStatus.*;
 
@@ -39,16 +41,33 @@ public class SingleFaxReportDeleter extends Deleter<String, ApiResponse<Optional
      */
     @Override
     public ApiResponse<Optional<FaxDeletionReport>> delete(String jobId) {
-
-        String baseUrl = urlProvider.getFetchUrl() + RequestURL.DELETE_STATUS_REPORT_FOR_SINGLE_JOB.toString().replace(RequestURL.Constants.CUSTOMER_NUMBER_TAG, apiClient.getCustomerNumber()).replace(RequestURL.Constants.JOB_ID_TAG, jobId);
-
         HttpResponse response;
         try {
-            response = apiClient.sendRequest(HttpMethod.DELETE, baseUrl);
+            response = apiClient.sendRequest(HttpMethod.DELETE, generateUrl(jobId));
         } catch (IOException e) {
             return new ApiResponse<>(Optional.empty(), SC_SERVICE_UNAVAILABLE, urlProvider);
         }
+        return convertResponse(jobId, response);
+    }
+
+    /**
+     * Method that performs the deletion asynchronously, without blocking a thread while the request is in flight.
+     *
+     * @param jobId the id of the report to be deleted
+     * @return an optional FaxDeletionReport object
+     */
+    @Override
+    public CompletableFuture<ApiResponse<Optional<FaxDeletionReport>>> deleteAsync(String jobId) {
+        return FutureUtils.handleResponse(apiClient.sendRequestAsync(HttpMethod.DELETE, generateUrl(jobId)),
+                response -> convertResponse(jobId, response),
+                e -> new ApiResponse<>(Optional.empty(), SC_SERVICE_UNAVAILABLE, urlProvider));
+    }
+
+    private String generateUrl(String jobId) {
+        return urlProvider.getFetchUrl() + RequestURL.DELETE_STATUS_REPORT_FOR_SINGLE_JOB.toString().replace(RequestURL.Constants.CUSTOMER_NUMBER_TAG, apiClient.getCustomerNumber()).replace(RequestURL.Constants.JOB_ID_TAG, jobId);
+    }
 
+    private ApiResponse<Optional<FaxDeletionReport>> convertResponse(String jobId, HttpResponse response) {
         int statusCode = response.getStatusLine().getStatusCode();
         if (statusCode == SC_OK) {
             FaxDeletionReport faxDeletionReport = RetarusResponseParser.parseHttpResponseToJobDeleteStatus(response);
@@ -1,6 +1,7 @@
 package com.retarus.fax.v1.rest.fetcher;
 
 import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.CloseableIterator;
 import com.retarus.fax.base.Retriever;
 import com.retarus.fax.base.common.HttpMethod;
 import com.retarus.fax.base.responses.FaxStatusReport;
@@ -10,11 +11,14 @@ import com.retarus.fax.exception.ApiException;
 import com.retarus.fax.exception.AuthException;
 import com.retarus.fax.utils.RetarusResponseParser;
 import com.retarus.fax.http.Fax4ApplApiClient;
+import com.retarus.fax.utils.FutureUtils;
 import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.apache.http.HttpStatus.*;
 
@@ -30,6 +34,7 @@ public class AvailableFaxReportsRetriever extends Retriever<Void, ApiResponse<Li
 
     /**
      * Method that performs the fetching of the available reports.
+     * <br>The reports are bound while the body is read from the connection, the body is not buffered first.
      *
      * @return a list of FaxStatusReport objects or an empty list for the available reports
      * @throws AuthException if the authentication fails while attempting to fetch the available reports
@@ -37,27 +42,90 @@ public class AvailableFaxReportsRetriever extends Retriever<Void, ApiResponse<Li
      */
     @Override
     public ApiResponse<List<FaxStatusReport>> get(Void data) {
-        String baseUrl = urlProvider.getFetchUrl() + RequestURL.FETCH_REPORTS_FOR_ACCOUNT.toString().replace(RequestURL.Constants.CUSTOMER_NUMBER_TAG, apiClient.getCustomerNumber());
-
         HttpResponse response = null;
         try {
-            response = apiClient.sendRequest(HttpMethod.GET, baseUrl);
+            response = apiClient.sendStreamingRequest(HttpMethod.GET, generateUrl());
         } catch (IOException e) {
             return new ApiResponse<>(new ArrayList<>(), SC_SERVICE_UNAVAILABLE, apiClient.getLocale());
         }
+        return convertResponse(response);
+    }
+
+    /**
+     * Method that performs the fetching of the available reports asynchronously, without blocking a thread while the request is in flight.
+     *
+     * @return a list of FaxStatusReport objects or an empty list for the available reports
+     */
+    @Override
+    public CompletableFuture<ApiResponse<List<FaxStatusReport>>> getAsync(Void data) {
+        return FutureUtils.handleResponse(apiClient.sendRequestAsync(HttpMethod.GET, generateUrl()),
+                this::convertResponse,
+                e -> new ApiResponse<>(new ArrayList<>(), SC_SERVICE_UNAVAILABLE, apiClient.getLocale()));
+    }
+
+    /**
+     * Method that fetches the available reports as an iterator, binding each report while it is read from the connection.
+     * <br>The iterator holds the connection until it is exhausted or closed, so it must be closed, best with a try-with-resources statement.
+     *
+     * @return an iterator over the available reports, empty if there are no reports
+     * @throws AuthException if the authentication fails while attempting to fetch the available reports
+     * @throws ApiException  if an error occurs while attempting to fetch the available reports, or while reading them
+     */
+    public CloseableIterator<FaxStatusReport> iterate() {
+        String url = generateUrl();
+        HttpResponse response;
+        try {
+            response = apiClient.sendStreamingRequest(HttpMethod.GET, url);
+        } catch (IOException e) {
+            throw new ApiException("Service Unavailable.", e, url, null, null);
+        }
 
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode == SC_OK) {
+            try {
+                return RetarusResponseParser.iterateHttpResponseToJobGetReports(response)
+                        .map(faxStatusReport -> {
+                            faxStatusReport.setLocale(urlProvider.getLocale());
+                            return faxStatusReport;
+                        });
+            } catch (IOException e) {
+                throw new ApiException("Cannot read the available reports.", e, url, null, response);
+            }
+        }
+
+        // Release the connection, the body of an error response is not needed
+        EntityUtils.consumeQuietly(response.getEntity());
+        if (statusCode == SC_NOT_FOUND) {
+            return CloseableIterator.empty();
+        } else if (statusCode == SC_UNAUTHORIZED || statusCode == SC_BAD_REQUEST) {
+            throw new AuthException("Authentication failed.", new Throwable());
+        } else {
+            throw new ApiException("Cannot fetch the available reports.", new Throwable(), url, null, response);
+        }
+    }
+
+    private String generateUrl() {
+        return urlProvider.getFetchUrl() + RequestURL.FETCH_REPORTS_FOR_ACCOUNT.toString().replace(RequestURL.Constants.CUSTOMER_NUMBER_TAG, apiClient.getCustomerNumber());
+    }
+
+    private ApiResponse<List<FaxStatusReport>> convertResponse(HttpResponse response) {
         int statusCode = response.getStatusLine().getStatusCode();
         if (statusCode == SC_OK) {
             try {
                 List<FaxStatusReport> faxStatusReports = RetarusResponseParser.parseHttpResponseToJobGetReportsList(response);
+                // A body without reports has no reports, as for iterate
+                if (faxStatusReports == null) {
+                    faxStatusReports = new ArrayList<>();
+                }
                 faxStatusReports.forEach(faxStatusReport -> faxStatusReport.setLocale(urlProvider.getLocale()));
                 return new ApiResponse<>(faxStatusReports, statusCode, urlProvider);
             } catch (IOException e) {
                 return new ApiResponse<>(new ArrayList<>(), SC_BAD_REQUEST, apiClient.getLocale());
             }
         } else {
+            // Release the connection of a streamed response, the body of an error response is not needed
+            EntityUtils.consumeQuietly(response.getEntity());
             return new ApiResponse<>(new ArrayList<>(), statusCode, urlProvider);
         }
     }
 }
-
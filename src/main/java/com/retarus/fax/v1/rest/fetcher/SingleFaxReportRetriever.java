@@ -10,11 +10,13 @@ import com.retarus.fax.exception.ApiException;
 import com.retarus.fax.exception.AuthException;
 import com.retarus.fax.utils.RetarusResponseParser;
 import com.retarus.fax.http.Fax4ApplApiClient;
+import com.retarus.fax.utils.FutureUtils;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
 import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
@@ -34,14 +36,33 @@ public class SingleFaxReportRetriever extends Retriever<String, ApiResponse<Opti
      */
     @Override
     public ApiResponse<Optional<FaxStatusReport>> get(String jobId) {
-        String baseUrl = urlProvider.getFetchUrl() + RequestURL.FETCH_STATUS_REPORT_FOR_SINGLE_JOB.toString().replace(RequestURL.Constants.CUSTOMER_NUMBER_TAG, apiClient.getCustomerNumber()).replace(RequestURL.Constants.JOB_ID_TAG, jobId);
-
         HttpResponse response = null;
         try {
-            response = apiClient.sendRequest(HttpMethod.GET, baseUrl);
+            response = apiClient.sendRequest(HttpMethod.GET, generateUrl(jobId));
         } catch (IOException e) {
             return new ApiResponse<>(Optional.empty(), SC_SERVICE_UNAVAILABLE, urlProvider);
         }
+        return convertResponse(response);
+    }
+
+    /**
+     * Method that performs the fetching of a single report asynchronously, without blocking a thread while the request is in flight.
+     *
+     * @param jobId the id of the report to be fetched
+     * @return an optional FaxStatusReport object
+     */
+    @Override
+    public CompletableFuture<ApiResponse<Optional<FaxStatusReport>>> getAsync(String jobId) {
+        return FutureUtils.handleResponse(apiClient.sendRequestAsync(HttpMethod.GET, generateUrl(jobId)),
+                this::convertResponse,
+                e -> new ApiResponse<>(Optional.empty(), SC_SERVICE_UNAVAILABLE, urlProvider));
+    }
+
+    private String generateUrl(String jobId) {
+        return urlProvider.getFetchUrl(apiClient.getLocationSelector()) + RequestURL.FETCH_STATUS_REPORT_FOR_SINGLE_JOB.toString().replace(RequestURL.Constants.CUSTOMER_NUMBER_TAG, apiClient.getCustomerNumber()).replace(RequestURL.Constants.JOB_ID_TAG, jobId);
+    }
+
+    private ApiResponse<Optional<FaxStatusReport>> convertResponse(HttpResponse response) {
         int statusCode = response.getStatusLine().getStatusCode();
         if (statusCode == HttpStatus.SC_OK) {
             try {
@@ -52,7 +73,5 @@ public class SingleFaxReportRetriever extends Retriever<String, ApiResponse<Opti
         } else {
             return new ApiResponse<>(Optional.empty(), statusCode, urlProvider);
         }
-
     }
 }
-
@@ -1,9 +1,7 @@
 package com.retarus.fax.v1.rest.generator;
 
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.retarus.fax.base.ApiResponse;
 import com.retarus.fax.base.Composer;
 import com.retarus.fax.base.common.HttpMethod;
@@ -12,11 +10,17 @@ import com.retarus.fax.base.rest.URLProvider;
 import com.retarus.fax.base.sendfax.FaxRequest;
 import com.retarus.fax.exception.ApiException;
 import com.retarus.fax.exception.AuthException;
+import com.retarus.fax.exception.RequestSerializationException;
 import com.retarus.fax.http.Fax4ApplApiClient;
+import com.retarus.fax.http.JsonEntity;
+import com.retarus.fax.utils.FutureUtils;
+import com.retarus.fax.utils.JsonCodec;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.http.HttpStatus.*;
@@ -28,11 +32,10 @@ import static org.apache.http.HttpStatus.*;
  * <br>
  * The input is a FaxRequest object and the output is a JobRequestResult object.
  * The basic response object contains the status code and the job id of the fax request if the status code is 200 or 201.
+ * <br>The fax request is serialized while it is written to the connection, so the documents are not copied into a JSON String first.
  */
 public class FaxComposer extends Composer<FaxRequest, ApiResponse<String>> {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
-
     public FaxComposer(Fax4ApplApiClient apiClient) {
         super(apiClient);
     }
@@ -48,27 +51,64 @@ public class FaxComposer extends Composer<FaxRequest, ApiResponse<String>> {
     @Override
     public ApiResponse<String> compose(FaxRequest faxRequest) {
         URLProvider urlProvider = apiClient.getLocale();
-        String baseUrl = urlProvider.getSendUrl() + RequestURL.SEND_FAX_REQUEST.toString()
-                .replace("{custNr}", apiClient.getCustomerNumber());
-        String jsonPayload;
-
-        try {
-            jsonPayload = objectMapper.writeValueAsString(faxRequest);
-        } catch (JsonProcessingException e) {
-            return new ApiResponse<>("", SC_BAD_REQUEST, urlProvider);
-        }
 
         HttpResponse response;
         try {
-            response = apiClient.sendRequest(HttpMethod.POST, baseUrl, jsonPayload);
+            response = apiClient.sendRequest(HttpMethod.POST, generateUrl(), new JsonEntity(faxRequest, JsonCodec.FAX_REQUEST_WRITER));
+        } catch (RequestSerializationException e) {
+            // The fax request itself is invalid, sending it again does not help
+            return new ApiResponse<>("", SC_BAD_REQUEST, urlProvider);
         } catch (IOException e) {
             return new ApiResponse<>("", SC_SERVICE_UNAVAILABLE, urlProvider);
         }
+        return convertResponse(response);
+    }
+
+    /**
+     * Generates the fax request to be sent to the server asynchronously, without blocking a thread while the request is in flight.
+     *
+     * @param faxRequest the fax request to be sent to the server
+     * @return the response from the server
+     */
+    @Override
+    public CompletableFuture<ApiResponse<String>> composeAsync(FaxRequest faxRequest) {
+        return composeAsync(new JsonEntity(faxRequest, JsonCodec.FAX_REQUEST_WRITER));
+    }
+
+    /**
+     * Sends a fax request that is already serialized to JSON asynchronously, like one read back from an outbox.
+     *
+     * @param faxRequestEntity the JSON of the fax request
+     * @return the response from the server
+     */
+    public CompletableFuture<ApiResponse<String>> composeAsync(HttpEntity faxRequestEntity) {
+        URLProvider urlProvider = apiClient.getLocale();
+        return FutureUtils.handleResponse(apiClient.sendRequestAsync(HttpMethod.POST, generateUrl(), faxRequestEntity),
+                this::convertResponse,
+                e -> new ApiResponse<>("", e instanceof RequestSerializationException ? SC_BAD_REQUEST : SC_SERVICE_UNAVAILABLE, urlProvider));
+    }
+
+    /**
+     * @return the url the fax requests are sent to
+     */
+    private String generateUrl() {
+        return apiClient.getLocale().getSendUrl() + RequestURL.SEND_FAX_REQUEST.toString()
+                .replace("{custNr}", apiClient.getCustomerNumber());
+    }
+
+    /**
+     * Converts the response from the server to the job id of the fax request.
+     *
+     * @param response the response from the server
+     * @return the job id if the status code is 200 or 201, an empty value otherwise
+     */
+    private ApiResponse<String> convertResponse(HttpResponse response) {
+        URLProvider urlProvider = apiClient.getLocale();
         try {
             String responseBody = EntityUtils.toString(response.getEntity());
             int statusCode = response.getStatusLine().getStatusCode();
             if (statusCode == SC_OK || statusCode == SC_CREATED) {
-                JsonNode rootNode = objectMapper.readTree(responseBody);
+                JsonNode rootNode = JsonCodec.JSON_TREE_READER.readTree(responseBody);
                 JsonNode jobIdNode = rootNode.get("jobId");
                 if (jobIdNode != null && !isBlank(jobIdNode.asText())) {
                     String jobId = jobIdNode.asText();
@@ -0,0 +1,189 @@
+package com.retarus.fax.http;
+
+import org.apache.http.HttpEntity;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * @author thiagon
+ * <p>
+ * Publisher of the body of a request, written by an HttpEntity while the JDK client sends it.
+ * <br>The entity is written to the connection in chunks, so a large body, like the documents of a fax request, is never held in memory as a whole.
+ * A chunk is only handed over once the client requested it, the writer waits for the connection in between.
+ * <br>HttpEntity.writeTo pushes the body into a stream, so each subscriber gets a writer task on the executor, which holds its thread
+ * while the body is sent, and not while the response is awaited.
+ * <br>A failure of the entity is kept, so the transport throws it instead of the I/O error the JDK client reports for the aborted body.
+ */
+class EntityBodyPublisher implements HttpRequest.BodyPublisher {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final HttpEntity entity;
+    private final Executor executor;
+
+    private volatile EntitySubscription subscription;
+    private volatile IOException failure;
+
+    EntityBodyPublisher(HttpEntity entity, Executor executor) {
+        this.entity = entity;
+        this.executor = executor;
+    }
+
+    @Override
+    public long contentLength() {
+        // Negative if the length is unknown, the body is sent chunked then
+        return entity.getContentLength();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        EntitySubscription entitySubscription = new EntitySubscription(subscriber);
+        subscription = entitySubscription;
+        subscriber.onSubscribe(entitySubscription);
+        try {
+            executor.execute(entitySubscription);
+        } catch (RejectedExecutionException e) {
+            failure = new IOException("The request body cannot be written, the transport is closed.", e);
+            subscriber.onError(failure);
+        }
+    }
+
+    /**
+     * @return the failure of the entity while it was written, or null if it did not fail
+     */
+    IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Stops the writer of the body, if the request ended before its body was sent.
+     */
+    void cancel() {
+        EntitySubscription entitySubscription = subscription;
+        if (entitySubscription != null) {
+            entitySubscription.cancel();
+        }
+    }
+
+    private class EntitySubscription extends OutputStream implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+
+        // Guarded by this
+        private long requested;
+        private boolean cancelled;
+        private Throwable invalidRequest;
+
+        // Only accessed by the writer thread
+        private byte[] chunk = new byte[CHUNK_SIZE];
+        private int count;
+
+        private EntitySubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public synchronized void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("The number of requested elements must be positive, was " + n + " (Reactive Streams rule 3.9).");
+                cancelled = true;
+            } else {
+                requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+            }
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+
+        @Override
+        public void run() {
+            try {
+                entity.writeTo(this);
+                emit();
+                synchronized (this) {
+                    if (cancelled) {
+                        return;
+                    }
+                }
+                subscriber.onComplete();
+            } catch (IOException | RuntimeException e) {
+                Throwable invalid;
+                synchronized (this) {
+                    invalid = invalidRequest;
+                    if (cancelled && invalid == null) {
+                        // The client no longer reads the body, it reports why
+                        return;
+                    }
+                }
+                if (invalid != null) {
+                    subscriber.onError(invalid);
+                    return;
+                }
+                failure = e instanceof IOException ? (IOException) e : new IOException("The request body cannot be written.", e);
+                subscriber.onError(failure);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == chunk.length) {
+                emit();
+            }
+            chunk[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == chunk.length) {
+                    emit();
+                }
+                int copied = Math.min(len, chunk.length - count);
+                System.arraycopy(b, off, chunk, count, copied);
+                count += copied;
+                off += copied;
+                len -= copied;
+            }
+        }
+
+        /**
+         * Hands the buffered bytes over once the client requested them. The next bytes go to a new chunk, as the client may still hold this one.
+         *
+         * @throws IOException If the client no longer reads the body, or the writer is interrupted.
+         */
+        private void emit() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            synchronized (this) {
+                try {
+                    while (requested == 0 && !cancelled) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while writing the request body.");
+                }
+                if (cancelled) {
+                    throw new IOException("The request body is no longer read.");
+                }
+                requested--;
+            }
+            subscriber.onNext(ByteBuffer.wrap(chunk, 0, count));
+            chunk = new byte[CHUNK_SIZE];
+            count = 0;
+        }
+    }
+}
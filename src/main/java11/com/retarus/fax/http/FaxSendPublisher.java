@@ -0,0 +1,211 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.utils.FutureUtils;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author thiagon
+ * <p>
+ * Publisher of the results of the fax requests of another publisher, sending each of them as it arrives.
+ * <br>A fax request is only requested from the other publisher when the subscriber requested its result, and at most maxInFlight of them
+ * are requested and not handed back yet, so the demand of the subscriber limits how many fax requests are sent.
+ * <br>The results are handed back in the order the fax requests complete, the index of a result is the position of its fax request.
+ * A fax request that cannot be sent gets a result with its exception, only a failure of the other publisher fails the subscription.
+ */
+class FaxSendPublisher implements Flow.Publisher<FaxSendResult> {
+
+    private final FaxServiceClient client;
+    private final Flow.Publisher<FaxRequest> faxRequests;
+    private final int maxInFlight;
+
+    FaxSendPublisher(FaxServiceClient client, Flow.Publisher<FaxRequest> faxRequests, int maxInFlight) {
+        this.client = client;
+        this.faxRequests = faxRequests;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super FaxSendResult> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        SendSubscription subscription = new SendSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        // The requests made in onSubscribe were only recorded, they are handled once it returned
+        subscription.drainLoop();
+        faxRequests.subscribe(subscription);
+    }
+
+    /**
+     * The subscription of the subscriber, and the subscriber of the fax requests.
+     * <br>Requesting fax requests and handing back the results is done by one thread at a time, the one that enters drain first,
+     * while the other threads only record their signal and leave.
+     */
+    private class SendSubscription implements Flow.Subscription, Flow.Subscriber<FaxRequest> {
+        private final AtomicLong requested = new AtomicLong();
+        // Held from the start, so nothing is signalled while onSubscribe runs
+        private final AtomicInteger wip = new AtomicInteger(1);
+        private final Queue<FaxSendResult> completedResults = new ConcurrentLinkedQueue<>();
+        private final AtomicLong completed = new AtomicLong();
+
+        // Dropped on cancel and on the terminal signal, so a cancelled subscriber can be collected
+        private volatile Flow.Subscriber<? super FaxSendResult> subscriber;
+        private volatile Flow.Subscription upstream;
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+
+        // Written by the other publisher, one signal at a time
+        private volatile long received;
+        private volatile boolean upstreamDone;
+        private volatile Throwable upstreamError;
+
+        // Only accessed by the thread in drain
+        private long emitted;
+        private long upstreamRequested;
+
+        private SendSubscription(Flow.Subscriber<? super FaxSendResult> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("The number of requested results must be positive, was " + n + " (Reactive Streams rule 3.9).");
+            } else {
+                requested.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            Objects.requireNonNull(subscription, "subscription");
+            if (upstream != null || cancelled) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            drain();
+        }
+
+        @Override
+        public void onNext(FaxRequest faxRequest) {
+            Objects.requireNonNull(faxRequest, "faxRequest");
+            long index = received;
+            received = index + 1;
+            CompletableFuture<ApiResponse<String>> response;
+            try {
+                response = client.sendFaxRequestAsync(faxRequest);
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            response.whenComplete((value, throwable) -> {
+                completedResults.add(new FaxSendResult(index, faxRequest, value, throwable == null ? null : FutureUtils.unwrap(throwable)));
+                completed.incrementAndGet();
+                drain();
+            });
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            upstreamError = Objects.requireNonNull(throwable, "throwable");
+            upstreamDone = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            upstreamDone = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() == 0) {
+                drainLoop();
+            }
+        }
+
+        private void drainLoop() {
+            int missed = 1;
+            do {
+                if (emit()) {
+                    terminate();
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Hands back the completed results that are requested, and requests the fax requests that are allowed.
+         *
+         * @return true if the subscription is terminated
+         */
+        private boolean emit() {
+            Flow.Subscriber<? super FaxSendResult> subscriber = this.subscriber;
+            if (cancelled || subscriber == null) {
+                return true;
+            }
+            if (invalidRequest != null) {
+                subscriber.onError(invalidRequest);
+                return true;
+            }
+
+            FaxSendResult result;
+            while (emitted < requested.get() && (result = completedResults.poll()) != null) {
+                emitted++;
+                subscriber.onNext(result);
+                if (cancelled) {
+                    return true;
+                }
+            }
+
+            // Read done first: once the other publisher completed, received does not change anymore
+            boolean done = upstreamDone;
+            if (done && completed.get() == received && completedResults.isEmpty()) {
+                Throwable error = upstreamError;
+                if (error != null) {
+                    subscriber.onError(error);
+                } else {
+                    subscriber.onComplete();
+                }
+                return true;
+            }
+
+            Flow.Subscription upstream = this.upstream;
+            if (!done && upstream != null) {
+                // The fax requests requested and not handed back yet, sent or not, stay within the demand and maxInFlight
+                long limit = Math.min(requested.get(), emitted + maxInFlight);
+                if (limit > upstreamRequested) {
+                    long n = limit - upstreamRequested;
+                    upstreamRequested = limit;
+                    upstream.request(n);
+                }
+            }
+            return false;
+        }
+
+        private void terminate() {
+            cancelled = true;
+            subscriber = null;
+            completedResults.clear();
+            Flow.Subscription upstream = this.upstream;
+            if (upstream != null && !upstreamDone) {
+                upstream.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.CloseableIterator;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * @param <T> The type of the elements.
+ * @author thiagon
+ * <p>
+ * Publisher of the elements of an iterator that reads them from an open resource, like the body of an HTTP response.
+ * <br>Each subscriber gets its own iterator, opened with its first request. An element is only taken from the iterator when the subscriber requested it,
+ * so the elements are read and bound at the pace of the subscriber, and the response waits on the connection in between.
+ * Once the requested elements are emitted, the iterator is asked if it has more, so the end of the elements is signalled without another request.
+ * <br>The iterator blocks while reading, so it is read on the executor, one subscriber at a time on one thread at a time.
+ * It is closed when it is exhausted, when it fails, or when the subscriber cancels.
+ */
+class IteratorPublisher<T> implements Flow.Publisher<T> {
+
+    private final Supplier<? extends CloseableIterator<T>> source;
+    private final Executor executor;
+
+    IteratorPublisher(Supplier<? extends CloseableIterator<T>> source, Executor executor) {
+        this.source = source;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        IteratorSubscription subscription = new IteratorSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        // The requests made in onSubscribe were only recorded, the elements are emitted once it returned
+        executor.execute(subscription);
+    }
+
+    private class IteratorSubscription implements Flow.Subscription, Runnable {
+        private final AtomicLong requested = new AtomicLong();
+        // Held from the start, so nothing is emitted while onSubscribe runs
+        private final AtomicInteger wip = new AtomicInteger(1);
+
+        // Dropped on cancel and on the terminal signal, so a cancelled subscriber can be collected
+        private volatile Flow.Subscriber<? super T> subscriber;
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+
+        // Only accessed by the thread in run
+        private CloseableIterator<T> iterator;
+        private long emitted;
+
+        private IteratorSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("The number of requested elements must be positive, was " + n + " (Reactive Streams rule 3.9).");
+            } else {
+                requested.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (emit()) {
+                    terminate();
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Emits the requested elements.
+         *
+         * @return true if the subscription is terminated
+         */
+        private boolean emit() {
+            Flow.Subscriber<? super T> subscriber = this.subscriber;
+            if (cancelled || subscriber == null) {
+                return true;
+            }
+            if (invalidRequest != null) {
+                subscriber.onError(invalidRequest);
+                return true;
+            }
+            try {
+                if (iterator == null) {
+                    if (requested.get() == 0) {
+                        return false;
+                    }
+                    iterator = source.get();
+                }
+                while (emitted < requested.get()) {
+                    if (!iterator.hasNext()) {
+                        subscriber.onComplete();
+                        return true;
+                    }
+                    T element = iterator.next();
+                    emitted++;
+                    subscriber.onNext(element);
+                    if (cancelled) {
+                        return true;
+                    }
+                }
+                // Completes a source that ends with the last requested element without waiting for another request
+                if (!iterator.hasNext()) {
+                    subscriber.onComplete();
+                    return true;
+                }
+            } catch (RuntimeException e) {
+                subscriber.onError(e);
+                return true;
+            }
+            return false;
+        }
+
+        private void terminate() {
+            cancelled = true;
+            subscriber = null;
+            if (iterator != null) {
+                iterator.close();
+                iterator = null;
+            }
+            // Later requests and cancels only increment wip, nothing runs again
+        }
+    }
+}
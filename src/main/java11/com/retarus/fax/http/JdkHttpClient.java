@@ -0,0 +1,408 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.common.HttpMethod;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.URLProvider;
+import com.retarus.fax.utils.EncodingUtils;
+import com.retarus.fax.utils.FutureUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.message.BasicHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author thiagon
+ * <p>
+ * Class used to send http requests to the Retarus Fax API, the java.net.http.HttpClient implementation of the FaxTransport.
+ * <br>The client negotiates HTTP/2 with the Retarus hosts, so concurrent requests are multiplexed over a few shared connections.
+ * <br>Asynchronous requests use the non-blocking I/O of the JDK client, so requests in flight do not hold a thread each.
+ * <br>Request bodies are streamed to the connection by a writer thread of this transport, which is only held while the body is sent.
+ * <br>The JDK client manages its connections on its own, the limits of the ConnectionPoolConfig do not apply to it and
+ * the keep-alive of idle connections is set with the jdk.httpclient.keepalive.timeout system property.
+ * <br>This class requires Java 11 or later, it is selected with {@link TransportType#JDK_HTTP_CLIENT}.
+ */
+public class JdkHttpClient implements FaxTransport {
+
+    private static final ProtocolVersion HTTP_2 = new ProtocolVersion("HTTP", 2, 0);
+
+    private final java.net.http.HttpClient httpClient;
+
+    //Writes the request bodies while they are sent, see EntityBodyPublisher
+    private final ExecutorService bodyWriters = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "retarus-fax-body-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //Requests currently in flight, per host
+    private final ConcurrentMap<String, AtomicInteger> inFlightRequests = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the JDK client.
+     *
+     * @param config      The connection pool configuration, not used by this transport.
+     * @param urlProvider The location/region the requests are sent to.
+     */
+    protected JdkHttpClient(ConnectionPoolConfig config, URLProvider urlProvider) {
+        this.httpClient = java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_2)
+                .followRedirects(java.net.http.HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    /**
+     * Send a request to the Retarus Fax API, using the given username and password for authentication.
+     *
+     * @param username    The username used for authentication.
+     * @param password    The password used for authentication.
+     * @param httpMethod  The http method to use.
+     * @param requestUrl  The url to send the request to.
+     * @param jsonPayload The json payload to send with the request.
+     * @return The response from the Retarus Fax API.
+     * @throws IOException If an error occurs while sending the request.
+     */
+    @Override
+    public HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, String jsonPayload) throws IOException {
+        return sendRequest(username, password, httpMethod, requestUrl, toBodyPublisher(jsonPayload));
+    }
+
+    /**
+     * Send a request to the Retarus Fax API with the given entity as body.
+     * <br>The entity is written to the connection in chunks while the request is sent, so the body is never held in memory as a whole.
+     *
+     * @param username   The username used for authentication.
+     * @param password   The password used for authentication.
+     * @param httpMethod The http method to use.
+     * @param requestUrl The url to send the request to.
+     * @param entity     The body to send with the request.
+     * @return The response from the Retarus Fax API.
+     * @throws IOException If an error occurs while sending the request, or the entity cannot be written.
+     */
+    @Override
+    public HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, HttpEntity entity) throws IOException {
+        if (entity == null) {
+            return sendRequest(username, password, httpMethod, requestUrl, HttpRequest.BodyPublishers.noBody());
+        }
+
+        EntityBodyPublisher bodyPublisher = new EntityBodyPublisher(entity, bodyWriters);
+        try {
+            return sendRequest(username, password, httpMethod, requestUrl, bodyPublisher);
+        } catch (IOException e) {
+            // The JDK client reports an aborted body as an I/O error of its own
+            IOException entityFailure = bodyPublisher.getFailure();
+            throw entityFailure != null ? entityFailure : e;
+        } finally {
+            bodyPublisher.cancel();
+        }
+    }
+
+    /**
+     * Send a request to the Retarus Fax API with the given body.
+     *
+     * @param username      The username used for authentication.
+     * @param password      The password used for authentication.
+     * @param httpMethod    The http method to use.
+     * @param requestUrl    The url to send the request to.
+     * @param bodyPublisher The body to send with the request, used by POST requests only.
+     * @return The response from the Retarus Fax API.
+     * @throws IOException If an error occurs while sending the request.
+     */
+    private HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, HttpRequest.BodyPublisher bodyPublisher) throws IOException {
+        AtomicInteger inFlight = null;
+        try {
+            URI uri = URI.create(requestUrl);
+            inFlight = inFlightRequests.computeIfAbsent(uri.getHost(), host -> new AtomicInteger());
+            inFlight.incrementAndGet();
+
+            // Create the http request and set authorization header to base64 encoded authentication information
+            HttpRequest httpRequest = generateHttpRequest(username, password, httpMethod, uri, bodyPublisher);
+            return toHttpResponse(httpClient.send(httpRequest, java.net.http.HttpResponse.BodyHandlers.ofByteArray()));
+        } catch (IOException e) {
+            // Let the caller see that the location could not be reached, instead of a response the server never sent
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw interrupted(e);
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (inFlight != null) {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        return internalServerError();
+    }
+
+    /**
+     * Send a request to the Retarus Fax API asynchronously, on the non-blocking I/O of the JDK client.
+     *
+     * @param username    The username used for authentication.
+     * @param password    The password used for authentication.
+     * @param httpMethod  The http method to use.
+     * @param requestUrl  The url to send the request to.
+     * @param jsonPayload The json payload to send with the request.
+     * @return The response from the Retarus Fax API.
+     */
+    @Override
+    public CompletableFuture<HttpResponse> sendRequestAsync(String username, String password, HttpMethod httpMethod, String requestUrl, String jsonPayload) {
+        return sendRequestAsync(username, password, httpMethod, requestUrl, toBodyPublisher(jsonPayload));
+    }
+
+    /**
+     * Send a request to the Retarus Fax API with the given entity as body asynchronously, on the non-blocking I/O of the JDK client.
+     * <br>The entity is written to the connection in chunks by a writer thread of this transport while the request is sent.
+     *
+     * @param username   The username used for authentication.
+     * @param password   The password used for authentication.
+     * @param httpMethod The http method to use.
+     * @param requestUrl The url to send the request to.
+     * @param entity     The body to send with the request.
+     * @return The response from the Retarus Fax API, completed exceptionally if an error occurs while sending the request,
+     * or the entity cannot be written.
+     */
+    @Override
+    public CompletableFuture<HttpResponse> sendRequestAsync(String username, String password, HttpMethod httpMethod, String requestUrl, HttpEntity entity) {
+        if (entity == null) {
+            return sendRequestAsync(username, password, httpMethod, requestUrl, HttpRequest.BodyPublishers.noBody());
+        }
+
+        EntityBodyPublisher bodyPublisher = new EntityBodyPublisher(entity, bodyWriters);
+        return sendRequestAsync(username, password, httpMethod, requestUrl, bodyPublisher)
+                .handle((response, throwable) -> {
+                    bodyPublisher.cancel();
+                    if (throwable != null) {
+                        throw new CompletionException(bodyFailure(bodyPublisher, FutureUtils.unwrap(throwable)));
+                    }
+                    return response;
+                });
+    }
+
+    /**
+     * Send a request to the Retarus Fax API with the given body asynchronously.
+     *
+     * @param username      The username used for authentication.
+     * @param password      The password used for authentication.
+     * @param httpMethod    The http method to use.
+     * @param requestUrl    The url to send the request to.
+     * @param bodyPublisher The body to send with the request, used by POST requests only.
+     * @return The response from the Retarus Fax API.
+     */
+    private CompletableFuture<HttpResponse> sendRequestAsync(String username, String password, HttpMethod httpMethod, String requestUrl, HttpRequest.BodyPublisher bodyPublisher) {
+        AtomicInteger inFlight;
+        HttpRequest httpRequest;
+        try {
+            URI uri = URI.create(requestUrl);
+            httpRequest = generateHttpRequest(username, password, httpMethod, uri, bodyPublisher);
+            inFlight = inFlightRequests.computeIfAbsent(uri.getHost(), host -> new AtomicInteger());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return CompletableFuture.completedFuture(internalServerError());
+        }
+
+        inFlight.incrementAndGet();
+        return httpClient.sendAsync(httpRequest, java.net.http.HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, throwable) -> {
+                    inFlight.decrementAndGet();
+                    if (throwable != null) {
+                        Throwable cause = FutureUtils.unwrap(throwable);
+                        if (cause instanceof IOException) {
+                            // Complete with the I/O error, as the blocking request throws it
+                            throw new CompletionException(cause);
+                        }
+                        throwable.printStackTrace();
+                        return internalServerError();
+                    }
+                    return toHttpResponse(response);
+                });
+    }
+
+    /**
+     * Send a request to the Retarus Fax API without a body, returning the response as soon as its headers are received.
+     * <br>The body is read from the connection while it is consumed, closing the content stream of the entity
+     * before its end cancels the rest of the exchange.
+     *
+     * @param username   The username used for authentication.
+     * @param password   The password used for authentication.
+     * @param httpMethod The http method to use.
+     * @param requestUrl The url to send the request to.
+     * @return The response from the Retarus Fax API, with a streamed body.
+     * @throws IOException If an error occurs while sending the request.
+     */
+    @Override
+    public HttpResponse sendStreamingRequest(String username, String password, HttpMethod httpMethod, String requestUrl) throws IOException {
+        AtomicInteger inFlight = null;
+        try {
+            URI uri = URI.create(requestUrl);
+            inFlight = inFlightRequests.computeIfAbsent(uri.getHost(), host -> new AtomicInteger());
+            inFlight.incrementAndGet();
+
+            HttpRequest httpRequest = generateHttpRequest(username, password, httpMethod, uri, HttpRequest.BodyPublishers.noBody());
+            java.net.http.HttpResponse<InputStream> response = httpClient.send(httpRequest, java.net.http.HttpResponse.BodyHandlers.ofInputStream());
+            long contentLength = response.headers().firstValueAsLong(HttpHeaders.CONTENT_LENGTH).orElse(-1);
+            InputStreamEntity entity = new InputStreamEntity(response.body(), contentLength);
+            return toHttpResponse(response, entity);
+        } catch (IOException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw interrupted(e);
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (inFlight != null) {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        return internalServerError();
+    }
+
+    /**
+     * The JDK client does not expose its connections, the requests in flight are reported as leased.
+     *
+     * @return the gauges of this transport
+     */
+    @Override
+    public ConnectionPoolStats getPoolStats() {
+        int leased = inFlightRequests.values().stream().mapToInt(AtomicInteger::get).sum();
+        return new ConnectionPoolStats(leased, 0, 0, 0);
+    }
+
+    /**
+     * The JDK client does not expose its connections, the requests in flight to the location are reported as leased.
+     *
+     * @param location the location to get the gauges for
+     * @return the gauges of this transport for the host of the given location
+     */
+    @Override
+    public ConnectionPoolStats getPoolStats(Location location) {
+        AtomicInteger inFlight = inFlightRequests.get(URI.create(location.getFetchUrl()).getHost());
+        return new ConnectionPoolStats(inFlight == null ? 0 : inFlight.get(), 0, 0, 0);
+    }
+
+    /**
+     * The JDK client releases its connections once it is no longer referenced, only the idle body writers are stopped.
+     */
+    @Override
+    public void close() {
+        bodyWriters.shutdown();
+        inFlightRequests.clear();
+    }
+
+    /**
+     * Generate the http request based on the given http method.
+     *
+     * @param username    The username used for authentication.
+     * @param password    The password used for authentication.
+     * @param httpMethod  The http method to use.
+     * @param uri           The uri to send the request to.
+     * @param bodyPublisher The body to send with the request.
+     * @return The http request.
+     */
+    protected static HttpRequest generateHttpRequest(String username, String password, HttpMethod httpMethod, URI uri, HttpRequest.BodyPublisher bodyPublisher) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .header(HttpHeaders.AUTHORIZATION, "Basic " + EncodingUtils.encodeCredentialsToString(username, password));
+        switch (httpMethod) {
+            case GET:
+                return builder.GET().build();
+            case POST:
+                return builder.header(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_JSON.toString())
+                        .POST(bodyPublisher)
+                        .build();
+            case DELETE:
+                return builder.DELETE().build();
+            default:
+                throw new IllegalArgumentException("Http method not supported.");
+        }
+    }
+
+    /**
+     * @param jsonPayload The json payload, or null if the request has no body.
+     * @return the publisher of the json payload
+     */
+    private static HttpRequest.BodyPublisher toBodyPublisher(String jsonPayload) {
+        return jsonPayload == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(jsonPayload, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The JDK client reports an aborted body as an I/O error of its own, the failure of the entity is thrown instead,
+     * so a body that cannot be serialized is not taken for an unreachable location.
+     *
+     * @param bodyPublisher The publisher of the request body.
+     * @param failure       The failure reported by the JDK client.
+     * @return the failure of the entity if it failed, the given failure otherwise
+     */
+    private static Throwable bodyFailure(EntityBodyPublisher bodyPublisher, Throwable failure) {
+        IOException entityFailure = bodyPublisher.getFailure();
+        return entityFailure != null ? entityFailure : failure;
+    }
+
+    /**
+     * @param e The interruption of the thread waiting for the response.
+     * @return the I/O error thrown instead, with the interruption as cause
+     */
+    private static InterruptedIOException interrupted(InterruptedException e) {
+        InterruptedIOException interruptedIOException = new InterruptedIOException("Interrupted while waiting for the response.");
+        interruptedIOException.initCause(e);
+        return interruptedIOException;
+    }
+
+    /**
+     * @return a default response with the internal server error status code, returned if the request could not be built
+     */
+    private static HttpResponse internalServerError() {
+        return new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_INTERNAL_SERVER_ERROR, "Internal Server Error");
+    }
+
+    /**
+     * Converts the JDK response to the HttpResponse used by the rest of the SDK.
+     *
+     * @param response The JDK response, with its body.
+     * @return The converted response.
+     */
+    private static HttpResponse toHttpResponse(java.net.http.HttpResponse<byte[]> response) {
+        return toHttpResponse(response, new ByteArrayEntity(response.body()));
+    }
+
+    /**
+     * Converts the JDK response to the HttpResponse used by the rest of the SDK.
+     *
+     * @param response The JDK response.
+     * @param entity   The entity holding the body of the response.
+     * @return The converted response.
+     */
+    private static HttpResponse toHttpResponse(java.net.http.HttpResponse<?> response, AbstractHttpEntity entity) {
+        ProtocolVersion protocolVersion = response.version() == java.net.http.HttpClient.Version.HTTP_2 ? HTTP_2 : HttpVersion.HTTP_1_1;
+        int statusCode = response.statusCode();
+        BasicHttpResponse httpResponse = new BasicHttpResponse(protocolVersion, statusCode, EnglishReasonPhraseCatalog.INSTANCE.getReason(statusCode, Locale.ENGLISH));
+        response.headers().map().forEach((name, values) -> values.forEach(value -> httpResponse.addHeader(name, value)));
+
+        response.headers().firstValue(HttpHeaders.CONTENT_TYPE).ifPresent(entity::setContentType);
+        httpResponse.setEntity(entity);
+        return httpResponse;
+    }
+}
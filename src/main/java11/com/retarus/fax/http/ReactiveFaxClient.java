@@ -0,0 +1,102 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.RetarusFax;
+import com.retarus.fax.base.responses.FaxDeletionReport;
+import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.exception.ApiException;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * @author thiagon
+ * <p>
+ * Reactive variant of the FaxServiceClient, with java.util.concurrent.Flow publishers that follow the demand of their subscribers.
+ * <br>The reports are read from the connection and bound only when they are requested, one location after the other,
+ * and the fax requests are only taken from their publisher and sent when their results are requested.
+ * <br>The publishers can be adapted to Reactive Streams libraries with org.reactivestreams.FlowAdapters.
+ * <br>This class requires Java 11 or later.
+ */
+public class ReactiveFaxClient {
+
+    private final FaxServiceClient client;
+    private final int maxInFlight;
+
+    private ReactiveFaxClient(FaxServiceClient client, int maxInFlight) {
+        this.client = client;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public static ReactiveFaxClientBuilder builder(FaxServiceClient client) {
+        return new ReactiveFaxClientBuilder(client);
+    }
+
+    /**
+     * Publishes the results of the fax requests of the given publisher.
+     * <br>A fax request is only requested from the publisher when its result is requested, and at most maxInFlight fax requests
+     * are requested and not handed back yet. The results are handed back in the order the fax requests complete.
+     *
+     * @param faxRequests the publisher of the fax requests to send, subscribed once for each subscriber
+     * @return the publisher of the results, failing only if the publisher of the fax requests fails
+     */
+    public Flow.Publisher<FaxSendResult> sendFaxRequests(Flow.Publisher<FaxRequest> faxRequests) {
+        return new FaxSendPublisher(client, faxRequests, maxInFlight);
+    }
+
+    /**
+     * Publishes the fax status reports of all locations, one location after the other.
+     * <br>The reports are read from the connection and bound only when they are requested, on the executor service of RetarusFax.
+     *
+     * @return the publisher of the reports, failing with an ApiException or an AuthException if a location cannot be read
+     */
+    public Flow.Publisher<FaxStatusReport> getReports() {
+        return new IteratorPublisher<>(client::iterateReports, executor());
+    }
+
+    /**
+     * Deletes the oldest fax status reports of each location, one location after the other, and publishes the deletion reports.
+     * <br>The reports of a location are deleted when the deletion reports of the previous location are all requested,
+     * and the deletion reports are read from the connection and bound only when they are requested. A cancelled subscription
+     * does not undo the deletions already made, up to 1000 reports of the current location.
+     *
+     * @return the publisher of the deletion reports, failing with an ApiException or an AuthException if a location cannot be deleted
+     */
+    public Flow.Publisher<FaxDeletionReport> deleteReports() {
+        return new IteratorPublisher<>(client::iterateDeletedReports, executor());
+    }
+
+    private static Executor executor() {
+        // Looked up on each use, so a later RetarusFax.setExecutorService is followed
+        return command -> RetarusFax.getExecutorService().execute(command);
+    }
+
+    public static class ReactiveFaxClientBuilder {
+        private final FaxServiceClient client;
+        private int maxInFlight = 64;
+
+        private ReactiveFaxClientBuilder(FaxServiceClient client) {
+            this.client = client;
+        }
+
+        /**
+         * @param maxInFlight The maximum number of fax requests requested and not handed back yet. Defaults to 64.
+         * @return the builder
+         * @throws ApiException if the value is not positive
+         */
+        public ReactiveFaxClientBuilder maxInFlight(int maxInFlight) {
+            if (maxInFlight <= 0) {
+                throw new ApiException("The maximum number of fax requests in flight must be greater than 0.");
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        public ReactiveFaxClient build() {
+            if (client == null) {
+                throw new ApiException("The client cannot be null.");
+            }
+            return new ReactiveFaxClient(client, maxInFlight);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.retarus.fax;
+
+import com.retarus.fax.exception.ApiException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ExecutionModeTest {
+
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setUp() {
+        executorService = RetarusFax.getExecutorService();
+        // The executor service shared by the other tests is not shut down when the mode changes
+        RetarusFax.setExecutorService(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RetarusFax.setExecutionMode(ExecutionMode.PLATFORM_THREADS);
+        RetarusFax.getExecutorService().shutdown();
+        RetarusFax.setExecutorService(executorService);
+    }
+
+    @Test
+    @DisplayName("The platform threads mode creates a cached thread pool.")
+    void testPlatformThreads() {
+        RetarusFax.setExecutionMode(ExecutionMode.PLATFORM_THREADS);
+        assertEquals(ExecutionMode.PLATFORM_THREADS, RetarusFax.getExecutionMode());
+        assertTrue(RetarusFax.getExecutorService() instanceof ThreadPoolExecutor);
+        assertNotSame(executorService, RetarusFax.getExecutorService());
+    }
+
+    @Test
+    @DisplayName("The virtual threads mode runs the tasks on virtual threads.")
+    void testVirtualThreads() throws Exception {
+        assumeTrue(ExecutionMode.VIRTUAL_THREADS.isAvailable());
+
+        RetarusFax.setExecutionMode(ExecutionMode.VIRTUAL_THREADS);
+        assertEquals(ExecutionMode.VIRTUAL_THREADS, RetarusFax.getExecutionMode());
+        Boolean virtual = CompletableFuture.supplyAsync(() -> {
+            try {
+                return (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }, RetarusFax.getExecutorService()).get();
+        assertTrue(virtual);
+    }
+
+    @Test
+    @DisplayName("The virtual threads mode is rejected before Java 21 and the current executor service is kept.")
+    void testVirtualThreadsNotAvailable() {
+        assumeFalse(ExecutionMode.VIRTUAL_THREADS.isAvailable());
+
+        ExecutorService current = RetarusFax.getExecutorService();
+        assertThrows(ApiException.class, () -> RetarusFax.setExecutionMode(ExecutionMode.VIRTUAL_THREADS));
+        assertEquals(ExecutionMode.PLATFORM_THREADS, RetarusFax.getExecutionMode());
+        assertSame(current, RetarusFax.getExecutorService());
+        assertFalse(current.isShutdown());
+    }
+
+    @Test
+    @DisplayName("A new mode shuts down the executor service RetarusFax created, not the one set by the application, and a null mode is rejected.")
+    void testPreviousExecutorService() {
+        ExecutorService created = RetarusFax.getExecutorService();
+        RetarusFax.setExecutionMode(ExecutionMode.PLATFORM_THREADS);
+        assertTrue(created.isShutdown());
+
+        ExecutorService applicationExecutorService = Executors.newSingleThreadExecutor();
+        try {
+            RetarusFax.setExecutorService(applicationExecutorService);
+            RetarusFax.setExecutionMode(ExecutionMode.PLATFORM_THREADS);
+            assertFalse(applicationExecutorService.isShutdown());
+            assertNotSame(applicationExecutorService, RetarusFax.getExecutorService());
+        } finally {
+            applicationExecutorService.shutdown();
+        }
+
+        ExecutorService current = RetarusFax.getExecutorService();
+        assertThrows(ApiException.class, () -> RetarusFax.setExecutionMode(null));
+        assertSame(current, RetarusFax.getExecutorService());
+        assertFalse(current.isShutdown());
+    }
+}
@@ -0,0 +1,273 @@
+package com.retarus.fax.base.bulkoperation;
+
+import com.retarus.fax.base.ChunkedBulkOperation;
+import com.retarus.fax.base.common.HttpMethod;
+import com.retarus.fax.base.responses.FaxDeletionReport;
+import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.responses.Reason;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.Region;
+import com.retarus.fax.exception.ApiException;
+import com.retarus.fax.http.Fax4ApplApiClient;
+import com.retarus.fax.v1.rest.bulkoperation.DeleteFaxReportsInBulkOperation;
+import com.retarus.fax.v1.rest.bulkoperation.GetFaxReportsInBulkOperation;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChunkedBulkOperationTest {
+
+    private static final Pattern JOB_ID = Pattern.compile("J\\d+");
+
+    private final Fax4ApplApiClient apiClient = mock(Fax4ApplApiClient.class);
+    private final Queue<CompletableFuture<Void>> pending = new ConcurrentLinkedQueue<>();
+    private DeleteFaxReportsInBulkOperation operation;
+
+    @BeforeEach
+    void setUp() {
+        when(apiClient.getCustomerNumber()).thenReturn("12345");
+        operation = new DeleteFaxReportsInBulkOperation(apiClient, Location.MUNICH);
+    }
+
+    @Test
+    @DisplayName("The job ids are split into chunks of at most 1000, and a chunk that fails is reported without failing the others.")
+    void testPerformAll() {
+        when(apiClient.sendRequestAsync(eq(HttpMethod.POST), anyString(), anyString())).thenAnswer(invocation -> {
+            String jsonPayload = invocation.getArgument(2);
+            return CompletableFuture.completedFuture(jsonPayload.contains("\"J1000\"")
+                    ? response(HttpStatus.SC_SERVICE_UNAVAILABLE, "")
+                    : deletionResponse(jsonPayload));
+        });
+
+        BulkOperationResult<FaxDeletionReport> result = operation.performAll(jobIds(2500), 2);
+        assertEquals(3, result.getChunks());
+        assertEquals(1500, result.getReports().size());
+        assertFalse(result.isComplete());
+        assertEquals(1, result.getFailures().size());
+
+        BulkChunkFailure failure = result.getFailures().get(0);
+        assertEquals(1, failure.getIndex());
+        assertEquals(Location.MUNICH, failure.getLocation());
+        assertEquals(jobIds(2000).subList(1000, 2000), failure.getJobIds());
+        assertTrue(failure.getException() instanceof ApiException);
+        assertTrue(result.getNotFound().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Without a location, every location of the region is asked, the reports are merged by job id, and the job ids found nowhere are reported.")
+    void testRegion() {
+        when(apiClient.getLocale()).thenReturn(Region.EUROPE);
+        when(apiClient.sendRequestAsync(eq(HttpMethod.POST), anyString(), anyString())).thenAnswer(invocation -> {
+            boolean munich = invocation.<String>getArgument(1).startsWith(Location.MUNICH.getFetchUrl());
+            String jsonPayload = invocation.getArgument(2);
+            if (!munich && jsonPayload.contains("\"J2000\"")) {
+                return CompletableFuture.completedFuture(response(HttpStatus.SC_INTERNAL_SERVER_ERROR, ""));
+            }
+            // Munich knows the even job ids below 1500, Frankfurt the odd ones, and both know J0
+            StringBuilder reports = new StringBuilder();
+            Matcher matcher = JOB_ID.matcher(jsonPayload);
+            while (matcher.find()) {
+                int number = Integer.parseInt(matcher.group().substring(1));
+                if (number < 1500 && (number % 2 == 0) == munich || number == 0) {
+                    reports.append(reports.length() == 0 ? "" : ",").append("{\"jobId\":\"").append(matcher.group()).append("\"}");
+                }
+            }
+            return CompletableFuture.completedFuture(response(HttpStatus.SC_OK, "{\"reports\":[" + reports + "]}"));
+        });
+
+        BulkOperationResult<FaxStatusReport> result = new GetFaxReportsInBulkOperation(apiClient).performAll(jobIds(2500), 2);
+        assertEquals(6, result.getChunks());
+        assertEquals(1500, result.getReports().size());
+        assertEquals(1500, result.getReports().stream().map(FaxStatusReport::getJobId).distinct().count());
+        assertTrue(result.getReports().stream().allMatch(report -> report.getLocale() != null));
+        assertEquals(Location.FRANKFURT, result.getReports().stream()
+                .filter(report -> report.getJobId().equals("J1")).findFirst().map(FaxStatusReport::getLocale).orElse(null));
+
+        // The job ids of the failed chunk may be in Frankfurt, so only the ones both locations answered for are missing
+        assertEquals(jobIds(2000).subList(1500, 2000), result.getNotFound());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(Location.FRANKFURT, result.getFailures().get(0).getLocation());
+    }
+
+    @Test
+    @DisplayName("At most parallelism chunks are in flight, and the reports are handed back chunk by chunk.")
+    void testParallelism() {
+        when(apiClient.sendRequestAsync(eq(HttpMethod.POST), anyString(), anyString())).thenAnswer(invocation -> {
+            String jsonPayload = invocation.getArgument(2);
+            CompletableFuture<Void> inFlight = new CompletableFuture<>();
+            pending.add(inFlight);
+            return inFlight.thenApply(ignored -> deletionResponse(jsonPayload));
+        });
+
+        List<Integer> chunkSizes = new ArrayList<>();
+        CompletableFuture<BulkOperationResult<FaxDeletionReport>> result = operation.performAllAsync(jobIds(4200), 2, reports -> chunkSizes.add(reports.size()));
+        for (int completed = 0; completed < 5; completed++) {
+            // The next chunk is started on the executor once one completes
+            awaitPending(Math.min(2, 5 - completed));
+            pending.poll().complete(null);
+        }
+
+        assertTrue(result.join().isComplete());
+        assertTrue(result.join().getReports().isEmpty());
+        assertEquals(5, chunkSizes.size());
+        assertEquals(4200, chunkSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(chunkSizes.stream().allMatch(size -> size <= ChunkedBulkOperation.MAX_CHUNK_SIZE));
+    }
+
+    @Test
+    @DisplayName("A response without reports is an empty chunk, and a chunk the consumer throws on fails without failing the others.")
+    void testChunkFailures() {
+        when(apiClient.sendRequestAsync(eq(HttpMethod.POST), anyString(), anyString())).thenAnswer(invocation -> {
+            String jsonPayload = invocation.getArgument(2);
+            return CompletableFuture.completedFuture(jsonPayload.contains("\"J0\"") ? response(HttpStatus.SC_OK, "{}") : deletionResponse(jsonPayload));
+        });
+
+        List<FaxDeletionReport> handed = new ArrayList<>();
+        BulkOperationResult<FaxDeletionReport> result = operation.performAllAsync(jobIds(3500), 1, reports -> {
+            if (reports.get(0).getJobId().equals("J2000")) {
+                throw new IllegalStateException("Not now.");
+            }
+            handed.addAll(reports);
+        }).join();
+
+        assertEquals(4, result.getChunks());
+        assertEquals(1500, handed.size());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(2, result.getFailures().get(0).getIndex());
+        assertTrue(result.getFailures().get(0).getException() instanceof IllegalStateException);
+        assertEquals(jobIds(1000), result.getNotFound());
+    }
+
+    @Test
+    @DisplayName("perform sends any number of job ids to every location, returns a report for each job id, and fails if a chunk fails.")
+    void testPerform() {
+        when(apiClient.getLocale()).thenReturn(Region.EUROPE);
+        when(apiClient.sendRequestAsync(eq(HttpMethod.POST), anyString(), anyString())).thenAnswer(invocation -> {
+            boolean munich = invocation.<String>getArgument(1).startsWith(Location.MUNICH.getFetchUrl());
+            String jsonPayload = invocation.getArgument(2);
+            if (jsonPayload.contains("\"J5000\"")) {
+                return CompletableFuture.completedFuture(response(HttpStatus.SC_SERVICE_UNAVAILABLE, ""));
+            }
+            // Munich knows the job ids below 1200, Frankfurt answers 404
+            if (!munich) {
+                return CompletableFuture.completedFuture(response(HttpStatus.SC_NOT_FOUND, ""));
+            }
+            StringBuilder reports = new StringBuilder();
+            Matcher matcher = JOB_ID.matcher(jsonPayload);
+            while (matcher.find()) {
+                boolean known = Integer.parseInt(matcher.group().substring(1)) < 1200;
+                reports.append(reports.length() == 0 ? "" : ",").append("{\"jobId\":\"").append(matcher.group())
+                        .append(known ? "\",\"deleted\":true}" : "\",\"deleted\":false,\"reason\":\"NOT_FOUND\"}");
+            }
+            return CompletableFuture.completedFuture(response(HttpStatus.SC_OK, "{\"reports\":[" + reports + "]}"));
+        });
+
+        List<FaxDeletionReport> reports = new DeleteFaxReportsInBulkOperation(apiClient).perform(jobIds(2500));
+        assertEquals(2500, reports.size());
+        assertEquals(1200, reports.stream().filter(FaxDeletionReport::isDeleted).count());
+        assertEquals(1300, reports.stream().filter(report -> report.getReason() == Reason.NOT_FOUND).count());
+
+        assertThrows(ApiException.class, () -> new DeleteFaxReportsInBulkOperation(apiClient).perform(jobIds(5500)));
+    }
+
+    @Test
+    @DisplayName("perform does not fail for a chunk that failed on one location if another location found all its job ids.")
+    void testPerformFoundElsewhere() {
+        when(apiClient.getLocale()).thenReturn(Region.EUROPE);
+        when(apiClient.sendRequestAsync(eq(HttpMethod.POST), anyString(), anyString())).thenAnswer(invocation -> {
+            boolean munich = invocation.<String>getArgument(1).startsWith(Location.MUNICH.getFetchUrl());
+            String jsonPayload = invocation.getArgument(2);
+            // Frankfurt fails the second chunk, whose job ids Munich knows
+            if (!munich && jsonPayload.contains("\"J1000\"")) {
+                return CompletableFuture.completedFuture(response(HttpStatus.SC_SERVICE_UNAVAILABLE, ""));
+            }
+            return CompletableFuture.completedFuture(munich ? deletionResponse(jsonPayload) : response(HttpStatus.SC_NOT_FOUND, ""));
+        });
+
+        List<FaxDeletionReport> reports = new DeleteFaxReportsInBulkOperation(apiClient).perform(jobIds(2500));
+        assertEquals(2500, reports.size());
+        assertTrue(reports.stream().allMatch(FaxDeletionReport::isDeleted));
+    }
+
+    @Test
+    @DisplayName("An error of a chunk is rethrown as is, and a checked exception is wrapped in an ApiException.")
+    void testPerformFailureTypes() {
+        when(apiClient.sendRequestAsync(eq(HttpMethod.POST), anyString(), anyString())).thenAnswer(invocation -> {
+            CompletableFuture<HttpResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new StackOverflowError());
+            return failed;
+        });
+        assertThrows(StackOverflowError.class, () -> operation.perform(jobIds(10)));
+
+        when(apiClient.sendRequestAsync(eq(HttpMethod.POST), anyString(), anyString())).thenAnswer(invocation -> {
+            CompletableFuture<HttpResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new Exception("Checked."));
+            return failed;
+        });
+        ApiException exception = assertThrows(ApiException.class, () -> operation.perform(jobIds(10)));
+        assertEquals("Checked.", exception.getCause().getMessage());
+    }
+
+    @Test
+    @DisplayName("No job ids need no request, and an invalid parallelism is rejected.")
+    void testEdgeCases() {
+        BulkOperationResult<FaxDeletionReport> result = operation.performAll(Collections.emptyList(), 4);
+        assertEquals(0, result.getChunks());
+        assertTrue(result.isComplete());
+        assertThrows(ApiException.class, () -> operation.performAll(jobIds(10), 0));
+    }
+
+    private void awaitPending(int size) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pending.size() < size && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        assertEquals(size, pending.size());
+    }
+
+    private static List<String> jobIds(int count) {
+        List<String> jobIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            jobIds.add("J" + i);
+        }
+        return jobIds;
+    }
+
+    private static HttpResponse deletionResponse(String jsonPayload) {
+        StringBuilder reports = new StringBuilder();
+        Matcher matcher = JOB_ID.matcher(jsonPayload);
+        while (matcher.find()) {
+            reports.append(reports.length() == 0 ? "" : ",").append("{\"jobId\":\"").append(matcher.group()).append("\",\"deleted\":true}");
+        }
+        return response(HttpStatus.SC_OK, "{\"reports\":[" + reports + "]}");
+    }
+
+    private static HttpResponse response(int statusCode, String body) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, "");
+        response.setEntity(new ByteArrayEntity(body.getBytes(StandardCharsets.UTF_8), ContentType.APPLICATION_JSON));
+        return response;
+    }
+}
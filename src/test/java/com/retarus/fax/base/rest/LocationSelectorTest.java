@@ -0,0 +1,133 @@
+package com.retarus.fax.base.rest;
+
+import com.retarus.fax.http.HttpClient;
+import com.retarus.fax.http.FaxServiceClient;
+import com.retarus.fax.v1.rest.fetcher.SingleFaxReportRetriever;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocationSelectorTest {
+
+    private static final Location[] EUROPE = Region.EUROPE.getLocations();
+
+    @AfterEach
+    void tearDown() {
+        HttpClient.setHttpClient(null);
+    }
+
+    @Test
+    @DisplayName("The round robin selector picks the locations in turn.")
+    void testRoundRobin() {
+        LocationSelector selector = LocationSelector.roundRobin();
+        assertEquals(Location.FRANKFURT, selector.select(EUROPE));
+        assertEquals(Location.MUNICH, selector.select(EUROPE));
+        assertEquals(Location.FRANKFURT, selector.select(EUROPE));
+    }
+
+    @Test
+    @DisplayName("The least latency selector tries unmeasured locations first, then prefers the faster one, and avoids a failing one.")
+    void testLeastLatency() {
+        LocationSelector selector = LocationSelector.leastLatency();
+        assertEquals(Location.FRANKFURT, selector.select(EUROPE));
+        selector.recordLatency(Location.FRANKFURT, TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(Location.MUNICH, selector.select(EUROPE));
+        selector.recordLatency(Location.MUNICH, TimeUnit.MILLISECONDS.toNanos(10));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Location.MUNICH, selector.select(EUROPE));
+        }
+        selector.recordFailure(Location.MUNICH);
+        assertEquals(Location.FRANKFURT, selector.select(EUROPE));
+    }
+
+    @Test
+    @DisplayName("The requests in flight weigh on the cost of a location, before their responses are received.")
+    void testRequestsInFlight() {
+        LocationSelector selector = LocationSelector.leastLatency();
+        selector.recordLatency(Location.FRANKFURT, TimeUnit.MILLISECONDS.toNanos(10));
+        selector.recordLatency(Location.MUNICH, TimeUnit.MILLISECONDS.toNanos(15));
+        assertEquals(Location.FRANKFURT, selector.select(EUROPE));
+        selector.recordRequest(Location.FRANKFURT);
+        assertEquals(Location.MUNICH, selector.select(EUROPE));
+        selector.recordLatency(Location.FRANKFURT, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(Location.FRANKFURT, selector.select(EUROPE));
+    }
+
+    @Test
+    @DisplayName("The power of two choices selector never picks the slowest location, but spreads the requests over the other ones.")
+    void testPowerOfTwoChoices() {
+        Location[] locations = {Location.FRANKFURT, Location.MUNICH, Location.ZURICH};
+        LocationSelector selector = LocationSelector.powerOfTwoChoices();
+        selector.recordLatency(Location.FRANKFURT, TimeUnit.MILLISECONDS.toNanos(10));
+        selector.recordLatency(Location.MUNICH, TimeUnit.MILLISECONDS.toNanos(20));
+        selector.recordLatency(Location.ZURICH, TimeUnit.MILLISECONDS.toNanos(500));
+
+        Map<Location, Integer> counts = new EnumMap<>(Location.class);
+        for (int i = 0; i < 1000; i++) {
+            counts.merge(selector.select(locations), 1, Integer::sum);
+        }
+        assertNull(counts.get(Location.ZURICH));
+        assertTrue(counts.get(Location.FRANKFURT) > counts.get(Location.MUNICH));
+        assertTrue(counts.get(Location.MUNICH) > 0);
+        assertEquals(Location.SINGAPORE, selector.select(new Location[]{Location.SINGAPORE}));
+    }
+
+    @Test
+    @DisplayName("The location of a request url is resolved from its host.")
+    void testLocationFromUrl() {
+        assertEquals(Location.MUNICH, Location.fromUrl(Location.MUNICH.getFetchUrl() + "/12345/fax/reports"));
+        assertNull(Location.fromUrl(Region.EUROPE.getSendUrl() + "/12345/fax"));
+        assertNull(Location.fromUrl(null));
+    }
+
+    @Test
+    @DisplayName("The client feeds the measured response times to the selector, so the requests go to the faster location.")
+    void testClientPrefersFasterLocation() throws IOException {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        List<Location> requestedLocations = new ArrayList<>();
+        when(mockHttpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            Location location = Location.fromUrl(((HttpUriRequest) invocation.getArgument(0)).getURI().toString());
+            requestedLocations.add(location);
+            if (location == Location.FRANKFURT) {
+                Thread.sleep(50);
+            }
+            CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+            when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, HttpStatus.SC_NOT_FOUND, "Not Found"));
+            return response;
+        });
+        HttpClient.setHttpClient(mockHttpClient);
+
+        try (FaxServiceClient client = FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(Region.EUROPE)
+                .locationSelector(LocationSelector.leastLatency())
+                .build()) {
+            SingleFaxReportRetriever retriever = new SingleFaxReportRetriever(client, Region.EUROPE);
+            for (int i = 0; i < 12; i++) {
+                retriever.get("JOB" + i);
+            }
+        }
+        // Both locations are measured once, then every request goes to the faster one
+        assertEquals(Location.FRANKFURT, requestedLocations.get(0));
+        requestedLocations.subList(1, requestedLocations.size()).forEach(location -> assertEquals(Location.MUNICH, location));
+    }
+}
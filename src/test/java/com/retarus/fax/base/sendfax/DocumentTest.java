@@ -1,9 +1,20 @@
 package com.retarus.fax.base.sendfax;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.retarus.fax.exception.ApiException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.retarus.fax.utils.FileUtils.readFileAndConvertToBase64;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class DocumentTest {
@@ -85,6 +96,17 @@ class DocumentTest {
     }
 
     //Test builder with null values and make sure it throws an exception
+    @Test
+    @DisplayName("Documents built from the same file are equal, whether the file is read or memory-mapped")
+    void testEqualityWithFilePath() {
+        Document document = Document.builder().filePath("src/main/resources/test.pdf").build();
+        Document sameFile = Document.builder().filePath("src/main/resources/test.pdf").build();
+        assertEquals(document, sameFile);
+        assertEquals(document.hashCode(), sameFile.hashCode());
+        assertEquals(DocumentSource.of(Paths.get("src/main/resources/test.pdf")), DocumentSource.ofMapped(Paths.get("src/main/resources/test.pdf")));
+        assertNotEquals(document, Document.builder().filePath("src/main/resources/test.txt").build());
+    }
+
     @Test
     @DisplayName("Test builder with null values and make sure it throws an exception")
     void testBuilderWithNullValues() {
@@ -126,4 +148,72 @@ class DocumentTest {
                     .build();
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test builder with file path, the file is read lazily when the document is serialized")
+    void testBuilderWithFilePathIsLazy() throws Exception {
+        Document document = Document.builder()
+                .file(Paths.get("src/main/resources/test.pdf"))
+                .build();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(document));
+        assertEquals("test.pdf", json.get("name").asText());
+        assertEquals(readFileAndConvertToBase64(new File("src/main/resources/test.pdf")), json.get("data").asText());
+        assertNotNull(document.getSource());
+    }
+
+    @Test
+    @DisplayName("Test builder with an input stream source, opened every time the document is serialized")
+    void testBuilderWithInputStreamSource() throws Exception {
+        AtomicInteger openedStreams = new AtomicInteger();
+        Document document = Document.builder()
+                .filename("test.txt")
+                .source(() -> {
+                    openedStreams.incrementAndGet();
+                    return new ByteArrayInputStream("test".getBytes(StandardCharsets.UTF_8));
+                })
+                .build();
+        assertEquals(0, openedStreams.get());
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals("dGVzdA==", objectMapper.readTree(objectMapper.writeValueAsString(document)).get("data").asText());
+        assertEquals("dGVzdA==", objectMapper.readTree(objectMapper.writeValueAsString(document)).get("data").asText());
+        assertEquals("dGVzdA==", document.getData());
+        assertEquals(3, openedStreams.get());
+    }
+
+    @Test
+    @DisplayName("Test builder with a ByteBuffer source, the position of the buffer is not changed")
+    void testBuilderWithByteBufferSource() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap("xxtest".getBytes(StandardCharsets.UTF_8));
+        buffer.position(2);
+        Document document = Document.builder()
+                .filename("test.pdf")
+                .source(DocumentSource.of(buffer))
+                .build();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals("dGVzdA==", objectMapper.readTree(objectMapper.writeValueAsString(document)).get("data").asText());
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    @DisplayName("Test builder with data and source, the data is used")
+    void testBuilderWithDataAndSource() throws Exception {
+        Document document = Document.builder()
+                .filename("test.pdf")
+                .data("ZGF0YQ==")
+                .source(DocumentSource.of(ByteBuffer.wrap("test".getBytes(StandardCharsets.UTF_8))))
+                .build();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals("ZGF0YQ==", objectMapper.readTree(objectMapper.writeValueAsString(document)).get("data").asText());
+    }
+
+    @Test
+    @DisplayName("Test builder with a file path that does not exist and make sure it throws an exception")
+    void testBuilderWithMissingFilePath() {
+        assertThrows(ApiException.class, () -> Document.builder().filePath("src/main/resources/missing.pdf"));
+    }
+}
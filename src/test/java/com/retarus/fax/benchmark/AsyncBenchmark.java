@@ -0,0 +1,103 @@
+package com.retarus.fax.benchmark;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.sendfax.Document;
+import com.retarus.fax.base.sendfax.FaxRecipient;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.http.ConcurrencyLimitConfig;
+import com.retarus.fax.http.FaxServiceClient;
+import com.retarus.fax.http.HttpClient;
+import com.retarus.fax.http.TransportType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires a fixed number of asynchronous fax requests against a slow local stub server and waits for all of them,
+ * reporting how many client threads and how much heap were used while the requests were in flight.
+ * <br>The Apache transport runs each request on the RetarusFax executor, the JDK transport uses its non-blocking I/O.
+ * <p>
+ * Run with: mvn -Pbenchmark test -DskipTests -Dbenchmark=AsyncBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xss256k")
+public class AsyncBenchmark {
+
+    private static final FaxRequest FAX_REQUEST = FaxRequest.builder()
+            .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+            .document(Document.builder().filename("test.txt").data("dGVzdA==").build())
+            .build();
+
+    @Param({"APACHE_HTTP_CLIENT", "JDK_HTTP_CLIENT"})
+    public TransportType transportType;
+
+    @Param({"1000"})
+    public int concurrency;
+
+    @Param({"200"})
+    public long serverLatencyMillis;
+
+    private LocalFaxServer server;
+    private FaxServiceClient client;
+    private long peakClientThreads;
+    private long peakHeapUsed;
+
+    @Setup
+    public void setUp() throws IOException {
+        HttpClient.setHttpClient(null);
+        server = new LocalFaxServer(serverLatencyMillis);
+        client = FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(server.getUrlProvider())
+                .transport(transportType)
+                // Every request is sent at once, to measure the transport and not the limit
+                .concurrencyLimit(ConcurrencyLimitConfig.disabled())
+                .build();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetGauges() {
+        peakClientThreads = 0;
+        peakHeapUsed = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void printGauges() {
+        System.out.printf("%n%s: peak client threads %d, peak heap used %d MB%n", transportType, peakClientThreads, peakHeapUsed / (1024 * 1024));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public List<ApiResponse<String>> sendFaxRequestsAsync() {
+        List<CompletableFuture<ApiResponse<String>>> futures = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(client.sendFaxRequestAsync(FAX_REQUEST));
+        }
+
+        // Every request is in flight now, the server holds them for its latency
+        long clientThreads = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> !thread.getName().startsWith(LocalFaxServer.THREAD_NAME_PREFIX))
+                .count();
+        peakClientThreads = Math.max(peakClientThreads, clientThreads);
+        peakHeapUsed = Math.max(peakHeapUsed, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+
+        List<ApiResponse<String>> responses = new ArrayList<>(concurrency);
+        futures.forEach(future -> responses.add(future.join()));
+        return responses;
+    }
+}
@@ -0,0 +1,78 @@
+package com.retarus.fax.benchmark;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.sendfax.Document;
+import com.retarus.fax.base.sendfax.FaxRecipient;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.http.ConcurrencyLimitConfig;
+import com.retarus.fax.http.ConcurrencyLimiter;
+import com.retarus.fax.http.FaxServiceClient;
+import com.retarus.fax.http.HttpClient;
+import com.retarus.fax.http.TransportType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends fax requests from more threads than a local stub server can work on at a time, and reports where the adaptive concurrency limit settles.
+ * <br>The server works on 8 requests at a time for 20 ms each and queues the others. Without a limit, every request is sent at once
+ * and waits in the queue of the server. With the adaptive limit, the limit settles close to the capacity of the server,
+ * and the requests over it wait in the client, where they can still be rejected or cancelled.
+ * <p>
+ * Run with: mvn -Pbenchmark test -DskipTests -Dbenchmark=ConcurrencyLimitBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(48)
+public class ConcurrencyLimitBenchmark {
+
+    private static final int SERVER_CAPACITY = 8;
+    private static final long SERVER_LATENCY_MILLIS = 20;
+
+    private static final FaxRequest FAX_REQUEST = FaxRequest.builder()
+            .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+            .document(Document.builder().filename("test.txt").data("dGVzdA==").build())
+            .build();
+
+    @Param({"false", "true"})
+    public boolean adaptive;
+
+    private LocalFaxServer server;
+    private FaxServiceClient client;
+
+    @Setup
+    public void setUp() throws IOException {
+        HttpClient.setHttpClient(null);
+        server = new LocalFaxServer(SERVER_LATENCY_MILLIS, SERVER_CAPACITY);
+        client = FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(server.getUrlProvider())
+                .transport(TransportType.APACHE_HTTP_CLIENT)
+                .concurrencyLimit(adaptive ? ConcurrencyLimitConfig.defaults() : ConcurrencyLimitConfig.disabled())
+                .build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printLimit() {
+        ConcurrencyLimiter limiter = client.getSendLimiter();
+        System.out.printf("%nadaptive=%s: limit %d, in flight %d, queued %d, rejected %d%n",
+                adaptive, limiter.getLimit(), limiter.getInFlight(), limiter.getQueueSize(), limiter.getRejected());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public ApiResponse<String> sendFaxRequest() {
+        return client.sendFaxRequest(FAX_REQUEST);
+    }
+}
@@ -0,0 +1,96 @@
+package com.retarus.fax.benchmark;
+
+import com.retarus.fax.ExecutionMode;
+import com.retarus.fax.RetarusFax;
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.sendfax.Document;
+import com.retarus.fax.base.sendfax.FaxRecipient;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.http.ConcurrencyLimitConfig;
+import com.retarus.fax.http.FaxServiceClient;
+import com.retarus.fax.http.HttpClient;
+import com.retarus.fax.http.TransportType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cached thread pool with virtual threads when a batch of asynchronous fax requests is submitted at once,
+ * reporting the time to complete the batch and the resident set size of the process (Linux only).
+ * <br>The Apache transport is used, so every request blocks a thread of the RetarusFax executor while it waits for a pooled connection.
+ * <br>The virtual threads mode requires Java 21, the benchmark fails for it on older versions.
+ * <p>
+ * Run with: mvn -Pbenchmark test -DskipTests -Dbenchmark=ExecutionModeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecutionModeBenchmark {
+
+    private static final FaxRequest FAX_REQUEST = FaxRequest.builder()
+            .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+            .document(Document.builder().filename("test.txt").data("dGVzdA==").build())
+            .build();
+
+    @Param({"PLATFORM_THREADS", "VIRTUAL_THREADS"})
+    public ExecutionMode executionMode;
+
+    @Param({"1000", "10000", "50000"})
+    public int submissions;
+
+    private LocalFaxServer server;
+    private FaxServiceClient client;
+
+    @Setup
+    public void setUp() throws IOException {
+        HttpClient.setHttpClient(null);
+        RetarusFax.setExecutionMode(executionMode);
+        server = new LocalFaxServer(0);
+        client = FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(server.getUrlProvider())
+                .transport(TransportType.APACHE_HTTP_CLIENT)
+                // Every request is sent at once, to measure the transport and not the limit
+                .concurrencyLimit(ConcurrencyLimitConfig.disabled())
+                .build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printResidentSetSize() throws IOException {
+        for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+            if (line.startsWith("VmRSS") || line.startsWith("VmHWM")) {
+                System.out.printf("%n%s %d: %s", executionMode, submissions, line);
+            }
+        }
+        System.out.println();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+        RetarusFax.setExecutionMode(ExecutionMode.PLATFORM_THREADS);
+    }
+
+    @Benchmark
+    public List<ApiResponse<String>> submitBatch() {
+        List<CompletableFuture<ApiResponse<String>>> futures = new ArrayList<>(submissions);
+        for (int i = 0; i < submissions; i++) {
+            futures.add(client.sendFaxRequestAsync(FAX_REQUEST));
+        }
+
+        List<ApiResponse<String>> responses = new ArrayList<>(submissions);
+        futures.forEach(future -> responses.add(future.join()));
+        return responses;
+    }
+}
@@ -0,0 +1,55 @@
+package com.retarus.fax.benchmark;
+
+import com.retarus.fax.utils.ByteBufferInputStream;
+import com.retarus.fax.utils.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the heap-based loading of a document (read the file into a byte array, then encode it to a base64 string)
+ * with the memory-mapped document source, streamed through the base64 encoder, for 1 MB, 20 MB and 100 MB files.
+ * <br>The allocated bytes per operation are reported by the gc profiler, as gc.alloc.rate.norm.
+ * <p>
+ * Run with: mvn -Pbenchmark test -DskipTests -Dbenchmark=FileUtilsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FileUtilsBenchmark {
+
+    @Param({"1", "20", "100"})
+    public int fileSizeMegabytes;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] content = new byte[fileSizeMegabytes * 1024 * 1024];
+        new Random(42).nextBytes(content);
+        file = Files.createTempFile("document", ".pdf");
+        Files.write(file, content);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public String readAllBytesAndEncode() {
+        return FileUtils.readFileAndConvertToBase64(file.toFile());
+    }
+
+    @Benchmark
+    public String mapAndEncode() throws IOException {
+        return FileUtils.convertToBase64(new ByteBufferInputStream(FileUtils.mapFile(file)));
+    }
+}
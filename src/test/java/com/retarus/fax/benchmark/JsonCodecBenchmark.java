@@ -0,0 +1,92 @@
+package com.retarus.fax.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.sendfax.Document;
+import com.retarus.fax.base.sendfax.FaxRecipient;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.utils.JsonCodec;
+import com.retarus.fax.utils.RetarusResponseParser;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a new ObjectMapper per call, as the parsers and composers used to do, with the shared readers and writers of JsonCodec,
+ * parsing a list of fax reports and serializing a fax request.
+ * <br>parseReportsStreaming measures the streaming parser of RetarusResponseParser, which binds the reports without a String or a JsonNode tree.
+ * It parses a body held in memory, as the buffered responses of the client are; it does not measure reading from the connection.
+ * <p>
+ * Run with: mvn -Pbenchmark test -DskipTests -Dbenchmark=JsonCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    private static final FaxRequest FAX_REQUEST = FaxRequest.builder()
+            .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+            .document(Document.builder().filename("test.txt").data("dGVzdA==").build())
+            .build();
+
+    //The shared report reader, for a list of reports
+    private static final ObjectReader FAX_STATUS_REPORT_LIST_READER = JsonCodec.FAX_STATUS_REPORT_READER.forType(new TypeReference<List<FaxStatusReport>>() {
+    });
+
+    private String reportsResponse;
+    private byte[] reportsResponseBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        reportsResponseBytes = Files.readAllBytes(Paths.get("src/main/resources/get_fax_reports_response.json"));
+        reportsResponse = new String(reportsResponseBytes, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<FaxStatusReport> parseReportsWithNewMapper() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.enable(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL);
+        JsonNode reportsNode = objectMapper.readTree(reportsResponse).get(RetarusResponseParser.REPORTS_TAG);
+        return objectMapper.convertValue(reportsNode, new TypeReference<List<FaxStatusReport>>() {
+        });
+    }
+
+    @Benchmark
+    public List<FaxStatusReport> parseReportsWithSharedReader() throws IOException {
+        JsonNode reportsNode = JsonCodec.JSON_TREE_READER.readTree(reportsResponse).get(RetarusResponseParser.REPORTS_TAG);
+        return FAX_STATUS_REPORT_LIST_READER.readValue(reportsNode);
+    }
+
+    @Benchmark
+    public List<FaxStatusReport> parseReportsStreaming() throws IOException {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        response.setEntity(new ByteArrayEntity(reportsResponseBytes));
+        return RetarusResponseParser.parseHttpResponseToJobGetReportsList(response);
+    }
+
+    @Benchmark
+    public String writeRequestWithNewMapper() throws IOException {
+        return new ObjectMapper().writeValueAsString(FAX_REQUEST);
+    }
+
+    @Benchmark
+    public String writeRequestWithSharedWriter() throws IOException {
+        return JsonCodec.FAX_REQUEST_WRITER.writeValueAsString(FAX_REQUEST);
+    }
+}
@@ -0,0 +1,142 @@
+package com.retarus.fax.benchmark;
+
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.URLProvider;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stub of the Retarus Fax API used by the benchmarks.
+ * <br>POST requests get the send fax response, GET requests the reports and DELETE requests the deletion reports,
+ * each after the configured latency.
+ * <br>A server with a capacity works on that many requests at a time and queues the others, so its response time grows with the load.
+ */
+public class LocalFaxServer implements AutoCloseable {
+
+    //Prefix of the server threads, so benchmarks can tell them apart from the client threads
+    public static final String THREAD_NAME_PREFIX = "local-fax-server-";
+
+    static {
+        // Without it, the response headers and body wait for the delayed ACK of the client, adding about 40 ms to every request
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executorService;
+    private final long latencyMillis;
+    private final Semaphore slots;
+    private final byte[] sendFaxResponse;
+    private final byte[] getReportsResponse;
+    private final byte[] deleteReportsResponse;
+
+    public LocalFaxServer(long latencyMillis) throws IOException {
+        this(latencyMillis, 0);
+    }
+
+    /**
+     * @param latencyMillis the time the server works on each request
+     * @param capacity      the number of requests the server works on at a time, 0 for no limit
+     */
+    public LocalFaxServer(long latencyMillis, int capacity) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.slots = capacity > 0 ? new Semaphore(capacity, true) : null;
+        this.sendFaxResponse = Files.readAllBytes(Paths.get("src/main/resources/send_fax_response.json"));
+        this.getReportsResponse = Files.readAllBytes(Paths.get("src/main/resources/get_fax_reports_response.json"));
+        this.deleteReportsResponse = Files.readAllBytes(Paths.get("src/main/resources/delete_reports_response.json"));
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executorService = Executors.newCachedThreadPool(runnable -> new Thread(runnable, THREAD_NAME_PREFIX + threadCount.incrementAndGet()));
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executorService);
+        this.server.start();
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/rest/v1";
+    }
+
+    /**
+     * @return a locale that sends and fetches everything from this server
+     */
+    public URLProvider getUrlProvider() {
+        String url = getUrl();
+        return new URLProvider() {
+            @Override
+            public String getSendUrl() {
+                return url;
+            }
+
+            @Override
+            public String getFetchUrl() {
+                return url;
+            }
+
+            @Override
+            public Location[] getLocations() {
+                return new Location[]{Location.MUNICH};
+            }
+        };
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream inputStream = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            while (inputStream.read(buffer) != -1) {
+                // drain the request body
+            }
+        }
+        try {
+            if (slots != null) {
+                slots.acquire();
+            }
+            try {
+                if (latencyMillis > 0) {
+                    TimeUnit.MILLISECONDS.sleep(latencyMillis);
+                }
+            } finally {
+                if (slots != null) {
+                    slots.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        byte[] body;
+        switch (exchange.getRequestMethod()) {
+            case "POST":
+                body = sendFaxResponse;
+                break;
+            case "DELETE":
+                body = deleteReportsResponse;
+                break;
+            default:
+                body = getReportsResponse;
+        }
+        exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, "application/json");
+        exchange.sendResponseHeaders(HttpStatus.SC_OK, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+}
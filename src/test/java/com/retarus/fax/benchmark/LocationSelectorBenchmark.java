@@ -0,0 +1,168 @@
+package com.retarus.fax.benchmark;
+
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.LocationSelector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the location selectors on a simulated region whose locations have skewed response times, reporting the latency percentiles.
+ * <br>The simulation runs in virtual time: requests arrive at a steady rate, each location serves a few requests at a time and queues the rest,
+ * and the response times are reported to the selector when the responses arrive. FRANKFURT answers in 20 ms, MUNICH in 60 ms, both on average
+ * with an occasional spike, so sending half of the requests to MUNICH keeps it close to saturation.
+ * <br>select measures the cost of picking a location from several threads, including the shared java.util.Random the regions used to pick with.
+ * <p>
+ * Run with: mvn -Pbenchmark test -DskipTests -Dbenchmark=LocationSelectorBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LocationSelectorBenchmark {
+
+    private static final Location[] LOCATIONS = {Location.FRANKFURT, Location.MUNICH};
+    private static final double[] MEAN_SERVICE_MILLIS = {20, 60};
+    private static final int SERVERS_PER_LOCATION = 4;
+    private static final double ARRIVALS_PER_SECOND = 110;
+    private static final int REQUESTS = 200_000;
+
+    public enum Strategy {
+        SHARED_RANDOM {
+            @Override
+            LocationSelector create() {
+                Random random = new Random();
+                return locations -> locations[random.nextInt(locations.length)];
+            }
+        },
+        RANDOM {
+            @Override
+            LocationSelector create() {
+                return LocationSelector.random();
+            }
+        },
+        ROUND_ROBIN {
+            @Override
+            LocationSelector create() {
+                return LocationSelector.roundRobin();
+            }
+        },
+        LEAST_LATENCY {
+            @Override
+            LocationSelector create() {
+                return LocationSelector.leastLatency();
+            }
+        },
+        POWER_OF_TWO_CHOICES {
+            @Override
+            LocationSelector create() {
+                return LocationSelector.powerOfTwoChoices();
+            }
+        };
+
+        abstract LocationSelector create();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Simulation {
+
+        @Param({"RANDOM", "ROUND_ROBIN", "LEAST_LATENCY", "POWER_OF_TWO_CHOICES"})
+        public Strategy strategy;
+
+        private long[] latencies;
+
+        @TearDown(Level.Iteration)
+        public void printPercentiles() {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            System.out.printf("%n%s: p50=%.1f ms, p99=%.1f ms, p99.9=%.1f ms%n", strategy,
+                    percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999));
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Selection {
+
+        @Param({"SHARED_RANDOM", "RANDOM", "ROUND_ROBIN", "LEAST_LATENCY", "POWER_OF_TWO_CHOICES"})
+        public Strategy strategy;
+
+        private LocationSelector selector;
+
+        @Setup
+        public void setUp() {
+            selector = strategy.create();
+            selector.recordLatency(Location.FRANKFURT, TimeUnit.MILLISECONDS.toNanos(20));
+            selector.recordLatency(Location.MUNICH, TimeUnit.MILLISECONDS.toNanos(60));
+        }
+    }
+
+    @Benchmark
+    public long[] simulate(Simulation simulation) {
+        LocationSelector selector = simulation.strategy.create();
+        SplittableRandom random = new SplittableRandom(42);
+
+        // The time each server of each location becomes free, and the responses not yet received, all in virtual nanoseconds
+        long[][] serverFreeAt = new long[LOCATIONS.length][SERVERS_PER_LOCATION];
+        PriorityQueue<long[]> inFlight = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        long[] latencies = new long[REQUESTS];
+
+        long now = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            now += (long) (-Math.log(1 - random.nextDouble()) / ARRIVALS_PER_SECOND * 1e9);
+            // Report the responses received until now: {received at, location index, latency}
+            while (!inFlight.isEmpty() && inFlight.peek()[0] <= now) {
+                long[] response = inFlight.poll();
+                selector.recordLatency(LOCATIONS[(int) response[1]], response[2]);
+            }
+
+            int location = indexOf(selector.select(LOCATIONS));
+            selector.recordRequest(LOCATIONS[location]);
+            long[] servers = serverFreeAt[location];
+            int server = 0;
+            for (int s = 1; s < servers.length; s++) {
+                if (servers[s] < servers[server]) {
+                    server = s;
+                }
+            }
+            long start = Math.max(now, servers[server]);
+            long finish = start + serviceTime(random, location);
+            servers[server] = finish;
+            latencies[i] = finish - now;
+            inFlight.add(new long[]{finish, location, latencies[i]});
+        }
+        simulation.latencies = latencies;
+        return latencies;
+    }
+
+    @Benchmark
+    @Threads(4)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public Location select(Selection selection) {
+        return selection.selector.select(LOCATIONS);
+    }
+
+    private static long serviceTime(SplittableRandom random, int location) {
+        double millis = -Math.log(1 - random.nextDouble()) * MEAN_SERVICE_MILLIS[location];
+        // One request in a hundred hits a slow path
+        if (random.nextInt(100) == 0) {
+            millis *= 10;
+        }
+        return (long) (millis * 1e6);
+    }
+
+    private static int indexOf(Location location) {
+        return location == LOCATIONS[0] ? 0 : 1;
+    }
+}
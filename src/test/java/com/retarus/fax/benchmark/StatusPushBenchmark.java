@@ -0,0 +1,81 @@
+package com.retarus.fax.benchmark;
+
+import com.retarus.fax.base.sendfax.status.AuthenticationMethod;
+import com.retarus.fax.http.StatusPushReceiver;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test of the StatusPushReceiver: many concurrent clients push status reports to a local receiver, whose listener only counts them.
+ * <p>
+ * Run with: mvn -Pbenchmark test -DskipTests -Dbenchmark=StatusPushBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(16)
+public class StatusPushBenchmark {
+
+    private static final byte[] REPORT = ("{\"jobId\":\"FJKNV7U8JNDDJ5ZGLN8ZFW\",\"recipientStatus\":[{\"number\":\"+4900000000\","
+            + "\"status\":\"OK\",\"reason\":\"OK\",\"sentTo\":\"+4900000000\",\"sentTs\":\"2020-01-01T00:00:00.000+01:00\","
+            + "\"durationInSecs\":10,\"remoteCsid\":\"+4900000000\"}],\"pages\":1}").getBytes(StandardCharsets.UTF_8);
+
+    @Param({"NONE", "HTTP_BASIC"})
+    public AuthenticationMethod authenticationMethod;
+
+    private final LongAdder handled = new LongAdder();
+    private StatusPushReceiver receiver;
+    private CloseableHttpClient httpClient;
+    private String authorization;
+
+    @Setup
+    public void setUp() throws IOException {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        StatusPushReceiver.StatusPushReceiverBuilder builder = StatusPushReceiver.builder()
+                .host("localhost")
+                .httpThreads(8)
+                .listener(report -> handled.increment());
+        if (authenticationMethod == AuthenticationMethod.HTTP_BASIC) {
+            builder.authentication(authenticationMethod, "username", "password");
+            authorization = "Basic " + Base64.getEncoder().encodeToString("username:password".getBytes(StandardCharsets.UTF_8));
+        }
+        receiver = builder.build();
+        receiver.start();
+        httpClient = HttpClients.custom().setMaxConnTotal(32).setMaxConnPerRoute(32).build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        httpClient.close();
+        receiver.close();
+    }
+
+    @Benchmark
+    public int pushReport() throws IOException {
+        HttpPost post = new HttpPost(receiver.getUrl());
+        post.setEntity(new ByteArrayEntity(REPORT, ContentType.APPLICATION_JSON));
+        if (authorization != null) {
+            post.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        try (CloseableHttpResponse response = httpClient.execute(post)) {
+            EntityUtils.consume(response.getEntity());
+            return response.getStatusLine().getStatusCode();
+        }
+    }
+}
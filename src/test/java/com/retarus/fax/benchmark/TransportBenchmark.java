@@ -0,0 +1,68 @@
+package com.retarus.fax.benchmark;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.sendfax.Document;
+import com.retarus.fax.base.sendfax.FaxRecipient;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.http.ConcurrencyLimitConfig;
+import com.retarus.fax.http.FaxServiceClient;
+import com.retarus.fax.http.HttpClient;
+import com.retarus.fax.http.TransportType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the HTTP transports sending fax requests to a local stub server, with many concurrent callers.
+ * <p>
+ * Run with: mvn -Pbenchmark test -DskipTests -Dbenchmark=TransportBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+public class TransportBenchmark {
+
+    private static final FaxRequest FAX_REQUEST = FaxRequest.builder()
+            .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+            .document(Document.builder().filename("test.txt").data("dGVzdA==").build())
+            .build();
+
+    @Param({"APACHE_HTTP_CLIENT", "JDK_HTTP_CLIENT"})
+    public TransportType transportType;
+
+    @Param({"0", "10"})
+    public long serverLatencyMillis;
+
+    private LocalFaxServer server;
+    private FaxServiceClient client;
+
+    @Setup
+    public void setUp() throws IOException {
+        HttpClient.setHttpClient(null);
+        server = new LocalFaxServer(serverLatencyMillis);
+        client = FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(server.getUrlProvider())
+                .transport(transportType)
+                // Every request is sent at once, to measure the transport and not the limit
+                .concurrencyLimit(ConcurrencyLimitConfig.disabled())
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public ApiResponse<String> sendFaxRequest() {
+        return client.sendFaxRequest(FAX_REQUEST);
+    }
+}
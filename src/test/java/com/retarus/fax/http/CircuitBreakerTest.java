@@ -0,0 +1,317 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.common.HttpMethod;
+import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.LocationSelector;
+import com.retarus.fax.base.rest.Region;
+import com.retarus.fax.base.sendfax.Document;
+import com.retarus.fax.base.sendfax.FaxRecipient;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.exception.ApiException;
+import com.retarus.fax.v1.rest.fetcher.SingleFaxReportRetriever;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CircuitBreakerTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private long now;
+    private final List<String> transitions = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        HttpClient.setHttpClient(null);
+    }
+
+    @Test
+    @DisplayName("The circuit breaker opens when the failure rate reaches the threshold, and rejects the requests until the wait duration is over.")
+    void testOpensOnFailureRate() {
+        CircuitBreaker circuitBreaker = circuitBreaker(CircuitBreakerConfig.builder());
+        for (int i = 0; i < 9; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onResult(10 * MILLIS, i % 2 == 0);
+        }
+        // 5 failures out of 9 requests, below the minimum number of requests
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(-1, circuitBreaker.getMetrics().getFailureRate());
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onResult(10 * MILLIS, false);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(50f, circuitBreaker.getMetrics().getFailureRate());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.isAvailable());
+        assertEquals(1, circuitBreaker.getMetrics().getNotPermittedCalls());
+
+        now += TimeUnit.SECONDS.toNanos(30);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.isAvailable());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+        }
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onResult(10 * MILLIS, false);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getMetrics().getBufferedCalls());
+        assertEquals(Arrays.asList("FRANKFURT CLOSED->OPEN", "FRANKFURT OPEN->HALF_OPEN", "FRANKFURT HALF_OPEN->CLOSED"), transitions);
+    }
+
+    @Test
+    @DisplayName("A failed probe request opens the circuit breaker again.")
+    void testFailedProbeReopens() {
+        CircuitBreaker circuitBreaker = circuitBreaker(CircuitBreakerConfig.builder().slidingWindowSize(2).minimumNumberOfCalls(2));
+        for (int i = 0; i < 2; i++) {
+            circuitBreaker.tryAcquirePermission();
+            circuitBreaker.onResult(MILLIS, true);
+        }
+        now += TimeUnit.SECONDS.toNanos(30);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onResult(MILLIS, true);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(Arrays.asList("FRANKFURT CLOSED->OPEN", "FRANKFURT OPEN->HALF_OPEN", "FRANKFURT HALF_OPEN->OPEN"), transitions);
+    }
+
+    @Test
+    @DisplayName("The circuit breaker opens when the slow call rate reaches the threshold, and the oldest outcomes leave the sliding window.")
+    void testOpensOnSlowCallRate() {
+        CircuitBreaker circuitBreaker = circuitBreaker(CircuitBreakerConfig.builder()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .slowCallRateThreshold(75)
+                .slowCallDuration(Duration.ofSeconds(1)));
+        long slow = TimeUnit.SECONDS.toNanos(2);
+        long[] durations = {slow, slow, MILLIS, MILLIS, MILLIS, slow, slow, slow};
+        for (int i = 0; i < durations.length - 1; i++) {
+            circuitBreaker.tryAcquirePermission();
+            circuitBreaker.onResult(durations[i], false);
+            assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        }
+        assertEquals(2, circuitBreaker.getMetrics().getSlowCalls());
+        circuitBreaker.tryAcquirePermission();
+        circuitBreaker.onResult(slow, false);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(75f, circuitBreaker.getMetrics().getSlowCallRate());
+    }
+
+    @Test
+    @DisplayName("The configuration is validated.")
+    void testInvalidConfig() {
+        assertThrows(ApiException.class, () -> CircuitBreakerConfig.builder().failureRateThreshold(0));
+        assertThrows(ApiException.class, () -> CircuitBreakerConfig.builder().slowCallRateThreshold(101));
+        assertThrows(ApiException.class, () -> CircuitBreakerConfig.builder().waitDurationInOpenState(Duration.ZERO));
+        assertThrows(ApiException.class, () -> CircuitBreakerConfig.builder().slidingWindowSize(5).minimumNumberOfCalls(10).build());
+    }
+
+    @Test
+    @DisplayName("A location that cannot be reached is cut off: the region requests go to the other location, and its own requests fail at once.")
+    void testFailoverToHealthyLocation() throws IOException {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        List<Location> requestedLocations = new ArrayList<>();
+        when(mockHttpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            Location location = Location.fromUrl(((HttpUriRequest) invocation.getArgument(0)).getURI().toString());
+            requestedLocations.add(location);
+            if (location == Location.FRANKFURT) {
+                throw new ConnectException("Connection refused");
+            }
+            CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+            when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, HttpStatus.SC_NOT_FOUND, "Not Found"));
+            return response;
+        });
+        HttpClient.setHttpClient(mockHttpClient);
+
+        List<CircuitBreaker.State> frankfurtStates = new ArrayList<>();
+        try (FaxServiceClient client = FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(Region.EUROPE)
+                .locationSelector(LocationSelector.roundRobin())
+                // Every attempt is counted by the circuit breaker, keep one attempt per request
+                .retryPolicy(RetryPolicy.disabled())
+                .circuitBreaker(CircuitBreakerConfig.builder()
+                        .slidingWindowSize(2)
+                        .minimumNumberOfCalls(2)
+                        .listener((circuitBreaker, from, to) -> {
+                            if (circuitBreaker.getLocation() == Location.FRANKFURT) {
+                                frankfurtStates.add(to);
+                            }
+                        })
+                        .build())
+                .build()) {
+            SingleFaxReportRetriever retriever = new SingleFaxReportRetriever(client, Region.EUROPE);
+            for (int i = 0; i < 10; i++) {
+                retriever.get("JOB" + i);
+            }
+            assertEquals(CircuitBreaker.State.OPEN, client.getCircuitBreaker(Location.FRANKFURT).getState());
+            assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitBreaker(Location.MUNICH).getState());
+            assertEquals(Arrays.asList(CircuitBreaker.State.OPEN), frankfurtStates);
+
+            // Round robin alternates until FRANKFURT fails twice, then every request goes to MUNICH
+            assertEquals(Arrays.asList(Location.FRANKFURT, Location.MUNICH, Location.FRANKFURT), requestedLocations.subList(0, 3));
+            requestedLocations.subList(3, requestedLocations.size()).forEach(location -> assertEquals(Location.MUNICH, location));
+
+            // A request to the open location fails without being sent
+            int requests = requestedLocations.size();
+            ApiResponse<Optional<FaxStatusReport>> response = new SingleFaxReportRetriever(client, Location.FRANKFURT).get("JOB");
+            assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, response.getStatusCode());
+            assertEquals(requests, requestedLocations.size());
+            assertEquals(1, client.getCircuitBreaker(Location.FRANKFURT).getMetrics().getNotPermittedCalls());
+        }
+    }
+
+    @Test
+    @DisplayName("A fax request that cannot be serialized is a bad request: it does not count against the location and is not retried.")
+    void testSerializationFailureIsNotCounted() throws IOException {
+        AtomicInteger sent = new AtomicInteger();
+        FaxTransport writingTransport = new FaxTransport() {
+            @Override
+            public HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, String jsonPayload) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, HttpEntity entity) throws IOException {
+                sent.incrementAndGet();
+                entity.writeTo(new ByteArrayOutputStream());
+                return new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_CREATED, "");
+            }
+
+            @Override
+            public ConnectionPoolStats getPoolStats() {
+                return new ConnectionPoolStats(0, 0, 0, 0);
+            }
+
+            @Override
+            public ConnectionPoolStats getPoolStats(Location location) {
+                return getPoolStats();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        FaxRequest faxRequest = FaxRequest.builder()
+                .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+                .document(Document.builder().filename("test.pdf").source(() -> {
+                    throw new NoSuchFileException("test.pdf");
+                }).build())
+                .build();
+        try (FaxServiceClient client = FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(Location.FRANKFURT)
+                .transport(writingTransport)
+                .retryPolicy(RetryPolicy.builder().maxAttempts(3).baseDelay(Duration.ofMillis(1)).build())
+                .circuitBreaker(CircuitBreakerConfig.builder()
+                        .slidingWindowSize(2)
+                        .minimumNumberOfCalls(2)
+                        .build())
+                .build()) {
+            for (int i = 0; i < 2; i++) {
+                assertEquals(HttpStatus.SC_BAD_REQUEST, client.sendFaxRequest(faxRequest).getStatusCode());
+                assertEquals(HttpStatus.SC_BAD_REQUEST, client.sendFaxRequestAsync(faxRequest).join().getStatusCode());
+            }
+            assertEquals(4, sent.get());
+            CircuitBreaker circuitBreaker = client.getCircuitBreaker(Location.FRANKFURT);
+            assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+            assertEquals(0, circuitBreaker.getMetrics().getBufferedCalls());
+        }
+    }
+
+    @Test
+    @DisplayName("An asynchronous request the transport rejects before sending it counts as a failure, so a probe permit is not lost.")
+    void testRejectedAsyncAttempt() throws IOException, InterruptedException {
+        FaxTransport rejectingTransport = new FaxTransport() {
+            @Override
+            public HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, String jsonPayload) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<HttpResponse> sendRequestAsync(String username, String password, HttpMethod httpMethod, String requestUrl, String jsonPayload) {
+                throw new RejectedExecutionException("The executor is shut down.");
+            }
+
+            @Override
+            public ConnectionPoolStats getPoolStats() {
+                return new ConnectionPoolStats(0, 0, 0, 0);
+            }
+
+            @Override
+            public ConnectionPoolStats getPoolStats(Location location) {
+                return getPoolStats();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try (FaxServiceClient client = FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(Location.FRANKFURT)
+                .transport(rejectingTransport)
+                .retryPolicy(RetryPolicy.disabled())
+                .circuitBreaker(CircuitBreakerConfig.builder()
+                        .slidingWindowSize(2)
+                        .minimumNumberOfCalls(2)
+                        .waitDurationInOpenState(Duration.ofMillis(50))
+                        .permittedCallsInHalfOpenState(1)
+                        .build())
+                .build()) {
+            String url = Location.FRANKFURT.getFetchUrl() + "/reports";
+            for (int i = 0; i < 2; i++) {
+                assertThrows(CompletionException.class, () -> client.sendRequestAsync(HttpMethod.GET, url, (String) null).join());
+            }
+            CircuitBreaker circuitBreaker = client.getCircuitBreaker(Location.FRANKFURT);
+            assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+            // The failed probe opens the circuit breaker again, instead of keeping its permit in the half open state
+            Thread.sleep(100);
+            assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+            assertThrows(CompletionException.class, () -> client.sendRequestAsync(HttpMethod.GET, url, (String) null).join());
+            assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        }
+    }
+
+    private CircuitBreaker circuitBreaker(CircuitBreakerConfig.CircuitBreakerConfigBuilder builder) {
+        CircuitBreakerConfig config = builder
+                .listener((circuitBreaker, from, to) -> transitions.add(circuitBreaker.getLocation() + " " + from + "->" + to))
+                .build();
+        return new CircuitBreaker(Location.FRANKFURT, config, () -> now);
+    }
+}
@@ -0,0 +1,182 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.sendfax.Document;
+import com.retarus.fax.base.sendfax.FaxRecipient;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.exception.ApiException;
+import com.retarus.fax.exception.ConcurrencyLimitExceededException;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConcurrencyLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private long now;
+
+    @AfterEach
+    void tearDown() {
+        HttpClient.setHttpClient(null);
+    }
+
+    @Test
+    @DisplayName("The limit grows while the response times stay close to the fastest one, and shrinks when they grow.")
+    void testLimitFollowsResponseTime() throws IOException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(ConcurrencyLimitConfig.builder().initialLimit(10).build(), () -> now);
+        for (int round = 0; round < 5; round++) {
+            respond(limiter, 10 * MILLIS, HttpStatus.SC_OK);
+        }
+        int grownLimit = limiter.getLimit();
+        assertTrue(grownLimit > 10, "limit " + grownLimit);
+
+        // Ten times slower: most of the requests wait in the queue of the server
+        for (int round = 0; round < 5; round++) {
+            respond(limiter, 100 * MILLIS, HttpStatus.SC_OK);
+        }
+        assertTrue(limiter.getLimit() < grownLimit, "limit " + limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("A 429 or 5xx response shrinks the limit by the backoff ratio.")
+    void testErrorsShrinkLimit() throws IOException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(ConcurrencyLimitConfig.builder().initialLimit(20).minLimit(10).backoffRatio(0.5).build(), () -> now);
+        limiter.acquire().release(HttpStatus.SC_SERVICE_UNAVAILABLE);
+        assertEquals(10, limiter.getLimit());
+        limiter.acquire().release(HttpStatus.SC_TOO_MANY_REQUESTS);
+        assertEquals(10, limiter.getLimit());
+
+        // A client error says nothing about the load of the server, and a limit that is not used is not changed
+        limiter.acquire().release(HttpStatus.SC_BAD_REQUEST);
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("The requests over the limit wait for a free slot in arrival order, or are rejected when the queue is full.")
+    void testQueue() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(ConcurrencyLimitConfig.builder().initialLimit(1).minLimit(1).maxQueueSize(2).build(), () -> now);
+        ConcurrencyLimiter.Permit first = limiter.acquire();
+        CompletableFuture<ConcurrencyLimiter.Permit> second = limiter.acquireAsync();
+        CompletableFuture<ConcurrencyLimiter.Permit> third = limiter.acquireAsync();
+        CompletableFuture<ConcurrencyLimiter.Permit> rejected = limiter.acquireAsync();
+        assertFalse(second.isDone());
+        assertEquals(2, limiter.getQueueSize());
+        ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(exception.getCause() instanceof ConcurrencyLimitExceededException);
+        assertEquals(1, limiter.getRejected());
+
+        first.ignore();
+        assertTrue(second.isDone());
+        assertFalse(third.isDone());
+        // Releasing twice does not free a second slot
+        first.ignore();
+        assertFalse(third.isDone());
+
+        second.get().ignore();
+        third.get().ignore();
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueSize());
+    }
+
+    @Test
+    @DisplayName("A request that gets no slot within the maximum wait is rejected and leaves the queue.")
+    void testMaxWait() throws IOException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(ConcurrencyLimitConfig.builder().initialLimit(1).minLimit(1).maxWait(Duration.ofMillis(50)).build());
+        ConcurrencyLimiter.Permit permit = limiter.acquire();
+        assertThrows(ConcurrencyLimitExceededException.class, limiter::acquire);
+        assertEquals(0, limiter.getQueueSize());
+        assertEquals(1, limiter.getRejected());
+
+        permit.ignore();
+        limiter.acquire().ignore();
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("The fax requests over the limit of the client get the status 503 when they cannot wait.")
+    void testSendFaxRequestOverLimit() throws Exception {
+        CountDownLatch requestSent = new CountDownLatch(1);
+        CountDownLatch respond = new CountDownLatch(1);
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        when(mockHttpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            requestSent.countDown();
+            respond.await(10, TimeUnit.SECONDS);
+            CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+            when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK"));
+            when(response.getEntity()).thenReturn(new StringEntity("{\"jobId\":\"FJLI3102O5BEPYOTB5LPC9\"}"));
+            return response;
+        });
+        HttpClient.setHttpClient(mockHttpClient);
+
+        try (FaxServiceClient client = FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(Location.MUNICH)
+                .concurrencyLimit(ConcurrencyLimitConfig.builder().initialLimit(1).minLimit(1).maxQueueSize(0).build())
+                .build()) {
+            CompletableFuture<ApiResponse<String>> first = client.sendFaxRequestAsync(faxRequest());
+            assertTrue(requestSent.await(10, TimeUnit.SECONDS));
+            assertEquals(1, client.getSendLimiter().getInFlight());
+
+            assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, client.sendFaxRequestAsync(faxRequest()).get(10, TimeUnit.SECONDS).getStatusCode());
+            assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, client.sendFaxRequest(faxRequest()).getStatusCode());
+
+            respond.countDown();
+            assertEquals("FJLI3102O5BEPYOTB5LPC9", first.get(10, TimeUnit.SECONDS).getValue());
+            assertEquals(0, client.getSendLimiter().getInFlight());
+            assertEquals("FJLI3102O5BEPYOTB5LPC9", client.sendFaxRequest(faxRequest()).getValue());
+        }
+    }
+
+    @Test
+    @DisplayName("An invalid concurrency limit is rejected.")
+    void testInvalidConfig() {
+        assertThrows(ApiException.class, () -> ConcurrencyLimitConfig.builder().initialLimit(0));
+        assertThrows(ApiException.class, () -> ConcurrencyLimitConfig.builder().backoffRatio(1));
+        assertThrows(ApiException.class, () -> ConcurrencyLimitConfig.builder().maxQueueSize(-1));
+        assertThrows(ApiException.class, () -> ConcurrencyLimitConfig.builder().minLimit(30).build());
+    }
+
+    /**
+     * Fills the current limit with requests, and answers all of them after the given response time.
+     */
+    private void respond(ConcurrencyLimiter limiter, long rttNanos, int statusCode) throws IOException {
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = limiter.getLimit(); i > 0; i--) {
+            permits.add(limiter.acquire());
+        }
+        now += rttNanos;
+        permits.forEach(permit -> permit.release(statusCode));
+    }
+
+    private static FaxRequest faxRequest() {
+        return FaxRequest.builder()
+                .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+                .document(Document.builder().filename("test.txt").data("dGVzdA==").build())
+                .build();
+    }
+}
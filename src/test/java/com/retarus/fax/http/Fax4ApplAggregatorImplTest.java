@@ -0,0 +1,166 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.Region;
+import com.retarus.fax.exception.ApiException;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class Fax4ApplAggregatorImplTest {
+
+    private CloseableHttpClient mockHttpClient;
+    private String reportsJson;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reportsJson = new String(Files.readAllBytes(Paths.get("src/main/resources/get_fax_reports_response.json")), StandardCharsets.UTF_8);
+        mockHttpClient = mock(CloseableHttpClient.class);
+        HttpClient.setHttpClient(mockHttpClient);
+    }
+
+    @AfterEach
+    void tearDown() {
+        HttpClient.setHttpClient(null);
+    }
+
+    @Test
+    @DisplayName("The locations of a region are requested at the same time.")
+    void testLocationsAreRequestedConcurrently() throws IOException {
+        CountDownLatch bothInFlight = new CountDownLatch(2);
+        when(mockHttpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            bothInFlight.countDown();
+            // A sequential loop would never get both requests in flight
+            if (!bothInFlight.await(5, TimeUnit.SECONDS)) {
+                throw new IOException("The other location was not requested.");
+            }
+            return okResponse();
+        });
+
+        try (FaxServiceClient client = client(Duration.ofSeconds(10))) {
+            List<ApiResponse<List<FaxStatusReport>>> responses = client.getReports();
+            assertEquals(2, responses.size());
+            assertEquals(Location.FRANKFURT, responses.get(0).getURLProvider());
+            assertEquals(Location.MUNICH, responses.get(1).getURLProvider());
+            responses.forEach(response -> assertEquals(HttpStatus.SC_OK, response.getStatusCode()));
+        }
+    }
+
+    @Test
+    @DisplayName("The customer defined id of a serialized fax request is read without reading the other values.")
+    void testCustomerDefinedId() {
+        assertEquals("order-1", Fax4ApplAggregatorImpl.customerDefinedId(bytes("{\"documents\":[{\"name\":\"a.pdf\",\"data\":\"JVBERi0=\"}],"
+                + "\"reference\":{\"billingCode\":{\"x\":1},\"customerDefinedId\":\"order-1\"},\"recipients\":[]}")));
+        assertNull(Fax4ApplAggregatorImpl.customerDefinedId(bytes("{\"documents\":[],\"customerDefinedId\":\"order-1\"}")));
+        assertNull(Fax4ApplAggregatorImpl.customerDefinedId(bytes("{\"reference\":{\"customerDefinedId\":null}}")));
+        assertNull(Fax4ApplAggregatorImpl.customerDefinedId(bytes("{\"reference\":{\"customerDefinedId\":\" \"}}")));
+        assertNull(Fax4ApplAggregatorImpl.customerDefinedId(bytes("{\"reference\":{\"customerDefinedId\":{\"id\":\"order-1\"}}}")));
+        assertNull(Fax4ApplAggregatorImpl.customerDefinedId(bytes("{\"reference\":\"order-1\"}")));
+        assertNull(Fax4ApplAggregatorImpl.customerDefinedId(bytes("{\"reference\":{\"customerDefinedId\"")));
+    }
+
+    @Test
+    @DisplayName("The response of each location is delivered as soon as the location completes.")
+    void testResponsesInCompletionOrder() throws IOException {
+        when(mockHttpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            if (isFrankfurt(invocation.getArgument(0))) {
+                Thread.sleep(300);
+            }
+            return okResponse();
+        });
+
+        List<ApiResponse<List<FaxStatusReport>>> responses = new ArrayList<>();
+        try (FaxServiceClient client = client(Duration.ofSeconds(10))) {
+            client.getReports(responses::add);
+        }
+        assertEquals(2, responses.size());
+        assertEquals(Location.MUNICH, responses.get(0).getURLProvider());
+        assertEquals(Location.FRANKFURT, responses.get(1).getURLProvider());
+    }
+
+    @Test
+    @DisplayName("A location that does not answer in time gets a 504 response without delaying the other locations.")
+    void testLocationTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockHttpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            if (isFrankfurt(invocation.getArgument(0))) {
+                release.await(20, TimeUnit.SECONDS);
+            }
+            return okResponse();
+        });
+
+        // Long enough for the first request of a cold JVM, short enough to time out before Frankfurt is released
+        try (FaxServiceClient client = client(Duration.ofSeconds(3))) {
+            long start = System.nanoTime();
+            List<ApiResponse<List<FaxStatusReport>>> responses = client.getReports();
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(8));
+            assertEquals(HttpStatus.SC_GATEWAY_TIMEOUT, responses.get(0).getStatusCode());
+            assertEquals(Location.FRANKFURT, responses.get(0).getURLProvider());
+            assertTrue(responses.get(0).getValue().isEmpty());
+            assertEquals(HttpStatus.SC_OK, responses.get(1).getStatusCode());
+
+            List<ApiResponse<List<FaxStatusReport>>> asyncResponses = client.getReportsAsync().get(8, TimeUnit.SECONDS);
+            assertEquals(HttpStatus.SC_GATEWAY_TIMEOUT, asyncResponses.get(0).getStatusCode());
+            assertEquals(HttpStatus.SC_OK, asyncResponses.get(1).getStatusCode());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("The location timeout must be positive.")
+    void testInvalidLocationTimeout() {
+        assertThrows(ApiException.class, () -> FaxServiceClient.builder().locationTimeout(Duration.ZERO));
+        assertThrows(ApiException.class, () -> FaxServiceClient.builder().locationTimeout(Duration.ofSeconds(-1)));
+    }
+
+    private FaxServiceClient client(Duration locationTimeout) {
+        return FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(Region.EUROPE)
+                .locationTimeout(locationTimeout)
+                .build();
+    }
+
+    private static boolean isFrankfurt(HttpUriRequest request) {
+        return request.getURI().toString().startsWith(Location.FRANKFURT.getFetchUrl());
+    }
+
+    private CloseableHttpResponse okResponse() {
+        CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+        when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK"));
+        when(response.getEntity()).thenReturn(new StringEntity(reportsJson, ContentType.APPLICATION_JSON));
+        return response;
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
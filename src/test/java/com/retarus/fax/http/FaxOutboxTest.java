@@ -0,0 +1,210 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.RetarusFax;
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.sendfax.Document;
+import com.retarus.fax.base.sendfax.FaxRecipient;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.base.sendfax.Reference;
+import com.retarus.fax.exception.ApiException;
+import com.retarus.fax.utils.JsonCodec;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FaxOutboxTest {
+
+    private static final int SEGMENT_SIZE = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private FaxServiceClient client;
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+    private volatile int statusCode = HttpStatus.SC_CREATED;
+
+    @BeforeEach
+    void setUp() {
+        client = mock(FaxServiceClient.class);
+        when(client.sendFaxRequestAsync(any(byte[].class))).thenAnswer(invocation -> {
+            sent.add(new String((byte[]) invocation.getArgument(0), StandardCharsets.UTF_8));
+            return CompletableFuture.completedFuture(new ApiResponse<>(statusCode == HttpStatus.SC_CREATED ? "FJLI3102O5BEPYOTB5LPC9" : null,
+                    statusCode, Location.MUNICH));
+        });
+    }
+
+    @Test
+    @DisplayName("A fax request is sent as it is serialized, and acknowledged once it got a job id.")
+    void testSubmit() throws Exception {
+        try (FaxOutbox outbox = FaxOutbox.builder(client).directory(directory).segmentSize(SEGMENT_SIZE).build()) {
+            ApiResponse<String> response = outbox.submit(faxRequest(1)).get(10, TimeUnit.SECONDS);
+
+            assertEquals("FJLI3102O5BEPYOTB5LPC9", response.getValue());
+            assertEquals(JsonCodec.FAX_REQUEST_WRITER.writeValueAsString(faxRequest(1)), sent.get(0));
+            assertEquals(0, outbox.getPendingCount());
+            assertEquals(0L, outbox.getReplay().get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("The fax requests waiting for a retry when the outbox is closed are sent again when it is opened, the rejected ones are not.")
+    void testReplay() throws Exception {
+        try (FaxOutbox outbox = FaxOutbox.builder(client).directory(directory).segmentSize(SEGMENT_SIZE)
+                .retryDelay(Duration.ofHours(1)).maxRetryDelay(Duration.ofHours(1)).build()) {
+            statusCode = HttpStatus.SC_SERVICE_UNAVAILABLE;
+            CompletableFuture<ApiResponse<String>> first = outbox.submit(faxRequest(1));
+            awaitSent(1);
+            statusCode = HttpStatus.SC_TOO_MANY_REQUESTS;
+            CompletableFuture<ApiResponse<String>> second = outbox.submit(faxRequest(2));
+            awaitSent(2);
+            statusCode = HttpStatus.SC_BAD_REQUEST;
+            assertEquals(HttpStatus.SC_BAD_REQUEST, outbox.submit(faxRequest(3)).get(10, TimeUnit.SECONDS).getStatusCode());
+            assertEquals(2, outbox.getPendingCount());
+            assertFalse(first.isDone());
+
+            outbox.close();
+            assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, first.get(10, TimeUnit.SECONDS).getStatusCode());
+            assertEquals(HttpStatus.SC_TOO_MANY_REQUESTS, second.get(10, TimeUnit.SECONDS).getStatusCode());
+        }
+
+        sent.clear();
+        statusCode = HttpStatus.SC_CREATED;
+        try (FaxOutbox outbox = FaxOutbox.builder(client).directory(directory).segmentSize(SEGMENT_SIZE).maxReplayInFlight(1).build()) {
+            assertEquals(2L, outbox.getReplay().get(10, TimeUnit.SECONDS));
+            assertEquals(0, outbox.getPendingCount());
+            assertEquals(2, sent.size());
+            assertTrue(sent.get(0).contains("\"customerDefinedId\":\"1\""), sent.get(0));
+            assertTrue(sent.get(1).contains("\"customerDefinedId\":\"2\""), sent.get(1));
+        }
+
+        sent.clear();
+        try (FaxOutbox outbox = FaxOutbox.builder(client).directory(directory).segmentSize(SEGMENT_SIZE).build()) {
+            assertEquals(0L, outbox.getReplay().get(10, TimeUnit.SECONDS));
+            assertTrue(sent.isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("The replay does not hold a thread of the executor while its fax requests are in flight, even on an executor of a single thread.")
+    void testReplayOnBoundedExecutor() throws Exception {
+        try (FaxOutbox outbox = FaxOutbox.builder(client).directory(directory).segmentSize(SEGMENT_SIZE)
+                .retryDelay(Duration.ofHours(1)).maxRetryDelay(Duration.ofHours(1)).build()) {
+            statusCode = HttpStatus.SC_SERVICE_UNAVAILABLE;
+            for (int i = 1; i <= 3; i++) {
+                outbox.submit(faxRequest(i));
+            }
+            awaitSent(3);
+        }
+
+        Queue<CompletableFuture<ApiResponse<String>>> inFlight = new ConcurrentLinkedQueue<>();
+        when(client.sendFaxRequestAsync(any(byte[].class))).thenAnswer(invocation -> {
+            CompletableFuture<ApiResponse<String>> response = new CompletableFuture<>();
+            inFlight.add(response);
+            return response;
+        });
+        ExecutorService executorService = RetarusFax.getExecutorService();
+        ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        RetarusFax.setExecutorService(singleThreadExecutor);
+        try (FaxOutbox outbox = FaxOutbox.builder(client).directory(directory).segmentSize(SEGMENT_SIZE).maxReplayInFlight(2).build()) {
+            for (int answered = 0; answered < 3; answered++) {
+                awaitInFlight(inFlight, Math.min(2, 3 - answered));
+                // The only thread of the executor is free while the fax requests are in flight
+                assertEquals("free", singleThreadExecutor.submit(() -> "free").get(5, TimeUnit.SECONDS));
+                inFlight.poll().complete(new ApiResponse<>("FJLI3102O5BEPYOTB5LPC9", HttpStatus.SC_CREATED, Location.MUNICH));
+            }
+            assertEquals(3L, outbox.getReplay().get(10, TimeUnit.SECONDS));
+            assertEquals(0, outbox.getPendingCount());
+        } finally {
+            RetarusFax.setExecutorService(executorService);
+            singleThreadExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("A fax request that failed with a status worth a retry is sent again until it gets a job id, and given up after the maximum number of attempts.")
+    void testRetry() throws Exception {
+        try (FaxOutbox outbox = FaxOutbox.builder(client).directory(directory).segmentSize(SEGMENT_SIZE)
+                .maxAttempts(3).retryDelay(Duration.ofMillis(10)).build()) {
+            statusCode = HttpStatus.SC_SERVICE_UNAVAILABLE;
+            CompletableFuture<ApiResponse<String>> response = outbox.submit(faxRequest(1));
+            awaitSent(2);
+            statusCode = HttpStatus.SC_CREATED;
+            assertEquals("FJLI3102O5BEPYOTB5LPC9", response.get(10, TimeUnit.SECONDS).getValue());
+            assertEquals(3, sent.size());
+            assertEquals(0, outbox.getPendingCount());
+
+            sent.clear();
+            statusCode = HttpStatus.SC_GATEWAY_TIMEOUT;
+            assertEquals(HttpStatus.SC_GATEWAY_TIMEOUT, outbox.submit(faxRequest(2)).get(10, TimeUnit.SECONDS).getStatusCode());
+            assertEquals(3, sent.size());
+            assertEquals(1, outbox.getAbandonedCount());
+            assertEquals(0, outbox.getPendingCount());
+        }
+    }
+
+    @Test
+    @DisplayName("A directory is used by a single outbox at a time.")
+    void testLocked() throws Exception {
+        try (FaxOutbox outbox = FaxOutbox.builder(client).directory(directory).segmentSize(SEGMENT_SIZE).build()) {
+            assertThrows(ApiException.class, () -> FaxOutbox.builder(client).directory(directory).segmentSize(SEGMENT_SIZE).build());
+        }
+        FaxOutbox.builder(client).directory(directory).segmentSize(SEGMENT_SIZE).build().close();
+    }
+
+    @Test
+    @DisplayName("An invalid outbox is rejected.")
+    void testInvalidConfig() {
+        assertThrows(ApiException.class, () -> FaxOutbox.builder(client).build());
+        assertThrows(ApiException.class, () -> FaxOutbox.builder(null).directory(directory).build());
+        assertThrows(ApiException.class, () -> FaxOutbox.builder(client).segmentSize(1024));
+        assertThrows(ApiException.class, () -> FaxOutbox.builder(client).maxReplayInFlight(0));
+        assertThrows(ApiException.class, () -> FaxOutbox.builder(client).maxAttempts(0));
+        assertThrows(ApiException.class, () -> FaxOutbox.builder(client).retryDelay(Duration.ZERO));
+        assertThrows(ApiException.class, () -> FaxOutbox.builder(client).directory(directory).retryDelay(Duration.ofMinutes(2)).build());
+    }
+
+    private static void awaitInFlight(Queue<?> inFlight, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (inFlight.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, inFlight.size());
+    }
+
+    private void awaitSent(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (sent.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, sent.size());
+    }
+
+    private static FaxRequest faxRequest(int index) {
+        return FaxRequest.builder()
+                .reference(Reference.builder().customerDefinedId(String.valueOf(index)).build())
+                .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+                .document(Document.builder().filename("test.txt").data("dGVzdA==").build())
+                .build();
+    }
+}
@@ -0,0 +1,195 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.sendfax.Document;
+import com.retarus.fax.base.sendfax.FaxRecipient;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.base.sendfax.Reference;
+import com.retarus.fax.exception.ApiException;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FaxSendPipelineTest {
+
+    private static final int COUNT = 200;
+    private static final int MAX_IN_FLIGHT = 8;
+
+    private ScheduledExecutorService scheduler;
+    private FaxServiceClient client;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxObservedInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newScheduledThreadPool(4);
+        client = mock(FaxServiceClient.class);
+        // Every third fax request fails with 400, the responses arrive after a random delay, so they complete out of order
+        when(client.sendFaxRequestAsync(any(FaxRequest.class))).thenAnswer(invocation -> {
+            FaxRequest faxRequest = invocation.getArgument(0);
+            int statusCode = Integer.parseInt(faxRequest.getReference().getCustomerDefinedId()) % 3 == 0 ? HttpStatus.SC_BAD_REQUEST : HttpStatus.SC_CREATED;
+            maxObservedInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            CompletableFuture<ApiResponse<String>> response = new CompletableFuture<>();
+            scheduler.schedule(() -> {
+                inFlight.decrementAndGet();
+                response.complete(new ApiResponse<>("jobId", statusCode, Location.MUNICH));
+            }, ThreadLocalRandom.current().nextInt(5), TimeUnit.MILLISECONDS);
+            return response;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("The results are handed back in the order of the input, with no more fax requests in flight than the maximum.")
+    void testSubmissionOrder() throws Exception {
+        List<FaxSendProgress> progressReports = Collections.synchronizedList(new ArrayList<>());
+        List<Long> indexes = new ArrayList<>();
+        FaxSendProgress progress = FaxSendPipeline.builder(client)
+                .maxInFlight(MAX_IN_FLIGHT)
+                .progressListener(progressReports::add, Duration.ZERO)
+                .build()
+                .send(faxRequests(COUNT), result -> indexes.add(result.getIndex()))
+                .get(30, TimeUnit.SECONDS);
+
+        assertEquals(LongStream.range(0, COUNT).boxed().collect(Collectors.toList()), indexes);
+        assertTrue(maxObservedInFlight.get() <= MAX_IN_FLIGHT, "in flight " + maxObservedInFlight.get());
+        assertProgress(progress);
+        assertFalse(progressReports.isEmpty());
+        assertSame(progress, progressReports.get(progressReports.size() - 1));
+        assertTrue(progressReports.stream().limit(progressReports.size() - 1).noneMatch(FaxSendProgress::isDone));
+    }
+
+    @Test
+    @DisplayName("The results are handed back as the fax requests complete, each of them once.")
+    void testCompletionOrder() throws Exception {
+        List<FaxSendResult> results = new ArrayList<>();
+        FaxSendProgress progress = FaxSendPipeline.builder(client)
+                .maxInFlight(MAX_IN_FLIGHT)
+                .resultOrder(FaxSendPipeline.ResultOrder.COMPLETION)
+                .build()
+                .send(faxRequests(COUNT), results::add)
+                .get(30, TimeUnit.SECONDS);
+
+        assertEquals(COUNT, results.stream().mapToLong(FaxSendResult::getIndex).distinct().count());
+        assertTrue(maxObservedInFlight.get() <= MAX_IN_FLIGHT, "in flight " + maxObservedInFlight.get());
+        results.forEach(result -> assertEquals(result.getIndex() % 3 != 0, result.isSuccess(), result.toString()));
+        assertProgress(progress);
+    }
+
+    @Test
+    @DisplayName("The input is read only when a slot is free, and a stream is closed at the end.")
+    void testLazyInput() throws Exception {
+        AtomicInteger taken = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<FaxRequest> faxRequests = IntStream.range(0, COUNT)
+                .mapToObj(index -> {
+                    maxAhead.accumulateAndGet(taken.incrementAndGet() - delivered.get(), Math::max);
+                    return faxRequest(index);
+                })
+                .onClose(() -> closed.set(true));
+
+        FaxSendPipeline.builder(client)
+                .maxInFlight(MAX_IN_FLIGHT)
+                .build()
+                .send(faxRequests, result -> delivered.incrementAndGet())
+                .get(30, TimeUnit.SECONDS);
+
+        assertEquals(COUNT, delivered.get());
+        assertTrue(maxAhead.get() <= MAX_IN_FLIGHT, "read ahead " + maxAhead.get());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    @DisplayName("A consumer that throws stops the pipeline and fails the returned future.")
+    void testConsumerFailure() {
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicInteger taken = new AtomicInteger();
+        Iterator<FaxRequest> faxRequests = faxRequests(COUNT).iterator();
+        Iterator<FaxRequest> countingFaxRequests = new Iterator<FaxRequest>() {
+            @Override
+            public boolean hasNext() {
+                return faxRequests.hasNext();
+            }
+
+            @Override
+            public FaxRequest next() {
+                taken.incrementAndGet();
+                return faxRequests.next();
+            }
+        };
+
+        CompletableFuture<FaxSendProgress> progress = FaxSendPipeline.builder(client)
+                .maxInFlight(MAX_IN_FLIGHT)
+                .build()
+                .send(countingFaxRequests, result -> {
+                    if (delivered.incrementAndGet() == 10) {
+                        throw new IllegalStateException("full");
+                    }
+                });
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> progress.get(30, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        assertTrue(taken.get() < 10 + MAX_IN_FLIGHT, "taken " + taken.get());
+    }
+
+    @Test
+    @DisplayName("An invalid pipeline is rejected.")
+    void testInvalidConfig() {
+        assertThrows(ApiException.class, () -> FaxSendPipeline.builder(client).maxInFlight(0));
+        assertThrows(ApiException.class, () -> FaxSendPipeline.builder(client).progressListener(progress -> {
+        }, Duration.ofSeconds(-1)));
+        assertThrows(ApiException.class, () -> FaxSendPipeline.builder(null).build());
+    }
+
+    private static void assertProgress(FaxSendProgress progress) {
+        assertTrue(progress.isDone());
+        assertEquals(COUNT, progress.getSubmitted());
+        assertEquals(COUNT, progress.getCompleted());
+        assertEquals(COUNT - (COUNT + 2) / 3, progress.getSucceeded());
+        assertEquals(0, progress.getInFlight());
+    }
+
+    private static List<FaxRequest> faxRequests(int count) {
+        return IntStream.range(0, count).mapToObj(FaxSendPipelineTest::faxRequest).collect(Collectors.toList());
+    }
+
+    private static FaxRequest faxRequest(int index) {
+        return FaxRequest.builder()
+                .reference(Reference.builder().customerDefinedId(String.valueOf(index)).build())
+                .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+                .document(Document.builder().filename("test.txt").data("dGVzdA==").build())
+                .build();
+    }
+}
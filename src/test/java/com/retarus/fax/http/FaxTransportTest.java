@@ -0,0 +1,246 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.RetarusFax;
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.common.HttpMethod;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.URLProvider;
+import com.retarus.fax.base.sendfax.Document;
+import com.retarus.fax.base.sendfax.FaxRecipient;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.exception.RequestSerializationException;
+import com.retarus.fax.utils.JsonCodec;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FaxTransportTest {
+
+    private HttpServer server;
+    private URLProvider urlProvider;
+    private final Queue<String> authorizationHeaders = new ConcurrentLinkedQueue<>();
+    private final AtomicLong receivedBytes = new AtomicLong();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Make sure no client injected by other tests is used
+        HttpClient.setHttpClient(null);
+
+        byte[] sendFaxResponse = Files.readAllBytes(Paths.get("src/main/resources/send_fax_response.json"));
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            authorizationHeaders.add(exchange.getRequestHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+            try (InputStream inputStream = exchange.getRequestBody()) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    receivedBytes.addAndGet(read);
+                }
+            }
+            exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, "application/json");
+            exchange.sendResponseHeaders(HttpStatus.SC_OK, sendFaxResponse.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(sendFaxResponse);
+            }
+        });
+        server.start();
+
+        urlProvider = mock(URLProvider.class);
+        when(urlProvider.getSendUrl()).thenReturn("http://localhost:" + server.getAddress().getPort() + "/rest/v1");
+        when(urlProvider.getLocations()).thenReturn(new Location[]{Location.MUNICH});
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("The Apache HttpClient transport sends the fax request.")
+    void testApacheHttpClientTransport() throws IOException {
+        assertSendFaxRequest(TransportType.APACHE_HTTP_CLIENT);
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_11)
+    @DisplayName("The JDK HttpClient transport sends the fax request.")
+    void testJdkHttpClientTransport() throws IOException {
+        assertSendFaxRequest(TransportType.JDK_HTTP_CLIENT);
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_11)
+    @DisplayName("The JDK HttpClient transport sends asynchronous requests without the RetarusFax executor.")
+    void testJdkHttpClientTransportAsync() throws Exception {
+        ExecutorService executorService = RetarusFax.getExecutorService();
+        // A shut down executor rejects every task, so only the non-blocking I/O can complete the requests
+        ExecutorService rejectingExecutorService = Executors.newSingleThreadExecutor();
+        rejectingExecutorService.shutdown();
+        RetarusFax.setExecutorService(rejectingExecutorService);
+
+        try (FaxServiceClient client = FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(urlProvider)
+                .transport(TransportType.JDK_HTTP_CLIENT)
+                .build()) {
+            List<CompletableFuture<ApiResponse<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(client.sendFaxRequestAsync(faxRequest()));
+            }
+            for (CompletableFuture<ApiResponse<String>> future : futures) {
+                ApiResponse<String> response = future.get(30, TimeUnit.SECONDS);
+                assertEquals(HttpStatus.SC_OK, response.getStatusCode());
+                assertEquals("FJLI3102O5BEPYOTB5LPC9", response.getValue());
+            }
+        } finally {
+            RetarusFax.setExecutorService(executorService);
+        }
+    }
+
+    @Test
+    @DisplayName("A custom transport is used instead of the transport type.")
+    void testCustomTransport() throws IOException {
+        FaxTransport transport = TransportType.APACHE_HTTP_CLIENT.create(ConnectionPoolConfig.defaults(), urlProvider);
+        try (FaxServiceClient client = FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(urlProvider)
+                .transport(TransportType.JDK_HTTP_CLIENT)
+                .transport(transport)
+                .build()) {
+            assertEquals(transport.getPoolStats().getMax(), client.getPoolStats().getMax());
+            assertEquals("FJLI3102O5BEPYOTB5LPC9", client.sendFaxRequest(faxRequest()).getValue());
+        }
+    }
+
+    @Test
+    @DisplayName("The Apache HttpClient transport fails with an IOException when the host cannot be reached.")
+    void testApacheHttpClientUnreachableHost() throws Exception {
+        assertUnreachableHost(TransportType.APACHE_HTTP_CLIENT);
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_11)
+    @DisplayName("The JDK HttpClient transport fails with an IOException when the host cannot be reached.")
+    void testJdkHttpClientUnreachableHost() throws Exception {
+        assertUnreachableHost(TransportType.JDK_HTTP_CLIENT);
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_11)
+    @DisplayName("The JDK HttpClient transport streams a large request body to the connection.")
+    void testJdkHttpClientStreamsLargeBody() throws Exception {
+        char[] data = new char[4 * 1024 * 1024];
+        Arrays.fill(data, 'A');
+        FaxRequest faxRequest = FaxRequest.builder()
+                .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+                .document(Document.builder().filename("test.txt").data(new String(data)).build())
+                .build();
+        try (FaxServiceClient client = FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(urlProvider)
+                .transport(TransportType.JDK_HTTP_CLIENT)
+                .build()) {
+            assertEquals(HttpStatus.SC_OK, client.sendFaxRequest(faxRequest).getStatusCode());
+            assertTrue(receivedBytes.get() > data.length);
+            assertEquals(HttpStatus.SC_OK, client.sendFaxRequestAsync(faxRequest).get(30, TimeUnit.SECONDS).getStatusCode());
+            assertTrue(receivedBytes.get() > 2L * data.length);
+        }
+    }
+
+    @Test
+    @DisplayName("The Apache HttpClient transport throws the failure of a request body that cannot be serialized.")
+    void testApacheHttpClientSerializationFailure() throws Exception {
+        assertSerializationFailure(TransportType.APACHE_HTTP_CLIENT);
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_11)
+    @DisplayName("The JDK HttpClient transport throws the failure of a request body that cannot be serialized.")
+    void testJdkHttpClientSerializationFailure() throws Exception {
+        assertSerializationFailure(TransportType.JDK_HTTP_CLIENT);
+    }
+
+    private void assertSerializationFailure(TransportType transportType) throws IOException {
+        FaxRequest faxRequest = FaxRequest.builder()
+                .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+                .document(Document.builder().filename("test.pdf").source(() -> {
+                    throw new NoSuchFileException("test.pdf");
+                }).build())
+                .build();
+        JsonEntity entity = new JsonEntity(faxRequest, JsonCodec.FAX_REQUEST_WRITER);
+        String url = urlProvider.getSendUrl() + "/12345/fax";
+        try (FaxTransport transport = transportType.create(ConnectionPoolConfig.defaults(), urlProvider)) {
+            // Not a response the server never sent, nor an unreachable location
+            assertThrows(RequestSerializationException.class, () -> transport.sendRequest("username", "password", HttpMethod.POST, url, entity));
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> transport.sendRequestAsync("username", "password", HttpMethod.POST, url, entity).get(30, TimeUnit.SECONDS));
+            assertInstanceOf(RequestSerializationException.class, exception.getCause());
+        }
+    }
+
+    private void assertUnreachableHost(TransportType transportType) throws IOException {
+        server.stop(0);
+        String url = urlProvider.getSendUrl() + "/12345/fax/reports";
+        try (FaxTransport transport = transportType.create(ConnectionPoolConfig.defaults(), urlProvider)) {
+            // Not a response the server never sent
+            assertThrows(IOException.class, () -> transport.sendRequest("username", "password", HttpMethod.GET, url, (String) null));
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> transport.sendRequestAsync("username", "password", HttpMethod.GET, url, (String) null).get(30, TimeUnit.SECONDS));
+            assertTrue(exception.getCause() instanceof IOException);
+        }
+    }
+
+    private void assertSendFaxRequest(TransportType transportType) throws IOException {
+        try (FaxServiceClient client = FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(urlProvider)
+                .transport(transportType)
+                .build()) {
+            ApiResponse<String> response = client.sendFaxRequest(faxRequest());
+            assertEquals(HttpStatus.SC_OK, response.getStatusCode());
+            assertEquals("FJLI3102O5BEPYOTB5LPC9", response.getValue());
+            assertEquals("Basic dXNlcm5hbWU6cGFzc3dvcmQ=", authorizationHeaders.poll());
+            assertEquals(0, client.getPoolStats().getLeased());
+        }
+    }
+
+    private static FaxRequest faxRequest() {
+        return FaxRequest.builder()
+                .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+                .document(Document.builder().filename("test.txt").data("dGVzdA==").build())
+                .build();
+    }
+}
@@ -0,0 +1,177 @@
+package com.retarus.fax.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retarus.fax.base.common.HttpMethod;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.sendfax.Document;
+import com.retarus.fax.base.sendfax.FaxRecipient;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.exception.ApiException;
+import com.retarus.fax.exception.RequestSerializationException;
+import com.retarus.fax.utils.JsonCodec;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.NoSuchFileException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpClientTest {
+
+    private HttpServer server;
+    private String serverUrl;
+    private final Set<InetSocketAddress> remoteAddresses = ConcurrentHashMap.newKeySet();
+    private final Queue<String> transferEncodings = new ConcurrentLinkedQueue<>();
+    private final Queue<String> requestBodies = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Make sure no client injected by other tests is used
+        HttpClient.setHttpClient(null);
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            remoteAddresses.add(exchange.getRemoteAddress());
+            transferEncodings.add(String.valueOf(exchange.getRequestHeaders().getFirst("Transfer-Encoding")));
+            try (InputStream inputStream = exchange.getRequestBody()) {
+                ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                for (int read = inputStream.read(buffer); read != -1; read = inputStream.read(buffer)) {
+                    requestBody.write(buffer, 0, read);
+                }
+                requestBodies.add(requestBody.toString("UTF-8"));
+            }
+            byte[] body = "{\"jobId\":\"FJLI3102O5BEPYOTB5LPC9\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(HttpStatus.SC_OK, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.start();
+        serverUrl = "http://localhost:" + server.getAddress().getPort() + "/rest/v1";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Consecutive requests reuse the same pooled connection.")
+    void testConnectionIsReused() throws IOException {
+        try (HttpClient httpClient = new HttpClient(ConnectionPoolConfig.defaults(), Location.MUNICH)) {
+            for (int i = 0; i < 5; i++) {
+                HttpResponse response = httpClient.sendRequest("username", "password", HttpMethod.POST, serverUrl, "{}");
+                assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+                assertEquals("{\"jobId\":\"FJLI3102O5BEPYOTB5LPC9\"}", EntityUtils.toString(response.getEntity()));
+            }
+
+            ConnectionPoolStats poolStats = httpClient.getPoolStats();
+            assertEquals(0, poolStats.getLeased());
+            assertEquals(0, poolStats.getPending());
+            assertEquals(1, poolStats.getAvailable());
+            assertEquals(1, remoteAddresses.size());
+        }
+    }
+
+    @Test
+    @DisplayName("A json entity is streamed with chunked transfer encoding.")
+    void testJsonEntityIsStreamed() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        FaxRequest faxRequest = FaxRequest.builder()
+                .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+                .document(Document.builder().filename("test.txt").data("dGVzdA==").build())
+                .build();
+        JsonEntity entity = new JsonEntity(faxRequest, objectMapper.writerFor(FaxRequest.class));
+        assertEquals(-1, entity.getContentLength());
+        assertTrue(entity.isRepeatable());
+
+        try (HttpClient httpClient = new HttpClient(ConnectionPoolConfig.defaults(), Location.MUNICH)) {
+            HttpResponse response = httpClient.sendRequest("username", "password", HttpMethod.POST, serverUrl, entity);
+            assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+        }
+
+        assertEquals("chunked", transferEncodings.poll());
+        assertEquals(objectMapper.writeValueAsString(faxRequest), requestBodies.poll());
+        assertEquals(objectMapper.writeValueAsString(faxRequest), EntityUtils.toString(entity));
+    }
+
+    @Test
+    @DisplayName("A fax request whose document cannot be read fails with a RequestSerializationException, without being sent again, "
+            + "while a failure of the connection stays a plain IOException.")
+    void testSerializationFailure() throws IOException {
+        AtomicInteger opened = new AtomicInteger();
+        FaxRequest faxRequest = FaxRequest.builder()
+                .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+                .document(Document.builder().filename("test.pdf").source(() -> {
+                    opened.incrementAndGet();
+                    throw new NoSuchFileException("test.pdf");
+                }).build())
+                .build();
+        JsonEntity entity = new JsonEntity(faxRequest, JsonCodec.FAX_REQUEST_WRITER);
+
+        try (HttpClient httpClient = new HttpClient(ConnectionPoolConfig.defaults(), Location.MUNICH)) {
+            RequestSerializationException exception = assertThrows(RequestSerializationException.class,
+                    () -> httpClient.sendRequest("username", "password", HttpMethod.POST, serverUrl, entity));
+            assertInstanceOf(NoSuchFileException.class, exception.getCause());
+        }
+        assertEquals(1, opened.get());
+
+        JsonEntity validEntity = new JsonEntity(FaxRequest.builder()
+                .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+                .document(Document.builder().filename("test.txt").data("dGVzdA==").build())
+                .build(), JsonCodec.FAX_REQUEST_WRITER);
+        IOException connectionFailure = new IOException("Connection reset");
+        IOException thrown = assertThrows(IOException.class, () -> validEntity.writeTo(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw connectionFailure;
+            }
+        }));
+        assertSame(connectionFailure, thrown);
+    }
+
+    @Test
+    @DisplayName("The pool is sized per location host.")
+    void testPoolIsSizedPerLocation() throws IOException {
+        ConnectionPoolConfig config = ConnectionPoolConfig.builder()
+                .maxTotal(30)
+                .maxPerRoute(10)
+                .maxPerRoute(Location.FRANKFURT, 20)
+                .build();
+
+        try (HttpClient httpClient = new HttpClient(config, Location.MUNICH)) {
+            assertEquals(30, httpClient.getPoolStats().getMax());
+            assertEquals(20, httpClient.getPoolStats(Location.FRANKFURT).getMax());
+            assertEquals(10, httpClient.getPoolStats(Location.MUNICH).getMax());
+        }
+    }
+
+    @Test
+    @DisplayName("The pool configuration rejects invalid values.")
+    void testInvalidConfig() {
+        assertThrows(ApiException.class, () -> ConnectionPoolConfig.builder().maxTotal(0));
+        assertThrows(ApiException.class, () -> ConnectionPoolConfig.builder().maxPerRoute(-1));
+        assertThrows(ApiException.class, () -> ConnectionPoolConfig.builder().maxPerRoute(null, 1));
+        assertThrows(ApiException.class, () -> ConnectionPoolConfig.builder().keepAlive(Duration.ZERO));
+        assertThrows(ApiException.class, () -> ConnectionPoolConfig.builder().idleTimeout(null));
+    }
+}
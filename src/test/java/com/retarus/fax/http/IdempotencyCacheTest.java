@@ -0,0 +1,241 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.CloseableIterator;
+import com.retarus.fax.base.common.HttpMethod;
+import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.sendfax.Document;
+import com.retarus.fax.base.sendfax.FaxRecipient;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.base.sendfax.Reference;
+import com.retarus.fax.exception.ApiException;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+
+    private static final String JOB_ID = "FJLI3102O5BEPYOTB5LPC9";
+
+    private final AtomicInteger sent = new AtomicInteger();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private List<FaxStatusReport> reports = Collections.emptyList();
+
+    private final IdempotencyCache cache = new IdempotencyCache(IdempotencyConfig.builder().maxEntries(2).build(), () -> {
+        lookups.incrementAndGet();
+        return iterator(reports);
+    }, Location.MUNICH);
+
+    @Test
+    @DisplayName("The fax requests with the same customer defined id share the response of the first one, and are not sent again once it got a job id.")
+    void testCoalesce() throws Exception {
+        CompletableFuture<ApiResponse<String>> pending = new CompletableFuture<>();
+        CompletableFuture<ApiResponse<String>> first = cache.send("id-1", () -> count(pending), Runnable::run);
+        CompletableFuture<ApiResponse<String>> second = cache.send("id-1", () -> count(new CompletableFuture<>()), Runnable::run);
+        assertEquals(1, sent.get());
+        assertFalse(second.isDone());
+
+        pending.complete(response(JOB_ID, HttpStatus.SC_CREATED));
+        assertEquals(JOB_ID, first.get().getValue());
+        assertEquals(JOB_ID, second.get().getValue());
+        assertEquals(JOB_ID, cache.send("id-1", () -> count(response(HttpStatus.SC_CREATED)), Runnable::run).get().getValue());
+        assertEquals(1, sent.get());
+
+        // Cancelling a shared response does not cancel it for the others
+        CompletableFuture<ApiResponse<String>> other = new CompletableFuture<>();
+        cache.send("id-2", () -> count(other), Runnable::run).cancel(true);
+        CompletableFuture<ApiResponse<String>> waiting = cache.send("id-2", () -> count(response(HttpStatus.SC_CREATED)), Runnable::run);
+        other.complete(response("OTHERJOBID", HttpStatus.SC_CREATED));
+        assertEquals("OTHERJOBID", waiting.get().getValue());
+    }
+
+    @Test
+    @DisplayName("After an ambiguous error, the fax request is only sent again if no fax report has its customer defined id.")
+    void testReconcile() throws Exception {
+        assertEquals(HttpStatus.SC_GATEWAY_TIMEOUT, cache.send("id-1", () -> count(response(HttpStatus.SC_GATEWAY_TIMEOUT)), Runnable::run).get().getStatusCode());
+        reports = Collections.singletonList(FaxStatusReport.builder().jobId(JOB_ID).reference(Reference.builder().customerDefinedId("id-1").build()).build());
+
+        ApiResponse<String> response = cache.send("id-1", () -> count(response(HttpStatus.SC_CREATED)), Runnable::run).get();
+        assertEquals(JOB_ID, response.getValue());
+        assertEquals(HttpStatus.SC_OK, response.getStatusCode());
+        assertEquals(1, sent.get());
+        assertEquals(1, lookups.get());
+
+        assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, cache.send("id-2", () -> count(response(HttpStatus.SC_SERVICE_UNAVAILABLE)), Runnable::run).get().getStatusCode());
+        assertEquals("NEWJOBID", cache.send("id-2", () -> count(response("NEWJOBID", HttpStatus.SC_CREATED)), Runnable::run).get().getValue());
+        assertEquals(3, sent.get());
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    @DisplayName("When the fax reports cannot be read after an ambiguous error, the fax request is not sent again.")
+    void testReconcileFailure() throws Exception {
+        IdempotencyCache failing = new IdempotencyCache(IdempotencyConfig.defaults(), () -> {
+            throw new ApiException("The reports cannot be read.");
+        }, Location.MUNICH);
+        failing.send("id-1", () -> count(response(HttpStatus.SC_INTERNAL_SERVER_ERROR)), Runnable::run).get();
+
+        assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, failing.send("id-1", () -> count(response(HttpStatus.SC_CREATED)), Runnable::run).get().getStatusCode());
+        assertEquals(1, sent.get());
+    }
+
+    @Test
+    @DisplayName("A fax request rejected for good is forgotten, and the oldest completed entries are forgotten beyond the maximum.")
+    void testForget() throws Exception {
+        cache.send("id-1", () -> count(response(HttpStatus.SC_BAD_REQUEST)), Runnable::run).get();
+        assertEquals(0, cache.size());
+        assertEquals(JOB_ID, cache.send("id-1", () -> count(response(JOB_ID, HttpStatus.SC_CREATED)), Runnable::run).get().getValue());
+        assertEquals(2, sent.get());
+        assertEquals(0, lookups.get());
+
+        CompletableFuture<ApiResponse<String>> inFlight = new CompletableFuture<>();
+        cache.send("id-2", () -> count(inFlight), Runnable::run);
+        cache.send("id-3", () -> count(response(HttpStatus.SC_CREATED)), Runnable::run);
+        cache.send("id-4", () -> count(response(HttpStatus.SC_CREATED)), Runnable::run);
+        assertEquals(2, cache.size());
+
+        // id-1 was forgotten, id-2 is still in flight
+        cache.send("id-1", () -> count(response(HttpStatus.SC_CREATED)), Runnable::run);
+        cache.send("id-2", () -> count(response(HttpStatus.SC_CREATED)), Runnable::run);
+        assertEquals(6, sent.get());
+    }
+
+    @Test
+    @DisplayName("A client with idempotent sends looks for the fax report after a timeout instead of sending the fax request twice.")
+    void testClient() throws IOException {
+        Deque<Integer> sendStatusCodes = new ArrayDeque<>();
+        sendStatusCodes.add(HttpStatus.SC_GATEWAY_TIMEOUT);
+        sendStatusCodes.add(HttpStatus.SC_CREATED);
+        byte[] reportsResponse = Files.readAllBytes(Paths.get("src/main/resources/get_fax_reports_response.json"));
+        FaxTransport transport = new StubTransport(httpMethod -> httpMethod == HttpMethod.POST
+                ? httpResponse(sendStatusCodes.poll(), ("{\"jobId\":\"" + JOB_ID + "\"}").getBytes(StandardCharsets.UTF_8))
+                : httpResponse(HttpStatus.SC_OK, reportsResponse));
+
+        FaxRequest faxRequest = FaxRequest.builder()
+                .reference(Reference.builder().customerDefinedId("2018-08-7T11:04:37.057Z_customerDefinedId").build())
+                .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+                .document(Document.builder().filename("test.txt").data("dGVzdA==").build())
+                .build();
+        try (FaxServiceClient client = FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(Location.MUNICH)
+                .transport(transport)
+                .retryPolicy(RetryPolicy.disabled())
+                .idempotency(IdempotencyConfig.defaults())
+                .build()) {
+            assertEquals(HttpStatus.SC_GATEWAY_TIMEOUT, client.sendFaxRequest(faxRequest).getStatusCode());
+            assertEquals(JOB_ID, client.sendFaxRequest(faxRequest).getValue());
+            assertEquals(JOB_ID, client.sendFaxRequestAsync(faxRequest).join().getValue());
+        }
+        assertEquals(1, sendStatusCodes.size());
+    }
+
+    @Test
+    @DisplayName("An invalid configuration is rejected.")
+    void testInvalidConfig() {
+        assertThrows(ApiException.class, () -> IdempotencyConfig.builder().maxEntries(0));
+        assertThrows(ApiException.class, () -> IdempotencyConfig.builder().expireAfter(Duration.ZERO));
+        assertThrows(ApiException.class, () -> IdempotencyConfig.builder().expireAfter(null));
+    }
+
+    private CompletableFuture<ApiResponse<String>> count(CompletableFuture<ApiResponse<String>> response) {
+        sent.incrementAndGet();
+        return response;
+    }
+
+    private CompletableFuture<ApiResponse<String>> count(ApiResponse<String> response) {
+        return count(CompletableFuture.completedFuture(response));
+    }
+
+    private static ApiResponse<String> response(int statusCode) {
+        return response("", statusCode);
+    }
+
+    private static ApiResponse<String> response(String jobId, int statusCode) {
+        return new ApiResponse<>(jobId, statusCode, Location.MUNICH);
+    }
+
+    private static HttpResponse httpResponse(int statusCode, byte[] body) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, "");
+        response.setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+        return response;
+    }
+
+    private static <T> CloseableIterator<T> iterator(List<T> elements) {
+        Iterator<T> iterator = elements.iterator();
+        return new CloseableIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Answers the requests in memory, by http method.
+     */
+    private static class StubTransport implements FaxTransport {
+        private final Function<HttpMethod, HttpResponse> responses;
+
+        private StubTransport(Function<HttpMethod, HttpResponse> responses) {
+            this.responses = responses;
+        }
+
+        @Override
+        public HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, String jsonPayload) {
+            return responses.apply(httpMethod);
+        }
+
+        @Override
+        public HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, HttpEntity entity) {
+            return responses.apply(httpMethod);
+        }
+
+        @Override
+        public ConnectionPoolStats getPoolStats() {
+            return new ConnectionPoolStats(0, 0, 0, 0);
+        }
+
+        @Override
+        public ConnectionPoolStats getPoolStats(Location location) {
+            return getPoolStats();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.retarus.fax.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboxLogTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("The entries that are not acknowledged are recovered when the log is opened again.")
+    void testRecover() throws Exception {
+        try (OutboxLog log = new OutboxLog(directory, SEGMENT_SIZE, 0)) {
+            assertTrue(log.getRecovered().isEmpty());
+            List<Long> ids = new ArrayList<>();
+            for (int index = 0; index < 5; index++) {
+                ids.add(log.append(payload(index)).get(10, TimeUnit.SECONDS));
+            }
+            log.ack(ids.get(1));
+            log.ack(ids.get(3));
+            assertEquals(3, log.getPendingCount());
+        }
+
+        try (OutboxLog log = new OutboxLog(directory, SEGMENT_SIZE, 0)) {
+            assertEquals(Arrays.asList(0L, 2L, 4L), log.getRecovered());
+            assertArrayEquals(payload(2), log.read(2));
+            assertNull(log.read(1));
+            // The ids keep growing, so an old acknowledgement never matches a new entry
+            assertEquals(5L, log.append(payload(5)).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("A torn or damaged record ends the recovery, and is overwritten by the next entries.")
+    void testDamagedTail() throws Exception {
+        try (OutboxLog log = new OutboxLog(directory, SEGMENT_SIZE, 0)) {
+            for (int index = 0; index < 3; index++) {
+                log.append(payload(index)).get(10, TimeUnit.SECONDS);
+            }
+        }
+        // Flips a byte in the payload of the last entry
+        Path segment = segments().get(0);
+        int lastPosition = 2 * (OutboxLog.HEADER_SIZE + payload(0).length);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), lastPosition + OutboxLog.HEADER_SIZE);
+        }
+
+        try (OutboxLog log = new OutboxLog(directory, SEGMENT_SIZE, 0)) {
+            assertEquals(Arrays.asList(0L, 1L), log.getRecovered());
+            log.append(payload(7)).get(10, TimeUnit.SECONDS);
+        }
+        try (OutboxLog log = new OutboxLog(directory, SEGMENT_SIZE, 0)) {
+            assertEquals(Arrays.asList(0L, 1L, 2L), log.getRecovered());
+            assertArrayEquals(payload(7), log.read(2));
+        }
+    }
+
+    @Test
+    @DisplayName("The log moves to a new segment when one is full, and deletes the full segments once all their entries are acknowledged.")
+    void testSegments() throws Exception {
+        try (OutboxLog log = new OutboxLog(directory, SEGMENT_SIZE, 0)) {
+            List<CompletableFuture<Long>> appended = new ArrayList<>();
+            for (int index = 0; index < 100; index++) {
+                appended.add(log.append(payload(index)));
+            }
+            List<Long> ids = new ArrayList<>();
+            for (CompletableFuture<Long> id : appended) {
+                ids.add(id.get(10, TimeUnit.SECONDS));
+            }
+            assertTrue(log.getSegmentCount() > 2, "segments " + log.getSegmentCount());
+            assertEquals(log.getSegmentCount(), segments().size());
+
+            // The oldest entry holds back the deletion of every segment
+            int segmentCount = log.getSegmentCount();
+            for (long id : ids.subList(1, ids.size())) {
+                log.ack(id);
+            }
+            assertTrue(log.getSegmentCount() > segmentCount, "segments " + log.getSegmentCount());
+            assertEquals(log.getSegmentCount(), segments().size());
+
+            log.ack(ids.get(0));
+            assertEquals(1, log.getSegmentCount());
+            assertEquals(1, segments().size());
+        }
+        try (OutboxLog log = new OutboxLog(directory, SEGMENT_SIZE, 0)) {
+            assertTrue(log.getRecovered().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("An entry that does not fit in a segment, or appended to a closed log, is rejected.")
+    void testRejected() throws Exception {
+        OutboxLog log = new OutboxLog(directory, SEGMENT_SIZE, 0);
+        assertThrows(IllegalArgumentException.class, () -> log.append(new byte[SEGMENT_SIZE]));
+        log.close();
+        assertThrows(IllegalStateException.class, () -> log.append(payload(0)));
+    }
+
+    @Test
+    @DisplayName("A directory is used by a single log at a time, and is free again once the log is closed.")
+    void testLocked() throws Exception {
+        try (OutboxLog log = new OutboxLog(directory, SEGMENT_SIZE, 0)) {
+            assertThrows(IOException.class, () -> new OutboxLog(directory, SEGMENT_SIZE, 0));
+            log.append(payload(0)).get(10, TimeUnit.SECONDS);
+        }
+        try (OutboxLog log = new OutboxLog(directory, SEGMENT_SIZE, 0)) {
+            assertEquals(1, log.getRecovered().size());
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".log")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static byte[] payload(int index) {
+        return String.format("{\"faxRequest\":%05d}", index).getBytes(StandardCharsets.UTF_8);
+    }
+}
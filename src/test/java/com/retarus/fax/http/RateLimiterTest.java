@@ -0,0 +1,196 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.common.HttpMethod;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.RequestURL;
+import com.retarus.fax.exception.ApiException;
+import com.retarus.fax.exception.RateLimitExceededException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RateLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final String BASE_URL = Location.MUNICH.getFetchUrl() + "/12345/fax";
+
+    private long now;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        HttpClient.setHttpClient(null);
+    }
+
+    @Test
+    @DisplayName("The token bucket lets a burst through, then one permit per interval.")
+    void testTokenBucket() {
+        TokenBucket bucket = new TokenBucket(10, 3, () -> now);
+        assertEquals(3, bucket.getAvailablePermits());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertEquals(0, bucket.getAvailablePermits());
+
+        now += 100 * MILLIS;
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // An idle bucket does not save more permits than its burst size
+        now += 10_000 * MILLIS;
+        assertEquals(3, bucket.getAvailablePermits());
+    }
+
+    @Test
+    @DisplayName("A reserved permit tells how long to wait, and nothing is reserved beyond the maximum wait.")
+    void testReserve() {
+        TokenBucket bucket = new TokenBucket(10, 1, () -> now);
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(-1, bucket.reserve(0));
+        assertEquals(100 * MILLIS, bucket.reserve(150 * MILLIS));
+        // The first reservation is paid back after 100ms, the second after 200ms
+        assertEquals(-1, bucket.reserve(150 * MILLIS));
+        assertEquals(200 * MILLIS, bucket.reserve(200 * MILLIS));
+    }
+
+    @Test
+    @DisplayName("Concurrent threads never take more permits than the bucket holds.")
+    void testConcurrentAcquire() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, 1000, () -> now);
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 10_000; j++) {
+                    if (bucket.tryAcquire()) {
+                        acquired.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1000, acquired.get());
+    }
+
+    @Test
+    @DisplayName("Each request is limited by the bucket of its kind.")
+    void testEndpointType() {
+        String customerUrl = RequestURL.FETCH_REPORTS_FOR_ACCOUNT.toString().replace(RequestURL.Constants.CUSTOMER_NUMBER_TAG, "12345");
+        assertEquals(EndpointType.SEND, EndpointType.of(HttpMethod.POST, BASE_URL));
+        assertEquals(EndpointType.BULK, EndpointType.of(HttpMethod.POST, Location.MUNICH.getFetchUrl() + customerUrl));
+        assertEquals(EndpointType.FETCH, EndpointType.of(HttpMethod.GET, Location.MUNICH.getFetchUrl() + customerUrl));
+        assertEquals(EndpointType.FETCH, EndpointType.of(HttpMethod.GET, BASE_URL + "/reports/JOB"));
+        assertEquals(EndpointType.DELETE, EndpointType.of(HttpMethod.DELETE, BASE_URL + "/reports/JOB"));
+    }
+
+    @Test
+    @DisplayName("The clients of a customer number share the limits, without a limit on the other kinds of requests.")
+    void testSharedLimits() throws IOException {
+        mockHttpClient();
+        RateLimitConfig config = RateLimitConfig.builder()
+                .limit(EndpointType.SEND, 0.001, 2)
+                .maxWait(Duration.ZERO)
+                .build();
+        try (FaxServiceClient client = client("shared", config);
+             FaxServiceClient sameCustomer = client("shared", RateLimitConfig.builder().limit(EndpointType.SEND, 0.001, 2).maxWait(Duration.ZERO).build());
+             FaxServiceClient otherCustomer = client("other", config)) {
+            client.sendRequest(HttpMethod.POST, BASE_URL, "{}");
+            assertEquals(1, sameCustomer.getAvailablePermits(EndpointType.SEND));
+            sameCustomer.sendRequest(HttpMethod.POST, BASE_URL, "{}");
+
+            assertThrows(RateLimitExceededException.class, () -> client.sendRequest(HttpMethod.POST, BASE_URL, "{}"));
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> sameCustomer.sendRequestAsync(HttpMethod.POST, BASE_URL, "{}").get(10, TimeUnit.SECONDS));
+            assertTrue(exception.getCause() instanceof RateLimitExceededException);
+            assertEquals(2, requests.get());
+
+            assertEquals(Integer.MAX_VALUE, client.getAvailablePermits(EndpointType.FETCH));
+            client.sendRequest(HttpMethod.GET, BASE_URL + "/reports");
+            otherCustomer.sendRequest(HttpMethod.POST, BASE_URL, "{}");
+            assertEquals(4, requests.get());
+        }
+    }
+
+    @Test
+    @DisplayName("An asynchronous request waits for its permit without blocking the caller.")
+    void testAsyncWait() throws Exception {
+        mockHttpClient();
+        RateLimitConfig config = RateLimitConfig.builder()
+                .limit(EndpointType.FETCH, 5, 1)
+                .build();
+        try (FaxServiceClient client = client("async", config)) {
+            long start = System.nanoTime();
+            CompletableFuture<HttpResponse> first = client.sendRequestAsync(HttpMethod.GET, BASE_URL + "/reports", (String) null);
+            CompletableFuture<HttpResponse> second = client.sendRequestAsync(HttpMethod.GET, BASE_URL + "/reports", (String) null);
+            assertFalse(second.isDone());
+
+            assertEquals(HttpStatus.SC_OK, first.get(10, TimeUnit.SECONDS).getStatusLine().getStatusCode());
+            assertEquals(HttpStatus.SC_OK, second.get(10, TimeUnit.SECONDS).getStatusLine().getStatusCode());
+            assertTrue(System.nanoTime() - start >= 150 * MILLIS);
+        }
+    }
+
+    @Test
+    @DisplayName("An invalid rate limit is rejected.")
+    void testInvalidConfig() {
+        assertThrows(ApiException.class, () -> RateLimitConfig.builder().limit(EndpointType.SEND, 0, 1));
+        assertThrows(ApiException.class, () -> RateLimitConfig.builder().limit(EndpointType.SEND, 1, 0));
+        assertThrows(ApiException.class, () -> RateLimitConfig.builder().maxWait(Duration.ofSeconds(-1)));
+    }
+
+    private void mockHttpClient() throws IOException {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        when(mockHttpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            requests.incrementAndGet();
+            CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+            when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK"));
+            return response;
+        });
+        HttpClient.setHttpClient(mockHttpClient);
+    }
+
+    private static FaxServiceClient client(String customerNumber, RateLimitConfig config) {
+        // The limits are shared in the JVM, a unique customer number keeps the tests apart
+        return FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .customerNumber("RateLimiterTest-" + customerNumber)
+                .locale(Location.MUNICH)
+                .rateLimit(config)
+                .build();
+    }
+}
@@ -0,0 +1,156 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.common.HttpMethod;
+import com.retarus.fax.base.responses.Reason;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.Region;
+import com.retarus.fax.base.rest.URLProvider;
+import com.retarus.fax.exception.ApiException;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportDrainerTest {
+
+    private final ReportServer server = new ReportServer();
+
+    @Test
+    @DisplayName("Every location of the region is drained until it has no more reports, and the reports not deleted are counted once by reason.")
+    void testDrain() throws IOException {
+        server.add(Location.MUNICH, 2500);
+        server.add(Location.FRANKFURT, 1200);
+        server.failing.add("F5");
+
+        try (FaxServiceClient client = client(Region.EUROPE)) {
+            ReportDrainProgress progress = client.drainReports().join();
+            assertTrue(progress.isDone());
+            assertEquals(3699, progress.getDeleted());
+            assertEquals(1, progress.getNotDeleted(Reason.INTERNAL_ERROR));
+            assertEquals(1, progress.getNotDeleted().size());
+            assertTrue(progress.getFailedLocations().isEmpty());
+            // Munich: 1000, 1000, 500 and no more reports; Frankfurt: 1000, 200 and the failing report alone
+            assertEquals(7, progress.getRequests());
+        }
+        assertTrue(server.reports.get(Location.MUNICH).isEmpty());
+        assertEquals(1, server.reports.get(Location.FRANKFURT).size());
+    }
+
+    @Test
+    @DisplayName("The requests of a location are paced, the progress is reported after each of them, and a failing location is not requested again.")
+    void testPacingAndFailure() throws IOException {
+        server.add(Location.MUNICH, 1500);
+        List<ReportDrainProgress> updates = new CopyOnWriteArrayList<>();
+
+        try (FaxServiceClient client = client(Location.MUNICH)) {
+            ReportDrainProgress progress = client.drainReports(Duration.ofMillis(100), updates::add).join();
+            assertEquals(1500, progress.getDeleted());
+            assertEquals(3, progress.getRequests());
+            assertTrue(progress.getElapsed().toMillis() >= 200);
+            assertEquals(3, updates.size());
+            assertTrue(updates.get(2).isDone());
+            assertFalse(updates.get(1).isDone());
+
+            server.statusCode = HttpStatus.SC_INTERNAL_SERVER_ERROR;
+            server.add(Location.MUNICH, 10);
+            progress = client.drainReports().join();
+            assertEquals(1, progress.getRequests());
+            assertEquals(HttpStatus.SC_INTERNAL_SERVER_ERROR, progress.getFailedLocations().get(Location.MUNICH));
+        }
+
+        assertThrows(ApiException.class, () -> ReportDrainer.builder(null).build());
+        assertThrows(ApiException.class, () -> ReportDrainer.builder(null).requestInterval(Duration.ofMillis(-1)));
+    }
+
+    private FaxServiceClient client(URLProvider locale) {
+        return FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(locale)
+                .transport(server)
+                .retryPolicy(RetryPolicy.disabled())
+                .build();
+    }
+
+    /**
+     * Holds the reports of each location in memory, and deletes the oldest 1000 of them per request.
+     */
+    private static class ReportServer implements FaxTransport {
+        private final Map<Location, Set<String>> reports = new ConcurrentHashMap<>();
+        private final Set<String> failing = new ConcurrentSkipListSet<>();
+        private volatile int statusCode = HttpStatus.SC_OK;
+
+        private void add(Location location, int count) {
+            Set<String> jobIds = reports.computeIfAbsent(location, key -> new ConcurrentSkipListSet<>());
+            for (int i = 0; i < count; i++) {
+                jobIds.add(location.name().charAt(0) + String.valueOf(i));
+            }
+        }
+
+        @Override
+        public HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, String jsonPayload) {
+            if (statusCode != HttpStatus.SC_OK) {
+                return response(statusCode, "");
+            }
+            Set<String> jobIds = reports.get(Location.fromUrl(requestUrl));
+            if (jobIds == null || jobIds.isEmpty()) {
+                return response(HttpStatus.SC_NOT_FOUND, "");
+            }
+            StringBuilder deletionReports = new StringBuilder();
+            Iterator<String> iterator = jobIds.iterator();
+            for (int i = 0; i < 1000 && iterator.hasNext(); i++) {
+                String jobId = iterator.next();
+                boolean deleted = !failing.contains(jobId);
+                if (deleted) {
+                    iterator.remove();
+                }
+                deletionReports.append(i == 0 ? "" : ",").append("{\"jobId\":\"").append(jobId).append("\",\"deleted\":").append(deleted)
+                        .append(deleted ? "" : ",\"reason\":\"INTERNAL_ERROR\"").append('}');
+            }
+            return response(HttpStatus.SC_OK, "{\"reports\":[" + deletionReports + "]}");
+        }
+
+        @Override
+        public HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, HttpEntity entity) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ConnectionPoolStats getPoolStats() {
+            return new ConnectionPoolStats(0, 0, 0, 0);
+        }
+
+        @Override
+        public ConnectionPoolStats getPoolStats(Location location) {
+            return getPoolStats();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private static HttpResponse response(int statusCode, String body) {
+            HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, "");
+            response.setEntity(new ByteArrayEntity(body.getBytes(StandardCharsets.UTF_8), ContentType.APPLICATION_JSON));
+            return response;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.RetarusFax;
+import com.retarus.fax.base.ChunkedBulkOperation;
+import com.retarus.fax.base.common.HttpMethod;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.exception.ApiException;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportPollerTest {
+
+    private static final Pattern JOB_ID = Pattern.compile("J\\d+");
+
+    private final ReportServer server = new ReportServer();
+    private final FaxServiceClient client = FaxServiceClient.builder()
+            .username("username")
+            .password("password")
+            .locale(Location.MUNICH)
+            .transport(server)
+            .retryPolicy(RetryPolicy.disabled())
+            .build();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+    }
+
+    @Test
+    @DisplayName("The reports every listener processed are deleted, the others are handed to the listeners again with the next poll.")
+    void testPollOnce() {
+        server.add(3);
+        List<String> handled = new CopyOnWriteArrayList<>();
+        Set<String> failing = new ConcurrentSkipListSet<>();
+        failing.add("J1");
+        ReportPoller poller = ReportPoller.builder(client)
+                .listener(report -> handled.add(report.getJobId()))
+                .listener(report -> {
+                    if (failing.contains(report.getJobId())) {
+                        throw new IllegalStateException("Not now.");
+                    }
+                })
+                .build();
+
+        ReportPollerMetrics metrics = poller.pollOnce().join();
+        assertEquals(3, metrics.getFetched());
+        assertEquals(2, metrics.getAcknowledged());
+        assertEquals(2, metrics.getDeleted());
+        assertEquals(1, metrics.getListenerFailures());
+        assertEquals(1, server.remaining.size());
+        assertTrue(server.remaining.contains("J1"));
+
+        failing.clear();
+        metrics = poller.pollOnce().join();
+        assertEquals(3, metrics.getDeleted());
+        assertEquals(0, metrics.getFetchFailures());
+        assertTrue(server.remaining.isEmpty());
+        assertEquals(4, handled.size());
+        assertEquals(2, handled.stream().filter("J1"::equals).count());
+    }
+
+    @Test
+    @DisplayName("The acknowledged reports are deleted in bulk operations of at most 1000 job ids.")
+    void testBatches() {
+        server.add(2500);
+        ReportPoller poller = ReportPoller.builder(client)
+                .listener(report -> {
+                })
+                .parallelism(4)
+                .build();
+
+        ReportPollerMetrics metrics = poller.pollOnce().join();
+        assertEquals(2500, metrics.getAcknowledged());
+        assertEquals(2500, metrics.getDeleted());
+        assertEquals(3, server.deletions.size());
+        assertTrue(server.deletions.stream().allMatch(size -> size <= ChunkedBulkOperation.MAX_CHUNK_SIZE));
+        assertTrue(server.remaining.isEmpty());
+    }
+
+    @Test
+    @DisplayName("The reports are handed to the listeners at the same time without waiting for a free thread, even on an executor of a single thread.")
+    void testParallelismOnBoundedExecutor() throws Exception {
+        ExecutorService executorService = RetarusFax.getExecutorService();
+        ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        RetarusFax.setExecutorService(singleThreadExecutor);
+        try {
+            server.add(50);
+            Set<String> handled = new ConcurrentSkipListSet<>();
+            ReportPoller poller = ReportPoller.builder(client)
+                    .listener(report -> handled.add(report.getJobId()))
+                    .parallelism(8)
+                    .build();
+
+            ReportPollerMetrics metrics = poller.pollOnce().get(10, TimeUnit.SECONDS);
+            assertEquals(50, metrics.getAcknowledged());
+            assertEquals(50, metrics.getDeleted());
+            assertEquals(50, handled.size());
+            assertTrue(server.remaining.isEmpty());
+        } finally {
+            RetarusFax.setExecutorService(executorService);
+            singleThreadExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("A started poller polls again at once while all reports were deleted, until it is closed.")
+    void testStart() throws InterruptedException {
+        server.pageSize = 100;
+        server.add(350);
+        ReportPoller poller = ReportPoller.builder(client)
+                .listener(report -> {
+                })
+                .pollInterval(Duration.ofMinutes(1))
+                .build();
+
+        poller.start();
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (poller.getMetrics().getPolls() < 5 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // Four pages, then the empty poll that waits for the interval
+        Thread.sleep(50);
+        poller.close();
+
+        assertTrue(server.remaining.isEmpty());
+        assertEquals(350, poller.getMetrics().getDeleted());
+        assertEquals(5, poller.getMetrics().getPolls());
+        assertThrows(IllegalStateException.class, poller::start);
+    }
+
+    @Test
+    @DisplayName("A failed fetch is counted, and an invalid configuration is rejected.")
+    void testFailures() {
+        server.fetchStatusCode = HttpStatus.SC_SERVICE_UNAVAILABLE;
+        server.add(1);
+        ReportPoller poller = ReportPoller.builder(client).listener(report -> {
+        }).build();
+        ReportPollerMetrics metrics = poller.pollOnce().join();
+        assertEquals(1, metrics.getFetchFailures());
+        assertEquals(0, metrics.getFetched());
+
+        // A response without a reports list has no reports
+        server.fetchStatusCode = HttpStatus.SC_OK;
+        server.fetchBody = "{\"reports\":null}";
+        metrics = poller.pollOnce().join();
+        assertEquals(2, metrics.getPolls());
+        assertEquals(1, metrics.getFetchFailures());
+        assertEquals(0, metrics.getFetched());
+
+        assertThrows(ApiException.class, () -> ReportPoller.builder(client).build());
+        assertThrows(ApiException.class, () -> ReportPoller.builder(client).listener(null));
+        assertThrows(ApiException.class, () -> ReportPoller.builder(client).parallelism(0));
+        assertThrows(ApiException.class, () -> ReportPoller.builder(client).pollInterval(Duration.ZERO));
+    }
+
+    @Test
+    @DisplayName("The fetch of the reports does not hold a thread of the executor while it is in flight.")
+    void testFetchDoesNotBlockExecutor() throws Exception {
+        ExecutorService executorService = RetarusFax.getExecutorService();
+        ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        RetarusFax.setExecutorService(singleThreadExecutor);
+        try {
+            server.add(3);
+            server.fetchGate = new CompletableFuture<>();
+            ReportPoller poller = ReportPoller.builder(client)
+                    .listener(report -> {
+                    })
+                    .build();
+
+            CompletableFuture<ReportPollerMetrics> metrics = poller.pollOnce();
+            // The only thread of the executor is free while the response is awaited
+            assertEquals("free", singleThreadExecutor.submit(() -> "free").get(5, TimeUnit.SECONDS));
+            assertFalse(metrics.isDone());
+
+            server.fetchGate.complete(null);
+            assertEquals(3, metrics.get(10, TimeUnit.SECONDS).getDeleted());
+        } finally {
+            RetarusFax.setExecutorService(executorService);
+            singleThreadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Holds the reports in memory, answers the fetches with a page of them, and deletes them by job id.
+     */
+    private static class ReportServer implements FaxTransport {
+        private final Set<String> remaining = new ConcurrentSkipListSet<>();
+        private final List<Integer> deletions = new CopyOnWriteArrayList<>();
+        private volatile int pageSize = Integer.MAX_VALUE;
+        private volatile int fetchStatusCode = HttpStatus.SC_OK;
+        private volatile String fetchBody;
+        // Holds the asynchronous fetches back until it is completed, without a thread
+        private volatile CompletableFuture<Void> fetchGate;
+
+        private void add(int count) {
+            for (int i = 0; i < count; i++) {
+                remaining.add("J" + i);
+            }
+        }
+
+        @Override
+        public HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, String jsonPayload) {
+            if (httpMethod == HttpMethod.GET) {
+                if (fetchStatusCode != HttpStatus.SC_OK) {
+                    return response(fetchStatusCode, "");
+                }
+                if (fetchBody != null) {
+                    return response(HttpStatus.SC_OK, fetchBody);
+                }
+                return response(HttpStatus.SC_OK, remaining.stream().limit(pageSize)
+                        .map(jobId -> "{\"jobId\":\"" + jobId + "\"}")
+                        .collect(Collectors.joining(",", "{\"reports\":[", "]}")));
+            }
+            StringBuilder reports = new StringBuilder();
+            int count = 0;
+            Matcher matcher = JOB_ID.matcher(jsonPayload);
+            while (matcher.find()) {
+                reports.append(count++ == 0 ? "" : ",")
+                        .append("{\"jobId\":\"").append(matcher.group()).append("\",\"deleted\":").append(remaining.remove(matcher.group())).append('}');
+            }
+            deletions.add(count);
+            return response(HttpStatus.SC_OK, "{\"reports\":[" + reports + "]}");
+        }
+
+        @Override
+        public HttpResponse sendRequest(String username, String password, HttpMethod httpMethod, String requestUrl, HttpEntity entity) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<HttpResponse> sendRequestAsync(String username, String password, HttpMethod httpMethod, String requestUrl, String jsonPayload) {
+            CompletableFuture<Void> gate = fetchGate;
+            if (httpMethod == HttpMethod.GET && gate != null) {
+                return gate.thenApply(ignored -> sendRequest(username, password, httpMethod, requestUrl, jsonPayload));
+            }
+            return FaxTransport.super.sendRequestAsync(username, password, httpMethod, requestUrl, jsonPayload);
+        }
+
+        @Override
+        public ConnectionPoolStats getPoolStats() {
+            return new ConnectionPoolStats(0, 0, 0, 0);
+        }
+
+        @Override
+        public ConnectionPoolStats getPoolStats(Location location) {
+            return getPoolStats();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private static HttpResponse response(int statusCode, String body) {
+            HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, "");
+            response.setEntity(new ByteArrayEntity(body.getBytes(StandardCharsets.UTF_8), ContentType.APPLICATION_JSON));
+            return response;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.CloseableIterator;
+import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.rest.Region;
+import com.retarus.fax.base.rest.URLProvider;
+import com.retarus.fax.exception.AuthException;
+import com.retarus.fax.v1.rest.fetcher.AvailableFaxReportsRetriever;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ReportStreamingTest {
+
+    private CloseableHttpClient mockHttpClient;
+    private final List<String> requestedUrls = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        mockHttpClient = mock(CloseableHttpClient.class);
+        HttpClient.setHttpClient(mockHttpClient);
+    }
+
+    @AfterEach
+    void tearDown() {
+        HttpClient.setHttpClient(null);
+    }
+
+    @Test
+    @DisplayName("Every report is streamed and the body is closed once the last report is read, without aborting the connection.")
+    void testStreamReports() throws IOException {
+        TrackedResponse response = respondWith(HttpStatus.SC_OK, reportsJson("JOB", 2000));
+        when(mockHttpClient.execute(any(HttpUriRequest.class))).thenReturn(response.response);
+
+        try (FaxServiceClient client = client(Location.MUNICH); Stream<FaxStatusReport> reports = client.streamReports()) {
+            List<FaxStatusReport> reportList = reports.collect(Collectors.toList());
+            assertEquals(2000, reportList.size());
+            assertEquals("JOB0", reportList.get(0).getJobId());
+            assertEquals("JOB1999", reportList.get(1999).getJobId());
+            assertEquals(Location.MUNICH, reportList.get(0).getLocale());
+            assertTrue(response.bodyClosed.get());
+        }
+        verify(response.response, never()).close();
+    }
+
+    @Test
+    @DisplayName("Closing the stream before the last report aborts the response.")
+    void testCloseStreamEarly() throws IOException {
+        TrackedResponse response = respondWith(HttpStatus.SC_OK, reportsJson("JOB", 2000));
+        when(mockHttpClient.execute(any(HttpUriRequest.class))).thenReturn(response.response);
+
+        try (FaxServiceClient client = client(Location.MUNICH); Stream<FaxStatusReport> reports = client.streamReports()) {
+            assertEquals(10, reports.limit(10).count());
+        }
+        verify(response.response).close();
+    }
+
+    @Test
+    @DisplayName("The locations of a region are requested one after the other, once the reports of the previous one are read.")
+    void testIterateRegion() throws IOException {
+        TrackedResponse frankfurt = respondWith(HttpStatus.SC_OK, reportsJson("FRA", 2));
+        TrackedResponse munich = respondWith(HttpStatus.SC_OK, reportsJson("MUC", 1));
+        when(mockHttpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            requestedUrls.add(((HttpUriRequest) invocation.getArgument(0)).getURI().toString());
+            return requestedUrls.size() == 1 ? frankfurt.response : munich.response;
+        });
+
+        try (FaxServiceClient client = client(Region.EUROPE); CloseableIterator<FaxStatusReport> reports = client.iterateReports()) {
+            assertEquals("FRA0", reports.next().getJobId());
+            assertEquals("FRA1", reports.next().getJobId());
+            assertEquals(1, requestedUrls.size());
+            assertEquals("MUC0", reports.next().getJobId());
+            assertEquals(2, requestedUrls.size());
+            assertFalse(reports.hasNext());
+        }
+        assertTrue(requestedUrls.get(0).startsWith(Location.FRANKFURT.getFetchUrl()));
+        assertTrue(requestedUrls.get(1).startsWith(Location.MUNICH.getFetchUrl()));
+    }
+
+    @Test
+    @DisplayName("The reports of a fetch are bound while the body is read from the connection, the body is not buffered first.")
+    void testGetReadsFromConnection() throws IOException {
+        String reports = reportsJson("JOB", 10);
+        // Whitespace after the reports, which a buffered response reads but the parser never needs
+        StringBuilder body = new StringBuilder(reports);
+        for (int i = 0; i < 1024 * 1024; i++) {
+            body.append(' ');
+        }
+        TrackedResponse response = respondWith(HttpStatus.SC_OK, body.toString());
+        when(mockHttpClient.execute(any(HttpUriRequest.class))).thenReturn(response.response);
+
+        try (FaxServiceClient client = client(Location.MUNICH)) {
+            ApiResponse<List<FaxStatusReport>> reportsResponse = new AvailableFaxReportsRetriever(client, Location.MUNICH).get(null);
+            assertEquals(HttpStatus.SC_OK, reportsResponse.getStatusCode());
+            assertEquals(10, reportsResponse.getValue().size());
+            assertTrue(response.bodyClosed.get());
+            assertTrue(response.bytesRead.get() < body.length() / 2);
+        }
+    }
+
+    @Test
+    @DisplayName("A location without reports is skipped, a failed authentication is thrown.")
+    void testErrorResponses() throws IOException {
+        CloseableHttpResponse notFound = respondWith(HttpStatus.SC_NOT_FOUND, "").response;
+        when(mockHttpClient.execute(any(HttpUriRequest.class))).thenReturn(notFound);
+        try (FaxServiceClient client = client(Location.MUNICH); CloseableIterator<FaxStatusReport> reports = client.iterateReports()) {
+            assertFalse(reports.hasNext());
+        }
+
+        CloseableHttpResponse unauthorized = respondWith(HttpStatus.SC_UNAUTHORIZED, "").response;
+        when(mockHttpClient.execute(any(HttpUriRequest.class))).thenReturn(unauthorized);
+        try (FaxServiceClient client = client(Location.MUNICH); CloseableIterator<FaxStatusReport> reports = client.iterateReports()) {
+            assertThrows(AuthException.class, reports::hasNext);
+        }
+    }
+
+    private static FaxServiceClient client(URLProvider locale) {
+        return FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .customerNumber("12345")
+                .locale(locale)
+                .build();
+    }
+
+    private static String reportsJson(String jobIdPrefix, int count) {
+        StringBuilder json = new StringBuilder("{\"reports\":[");
+        for (int i = 0; i < count; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"jobId\":\"").append(jobIdPrefix).append(i).append("\",\"recipientStatus\":[],\"pages\":1}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static TrackedResponse respondWith(int statusCode, String body) {
+        TrackedResponse trackedResponse = new TrackedResponse();
+        InputStream content = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] bytes, int offset, int length) {
+                int read = super.read(bytes, offset, length);
+                trackedResponse.bytesRead.addAndGet(Math.max(read, 0));
+                return read;
+            }
+
+            @Override
+            public void close() {
+                trackedResponse.bodyClosed.set(true);
+            }
+        };
+        trackedResponse.response = mock(CloseableHttpResponse.class);
+        when(trackedResponse.response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, statusCode, ""));
+        when(trackedResponse.response.getEntity()).thenReturn(new InputStreamEntity(content));
+        return trackedResponse;
+    }
+
+    private static class TrackedResponse {
+        private CloseableHttpResponse response;
+        private final AtomicBoolean bodyClosed = new AtomicBoolean();
+        private final AtomicLong bytesRead = new AtomicLong();
+    }
+}
@@ -0,0 +1,222 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.common.HttpMethod;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.exception.ApiException;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RetryTest {
+
+    private static final String URL = Location.MUNICH.getFetchUrl() + "/12345/fax/reports";
+
+    private final Deque<Object> outcomes = new ArrayDeque<>();
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        HttpClient.setHttpClient(null);
+    }
+
+    @Test
+    @DisplayName("A GET request is retried on a 503 until the server answers.")
+    void testRetriesIdempotentRequest() throws IOException {
+        try (FaxServiceClient client = client(RetryPolicy.builder().baseDelay(Duration.ofMillis(1)).build())) {
+            outcomes.add(status(HttpStatus.SC_SERVICE_UNAVAILABLE, "0"));
+            outcomes.add(new SocketTimeoutException("Read timed out"));
+            outcomes.add(status(HttpStatus.SC_OK, null));
+
+            assertEquals(HttpStatus.SC_OK, client.sendRequest(HttpMethod.GET, URL).getStatusLine().getStatusCode());
+            assertEquals(3, attempts.get());
+        }
+    }
+
+    @Test
+    @DisplayName("The response of the last attempt is returned when all attempts fail.")
+    void testReturnsLastResponse() throws IOException {
+        try (FaxServiceClient client = client(RetryPolicy.builder().maxAttempts(2).baseDelay(Duration.ofMillis(1)).build())) {
+            outcomes.add(status(HttpStatus.SC_BAD_GATEWAY, null));
+            outcomes.add(status(HttpStatus.SC_GATEWAY_TIMEOUT, null));
+            outcomes.add(status(HttpStatus.SC_OK, null));
+
+            assertEquals(HttpStatus.SC_GATEWAY_TIMEOUT, client.sendRequest(HttpMethod.DELETE, URL).getStatusLine().getStatusCode());
+            assertEquals(2, attempts.get());
+        }
+    }
+
+    @Test
+    @DisplayName("A POST request is only retried when it was certainly not processed.")
+    void testRetriesNonIdempotentRequestOnlyWhenNotProcessed() throws IOException {
+        try (FaxServiceClient client = client(RetryPolicy.builder().baseDelay(Duration.ofMillis(1)).build())) {
+            outcomes.add(status(HttpStatus.SC_SERVICE_UNAVAILABLE, null));
+            assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, client.sendRequest(HttpMethod.POST, URL, "{}").getStatusLine().getStatusCode());
+            assertEquals(1, attempts.get());
+
+            outcomes.add(new SocketTimeoutException("Read timed out"));
+            assertThrows(SocketTimeoutException.class, () -> client.sendRequest(HttpMethod.POST, URL, "{}"));
+            assertEquals(2, attempts.get());
+
+            outcomes.add(new ConnectException("Connection refused"));
+            outcomes.add(status(HttpStatus.SC_TOO_MANY_REQUESTS, "0"));
+            outcomes.add(status(HttpStatus.SC_OK, null));
+            assertEquals(HttpStatus.SC_OK, client.sendRequest(HttpMethod.POST, URL, "{}").getStatusLine().getStatusCode());
+            assertEquals(5, attempts.get());
+        }
+    }
+
+    @Test
+    @DisplayName("A body that cannot be sent twice is never retried.")
+    void testNonRepeatableEntityIsNotRetried() throws IOException {
+        try (FaxServiceClient client = client(RetryPolicy.builder().baseDelay(Duration.ofMillis(1)).build())) {
+            outcomes.add(status(HttpStatus.SC_SERVICE_UNAVAILABLE, null));
+            InputStreamEntity entity = new InputStreamEntity(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+
+            assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, client.sendRequest(HttpMethod.GET, URL, entity).getStatusLine().getStatusCode());
+            assertEquals(1, attempts.get());
+        }
+    }
+
+    @Test
+    @DisplayName("A Retry-After longer than the maximum is not waited for.")
+    void testLongRetryAfterIsNotRetried() throws IOException {
+        try (FaxServiceClient client = client(RetryPolicy.builder().maxRetryAfter(Duration.ofSeconds(1)).build())) {
+            outcomes.add(status(HttpStatus.SC_SERVICE_UNAVAILABLE, "120"));
+
+            assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, client.sendRequest(HttpMethod.GET, URL).getStatusLine().getStatusCode());
+            assertEquals(1, attempts.get());
+        }
+    }
+
+    @Test
+    @DisplayName("The retries stop when the retry budget is spent.")
+    void testRetryBudget() throws IOException {
+        try (FaxServiceClient client = client(RetryPolicy.builder().baseDelay(Duration.ofMillis(1)).budget(0, 1).build())) {
+            for (int i = 0; i < 4; i++) {
+                outcomes.add(status(HttpStatus.SC_SERVICE_UNAVAILABLE, null));
+            }
+
+            // The reserve allows a single retry, the ratio never refills it
+            client.sendRequest(HttpMethod.GET, URL);
+            assertEquals(2, attempts.get());
+            client.sendRequest(HttpMethod.GET, URL);
+            assertEquals(3, attempts.get());
+        }
+    }
+
+    @Test
+    @DisplayName("An asynchronous request waits for the retry without blocking the caller.")
+    void testRetriesAsynchronousRequest() throws Exception {
+        try (FaxServiceClient client = client(RetryPolicy.builder().baseDelay(Duration.ofMillis(300)).build())) {
+            outcomes.add(new ConnectException("Connection refused"));
+            outcomes.add(status(HttpStatus.SC_OK, null));
+
+            long start = System.nanoTime();
+            CompletableFuture<HttpResponse> future = client.sendRequestAsync(HttpMethod.GET, URL, (String) null);
+            assertEquals(HttpStatus.SC_OK, future.get(10, TimeUnit.SECONDS).getStatusLine().getStatusCode());
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(300));
+            assertEquals(2, attempts.get());
+
+            outcomes.add(new SocketTimeoutException("Read timed out"));
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> client.sendRequestAsync(HttpMethod.POST, URL, "{}").get(10, TimeUnit.SECONDS));
+            assertTrue(exception.getCause() instanceof SocketTimeoutException);
+            assertEquals(3, attempts.get());
+        }
+    }
+
+    @Test
+    @DisplayName("The backoff stays between the base delay and the maximum delay.")
+    void testBackoffBounds() {
+        Retrier retrier = new Retrier(RetryPolicy.builder().baseDelay(Duration.ofMillis(100)).maxDelay(Duration.ofSeconds(1)).build());
+        long base = TimeUnit.MILLISECONDS.toNanos(100);
+        long max = TimeUnit.SECONDS.toNanos(1);
+        long previous = base;
+        for (int i = 0; i < 1000; i++) {
+            long next = retrier.nextBackoff(previous);
+            assertTrue(next >= base && next <= Math.min(max, previous * 3), "backoff " + next + " after " + previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    @DisplayName("The Retry-After header is read as seconds or as a date.")
+    void testRetryAfter() {
+        assertEquals(0, Retrier.retryAfterNanos(status(HttpStatus.SC_SERVICE_UNAVAILABLE, null)));
+        assertEquals(TimeUnit.SECONDS.toNanos(7), Retrier.retryAfterNanos(status(HttpStatus.SC_SERVICE_UNAVAILABLE, "7")));
+        assertEquals(0, Retrier.retryAfterNanos(status(HttpStatus.SC_SERVICE_UNAVAILABLE, "soon")));
+
+        long retryAfter = Retrier.retryAfterNanos(status(HttpStatus.SC_SERVICE_UNAVAILABLE, DateUtils.formatDate(new Date(System.currentTimeMillis() + 60_000))));
+        assertTrue(retryAfter > TimeUnit.SECONDS.toNanos(50) && retryAfter <= TimeUnit.SECONDS.toNanos(60));
+    }
+
+    @Test
+    @DisplayName("An invalid retry policy is rejected.")
+    void testInvalidPolicy() {
+        assertThrows(ApiException.class, () -> RetryPolicy.builder().maxAttempts(0));
+        assertThrows(ApiException.class, () -> RetryPolicy.builder().baseDelay(Duration.ZERO));
+        assertThrows(ApiException.class, () -> RetryPolicy.builder().budget(1.5, 10));
+        assertThrows(ApiException.class, () -> RetryPolicy.builder().baseDelay(Duration.ofSeconds(10)).maxDelay(Duration.ofSeconds(1)).build());
+    }
+
+    private FaxServiceClient client(RetryPolicy retryPolicy) throws IOException {
+        CloseableHttpClient mockHttpClient = mock(CloseableHttpClient.class);
+        when(mockHttpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            attempts.incrementAndGet();
+            Object outcome = outcomes.poll();
+            if (outcome instanceof IOException) {
+                throw (IOException) outcome;
+            }
+            return outcome;
+        });
+        HttpClient.setHttpClient(mockHttpClient);
+
+        return FaxServiceClient.builder()
+                .username("username")
+                .password("password")
+                .locale(Location.MUNICH)
+                .circuitBreaker(CircuitBreakerConfig.disabled())
+                .retryPolicy(retryPolicy)
+                .build();
+    }
+
+    private static HttpResponse status(int statusCode, String retryAfter) {
+        HttpResponse response = mock(CloseableHttpResponse.class);
+        when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, statusCode, null));
+        if (retryAfter != null) {
+            Header header = new BasicHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            when(response.getFirstHeader(HttpHeaders.RETRY_AFTER)).thenReturn(header);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,238 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.sendfax.status.AuthenticationMethod;
+import com.retarus.fax.base.sendfax.status.StatusPush;
+import com.retarus.fax.exception.ApiException;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusPushReceiverTest {
+
+    private static final String REPORT = "{\"jobId\":\"J1\",\"recipientStatus\":[]}";
+
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private StatusPushReceiver receiver;
+
+    @AfterEach
+    void tearDown() {
+        if (receiver != null) {
+            receiver.close();
+        }
+    }
+
+    @Test
+    @DisplayName("A status push with the expected basic credentials is answered with 200 and handed to the listeners, without them with 401.")
+    void testBasicAuthentication() throws Exception {
+        receiver = start(StatusPushReceiver.builder()
+                .authentication(AuthenticationMethod.HTTP_BASIC, "user", "secret")
+                .listener(report -> received.add(report.getJobId())));
+
+        assertEquals(401, post(REPORT, null));
+        assertEquals(401, post(REPORT, basic("user", "wrong")));
+        assertEquals(200, post(REPORT, basic("user", "secret")));
+
+        receiver.close();
+        assertEquals(1, received.size());
+        assertEquals("J1", received.get(0));
+        StatusPushMetrics metrics = receiver.getMetrics();
+        assertEquals(3, metrics.getRequests());
+        assertEquals(2, metrics.getUnauthorized());
+        assertEquals(1, metrics.getDispatched());
+    }
+
+    @Test
+    @DisplayName("An array of reports is handed to the listeners in order, a malformed body is answered with 400 and other methods with 405.")
+    void testBodies() throws Exception {
+        receiver = start(StatusPushReceiver.builder()
+                .maxBodySize(256)
+                .listener(report -> received.add(report.getJobId())));
+
+        assertEquals(200, post("[{\"jobId\":\"J1\"},{\"jobId\":\"J2\"},{\"jobId\":\"J3\"}]", null));
+        assertEquals(400, post("{\"jobId\":", null));
+        assertEquals(400, post("\"J4\"", null));
+        StringBuilder large = new StringBuilder("[");
+        for (int i = 0; i < 20; i++) {
+            large.append(i == 0 ? "" : ",").append(REPORT);
+        }
+        assertEquals(413, post(large.append("]").toString(), null));
+        HttpURLConnection connection = (HttpURLConnection) new URL(receiver.getUrl()).openConnection();
+        assertEquals(405, connection.getResponseCode());
+        assertEquals("POST", connection.getHeaderField("Allow"));
+
+        receiver.close();
+        assertEquals(3, receiver.getMetrics().getMalformed());
+        assertEquals(3, received.size());
+        assertEquals("J1", received.get(0));
+        assertEquals("J2", received.get(1));
+        assertEquals("J3", received.get(2));
+    }
+
+    @Test
+    @DisplayName("A digest client is answered with 200 with the expected password and with 401 with another one.")
+    void testDigestAuthentication() throws Exception {
+        receiver = start(StatusPushReceiver.builder()
+                .authentication(AuthenticationMethod.HTTP_DIGEST, "user", "secret")
+                .listener(report -> received.add(report.getJobId())));
+
+        assertEquals(200, postDigest("user", "secret"));
+        assertEquals(401, postDigest("user", "wrong"));
+
+        receiver.close();
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    @DisplayName("A status push is answered with 503 while the queue stays full, and the reports are handed to the listeners once it has room again.")
+    void testBackpressure() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        receiver = start(StatusPushReceiver.builder()
+                .queueCapacity(1)
+                .offerTimeout(Duration.ofMillis(50))
+                .listener(report -> {
+                    blocked.countDown();
+                    release.await();
+                    received.add(report.getJobId());
+                }));
+
+        assertEquals(200, post("{\"jobId\":\"J1\"}", null));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        assertEquals(200, post("{\"jobId\":\"J2\"}", null));
+        assertEquals(503, post("{\"jobId\":\"J3\"}", null));
+        assertEquals(1, receiver.getMetrics().getOverloaded());
+        assertEquals(1, receiver.getMetrics().getQueued());
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        int status;
+        do {
+            status = post("{\"jobId\":\"J3\"}", null);
+        } while (status == 503 && System.nanoTime() < deadline);
+        assertEquals(200, status);
+
+        receiver.close();
+        assertEquals(3, received.size());
+        assertEquals(3, receiver.getMetrics().getDispatched());
+    }
+
+    @Test
+    @DisplayName("A listener failure is counted and does not stop the report from being acknowledged.")
+    void testListenerFailure() throws Exception {
+        receiver = start(StatusPushReceiver.builder()
+                .listener(report -> {
+                    throw new IllegalStateException("Not now.");
+                }));
+
+        assertEquals(200, post(REPORT, null));
+
+        receiver.close();
+        assertEquals(1, receiver.getMetrics().getListenerFailures());
+        assertEquals(0, receiver.getMetrics().getDispatched());
+    }
+
+    @Test
+    @DisplayName("The generated StatusPush options point to the receiver with its credentials.")
+    void testStatusPush() throws Exception {
+        receiver = start(StatusPushReceiver.builder()
+                .path("/hooks/fax")
+                .authentication(AuthenticationMethod.HTTP_DIGEST, "user", "secret")
+                .listener(report -> received.add(report.getJobId())));
+
+        StatusPush statusPush = receiver.statusReportOptions().getStatusPush();
+        assertEquals("http://localhost:" + receiver.getAddress().getPort() + "/hooks/fax", statusPush.getUrl());
+        assertEquals(AuthenticationMethod.HTTP_DIGEST, statusPush.getAuthenticationMethod());
+        assertEquals("user", statusPush.getUsername());
+        assertEquals("secret", statusPush.getPassword());
+
+        StatusPushReceiver proxied = StatusPushReceiver.builder()
+                .publicUrl("https://fax.example.com/hooks/fax")
+                .listener(report -> received.add(report.getJobId()))
+                .build();
+        assertEquals("https://fax.example.com/hooks/fax", proxied.statusPush().getUrl());
+        assertEquals(AuthenticationMethod.NONE, proxied.statusPush().getAuthenticationMethod());
+    }
+
+    @Test
+    @DisplayName("The configuration is validated.")
+    void testValidation() throws IOException {
+        assertThrows(ApiException.class, () -> StatusPushReceiver.builder().authentication(AuthenticationMethod.OAUTH, "client", "secret"));
+        assertThrows(ApiException.class, () -> StatusPushReceiver.builder().authentication(AuthenticationMethod.HTTP_BASIC, "user", null));
+        assertThrows(ApiException.class, () -> StatusPushReceiver.builder().path("fax"));
+        assertThrows(ApiException.class, () -> StatusPushReceiver.builder().queueCapacity(0));
+        assertThrows(ApiException.class, () -> StatusPushReceiver.builder().build());
+
+        StatusPushReceiver notStarted = StatusPushReceiver.builder().listener(report -> received.add(report.getJobId())).build();
+        assertThrows(IllegalStateException.class, notStarted::getUrl);
+        receiver = start(StatusPushReceiver.builder().listener(report -> received.add(report.getJobId())));
+        assertThrows(IllegalStateException.class, receiver::start);
+    }
+
+    private static StatusPushReceiver start(StatusPushReceiver.StatusPushReceiverBuilder builder) throws IOException {
+        StatusPushReceiver receiver = builder.host("localhost").build();
+        receiver.start();
+        return receiver;
+    }
+
+    private static String basic(String username, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int post(String body, String authorization) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(receiver.getUrl()).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        if (authorization != null) {
+            connection.setRequestProperty("Authorization", authorization);
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        connection.setFixedLengthStreamingMode(bytes.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(bytes);
+        } catch (IOException e) {
+            // the receiver may answer before the whole body is sent
+        }
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private int postDigest(String username, String password) throws IOException {
+        CredentialsProvider credentials = new BasicCredentialsProvider();
+        credentials.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(username, password));
+        try (CloseableHttpClient httpClient = HttpClients.custom().setDefaultCredentialsProvider(credentials).build()) {
+            HttpPost post = new HttpPost(receiver.getUrl());
+            post.setEntity(new StringEntity(REPORT, ContentType.APPLICATION_JSON));
+            try (CloseableHttpResponse response = httpClient.execute(post)) {
+                return response.getStatusLine().getStatusCode();
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.retarus.fax.utils;
+
+import com.retarus.fax.exception.ApiException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileUtilsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("The file and its mapping are converted to the same base64 as the JDK encoder, for every padding.")
+    void testReadFileAndConvertToBase64() throws IOException {
+        Random random = new Random(42);
+        for (int size : new int[]{0, 1, 2, 3, 4, 5, 48 * 1024, 48 * 1024 + 1, 200_000}) {
+            byte[] content = new byte[size];
+            random.nextBytes(content);
+            Path file = Files.write(tempDir.resolve("file-" + size + ".bin"), content);
+
+            String expected = Base64.getEncoder().encodeToString(content);
+            assertEquals(expected, FileUtils.readFileAndConvertToBase64(file.toFile()), "size " + size);
+
+            assertEquals(expected, FileUtils.convertToBase64(new ByteBufferInputStream(FileUtils.mapFile(file))), "size " + size);
+        }
+    }
+
+    @Test
+    @DisplayName("A file that does not exist cannot be read.")
+    void testReadMissingFile() {
+        assertThrows(ApiException.class, () -> FileUtils.readFileAndConvertToBase64(new File(tempDir.toFile(), "missing.pdf")));
+    }
+}
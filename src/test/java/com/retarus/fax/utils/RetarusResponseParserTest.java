@@ -0,0 +1,72 @@
+package com.retarus.fax.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.retarus.fax.base.responses.FaxDeletionReport;
+import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.responses.Reason;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetarusResponseParserTest {
+
+    @Test
+    @DisplayName("The reports are streamed from the response body.")
+    void testParseReportsList() throws IOException {
+        List<FaxStatusReport> reports = RetarusResponseParser.parseHttpResponseToJobGetReportsList(
+                response(new String(Files.readAllBytes(Paths.get("src/main/resources/get_fax_reports_response.json")), StandardCharsets.UTF_8)));
+
+        assertEquals(1, reports.size());
+        assertEquals("FJLI3102O5BEPYOTB5LPC9", reports.get(0).getJobId());
+    }
+
+    @Test
+    @DisplayName("The fields around the reports are skipped, including nested objects and arrays.")
+    void testParseReportsListSkipsOtherFields() throws IOException {
+        List<FaxDeletionReport> reports = RetarusResponseParser.parseHttpResponseToJobDeleteReportsList(response(
+                "{\"meta\":{\"reports\":[1,2],\"nested\":[{\"a\":1}]},\"count\":2,"
+                        + "\"reports\":[{\"jobId\":\"JOB1\",\"deleted\":true},{\"jobId\":\"JOB2\",\"deleted\":false,\"reason\":\"NEW_REASON\"}],"
+                        + "\"trailing\":{}}"));
+
+        assertEquals(2, reports.size());
+        assertEquals("JOB1", reports.get(0).getJobId());
+        assertTrue(reports.get(0).isDeleted());
+        assertEquals("JOB2", reports.get(1).getJobId());
+        assertEquals(Reason.UNKNOWN, reports.get(1).getReason());
+    }
+
+    @Test
+    @DisplayName("A response without reports is parsed to null, an empty array to an empty list.")
+    void testParseReportsListWithoutReports() throws IOException {
+        assertNull(RetarusResponseParser.parseHttpResponseToJobGetReportsList(response("{\"other\":[]}")));
+        assertNull(RetarusResponseParser.parseHttpResponseToJobGetReportsList(response("{\"reports\":null}")));
+        assertTrue(RetarusResponseParser.parseHttpResponseToJobGetReportsList(response("{\"reports\":[]}")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("A malformed or truncated response cannot be parsed.")
+    void testParseReportsListMalformed() {
+        assertThrows(JsonProcessingException.class, () -> RetarusResponseParser.parseHttpResponseToJobGetReportsList(response("{\"reports\":{}}")));
+        assertThrows(JsonProcessingException.class, () -> RetarusResponseParser.parseHttpResponseToJobGetReportsList(response("{\"reports\":[{\"jobId\":\"JOB1\"}")));
+    }
+
+    private static HttpResponse response(String body) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        // A non-repeatable entity, so the body can only be read once, as a stream
+        response.setEntity(new InputStreamEntity(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))));
+        return response;
+    }
+}
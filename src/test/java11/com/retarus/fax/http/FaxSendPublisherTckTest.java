@@ -0,0 +1,57 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import org.apache.http.HttpStatus;
+import org.reactivestreams.tck.TestEnvironment;
+import org.reactivestreams.tck.flow.FlowPublisherVerification;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the Reactive Streams TCK against the publisher of the results of the fax requests.
+ */
+public class FaxSendPublisherTckTest extends FlowPublisherVerification<FaxSendResult> {
+
+    private final FaxServiceClient client = mock(FaxServiceClient.class);
+
+    public FaxSendPublisherTckTest() {
+        super(new TestEnvironment(1000));
+        when(client.sendFaxRequestAsync(any(FaxRequest.class))).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(new ApiResponse<>("jobId", HttpStatus.SC_CREATED, Location.MUNICH)));
+    }
+
+    @Override
+    public Flow.Publisher<FaxSendResult> createFlowPublisher(long elements) {
+        Flow.Publisher<FaxRequest> faxRequests = new IteratorPublisher<>(() -> ReactiveFaxClientTest.iterator(elements,
+                ReactiveFaxClientTest::faxRequest, new AtomicLong(), new AtomicBoolean()), ForkJoinPool.commonPool());
+        return ReactiveFaxClient.builder(client).maxInFlight(8).build().sendFaxRequests(faxRequests);
+    }
+
+    @Override
+    public Flow.Publisher<FaxSendResult> createFailedFlowPublisher() {
+        Flow.Publisher<FaxRequest> failed = subscriber -> {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IOException("The fax requests cannot be read."));
+        };
+        return ReactiveFaxClient.builder(client).build().sendFaxRequests(failed);
+    }
+}
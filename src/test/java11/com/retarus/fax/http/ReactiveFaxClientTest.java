@@ -0,0 +1,236 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.ApiResponse;
+import com.retarus.fax.base.CloseableIterator;
+import com.retarus.fax.base.responses.FaxDeletionReport;
+import com.retarus.fax.base.responses.FaxStatusReport;
+import com.retarus.fax.base.rest.Location;
+import com.retarus.fax.base.sendfax.Document;
+import com.retarus.fax.base.sendfax.FaxRecipient;
+import com.retarus.fax.base.sendfax.FaxRequest;
+import com.retarus.fax.exception.ApiException;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReactiveFaxClientTest {
+
+    @Test
+    @DisplayName("The reports are read only when they are requested, and the response is closed when the subscriber cancels.")
+    void testReportsFollowDemand() throws Exception {
+        AtomicLong read = new AtomicLong();
+        AtomicBoolean closed = new AtomicBoolean();
+        FaxServiceClient client = mock(FaxServiceClient.class);
+        when(client.iterateReports()).thenAnswer(invocation -> iterator(100, ReactiveFaxClientTest::report, read, closed));
+
+        RecordingSubscriber<FaxStatusReport> subscriber = new RecordingSubscriber<>();
+        ReactiveFaxClient.builder(client).build().getReports().subscribe(subscriber);
+        assertEquals(0, read.get());
+
+        subscriber.request(5);
+        subscriber.awaitItems(5);
+        Thread.sleep(50);
+        assertEquals(5, read.get());
+        assertEquals("job-4", subscriber.items.get(4).getJobId());
+
+        subscriber.subscription.cancel();
+        awaitTrue(closed);
+        assertEquals(5, read.get());
+        assertFalse(subscriber.done.await(50, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("The deletion reports of all locations are published, and the end is signalled without another request.")
+    void testDeleteReports() throws Exception {
+        FaxServiceClient client = mock(FaxServiceClient.class);
+        when(client.iterateDeletedReports()).thenAnswer(invocation -> iterator(3,
+                index -> FaxDeletionReport.builder().jobId("job-" + index).deleted(true).build(), new AtomicLong(), new AtomicBoolean()));
+
+        RecordingSubscriber<FaxDeletionReport> subscriber = new RecordingSubscriber<>();
+        ReactiveFaxClient.builder(client).build().deleteReports().subscribe(subscriber);
+        subscriber.request(3);
+
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        assertNull(subscriber.error);
+        assertEquals(3, subscriber.items.size());
+    }
+
+    @Test
+    @DisplayName("A location that cannot be read fails the subscription.")
+    void testReportsError() throws Exception {
+        FaxServiceClient client = mock(FaxServiceClient.class);
+        when(client.iterateReports()).thenThrow(new ApiException("Service Unavailable."));
+
+        RecordingSubscriber<FaxStatusReport> subscriber = new RecordingSubscriber<>();
+        ReactiveFaxClient.builder(client).build().getReports().subscribe(subscriber);
+        subscriber.request(1);
+
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        assertTrue(subscriber.error instanceof ApiException);
+    }
+
+    @Test
+    @DisplayName("The fax requests are only sent when their results are requested, with no more in flight than the maximum.")
+    void testSendFollowsDemand() throws Exception {
+        List<CompletableFuture<ApiResponse<String>>> responses = Collections.synchronizedList(new ArrayList<>());
+        FaxServiceClient client = mock(FaxServiceClient.class);
+        when(client.sendFaxRequestAsync(any(FaxRequest.class))).thenAnswer(invocation -> {
+            CompletableFuture<ApiResponse<String>> response = new CompletableFuture<>();
+            responses.add(response);
+            return response;
+        });
+        AtomicLong read = new AtomicLong();
+        Flow.Publisher<FaxRequest> faxRequests = new IteratorPublisher<>(() -> iterator(100, ReactiveFaxClientTest::faxRequest, read, new AtomicBoolean()), ForkJoinPool.commonPool());
+
+        RecordingSubscriber<FaxSendResult> subscriber = new RecordingSubscriber<>();
+        ReactiveFaxClient.builder(client).maxInFlight(4).build().sendFaxRequests(faxRequests).subscribe(subscriber);
+        subscriber.request(10);
+        awaitSize(responses, 4);
+        Thread.sleep(50);
+        assertEquals(4, responses.size());
+
+        // Answer every request sent, until the requested results are handed back
+        for (int answered = 0; subscriber.items.size() < 10; ) {
+            if (answered < responses.size()) {
+                responses.get(answered++).complete(new ApiResponse<>("jobId", HttpStatus.SC_CREATED, Location.MUNICH));
+            } else {
+                Thread.sleep(1);
+            }
+        }
+        Thread.sleep(50);
+        assertEquals(10, responses.size());
+        assertTrue(read.get() <= 10, "read " + read.get());
+        assertEquals(10, subscriber.items.stream().mapToLong(FaxSendResult::getIndex).distinct().count());
+        subscriber.items.forEach(result -> assertTrue(result.isSuccess()));
+        subscriber.subscription.cancel();
+    }
+
+    @Test
+    @DisplayName("The results of all fax requests are published, including the ones that could not be sent.")
+    void testSendCompletes() throws Exception {
+        FaxServiceClient client = mock(FaxServiceClient.class);
+        when(client.sendFaxRequestAsync(any(FaxRequest.class))).thenAnswer(invocation ->
+                CompletableFuture.failedFuture(new ApiException("Service Unavailable.")));
+        Flow.Publisher<FaxRequest> faxRequests = new IteratorPublisher<>(() -> iterator(20, ReactiveFaxClientTest::faxRequest, new AtomicLong(), new AtomicBoolean()), ForkJoinPool.commonPool());
+
+        RecordingSubscriber<FaxSendResult> subscriber = new RecordingSubscriber<>();
+        ReactiveFaxClient.builder(client).build().sendFaxRequests(faxRequests).subscribe(subscriber);
+        subscriber.request(Long.MAX_VALUE);
+
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        assertNull(subscriber.error);
+        assertEquals(20, subscriber.items.size());
+        subscriber.items.forEach(result -> assertTrue(result.getException() instanceof ApiException));
+    }
+
+    @Test
+    @DisplayName("An invalid reactive client is rejected.")
+    void testInvalidConfig() {
+        assertThrows(ApiException.class, () -> ReactiveFaxClient.builder(mock(FaxServiceClient.class)).maxInFlight(0));
+        assertThrows(ApiException.class, () -> ReactiveFaxClient.builder(null).build());
+    }
+
+    /**
+     * An iterator over the given number of elements, created when they are read.
+     */
+    static <T> CloseableIterator<T> iterator(long count, LongFunction<T> element, AtomicLong read, AtomicBoolean closed) {
+        return new CloseableIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return !closed.get() && read.get() < count;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return element.apply(read.getAndIncrement());
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+    }
+
+    static FaxStatusReport report(long index) {
+        return FaxStatusReport.builder().jobId("job-" + index).build();
+    }
+
+    static FaxRequest faxRequest(long index) {
+        return FaxRequest.builder()
+                .faxRecipient(FaxRecipient.builder().faxNumber("+4900000000").build())
+                .document(Document.builder().filename("test" + index + ".txt").data("dGVzdA==").build())
+                .build();
+    }
+
+    private static void awaitTrue(AtomicBoolean condition) throws InterruptedException {
+        for (int i = 0; i < 1000 && !condition.get(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.get());
+    }
+
+    private static void awaitSize(List<?> list, int size) throws InterruptedException {
+        for (int i = 0; i < 1000 && list.size() < size; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(size, list.size());
+    }
+
+    private static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        private final List<T> items = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        private void request(long n) {
+            subscription.request(n);
+        }
+
+        private void awaitItems(int count) throws InterruptedException {
+            awaitSize(items, count);
+        }
+    }
+}
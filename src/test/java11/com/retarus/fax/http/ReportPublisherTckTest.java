@@ -0,0 +1,35 @@
+package com.retarus.fax.http;
+
+import com.retarus.fax.base.responses.FaxStatusReport;
+import org.reactivestreams.tck.TestEnvironment;
+import org.reactivestreams.tck.flow.FlowPublisherVerification;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the Reactive Streams TCK against the publisher of the fax status reports.
+ */
+public class ReportPublisherTckTest extends FlowPublisherVerification<FaxStatusReport> {
+
+    public ReportPublisherTckTest() {
+        super(new TestEnvironment(1000));
+    }
+
+    @Override
+    public Flow.Publisher<FaxStatusReport> createFlowPublisher(long elements) {
+        FaxServiceClient client = mock(FaxServiceClient.class);
+        when(client.iterateReports()).thenAnswer(invocation -> ReactiveFaxClientTest.iterator(elements, ReactiveFaxClientTest::report, new AtomicLong(), new AtomicBoolean()));
+        return ReactiveFaxClient.builder(client).build().getReports();
+    }
+
+    @Override
+    public Flow.Publisher<FaxStatusReport> createFailedFlowPublisher() {
+        // The reports are fetched with the first request, so a location that cannot be read is only signalled then, see ReactiveFaxClientTest
+        return null;
+    }
+}